@@ -0,0 +1,61 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import msm.simulator.exceptions.ComEngineException;
+import msm.simulator.network.Network;
+
+
+/**
+ * Simulation engine for the asynchronous network model (event-driven execution).
+ *
+ * @author pcjesus
+ *
+ */
+public class AsynchronousEngine implements SimulationEngine {
+
+    private final ComEngine comEngine;
+    //Time up to which a quiescent network is skipped
+    private int quiescenceHorizon;
+
+
+    public AsynchronousEngine(ComEngine comEngine){
+        this.comEngine = comEngine;
+    }
+
+
+    public void init(Network net, Config conf, Integer simulationIndex, Integer repetitionCount)
+        throws ClassNotFoundException, IllegalAccessException, InstantiationException, ComEngineException {
+        this.comEngine.AsynchronousInitCommunication(net, conf, simulationIndex, repetitionCount);
+    }
+
+
+    public void step() throws ComEngineException {
+        if(this.comEngine.skipQuiescentTicks(this.quiescenceHorizon)){
+            return;
+        }
+        this.comEngine.AsynchronousCommunication();
+    }
+
+
+    public void setHorizon(int time){
+        //Only the next time is processed at each step
+    }
+
+
+    public void setQuiescenceHorizon(int time){
+        this.quiescenceHorizon = time;
+    }
+
+
+    public int getGlobalTime(){
+        return this.comEngine.getGlobalTime();
+    }
+
+
+    public ComEngine getComEngine(){
+        return this.comEngine;
+    }
+
+}
@@ -76,7 +76,7 @@ public class AverageFileResults {
         String outputFilename = config.getValue(AverageFileResults.PARAM_OUTPUT_FILENAME);
         
         //Get Input Files
-        HashMap<String, ArrayList<BigDecimal>> data = new HashMap();
+        HashMap<String, ArrayList<BigDecimal>> data = new HashMap<String, ArrayList<BigDecimal>>();
         for(int i=0; i < numFiles; i++){
             try {
                 data.put(config.getValue(i+1, AverageFileResults.PARAM_INPUT_FILES), new ArrayList<BigDecimal>());
@@ -155,7 +155,7 @@ public class AverageFileResults {
         
         
         System.out.print("Computing average...");
-        ArrayList<BigDecimal> result = new ArrayList(index.size());
+        ArrayList<BigDecimal> result = new ArrayList<BigDecimal>(index.size());
         //Compute average
         for(int i=0; i < index.size(); i++){
             BigDecimal sum = BigDecimal.ZERO;
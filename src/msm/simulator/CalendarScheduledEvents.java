@@ -0,0 +1,596 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import msm.simulator.Event.EventType;
+
+
+/**
+ * Event scheduler implemented as a calendar queue.
+ *
+ * Events are kept in a ring of buckets, one bucket per time unit, covering the
+ * window [cursor, cursor + number of buckets). Events beyond the window are kept
+ * in an overflow heap (by time and insertion sequence) and moved into the ring as
+ * the window reaches them, earliest first. The ring grows when the overflow dominates.
+ *
+ * Events are primitive records stored in parallel arrays (time, node, type, data
+ * and links), recycled through a free list, so no object is allocated per event.
+ * The handle of an event holds its record index (lower 32 bits) and the record
+ * generation (upper 32 bits), incremented each time the record is released.
+ *
+ * Events of the same time are pulled in insertion order, unless added with an
+ * explicit order (placed after the events of lower or equal order).
+ *
+ * Enqueue and dequeue are amortized O(1) for integer times.
+ *
+ * @author pcjesus
+ *
+ */
+public class CalendarScheduledEvents implements EventScheduler {
+
+    public static final int DEFAULT_BUCKETS = 1024;
+    private static final int MAX_BUCKETS = 1 << 22;
+
+    private static final int NIL = -1;
+
+    //Event records
+    private int[] time;
+    private int[] node;
+    private byte[] type;
+    private Object[] data;
+    private int[] next;
+    private int[] prev;
+    private int[] generation;
+    //Order inside the time slot (Integer.MAX_VALUE if not given)
+    private int[] order;
+    //Insertion sequence of the records in the overflow heap
+    private long[] sequence;
+
+    //Released records (linked by next)
+    private int free;
+    //Number of records already used
+    private int used;
+
+    //Ring of buckets (bucket index = time & mask)
+    private int[] head;
+    private int[] tail;
+    private int[] count;
+    private int mask;
+
+    //Earliest time that may have scheduled events (window start)
+    private int cursor;
+
+    //Number of events in the ring
+    private int ringSize;
+
+    //Events scheduled beyond the window: binary heap of records by time and sequence
+    //(heap position of a record kept in prev)
+    private int[] overflow;
+    private int overflowSize;
+    private long nextSequence;
+
+
+    /**
+     * CONSTRUCTORS
+     */
+
+
+    public CalendarScheduledEvents(){
+        this(DEFAULT_BUCKETS);
+    }
+
+
+    /**
+     * Constructor with the initial number of buckets (rounded to a power of 2)
+     *
+     * @param buckets initial number of buckets (time units covered by the ring)
+     */
+    public CalendarScheduledEvents(int buckets){
+
+        int n = 1;
+        while(n < buckets && n < MAX_BUCKETS){
+            n = n << 1;
+        }
+
+        this.allocateRecords(n);
+        this.allocateBuckets(n);
+        this.cursor = 0;
+        this.overflow = new int[16];
+        this.overflowSize = 0;
+    }
+
+
+    private void allocateRecords(int capacity){
+        this.time = new int[capacity];
+        this.node = new int[capacity];
+        this.type = new byte[capacity];
+        this.data = new Object[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.generation = new int[capacity];
+        this.order = new int[capacity];
+        this.sequence = new long[capacity];
+        this.free = NIL;
+        this.used = 0;
+    }
+
+
+    private void allocateBuckets(int buckets){
+        this.head = new int[buckets];
+        this.tail = new int[buckets];
+        Arrays.fill(this.head, NIL);
+        Arrays.fill(this.tail, NIL);
+        this.count = new int[buckets];
+        this.mask = buckets - 1;
+        this.ringSize = 0;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#add(int, int, msm.simulator.Event.EventType, java.lang.Object)
+     */
+    public long add(int time, int node, EventType type, Object data){
+        return this.add(time, node, type, data, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Add an event, placed after the events of the same time with lower or equal order
+     * (e.g. the time at which the event was sent, to pull events in the order they were
+     * sent, whatever the order in which they are added)
+     *
+     * @param order order of the event inside its time slot
+     * @return handle of the event (never 0)
+     */
+    public long add(int time, int node, EventType type, Object data, int order){
+
+        if(this.isEmpty()){
+            //Move window to the event time
+            this.cursor = time;
+        } else if(time < this.cursor){
+            //Event scheduled before the current window
+            this.rewind(time);
+        }
+
+        //Get a free record
+        int r = this.free;
+        if(r != NIL){
+            this.free = this.next[r];
+        } else {
+            if(this.used == this.time.length){
+                this.growRecords();
+            }
+            r = this.used++;
+            this.generation[r] = 1;
+        }
+
+        this.time[r] = time;
+        this.node[r] = node;
+        this.type[r] = (byte) type.ordinal();
+        this.data[r] = data;
+        this.order[r] = order;
+
+        this.place(r);
+
+        //Grow the ring if most events do not fit in the window
+        if((this.overflowSize > this.ringSize)
+                && (this.overflowSize > (this.head.length >> 2))
+                && (this.head.length < MAX_BUCKETS)){
+            this.resize(this.head.length << 1);
+        }
+
+        return (((long) this.generation[r]) << 32) | r;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#cancel(long)
+     */
+    public boolean cancel(long handle){
+
+        int r = (int) handle;
+        if((r < 0) || (r >= this.used) || (this.generation[r] != (int) (handle >>> 32))){
+            //Event already pulled or cancelled
+            return false;
+        }
+
+        this.unlink(r);
+        this.release(r);
+
+        return true;
+    }
+
+
+    /**
+     * @return true if the event referred by the handle is scheduled (not yet pulled or cancelled)
+     */
+    public boolean isScheduled(long handle){
+        int r = (int) handle;
+        return (r >= 0) && (r < this.used) && (this.generation[r] == (int) (handle >>> 32));
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#pullNext(msm.simulator.EventBatch)
+     */
+    public int pullNext(EventBatch batch){
+
+        int t = this.findNext();
+        int b = t & this.mask;
+
+        batch.clear();
+        batch.setTime(t);
+
+        int r = this.head[b];
+        while(r != NIL){
+            int n = this.next[r];
+            batch.add(this.node[r], this.type[r], this.data[r]);
+            this.release(r);
+            r = n;
+        }
+
+        this.ringSize -= this.count[b];
+        this.head[b] = NIL;
+        this.tail[b] = NIL;
+        this.count[b] = 0;
+
+        return t;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#getTimeOfNextEvents()
+     */
+    public int getTimeOfNextEvents(){
+        return this.findNext();
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#numberOfEventAtSameTime(int)
+     */
+    public int numberOfEventAtSameTime(int time){
+
+        if(time < this.cursor){
+            return 0;
+        } else if(this.inWindow(time)){
+            return this.count[time & this.mask];
+        } else {
+            int n = 0;
+            for(int i=0; i < this.overflowSize; i++){
+                if(this.time[this.overflow[i]] == time){
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#removeEvent(int, int, msm.simulator.Event.EventType, java.lang.Object)
+     */
+    public boolean removeEvent(int time, int node, EventType type, Object data){
+
+        if(time < this.cursor){
+            return false;
+        }
+
+        if(this.inWindow(time)){
+            for(int r = this.head[time & this.mask]; r != NIL; r = this.next[r]){
+                if(this.matches(r, time, node, type, data)){
+                    this.unlink(r);
+                    this.release(r);
+                    return true;
+                }
+            }
+        } else {
+            for(int i=0; i < this.overflowSize; i++){
+                int r = this.overflow[i];
+                if(this.matches(r, time, node, type, data)){
+                    this.unlink(r);
+                    this.release(r);
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    private boolean matches(int r, int time, int node, EventType type, Object data){
+        return (this.time[r] == time)
+            && (this.node[r] == node)
+            && (this.type[r] == type.ordinal())
+            && ((data == null) || data.equals(this.data[r]));
+    }
+
+
+    public int size(){
+        return this.ringSize + this.overflowSize;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#numberOfEvents()
+     */
+    public int numberOfEvents(){
+        return this.size();
+    }
+
+
+    public boolean isEmpty(){
+        return (this.ringSize + this.overflowSize) == 0;
+    }
+
+
+    public void clear(){
+
+        //Release all scheduled records
+        for(int b=0; b < this.head.length; b++){
+            int r = this.head[b];
+            while(r != NIL){
+                int n = this.next[r];
+                this.release(r);
+                r = n;
+            }
+        }
+        for(int i=0; i < this.overflowSize; i++){
+            this.release(this.overflow[i]);
+        }
+
+        Arrays.fill(this.head, NIL);
+        Arrays.fill(this.tail, NIL);
+        Arrays.fill(this.count, 0);
+        this.ringSize = 0;
+        this.overflowSize = 0;
+        this.cursor = 0;
+    }
+
+
+    /**
+     * Move the cursor to the next non empty bucket (migrating overflow events into the window)
+     *
+     * @return time of the next events
+     */
+    private int findNext(){
+
+        while(this.ringSize == 0){
+            if(this.overflowSize == 0){
+                throw new NoSuchElementException();
+            }
+            //Jump to the earliest overflow event
+            this.cursor = this.time[this.overflow[0]];
+            this.migrate();
+        }
+
+        while(this.count[this.cursor & this.mask] == 0){
+            this.cursor++;
+            this.migrate();
+        }
+
+        return this.cursor;
+    }
+
+
+    private boolean inWindow(int time){
+        return (time - this.cursor) <= this.mask;
+    }
+
+
+    /**
+     * Put record in the ring (if inside the window) or in the overflow list
+     */
+    private void place(int r){
+
+        int t = this.time[r];
+
+        if(this.inWindow(t)){
+            int b = t & this.mask;
+            //Insert after the last record of lower or equal order (usually the tail)
+            int p = this.tail[b];
+            while((p != NIL) && (this.order[p] > this.order[r])){
+                p = this.prev[p];
+            }
+            int n = (p != NIL) ? this.next[p] : this.head[b];
+            this.prev[r] = p;
+            this.next[r] = n;
+            if(p != NIL){
+                this.next[p] = r;
+            } else {
+                this.head[b] = r;
+            }
+            if(n != NIL){
+                this.prev[n] = r;
+            } else {
+                this.tail[b] = r;
+            }
+            this.count[b]++;
+            this.ringSize++;
+        } else {
+            //Sequence: same time events migrated in the order they were placed
+            this.sequence[r] = this.nextSequence++;
+            this.next[r] = NIL;
+            if(this.overflowSize == this.overflow.length){
+                this.overflow = Arrays.copyOf(this.overflow, this.overflowSize << 1);
+            }
+            this.siftUp(this.overflowSize++, r);
+        }
+    }
+
+
+    /**
+     * Remove record from the ring or from the overflow list
+     * (records inside the window are always in the ring)
+     */
+    private void unlink(int r){
+
+        int p = this.prev[r];
+        int n = this.next[r];
+
+        if(this.inWindow(this.time[r])){
+            int b = this.time[r] & this.mask;
+            if(p != NIL){
+                this.next[p] = n;
+            } else {
+                this.head[b] = n;
+            }
+            if(n != NIL){
+                this.prev[n] = p;
+            } else {
+                this.tail[b] = p;
+            }
+            this.count[b]--;
+            this.ringSize--;
+        } else {
+            this.removeOverflow(p);
+        }
+    }
+
+
+    /**
+     * Release record (invalidating its handle)
+     */
+    private void release(int r){
+        this.data[r] = null;
+        this.generation[r] = (this.generation[r] == Integer.MAX_VALUE) ? 1 : this.generation[r] + 1;
+        this.next[r] = this.free;
+        this.free = r;
+    }
+
+
+    /**
+     * Move the overflow events that fit in the current window into the ring
+     * (earliest first, same time events in the order they were placed)
+     */
+    private void migrate(){
+        while((this.overflowSize > 0) && this.inWindow(this.time[this.overflow[0]])){
+            int r = this.overflow[0];
+            this.removeOverflow(0);
+            this.place(r);
+        }
+    }
+
+
+    /**
+     * Remove the record at the given position of the overflow heap
+     */
+    private void removeOverflow(int i){
+        int last = this.overflow[--this.overflowSize];
+        if(i < this.overflowSize){
+            this.siftDown(i, last);
+            if(this.overflow[i] == last){
+                this.siftUp(i, last);
+            }
+        }
+    }
+
+
+    private void siftUp(int i, int r){
+        while(i > 0){
+            int parent = (i - 1) >> 1;
+            int p = this.overflow[parent];
+            if(!this.before(r, p)){
+                break;
+            }
+            this.overflow[i] = p;
+            this.prev[p] = i;
+            i = parent;
+        }
+        this.overflow[i] = r;
+        this.prev[r] = i;
+    }
+
+
+    private void siftDown(int i, int r){
+        int half = this.overflowSize >> 1;
+        while(i < half){
+            int child = (i << 1) + 1;
+            int c = this.overflow[child];
+            if((child + 1 < this.overflowSize) && this.before(this.overflow[child + 1], c)){
+                c = this.overflow[++child];
+            }
+            if(!this.before(c, r)){
+                break;
+            }
+            this.overflow[i] = c;
+            this.prev[c] = i;
+            i = child;
+        }
+        this.overflow[i] = r;
+        this.prev[r] = i;
+    }
+
+
+    private boolean before(int r1, int r2){
+        return (this.time[r1] < this.time[r2])
+            || ((this.time[r1] == this.time[r2]) && (this.sequence[r1] < this.sequence[r2]));
+    }
+
+
+    /**
+     * Move the window back to the given time (events no longer fitting the window go to the overflow)
+     */
+    private void rewind(int time){
+
+        int limit = time + this.mask;
+        this.cursor = time;
+
+        for(int b=0; b < this.head.length; b++){
+            if(this.count[b] > 0 && this.time[this.head[b]] > limit){
+                int r = this.head[b];
+                this.ringSize -= this.count[b];
+                this.head[b] = NIL;
+                this.tail[b] = NIL;
+                this.count[b] = 0;
+                while(r != NIL){
+                    int n = this.next[r];
+                    this.place(r);
+                    r = n;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Change the number of buckets, redistributing all the scheduled events
+     */
+    private void resize(int buckets){
+
+        int[] oldHead = this.head;
+
+        //Overflow events that fit the larger window first (later than the ones in the ring)
+        this.allocateBuckets(buckets);
+        this.migrate();
+
+        for(int b=0; b < oldHead.length; b++){
+            int r = oldHead[b];
+            while(r != NIL){
+                int n = this.next[r];
+                this.place(r);
+                r = n;
+            }
+        }
+    }
+
+
+    private void growRecords(){
+        int capacity = this.time.length << 1;
+        this.time = Arrays.copyOf(this.time, capacity);
+        this.node = Arrays.copyOf(this.node, capacity);
+        this.type = Arrays.copyOf(this.type, capacity);
+        this.data = Arrays.copyOf(this.data, capacity);
+        this.next = Arrays.copyOf(this.next, capacity);
+        this.prev = Arrays.copyOf(this.prev, capacity);
+        this.generation = Arrays.copyOf(this.generation, capacity);
+        this.order = Arrays.copyOf(this.order, capacity);
+        this.sequence = Arrays.copyOf(this.sequence, capacity);
+    }
+
+}
@@ -6,12 +6,15 @@
 package msm.simulator;
 
 
+import java.io.File;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import msm.simulator.Event.EventType;
@@ -21,16 +24,17 @@ import msm.simulator.exceptions.ComEngineException;
 import msm.simulator.exceptions.ConfigException;
 import msm.simulator.exceptions.NumGenerationException;
 import msm.simulator.network.Message;
+import msm.simulator.network.MessagePool;
 import msm.simulator.network.Network;
+import msm.simulator.network.NetworkTopology;
 import msm.simulator.network.Node;
 import msm.simulator.util.NetStatistics;
 import msm.simulator.util.NumGenerator;
 import msm.simulator.util.NumGenerator.GenerationFunction;
+import msm.simulator.util.RandomStreams;
 import msm.simulator.util.SetUtils;
 
 import org.apache.commons.math.MathException;
-import org.apache.commons.math.random.MersenneTwister;
-import org.apache.commons.math.random.RandomGenerator;
 
 
 /**
@@ -40,6 +44,14 @@ public class ComEngine {
 
     public static enum Model {Synchronous, Asynchronous};
     
+    //Event scheduler: sorted map (TREE), calendar queue (CALENDAR), or calendar queue of a window with far-future events spilled to disk (SPILL)
+    public static enum SchedulerType {TREE, CALENDAR, SPILL};
+    
+    //Messages in transit: scheduled one by one (NONE), or queued by link (LINK), keeping the sending order (FIFO)
+    public static enum ChannelType {NONE, LINK, FIFO};
+    
+    public static enum ExecutionMode {SEQUENTIAL, PARALLEL, OPTIMISTIC};
+    
     public static final String METHOD_INIT_COMMUNICATION = "InitCommunication";
     public static final String METHOD_COMMUNICATION = "Communication";
 
@@ -50,6 +62,7 @@ public class ComEngine {
     public static final String PARAM_MSG_DISCARD = "MSG_DISCARD";
     public static final String PARAM_LOSS_PROBABILITY = "LOSS_PROBABILITY";
     public static final String PARAM_LOSS_AT_SENDER = "LOSS_AT_SENDER";
+    public static final String PARAM_LOSS_EVENTS = "LOSS_EVENTS";
     
     public static final String PARAM_USE_OVERLAY = "USE_OVERLAY";
     public static final String PARAM_CREATE_APP_COMMUNICATION_GRAPH = "SHOW_CREATE_COMMUNICATION_GRAPH";
@@ -58,7 +71,22 @@ public class ComEngine {
     public static final String PARAM_MSG_TRANSMISSION_TIME = "MSG_TRANSMISSION_TIME";
     public static final String PARAM_INIT_DELAY = "INIT_DELAY";
     
-    public static final String CLOCK_EVENT_KEY_SEPARATOR = "/";
+    public static final String PARAM_SCHEDULER = "SCHEDULER";
+    public static final String PARAM_SCHEDULER_BUCKETS = "SCHEDULER_BUCKETS";
+    public static final String PARAM_SPILL_WINDOW = "SPILL_WINDOW";
+    public static final String PARAM_SPILL_RUN_SIZE = "SPILL_RUN_SIZE";
+    public static final String PARAM_SPILL_DIR = "SPILL_DIR";
+    public static final String PARAM_CHANNELS = "CHANNELS";
+    public static final String PARAM_EXECUTION = "EXECUTION";
+    public static final String PARAM_THREADS = "THREADS";
+    public static final String PARAM_LOGICAL_PROCESSES = "LOGICAL_PROCESSES";
+    public static final String PARAM_OPTIMISTIC_WINDOW = "OPTIMISTIC_WINDOW";
+    public static final String PARAM_SEED = "SEED";
+    public static final String PARAM_MSG_POOL = "MSG_POOL";
+    public static final String PARAM_MSG_POOL_DEBUG = "MSG_POOL_DEBUG";
+    
+    //Handle value that never refers to a clock event
+    public static final long NO_TIMEOUT = 0;
 
     private NetStatistics.AggFunctions aggFunction;
 /*
@@ -69,6 +97,8 @@ public class ComEngine {
 */
     private float lossProbability;
     private boolean lossAtSender;
+    //Schedule loss events at the receivers (or count the loss when the message is sent)
+    private boolean lossEvents;
     private boolean useOverlay;
     private boolean createAppComGraph;
     private boolean showAppComGraph;
@@ -79,8 +109,11 @@ public class ComEngine {
     //Number generator to compute the init delay time
     private NumGenerator initDelayGenerator;
 
-//    private Random rndLoss;
-    private RandomGenerator rndLoss;
+    //Random streams of the nodes (message loss, applications)
+    private RandomStreams rndStreams;
+    //Derived seeds of the sequential generators (logical processes use their index)
+    private static final int SEQUENTIAL_TIME_STREAM = -1;
+    private static final int INIT_DELAY_STREAM = -2;
     
     //Global time (round in the case of the synchronous execution)
     private int globalTime;
@@ -99,13 +132,54 @@ public class ComEngine {
     private MathContext mc;
     
     //Scheduled Applications Events
-    private ScheduledEvents appEvents;
+    private EventScheduler appEvents;
+    
+    //Events pulled for processing (reused at each step)
+    private EventBatch evtBatch;
     
     //Scheduled Internal Events
     //private ScheduledEvents internalEvents;
     
     private Model model;
     
+    private ExecutionMode executionMode;
+    
+    //Simulation engine executing the model
+    private SimulationEngine engine;
+    
+    //Outbox of the current thread (only set by the parallel synchronous engine)
+    private final ThreadLocal<RoundOutbox> outbox = new ThreadLocal<RoundOutbox>();
+    
+    //Grouped events of the batch processed by the current thread (asynchronous model)
+    private final ThreadLocal<ReceiveBatches> receiveBatches = new ThreadLocal<ReceiveBatches>();
+    
+    //Periodic clock timers of the nodes (asynchronous model)
+    private final PeriodicTimers timers = new PeriodicTimers();
+    
+    //Messages in transit by link (sequential asynchronous model, null if not used)
+    private LinkChannels channels;
+    
+    //Messages acquired by the applications (recycled by the sequential asynchronous model)
+    private final MessagePool msgPool = new MessagePool();
+    
+    //Delivery records of the broadcast messages (sequential asynchronous model)
+    private final MulticastDelivery.Pool multicastPool = new MulticastDelivery.Pool();
+    
+    //Message channels of the synchronous rounds (set by the synchronous engines: no clock events, messages not kept by the nodes)
+    private RoundMailboxes mailboxes;
+    
+    //Logical processes of the parallel asynchronous engines (events of node n kept by logicalProcesses[n % length])
+    private LogicalProcess[] logicalProcesses;
+    
+    //Indicate if the message receive events carry the message (not kept in the receiver buffer)
+    private boolean msgInEvents;
+    
+    //Logical process of the current thread (inside a window of a parallel asynchronous engine)
+    private final ThreadLocal<LogicalProcess> logicalProcess = new ThreadLocal<LogicalProcess>();
+    
+    //Transmission times of the messages of a broadcast (buffer of the current thread)
+    private final ThreadLocal<int[]> transmissionTimes = new ThreadLocal<int[]>();
+    
     
     private static final String DEBUG_PROP  = "msm.simulator.ComEngine.DEBUG";
     public static final boolean useDebug;
@@ -118,13 +192,53 @@ public class ComEngine {
     public ComEngine() {
 
         this.msgCount = 0;
-//        this.rndLoss = new Random();
-        this.rndLoss = new MersenneTwister();
-        this.appEvents = new ScheduledEvents();
+        this.rndStreams = new RandomStreams(System.nanoTime());
+        this.appEvents = new CalendarScheduledEvents();
+        this.evtBatch = new EventBatch();
         
     }    
     
     
+    /**
+     * Create the event scheduler defined in the configuration (calendar queue by default)
+     */
+    private EventScheduler createScheduler(Config conf, Integer simulationIndex) throws ConfigException {
+        
+        SchedulerType type = SchedulerType.valueOf(conf.getValueWithDefault(SchedulerType.CALENDAR.toString(), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_SCHEDULER));
+        
+        int buckets = Integer.parseInt(conf.getValueWithDefault(String.valueOf(CalendarScheduledEvents.DEFAULT_BUCKETS), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_SCHEDULER_BUCKETS));
+        
+        switch (type) {
+            case TREE:
+                return new ScheduledEvents();
+            case SPILL:
+                int window = Integer.parseInt(conf.getValueWithDefault(String.valueOf(SpillingScheduledEvents.DEFAULT_WINDOW), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_SPILL_WINDOW));
+                int runSize = Integer.parseInt(conf.getValueWithDefault(String.valueOf(SpillingScheduledEvents.DEFAULT_RUN_SIZE), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_SPILL_RUN_SIZE));
+                String dir = conf.getValueWithDefault(System.getProperty("java.io.tmpdir"), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_SPILL_DIR);
+                return new SpillingScheduledEvents(buckets, window, runSize, new File(dir));
+            default:
+                return new CalendarScheduledEvents(buckets);
+        }
+    }
+    
+    
+    /**
+     * Create the random streams of the nodes, from the seed defined in the configuration
+     * (the same seed gives the same results, for any execution mode; a time based seed is used by default)
+     */
+    private RandomStreams createRandomStreams(Config conf, Integer simulationIndex, Integer repetitionCount) throws ConfigException {
+        
+        String seed = conf.getValueWithDefault(null, simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_SEED);
+        
+        if(seed == null){
+            return new RandomStreams(System.nanoTime());
+        } else {
+            //Different (reproducible) streams for each repetition
+            return new RandomStreams(Long.parseLong(seed.trim()) * 1000003L + repetitionCount.intValue());
+        }
+    }
+    
+    
     
     
     /**
@@ -144,11 +258,17 @@ public class ComEngine {
     throws ClassNotFoundException, IllegalAccessException, InstantiationException, ComEngineException {
 
        this.globalTime = 0;
-       this.appEvents.clear();
         
        // Load Specific parameters
        this.net = net;
+       this.channels = null;
+       this.msgPool.clear();
+       this.msgPool.setMode(false, false);
        try {
+           //Release the events of the previous simulation (e.g. spilled run files)
+           this.appEvents.clear();
+           this.appEvents = this.createScheduler(conf, simulationIndex);
+           this.rndStreams = this.createRandomStreams(conf, simulationIndex, repetitionCount);
            this.appType = conf.getValue(simulationIndex, Config.PARAM_APPLICATION_TYPE);
            //this.cloudsNum = Integer.valueOf(conf.getValue(simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_CLOUDS_NUM));
            String func = conf.getValueWithDefault(Config.DEFAULT_FUNCTION, simulationIndex, Config.PARAM_APPLICATION_PARAM, Config.PARAM_FUNCTION);
@@ -166,6 +286,8 @@ public class ComEngine {
            this.showAppComGraph = Boolean.valueOf(conf.getValueWithDefault("false", simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_SHOW_APP_COMMUNICATION_GRAPH));
            this.lossProbability = Float.valueOf(conf.getValue(simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_LOSS_PROBABILITY));
            this.lossAtSender = Boolean.valueOf(conf.getValueWithDefault("true", simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_LOSS_AT_SENDER));
+           this.lossEvents = Boolean.valueOf(conf.getValueWithDefault("true", simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_LOSS_EVENTS));
+           this.rndStreams.setTrialProbability(this.lossProbability);
            
            int mathPrecision = Integer.parseInt(conf.getValueWithDefault(Config.PARAM_MATH_PRECISION, Config.DEFAULT_MATH_PRECISION));
            RoundingMode mathRoundingMode = RoundingMode.valueOf(conf.getValueWithDefault(Config.PARAM_MATH_ROUNDING_MODE, Config.DEFAULT_MATH_ROUNDING_MODE));
@@ -191,10 +313,12 @@ public class ComEngine {
            }
            n.init(app);
            
-           //Schedule initial message generation event for the each node
+           //Schedule initial message generation event for the each node (not needed if all nodes execute each round)
 //           try {
                //Note: always 1
-               this.addApplicationEvent(1, String.valueOf(n.getId()), EventType.TICK, null);
+               if(this.mailboxes == null){
+                   this.addApplicationEvent(1, n.getId(), EventType.TICK, null);
+               }
                //this.addApplicationEvent(NumGenerator.generateInteger(this.initDelayConfig), String.valueOf(n.getId()), EventType.TICK, null);
 //           }catch (NumGenerationException ne){
 //               throw (ComEngineException)new ComEngineException(ne).initCause(ne);
@@ -219,35 +343,37 @@ public class ComEngine {
        
    }
     
+    /**
+     * Execute a synchronous round driven by clock events (messages kept in the nodes receive buffer)
+     * 
+     * @deprecated rounds are executed by SynchronousEngine, over the round mailboxes
+     */
+    @Deprecated
     public void SynchronousCommunication() 
         throws ComEngineException {
         
         
-        if(this.globalTime == 0){
-            // Init Network nodes state (depending from the all network first initialization)
-            for (Node n : net.getNodes()) {
-                n.getApplication().init2();
-            }  
-        }
+        this.beginRound();
         
         if(useDebug){
             System.out.println("\n\nCURRENT GLOBAL TIME: "+this.globalTime);
         }
         
-        //Process next events
-        Set<Event<?>> evtSet = this.appEvents.pullNext();
+        //Process next events (pulled clock events can no longer be reset)
+        EventBatch evtSet = this.evtBatch;
+        this.appEvents.pullNext(evtSet);
         
         if(useDebug){
             System.out.println("NEXT EVENTS TO PROCESS: ");
         }
         
-        for(Event<?> e : evtSet){
+        for(int i=0; i < evtSet.size(); i++){
             
             if(useDebug){
-                System.out.println("\t\t -> "+e);
+                System.out.println("\t\t -> "+evtSet.toString(i));
             }
             
-            Integer nodeId = Integer.valueOf(e.getNodeID());
+            int nodeId = evtSet.getNode(i);
             
             //Only process event if node is not dead (due to churn)
             if(!this.net.isDeadNode(nodeId)){
@@ -256,20 +382,20 @@ public class ComEngine {
                 Node node = this.net.getNode(nodeId);
             
                 //Handler events
-                switch (e.getType()) {
+                switch (evtSet.getType(i)) {
                     case TICK:
                         //Invoke application message generation handler
                         node.getApplication().messageGeneration();
                         //Create TICK event
                         //this.addApplicationEvent(this.computeMsgTransmissionTime(), e.getNodeID(), EventType.TICK, null);
-                        this.addApplicationEvent(1, e.getNodeID(), EventType.TICK, null);
+                        this.addApplicationEvent(1, nodeId, EventType.TICK, null);
                         break;
                     case MSG_LOSS:
                         //Increment message loss count
                         node.incMsgLossCount();
                         break;    
                     default:
-                        throw new ComEngineException("Unknown event type: " + e.getType() +" -> " + e);
+                        throw new ComEngineException("Unknown event type: " + evtSet.getType(i) +" -> " + evtSet.toString(i));
                 }
             
             } //if not dead node
@@ -285,37 +411,258 @@ public class ComEngine {
         List<Integer> nodes = SetUtils.sortSet(nodesSet);
         
         for(Integer nodeId : nodes){
-            
-            Node node = this.net.getNode(nodeId);
-            
-            //Get all received messages 
-            List<Message<?>> msgsReceived = new ArrayList<Message<?>>(node.getReceivedMessages());
-            node.incMsgRcvCount(msgsReceived.size());
-            
-            if(useDebug){
-                System.out.println("\tNODE["+nodeId+"]: ");
-                for(Message<?> msg : msgsReceived){
-                    System.out.println("\t\tMSG -> "+msg);
-                }
-            }
-            
-            //Invoke application state transition handler
-            node.getApplication().stateTransition(msgsReceived);
-            
-            if(useDebug){
-                System.out.println(node.getApplication().debugTickStatus());
-            }
-        
-            //Clear message channels (message receive buffer)
-            node.clearMessageChannels();
+            this.stateTransition(this.net.getNode(nodeId));
         }
         
+        evtSet.clear();
+        
         // Update Global Time
         this.globalTime = this.appEvents.getTimeOfNextEvents();
 
     }
     
     
+    /**
+     * Prepare the execution of a step (synchronous round, or window of asynchronous events)
+     */
+    void beginRound(){
+        
+        if(this.globalTime == 0){
+            // Init Network nodes state (depending from the all network first initialization)
+            for (Node n : net.getNodes()) {
+                n.getApplication().init2();
+            }  
+        }
+        
+        //Random streams of all nodes (including arriving ones) must exist before the round
+        this.rndStreams.ensureCapacity(this.net.getTotalNumNodes());
+    }
+    
+    
+    /**
+     * Apply the state-transition function of the node to its incoming messages (synchronous model)
+     */
+    void stateTransition(Node node){
+        
+        //Get all received messages 
+        List<Message<?>> msgsReceived = new ArrayList<Message<?>>(node.getReceivedMessages());
+        
+        this.stateTransition(node, msgsReceived);
+    
+        //Clear message channels (message receive buffer)
+        node.clearMessageChannels();
+    }
+    
+    
+    /**
+     * Apply the state-transition function of the node to the given incoming messages (synchronous model)
+     */
+    void stateTransition(Node node, Collection<Message<?>> msgsReceived){
+        
+        node.incMsgRcvCount(msgsReceived.size());
+        
+        if(useDebug){
+            System.out.println("\tNODE["+node.getId()+"]: ");
+            for(Message<?> msg : msgsReceived){
+                System.out.println("\t\tMSG -> "+msg);
+            }
+        }
+        
+        //Invoke application state transition handler
+        node.getApplication().stateTransition(msgsReceived);
+        
+        if(useDebug){
+            System.out.println(node.getApplication().debugTickStatus());
+        }
+    }
+    
+    
+    /**
+     * Schedule the loss of a message at the receiver
+     */
+    void scheduleMsgLoss(int receiverId, Message<?> msg) throws ComEngineException {
+        
+        //Synchronous rounds: counted by the receiver at the state transition
+        if(this.mailboxes != null){
+            this.mailboxes.lose(receiverId);
+            return;
+        }
+        
+        //Counted at the receiver when sent, if the loss time is not relevant
+        //(sequential execution only: receivers of other logical processes can not be changed)
+        if(!this.lossEvents && (this.logicalProcesses == null)){
+            if(!this.net.isDeadNode(receiverId)){
+                this.net.getNode(receiverId).incMsgLossCount();
+            }
+            return;
+        }
+        
+        //Add Message Loss Event at receiver (not referring pooled messages, recycled when sent)
+        this.addApplicationEvent(this.computeMsgTransmissionTime(), receiverId, EventType.MSG_LOSS, this.msgPool.isEnabled() ? null : msg);
+    }
+    
+    
+    /**
+     * Set (or remove, if null) the outbox where the messages sent by the current thread are kept
+     */
+    void setOutbox(RoundOutbox roundOutbox){
+        if(roundOutbox == null){
+            this.outbox.remove();
+        } else {
+            this.outbox.set(roundOutbox);
+        }
+    }
+    
+    
+    /**
+     * Deliver the messages kept in the outbox to the receivers (and count them)
+     */
+    void deliver(RoundOutbox roundOutbox){
+        for(int i=0; i < roundOutbox.deliveries(); i++){
+            if(this.mailboxes != null){
+                this.mailboxes.post(roundOutbox.getTo(i), roundOutbox.getMsg(i));
+            } else {
+                this.net.getNode(roundOutbox.getTo(i)).addReceiveMessage(roundOutbox.getMsg(i));
+            }
+        }
+        this.msgCount += roundOutbox.getMsgCount();
+    }
+    
+    
+    EventScheduler getScheduler(){
+        return this.appEvents;
+    }
+    
+    
+    void updateGlobalTime(){
+        this.globalTime = this.appEvents.getTimeOfNextEvents();
+    }
+    
+    
+    void setGlobalTime(int globalTime){
+        this.globalTime = globalTime;
+    }
+    
+    
+    /**
+     * Set (or remove, if null) the mailboxes of the synchronous rounds 
+     * (must be set before the initialization of the communication)
+     */
+    void setMailboxes(RoundMailboxes mailboxes){
+        this.mailboxes = mailboxes;
+    }
+    
+    
+    /**
+     * Set (or remove, if null) the logical processes keeping the scheduled events 
+     * (must be set before the initialization of the communication)
+     */
+    void setLogicalProcesses(LogicalProcess[] lps){
+        this.logicalProcesses = lps;
+        this.msgInEvents = (lps != null) && (lps.length > 0) && lps[0].carriesMessages();
+    }
+    
+    
+    /**
+     * Set (or remove, if null) the logical process executed by the current thread
+     */
+    void setLogicalProcess(LogicalProcess lp){
+        if(lp == null){
+            this.logicalProcess.remove();
+        } else {
+            this.logicalProcess.set(lp);
+        }
+    }
+    
+    
+    /**
+     * Prepare the logical process to compute messages transmission times, 
+     * with its own generator (seed derived from the simulation seed)
+     */
+    void initLogicalProcess(LogicalProcess lp){
+        lp.setTimeGenerator(this.timeGenerator.copy(this.rndStreams.deriveSeed(lp.getIndex())));
+    }
+    
+    
+    /**
+     * Merge the messages statistics of the logical process (at the end of a window)
+     */
+    void mergeStatistics(LogicalProcess lp){
+        
+        this.msgCount += lp.getMsgCount();
+        
+        if(this.registerMsgLatencies){
+            for(Map.Entry<Integer, Integer> e : lp.getMsgLatencies().entrySet()){
+                Integer count = this.msgLatencies.get(e.getKey());
+                this.msgLatencies.put(e.getKey(), (count == null) ? e.getValue() : count + e.getValue());
+            }
+        }
+    }
+    
+    
+    RandomStreams getRandomStreams(){
+        return this.rndStreams;
+    }
+    
+    
+    /**
+     * @return minimum message transmission time (lookahead of the conservative parallel execution)
+     */
+    int getMinMsgTransmissionTime(){
+        return Math.max(1, this.timeGenerator.minimumInteger());
+    }
+    
+    
+    /**
+     * @return logical process of the current thread (null outside a window)
+     */
+    private LogicalProcess currentLogicalProcess(){
+        return (this.logicalProcesses == null) ? null : this.logicalProcess.get();
+    }
+    
+    
+    /**
+     * Schedule an event, in the logical process of the node if the execution is partitioned
+     * (the logical process decides when it is added, given the logical process of the current thread). 
+     * Events of the same time are kept in the order they were scheduled (sending time).
+     * 
+     * @return handle of the event (NO_TIMEOUT if it can not be reset)
+     */
+    private long schedule(int time, int nodeId, EventType evtType, Object data){
+        
+        if(this.logicalProcesses == null){
+            return this.appEvents.add(time, nodeId, evtType, data);
+        }
+        
+        LogicalProcess lp = this.logicalProcess.get();
+        return this.logicalProcesses[nodeId % this.logicalProcesses.length].schedule(lp, time, nodeId, evtType, data, (lp == null) ? this.globalTime : lp.getTime());
+    }
+    
+    
+    /**
+     * Schedule the next clock event of the periodic timer of a node in its logical process 
+     * (partitioned execution)
+     */
+    private void scheduleTimer(PeriodicTimers.TimerGroup group, int nodeId, int time){
+        LogicalProcess lp = this.logicalProcess.get();
+        this.logicalProcesses[nodeId % this.logicalProcesses.length].scheduleTimer(lp, PeriodicTimers.handle(group, nodeId), time, nodeId, group, (lp == null) ? this.globalTime : lp.getTime());
+    }
+    
+    
+    /**
+     * Add message to the receiver message buffer, through the logical process of the receiver 
+     * if the execution is partitioned (not added if carried by the receive event)
+     */
+    private void addReceiveMessage(LogicalProcess lp, int receiverId, Message<?> msg){
+        if(this.logicalProcesses == null){
+            Node receiver = this.net.getNode(receiverId);
+            receiver.addReceiveMessage(msg);
+        } else if(!this.msgInEvents){
+            this.logicalProcesses[receiverId % this.logicalProcesses.length].addReceiveMessage(lp, this.net.getNode(receiverId), msg);
+        }
+    }
+    
+    
     /**
      * Modeling the execution of an asynchronous network model.
      * 
@@ -340,11 +687,15 @@ public class ComEngine {
         throws ClassNotFoundException, IllegalAccessException, InstantiationException, ComEngineException {
 
        this.globalTime = 0;
-       this.appEvents.clear();
         
        // Load Specific parameters
        this.net = net;
+       this.timers.clear();
        try {
+           //Release the events of the previous simulation (e.g. spilled run files)
+           this.appEvents.clear();
+           this.appEvents = this.createScheduler(conf, simulationIndex);
+           this.rndStreams = this.createRandomStreams(conf, simulationIndex, repetitionCount);
            //Application Instance Used
            this.appType = conf.getValue(simulationIndex, Config.PARAM_APPLICATION_TYPE);
            
@@ -368,20 +719,34 @@ public class ComEngine {
            //Message Loss Settings
            this.lossProbability = Float.valueOf(conf.getValue(simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_LOSS_PROBABILITY));
            this.lossAtSender = Boolean.valueOf(conf.getValueWithDefault("true", simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_LOSS_AT_SENDER));
+           this.lossEvents = Boolean.valueOf(conf.getValueWithDefault("true", simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_LOSS_EVENTS));
+           this.rndStreams.setTrialProbability(this.lossProbability);
+           
+           //Link channels (not used by partitioned executions)
+           ChannelType channelType = ChannelType.valueOf(conf.getValueWithDefault(ChannelType.NONE.toString(), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_CHANNELS));
+           this.channels = ((channelType == ChannelType.NONE) || (this.logicalProcesses != null)) ? null : new LinkChannels(channelType == ChannelType.FIFO);
+           
+           //Message pool (not used by partitioned executions)
+           boolean msgPoolUsed = Boolean.valueOf(conf.getValueWithDefault("true", simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_MSG_POOL));
+           boolean msgPoolDebug = Boolean.valueOf(conf.getValueWithDefault("false", simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_MSG_POOL_DEBUG));
+           this.msgPool.clear();
+           this.msgPool.setMode(msgPoolUsed && (this.logicalProcesses == null), msgPoolDebug);
            
            //Message Transmission time configuration
            String msgTransmissionTimeConfig = conf.getValue(simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_MSG_TRANSMISSION_TIME);
            
-           //Create the number generator used to compute message transmission time
+           //Create the number generator used to compute message transmission time (seeded from the random streams)
            this.timeGenerator = new NumGenerator();
            this.timeGenerator.loadConfig(msgTransmissionTimeConfig);
+           this.timeGenerator = this.timeGenerator.copy(this.rndStreams.deriveSeed(SEQUENTIAL_TIME_STREAM));
            
            //Load initial delay configuration
            String initDelayConfig = conf.getValue(simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, PARAM_INIT_DELAY);
            
-           //Create the number generator used to compute message transmission time
+           //Create the number generator used to compute the initial delay (seeded from the random streams)
            this.initDelayGenerator = new NumGenerator();
            this.initDelayGenerator.loadConfig(initDelayConfig);
+           this.initDelayGenerator = this.initDelayGenerator.copy(this.rndStreams.deriveSeed(INIT_DELAY_STREAM));
            
            //Precision settings (should be set before not specific of each simulation)
            int mathPrecision = Integer.parseInt(conf.getValueWithDefault(Config.PARAM_MATH_PRECISION, Config.DEFAULT_MATH_PRECISION));
@@ -406,7 +771,7 @@ public class ComEngine {
            try {
                int initDelay = this.initDelayGenerator.generateInteger();
                if(initDelay >= 1){
-                   this.addApplicationEvent(initDelay, String.valueOf(n.getId()), EventType.TICK, null);
+                   this.addApplicationEvent(initDelay, n.getId(), EventType.TICK, null);
                } else {
                    throw new ComEngineException("Invalid Initial Delay! Computed value: "+initDelay);
                }
@@ -433,202 +798,568 @@ public class ComEngine {
     public void AsynchronousCommunication() 
         throws ComEngineException {
         
-        if(this.globalTime == 0){
-            // Init Network nodes state (depending from the all network first initialization)
-            for (Node n : net.getNodes()) {
-                n.getApplication().init2();
-            }
-        }
+        this.beginRound();
         
         if(useDebug){
             System.out.println("\n\nCURRENT GLOBAL TIME: "+this.globalTime);
         }
         
-        //Process next events
-        Set<Event<?>> evtSet = this.appEvents.pullNext();
+        //Process next events (pulled clock events can no longer be reset)
+        EventBatch evtSet = this.evtBatch;
+        this.appEvents.pullNext(evtSet);
         
         if(useDebug){
             System.out.println("NEXT EVENTS TO PROCESS: ");
         }
         
-        for(Event<?> e : evtSet){
-            
-            if(useDebug){
-                System.out.println("\t\t -> "+e);
+        if(useDebug){
+            for(int i=0; i < evtSet.size(); i++){
+                System.out.println("\t\t -> "+evtSet.toString(i));
             }
-            
-            Integer nodeId = Integer.valueOf(e.getNodeID());
-            
-            //Only process event if node is not dead (due to churn)
-            if(!this.net.isDeadNode(nodeId)){
-            
-                //Get event target node
-                Node node = net.getNode(nodeId);
-            
-//            System.out.println("[DEBUG] - Process Event: "+e.getType()+"\tNode: "+e.getNodeID()+"\tGlobalTime: "+this.globalTime);
-            
-                //Handler events
-                switch (e.getType()) {
-                    case MSG_RECEIVE:
-                        //Increment message receive count
-                        node.incMsgRcvCount();
-                        //Get received message from node buffer
-                        String msgId = (String) e.getData();
-                        Message<?> receivedMsg = node.getReceivedMessage(msgId);
-                        if(useDebug){
-                            System.out.println("\tNODE["+e.getNodeID()+"]: ");
-                            System.out.println("\t\tMSG -> "+receivedMsg);
-                        }
-                        //Invoke message application handler
-                        node.getApplication().onReceive(receivedMsg);
-                        if(useDebug){
-                            System.out.println(node.getApplication().debugOnReceiveStatus());
-                        }
-                        //Remove message from node buffer
-                        node.delReceivedMessage(msgId);
-                        break;
-                    case TICK:
-                        //Invoke clock tick application handler
-                        node.getApplication().setLastEvt(e);
-                        node.getApplication().onTick();
-                        if(useDebug){
-                            System.out.println(node.getApplication().debugTickStatus());
-                        }
-                        break;
-                    case MSG_LOSS:
-                        //Increment message loss count
-                        node.incMsgLossCount();
-                        break;
-                    default:
-                        throw new ComEngineException("Unknown event type: " + e.getType() +" -> " + e);
-                }
-                
-            } // if not dead node
-            
         }
         
+        this.processAsynchronousEvents(evtSet);
+        
+        evtSet.clear();
+        
         // Update Global Time
         this.globalTime = this.appEvents.getTimeOfNextEvents();
     }
     
     
-    
-    private int computeMsgTransmissionTime() throws ComEngineException{
-        
-        this.mt_debug++;
+    /**
+     * Process the events of a batch (asynchronous model): messages received by the same node 
+     * are delivered together (see ReceiveBatches and Application.onReceiveBatch)
+     */
+    void processAsynchronousEvents(EventBatch evtSet) throws ComEngineException {
         
-        int result;
-        try {
-            result = this.timeGenerator.generateInteger();
-        } catch (MathException me) {
-            throw (ComEngineException) new ComEngineException("Error generting transmission time!").initCause(me);
+        ReceiveBatches batches = this.receiveBatches.get();
+        if(batches == null){
+            batches = new ReceiveBatches();
+            this.receiveBatches.set(batches);
         }
         
-        int retry = 0;
-        while(result < 1 && retry < 1){
-            try {
-                result = this.timeGenerator.generateInteger();
-            } catch (MathException me) {
-                throw (ComEngineException) new ComEngineException("Error generting transmission time!").initCause(me);
+        //Re-arm the pulled groups of periodic timers (not partitioned)
+        if((this.logicalProcesses == null) && !this.timers.isEmpty()){
+            for(int i=0; i < evtSet.size(); i++){
+                if(evtSet.getType(i) == EventType.TICK_GROUP){
+                    this.rearmTimerGroup((PeriodicTimers.TimerGroup) evtSet.getData(i));
+                }
             }
-            retry++;
         }
         
-        if(result >= 1){
-            
-            //Register message latencies statistics.
-            if(this.registerMsgLatencies()){
-                if(this.msgLatencies.containsKey(result)){
-                    this.msgLatencies.put(result, this.msgLatencies.get(result) + 1);
-                } else {
-                    this.msgLatencies.put(result, 1);
+        batches.group(evtSet);
+        
+        //Schedule the next delivery of the pulled link channels
+        if(this.channels != null){
+            for(int i=0; i < evtSet.size(); i++){
+                if(evtSet.getType(i) == EventType.MSG_CHANNEL){
+                    LinkChannels.Channel channel = (LinkChannels.Channel) evtSet.getData(i);
+                    channel.setEvent(channel.isEmpty() ? NO_TIMEOUT : this.appEvents.add(channel.getHeadTime(), channel.getReceiver(), EventType.MSG_CHANNEL, channel));
                 }
             }
-            
-            return result;
-        } else {
-            throw new ComEngineException("Invalid Transmission Time! Computed value (retries 1x): "+result+" - MT_DEBUG (1 retries): "+this.mt_debug);
+        }
+        
+        try {
+            for(int i=0; i < batches.size(); i++){
+                if(batches.getType(i) != EventType.MSG_RECEIVE){
+                    this.processAsynchronousEvent(batches.getNode(i), batches.getType(i), batches.getData(i));
+                } else if(batches.isFirst(i)){
+                    if(batches.getNext(i) < 0){
+                        //Single message
+                        this.processAsynchronousEvent(batches.getNode(i), EventType.MSG_RECEIVE, batches.getData(i));
+                    } else {
+                        this.receiveBatch(batches, i);
+                    }
+                }
+            }
+        } finally {
+            batches.clear();
         }
     }
     
     
-    public void addApplicationEvent(int t, String nodeID, EventType evtType, Object data){
+    /**
+     * Schedule the next clock event of a group of periodic timers, removing dead nodes (due to churn)
+     */
+    private void rearmTimerGroup(PeriodicTimers.TimerGroup group){
+        for(int n=group.nextMember(0); n >= 0; n=group.nextMember(n + 1)){
+            if(this.net.isDeadNode(n)){
+                group.remove(n);
+            }
+        }
+        if(group.size() > 0){
+            group.setEvent(this.appEvents.add(this.globalTime + group.getPeriod(), Event.NO_NODE, EventType.TICK_GROUP, group));
+        } else {
+            group.setEvent(NO_TIMEOUT);
+        }
+    }
+    
+    
+    /**
+     * Jump to the horizon if the network is quiescent (sequential asynchronous model): the only 
+     * scheduled events are the clock events of periodic timers, and all nodes are quiescent (their 
+     * ticks would not change their state, besides the elapsed ticks accounted by each node). 
+     * The timers are moved to their first time at or after the horizon.
+     * 
+     * @param horizon time up to which the network can be skipped (next dynamism event or end time)
+     * 
+     * @return true if the ticks up to the horizon were skipped
+     */
+    boolean skipQuiescentTicks(int horizon){
         
-        int time = this.globalTime + t;
-        int numEvts = this.appEvents.numberOfEventAtSameTime(time);
+        int time = this.globalTime;
+        if((time >= horizon) || (this.logicalProcesses != null) || (this.mailboxes != null)){
+            return false;
+        }
         
-        //Create key
-        StringBuilder sb = new StringBuilder();
-        sb.append(time);
-        sb.append(CLOCK_EVENT_KEY_SEPARATOR);
-        sb.append(numEvts);
+        List<PeriodicTimers.TimerGroup> groups = this.timers.getGroups();
+        int scheduled = 0;
+        for(PeriodicTimers.TimerGroup group : groups){
+            if(group.getEvent() != NO_TIMEOUT){
+                scheduled++;
+            }
+        }
+        if((scheduled == 0) || (scheduled != this.appEvents.numberOfEvents())){
+            return false;
+        }
         
+        for(Node n : this.net.getNodes()){
+            if(!n.getApplication().isQuiescent()){
+                return false;
+            }
+        }
         
-        //Generate Event (internal event)
-        Event<Object> appEvt = new Event<Object>(time, nodeID, evtType, data, sb.toString()); 
-
-        //Schedule event
-        this.appEvents.add(appEvt);
+        //Application of a node, for the accounting shared by the nodes
+        Application app = null;
+        
+        for(PeriodicTimers.TimerGroup group : groups){
+            
+            //First pending tick of the group (at or after the current time)
+            int first = group.nextTime(time - 1);
+            if((group.getEvent() == NO_TIMEOUT) || (first >= horizon)){
+                continue;
+            }
+            int ticks = (horizon - 1 - first) / group.getPeriod() + 1;
+            
+            int nodes = 0;
+            for(int n=group.nextMember(0); n >= 0; n=group.nextMember(n + 1)){
+                if(this.net.isDeadNode(n)){
+                    group.remove(n);
+                } else {
+                    app = this.net.getNode(n).getApplication();
+                    app.skipTicks(first, group.getPeriod(), ticks);
+                    nodes++;
+                }
+            }
+            if(nodes > 0){
+                app.skipQuiescentNodes(first, group.getPeriod(), ticks, nodes);
+            }
+            
+            this.appEvents.cancel(group.getEvent());
+            if(group.size() > 0){
+                group.setEvent(this.appEvents.add(first + ticks * group.getPeriod(), Event.NO_NODE, EventType.TICK_GROUP, group));
+            } else {
+                group.setEvent(NO_TIMEOUT);
+            }
+        }
+        if(app != null){
+            app.skipDone();
+        }
+        
+        if(useDebug){
+            System.out.println("\n\nQUIESCENT NETWORK, TICKS SKIPPED: "+time+" to "+(horizon - 1));
+        }
+        
+        this.globalTime = this.appEvents.isEmpty() ? horizon : this.appEvents.getTimeOfNextEvents();
+        return true;
+    }
+    
+    
+    /**
+     * Deliver the messages of a group of receive events (same node and time) 
+     */
+    private void receiveBatch(ReceiveBatches batches, int first){
+        
+        int nodeId = batches.getNode(first);
+        
+        //Only process event if node is not dead (due to churn)
+        if(!this.net.isDeadNode(nodeId)){
+            
+            Node node = net.getNode(nodeId);
+            List<Message<?>> msgs = batches.getMessages();
+            
+            for(int i=first; i >= 0; i=batches.getNext(i)){
+                //Increment message receive count
+                node.incMsgRcvCount();
+                //Get received message from the event or from node buffer
+                Object evtData = batches.getData(i);
+                Message<?> receivedMsg = (evtData instanceof Message) ? (Message<?>) evtData : node.getReceivedMessage((Long) evtData);
+                msgs.add(receivedMsg);
+                if(useDebug){
+                    System.out.println("\tNODE["+nodeId+"]: ");
+                    System.out.println("\t\tMSG -> "+receivedMsg);
+                }
+            }
+            
+            try {
+                //Invoke message application handler (once for all the messages)
+                node.getApplication().onReceiveBatch(msgs);
+                if(useDebug){
+                    System.out.println(node.getApplication().debugOnReceiveStatus());
+                }
+                
+                //Remove messages from node buffer
+                for(int i=first; i >= 0; i=batches.getNext(i)){
+                    if(!(batches.getData(i) instanceof Message)){
+                        node.delReceivedMessage((Long) batches.getData(i));
+                    }
+                }
+                
+                //Deliveries done (pooled messages recycled, if not retained)
+                for(Message<?> msg : msgs){
+                    this.msgPool.release(msg);
+                }
+            } finally {
+                msgs.clear();
+            }
+            
+        } else {
+            
+            //Messages carried by the events not delivered
+            for(int i=first; i >= 0; i=batches.getNext(i)){
+                if(batches.getData(i) instanceof Message){
+                    this.msgPool.release((Message<?>) batches.getData(i));
+                }
+            }
+        }
+    }
+    
+    
+    /**
+     * Deliver the messages carried by a group of receive events (same node and time) 
+     * of the optimistic parallel execution
+     */
+    void processAsynchronousReceives(int nodeId, List<Message<?>> msgs){
+        
+        //Only process event if node is not dead (due to churn)
+        if(!this.net.isDeadNode(nodeId)){
+            
+            Node node = net.getNode(nodeId);
+            
+            for(Message<?> receivedMsg : msgs){
+                //Increment message receive count
+                node.incMsgRcvCount();
+                if(useDebug){
+                    System.out.println("\tNODE["+nodeId+"]: ");
+                    System.out.println("\t\tMSG -> "+receivedMsg);
+                }
+            }
+            
+            //Invoke message application handler (once for all the messages)
+            node.getApplication().onReceiveBatch(msgs);
+            if(useDebug){
+                System.out.println(node.getApplication().debugOnReceiveStatus());
+            }
+        }
+        
+        //Deliveries done (pooled messages recycled, if not retained)
+        for(Message<?> msg : msgs){
+            this.msgPool.release(msg);
+        }
+    }
+    
+    
+    /**
+     * Process an event of the asynchronous model (invoking the application handler of its node)
+     */
+    void processAsynchronousEvent(int nodeId, EventType evtType, Object evtData) throws ComEngineException {
+        
+        //Multicast delivery: receive events of the receivers of this time (event node is the sender)
+        if(evtType == EventType.MSG_MULTICAST){
+            MulticastDelivery delivery = (MulticastDelivery) evtData;
+            int first = delivery.pullNext();
+            int end = delivery.getNext();
+            for(int i=first; i < end; i++){
+                this.processAsynchronousEvent(delivery.getReceiver(i), EventType.MSG_RECEIVE, delivery.getMessage());
+            }
+            delivery.delivered();
+            return;
+        }
+        
+        //Only process event if node is not dead (due to churn)
+        if(!this.net.isDeadNode(nodeId)){
+        
+            //Get event target node
+            Node node = net.getNode(nodeId);
+        
+//            System.out.println("[DEBUG] - Process Event: "+e.getType()+"\tNode: "+e.getNodeID()+"\tGlobalTime: "+this.globalTime);
+        
+            //Handler events
+            switch (evtType) {
+                case MSG_RECEIVE:
+                    //Increment message receive count
+                    node.incMsgRcvCount();
+                    //Get received message from the event or from node buffer
+                    boolean buffered = !(evtData instanceof Message);
+                    Message<?> receivedMsg = buffered ? node.getReceivedMessage((Long) evtData) : (Message<?>) evtData;
+                    if(useDebug){
+                        System.out.println("\tNODE["+nodeId+"]: ");
+                        System.out.println("\t\tMSG -> "+receivedMsg);
+                    }
+                    //Invoke message application handler
+                    node.getApplication().onReceive(receivedMsg);
+                    if(useDebug){
+                        System.out.println(node.getApplication().debugOnReceiveStatus());
+                    }
+                    //Remove message from node buffer
+                    if(buffered){
+                        node.delReceivedMessage((Long) evtData);
+                    }
+                    //Delivery done (pooled message recycled, if not retained)
+                    this.msgPool.release(receivedMsg);
+                    break;
+                case TICK:
+                    //Periodic timer of the node (partitioned execution): schedule its next clock event
+                    if(evtData instanceof PeriodicTimers.TimerGroup){
+                        PeriodicTimers.TimerGroup group = (PeriodicTimers.TimerGroup) evtData;
+                        this.scheduleTimer(group, nodeId, this.getGlobalTime() + group.getPeriod());
+                    }
+                    //Invoke clock tick application handler
+                    node.getApplication().onTick();
+                    if(useDebug){
+                        System.out.println(node.getApplication().debugTickStatus());
+                    }
+                    break;
+                case MSG_LOSS:
+                    //Increment message loss count
+                    node.incMsgLossCount();
+                    break;
+                default:
+                    throw new ComEngineException("Unknown event type: " + evtType +" -> node: " + nodeId);
+            }
+            
+        } else if(evtData instanceof Message){
+            
+            //Message carried by the event not delivered
+            this.msgPool.release((Message<?>) evtData);
+            
+        } // if not dead node
+        
+    }
+    
+    
+    
+    private int computeMsgTransmissionTime() throws ComEngineException{
+        
+        //Generator of the logical process of the current thread (partitioned execution)
+        LogicalProcess lp = this.currentLogicalProcess();
+        NumGenerator timeGenerator = (lp == null) ? this.timeGenerator : lp.getTimeGenerator();
+        
+        if(lp == null){
+            this.mt_debug++;
+        }
+        
+        int result;
+        try {
+            result = timeGenerator.generateInteger();
+        } catch (MathException me) {
+            throw (ComEngineException) new ComEngineException("Error generting transmission time!").initCause(me);
+        }
+        
+        return this.checkMsgTransmissionTime(timeGenerator, lp, result);
+    }
+    
+    
+    /**
+     * Compute the transmission times of the messages of a broadcast (drawn in one call)
+     * 
+     * @param count number of receivers
+     * @return transmission times (in the first count positions of a buffer of the current thread)
+     */
+    private int[] computeMsgTransmissionTimes(int count) throws ComEngineException{
+        
+        int[] times = this.transmissionTimes.get();
+        if((times == null) || (times.length < count)){
+            times = new int[Math.max(count, 16)];
+            this.transmissionTimes.set(times);
+        }
+        
+        //Generator of the logical process of the current thread (partitioned execution)
+        LogicalProcess lp = this.currentLogicalProcess();
+        NumGenerator timeGenerator = (lp == null) ? this.timeGenerator : lp.getTimeGenerator();
+        
+        if(lp == null){
+            this.mt_debug += count;
+        }
+        
+        try {
+            timeGenerator.fill(times, 0, count);
+        } catch (MathException me) {
+            throw (ComEngineException) new ComEngineException("Error generting transmission time!").initCause(me);
+        }
+        
+        for(int i=0; i < count; i++){
+            times[i] = this.checkMsgTransmissionTime(timeGenerator, lp, times[i]);
+        }
+        
+        return times;
+    }
+    
+    
+    /**
+     * Retry an invalid transmission time (once), and register its latency
+     */
+    private int checkMsgTransmissionTime(NumGenerator timeGenerator, LogicalProcess lp, int result) throws ComEngineException{
+        
+        int retry = 0;
+        while(result < 1 && retry < 1){
+            try {
+                result = timeGenerator.generateInteger();
+            } catch (MathException me) {
+                throw (ComEngineException) new ComEngineException("Error generting transmission time!").initCause(me);
+            }
+            retry++;
+        }
+        
+        if(result >= 1){
+            
+            //Register message latencies statistics.
+            if(this.registerMsgLatencies()){
+                if(lp != null){
+                    //Merged at the end of the window
+                    lp.registerMsgLatency(result);
+                } else if(this.msgLatencies.containsKey(result)){
+                    this.msgLatencies.put(result, this.msgLatencies.get(result) + 1);
+                } else {
+                    this.msgLatencies.put(result, 1);
+                }
+            }
+            
+            return result;
+        } else {
+            throw new ComEngineException("Invalid Transmission Time! Computed value (retries 1x): "+result+" - MT_DEBUG (1 retries): "+this.mt_debug);
+        }
+    }
+    
+    
+    public void addApplicationEvent(int t, int nodeId, EventType evtType, Object data){
+        
+        //Synchronous rounds execute all the nodes of the network (including arriving ones)
+        if((evtType == EventType.TICK) && (this.mailboxes != null)){
+            return;
+        }
+        
+        //Schedule event (internal event)
+        this.schedule(this.getGlobalTime() + t, nodeId, evtType, data);
         
     }
+    
+    
+    /**
+     * @deprecated use the node id method
+     */
+    @Deprecated
+    public void addApplicationEvent(int t, String nodeID, EventType evtType, Object data){
+        this.addApplicationEvent(t, Integer.parseInt(nodeID), evtType, data);
+    }
 
 
     public int sendMessage(Message<?> msg) throws ComEngineException {
         
-        if ((this.lossProbability > 0.0) && this.toLose()){
+        //Outbox of the current thread (parallel synchronous round)
+        RoundOutbox roundOutbox = this.outbox.get();
+        //Logical process of the current thread (conservative parallel asynchronous window)
+        LogicalProcess lp = this.currentLogicalProcess();
+        
+        int senderId = msg.getFromId();
+        
+        //Receive events of the message (pooled messages are recycled once delivered)
+        int deliveries = 0;
+        
+        if ((this.lossProbability > 0.0) && this.toLose(senderId)){
             
             if(this.lossAtSender){
 
                 //Get Sender
-                int senderId = Integer.valueOf(msg.getFrom());
                 Node sender = this.net.getNode(senderId);
                 
                 //Increment sender message lost count
                 sender.incMsgLossCount();
                 
-            } else {
+            } else if(roundOutbox != null){
+                
+                //Loss event scheduled at the end of the round phase
+                roundOutbox.lose(msg.getToId(), msg);
                 
-//TODO OPTIMIZATION: if in synchronous model, directly add 1 and avoid computing message transmission time (with constant value 1)
+            } else {
                 
-                //Add Message Loss Event at receiver
-                this.addApplicationEvent(this.computeMsgTransmissionTime(), msg.getTo(), EventType.MSG_LOSS, msg);
+                this.scheduleMsgLoss(msg.getToId(), msg);
                 
             }
             
         } else {
             
             //Get Sender
-            int senderId = Integer.valueOf(msg.getFrom());
             Node sender = this.net.getNode(senderId);
             //Increment message sent count
             sender.incMsgSendCount();
             
             //Set message sequence number e generate ID
             msg.setSeqNum(sender.getMsgSendCount());
-            String msgId = this.generateMsgId(msg);
+            long msgId = Message.generateId(senderId, msg.getSeqNum());
+            int receiverId = msg.getToId();
+            deliveries = 1;
             
             //Do not create the message receive event 
-            if(this.getModel() != Model.Synchronous){
+            if(this.channels != null){
+                
+                //Message carried by the channel of the link
+                msg.setId(msgId);
+                this.incMsgCount();
+                this.sendOnChannel(senderId, receiverId, this.computeMsgTransmissionTime(), msg);
+                
+                msg.setTime(this.getGlobalTime());
+                return this.sent(msg, deliveries);
+                
+            } else if(this.getModel() != Model.Synchronous){
 
-                //Add Message Receive Event at receiver
-                this.addApplicationEvent(this.computeMsgTransmissionTime(), msg.getTo(), EventType.MSG_RECEIVE, msgId);
+                //Add Message Receive Event at receiver (carrying the message, if not kept in the receiver buffer)
+                this.addApplicationEvent(this.computeMsgTransmissionTime(), receiverId, EventType.MSG_RECEIVE, this.msgInEvents ? msg : Long.valueOf(msgId));
             
             }
             
-            //Increment Message Count
-            this.incMsgCount();
-            
             //Add message to target message receive list
-            int receiverId = Integer.valueOf(msg.getTo());
-            Node receiver = this.net.getNode(receiverId);
-            msg.setMsgId(msgId);
-            receiver.addReceiveMessage(msg);
+            msg.setId(msgId);
+            if(roundOutbox != null){
+                
+                //Increment Message Count and deliver it at the end of the round phase
+                roundOutbox.incMsgCount();
+                roundOutbox.deliver(receiverId, msg);
+                
+            } else if(this.mailboxes != null){
+                
+                //Increment Message Count and deliver it at the round barrier
+                this.incMsgCount();
+                this.mailboxes.post(receiverId, msg);
+                
+            } else {
+                
+                //Increment Message Count
+                if(lp != null){
+                    lp.incMsgCount();
+                } else {
+                    this.incMsgCount();
+                }
+                
+                this.addReceiveMessage(lp, receiverId, msg);
+            }
             
             //Note: Message Rcv Count incremented elsewhere (before processing)
         }
         
         msg.setTime(this.getGlobalTime());
-        return msg.getTime();
+        return this.sent(msg, deliveries);
         
     }
     
@@ -683,11 +1414,19 @@ public class ComEngine {
     
     public int broadcastMessage(Message<?> msg) throws ComEngineException {
         
+        //Outbox of the current thread (parallel synchronous round)
+        RoundOutbox roundOutbox = this.outbox.get();
+        //Logical process of the current thread (conservative parallel asynchronous window)
+        LogicalProcess lp = this.currentLogicalProcess();
+        
         //Get Sender
-        int senderId = Integer.valueOf(msg.getFrom());
+        int senderId = msg.getFromId();
         Node sender = this.net.getNode(senderId);
         
-        if ((this.lossProbability > 0.0) && this.toLose()){
+        //Receive events of the message (pooled messages are recycled once delivered)
+        int deliveries = 0;
+        
+        if ((this.lossProbability > 0.0) && this.toLose(senderId)){
 
             if(this.lossAtSender){
                 
@@ -697,19 +1436,18 @@ public class ComEngine {
             } else {
                 
                 //Get All Neighbors
-                Set<Integer> neighbors;
-                if(this.useOverlay){
-                    neighbors = sender.getOverlayLinks();
-                } else {
-                    neighbors = sender.getLinks();
-                }
+                NetworkTopology.Adjacency adj = this.net.getTopology().getLinks(this.useOverlay);
+                int[] neighbors = adj.getNeighbors();
                 
-                for(Integer to : neighbors){
-                    
-//TODO OPTIMIZATION: if in synchronous model, directly add 1 and avoid computing message transmission time (with constant value 1)
+                for(int i=adj.getStart(senderId), end=adj.getEnd(senderId); i < end; i++){
+                    int to = neighbors[i];
                     
                     //Add Message Loss Event at receiver
-                    this.addApplicationEvent(this.computeMsgTransmissionTime(), to.toString(), EventType.MSG_LOSS, msg);
+                    if(roundOutbox != null){
+                        roundOutbox.lose(to, msg);
+                    } else {
+                        this.scheduleMsgLoss(to, msg);
+                    }
                 }
                 
                 
@@ -717,53 +1455,142 @@ public class ComEngine {
             
         } else {
             
-            //Get All Neighbors
-            Set<Integer> neighbors;
-            if(this.useOverlay){
-                neighbors = sender.getOverlayLinks();
-            } else {
-                neighbors = sender.getLinks();
-            }
+            //Get All Neighbors (range [start, end) of the neighbors array)
+            NetworkTopology.Adjacency adj = this.net.getTopology().getLinks(this.useOverlay);
+            int[] neighbors = adj.getNeighbors();
+            int start = adj.getStart(senderId);
+            int end = adj.getEnd(senderId);
             
             //Increment message sent count
             sender.incMsgSendCount();
             
             //Set message sequence number e generate ID
             msg.setSeqNum(sender.getMsgSendCount());
-            String msgId = this.generateMsgId(msg);
-            
-            //Generate Message Receive Event for all neighbors
-            for(Integer to : neighbors){
-                
+            long msgId = Message.generateId(senderId, msg.getSeqNum());
+            msg.setId(msgId);
+            deliveries = end - start;
+            if(this.channels != null){
                 
-                //Do not create the message receive event 
-                if(this.getModel() != Model.Synchronous){
+                //Message carried by the channels of the links to all the neighbors
+                int[] times = this.computeMsgTransmissionTimes(deliveries);
+                int receiverIndex = 0;
+                for(int i=start; i < end; i++){
+                    this.sendOnChannel(senderId, neighbors[i], times[receiverIndex++], msg);
+                }
                 
-                    //Add Message Receive Event at receiver
-                    this.addApplicationEvent(this.computeMsgTransmissionTime(), to.toString(), EventType.MSG_RECEIVE, msgId);
+            } else if((this.getModel() != Model.Synchronous) && (this.logicalProcesses == null)){
                 
-                }
+                //Sequential asynchronous execution: single delivery record (one event per distinct delivery time)
+                this.scheduleMulticast(msg, neighbors, start, end);
                 
+            } else {
                 
-                int receiverId = Integer.valueOf(to);
-                Node receiver = this.net.getNode(receiverId);
-                msg.setMsgId(msgId);
-                receiver.addReceiveMessage(msg);
+                //Data of the receive events (same message, or message id, for all neighbors)
+                Object rcvData = this.msgInEvents ? msg : Long.valueOf(msgId);
                 
-                //Note: Message Rcv Count incremented elsewhere (before processing)
+                //Transmission times of all the messages (not used by the synchronous model)
+                int[] times = null;
+                if(this.getModel() != Model.Synchronous){
+                    times = this.computeMsgTransmissionTimes(deliveries);
+                }
+                int receiverIndex = 0;
                 
+                //Generate Message Receive Event for all neighbors
+                for(int i=start; i < end; i++){
+                    int receiverId = neighbors[i];
+                    
+                    //Do not create the message receive event 
+                    if(this.getModel() != Model.Synchronous){
+                    
+                        //Add Message Receive Event at receiver (carrying the message, if not kept in the receiver buffer)
+                        this.addApplicationEvent(times[receiverIndex++], receiverId, EventType.MSG_RECEIVE, rcvData);
+                    
+                    }
+                    
+                    if(roundOutbox != null){
+                        roundOutbox.deliver(receiverId, msg);
+                    } else if(this.mailboxes != null){
+                        this.mailboxes.post(receiverId, msg);
+                    } else {
+                        this.addReceiveMessage(lp, receiverId, msg);
+                    }
+                    
+                    //Note: Message Rcv Count incremented elsewhere (before processing)
+                    
+                }
             }
             
             //Increment Message Count
-            this.incMsgCount();
+            if(roundOutbox != null){
+                roundOutbox.incMsgCount();
+            } else if(lp != null){
+                lp.incMsgCount();
+            } else {
+                this.incMsgCount();
+            }
         }
         
         msg.setTime(this.getGlobalTime());
-        return msg.getTime();
+        return this.sent(msg, deliveries);
         
     }
     
     
+    /**
+     * Account the receive events of a sent message (pooled message recycled once delivered, or now if none)
+     * 
+     * @return send time of the message
+     */
+    private int sent(Message<?> msg, int deliveries){
+        int time = msg.getTime();
+        this.msgPool.sent(msg, deliveries);
+        return time;
+    }
+    
+    
+    /**
+     * @return pool of the messages acquired by the applications
+     */
+    public MessagePool getMessagePool(){
+        return this.msgPool;
+    }
+    
+    
+    /**
+     * Add the message to the channel of the link, scheduling its delivery if it is the new head of the channel
+     */
+    private void sendOnChannel(int senderId, int receiverId, int transmissionTime, Message<?> msg){
+        LinkChannels.Channel channel = this.channels.enqueue(senderId, receiverId, this.globalTime + transmissionTime, msg);
+        if(channel != null){
+            if(channel.getEvent() != NO_TIMEOUT){
+                this.appEvents.cancel(channel.getEvent());
+            }
+            channel.setEvent(this.appEvents.add(channel.getHeadTime(), receiverId, EventType.MSG_CHANNEL, channel));
+        }
+    }
+    
+    
+    /**
+     * Schedule the delivery of a broadcast message to all the neighbors (sequential asynchronous 
+     * execution): the message is shared by a single delivery record, and one multicast event is
+     * scheduled per distinct delivery time (receivers are not added to their message buffer)
+     */
+    private void scheduleMulticast(Message<?> msg, int[] neighbors, int start, int end) throws ComEngineException {
+        
+        int count = end - start;
+        if(count == 0){
+            return;
+        }
+        
+        MulticastDelivery delivery = this.multicastPool.acquire(msg, neighbors, start, this.computeMsgTransmissionTimes(count), count);
+        for(int i=0; i < count; i++){
+            if((i == 0) || (delivery.getTime(i) != delivery.getTime(i-1))){
+                this.addApplicationEvent(delivery.getTime(i), msg.getFromId(), EventType.MSG_MULTICAST, delivery);
+            }
+        }
+    }
+    
+    
     /**
      * Create a clock event for the specified node, scheduled according to the defined timeout
      * 
@@ -771,30 +1598,16 @@ public class ComEngine {
      * @param nodeId Id of the node associated to the event
      * @param data internal data associated to the event (Useful when a node generate multiple events) 
      * 
-     * @return key to identify of the node clock event
+     * @return handle to identify the node clock event (valid until the event is triggered or reset)
      * 
      * @throws ComEngineException
      */
-    public String setTimeout(int timeout, String nodeId, Object data) throws ComEngineException {
+    public long setTimeout(int timeout, int nodeId, Object data) throws ComEngineException {
         
         if(timeout > 0){
             
-            int time = this.globalTime + timeout;
-//            int numEvts = this.appEvents.numberOfSimilarEventAtSameTime(time, EventType.TICK, nodeId);
-            int numEvts = this.appEvents.numberOfEventAtSameTime(time);
-            
-            //Create key
-            StringBuilder sb = new StringBuilder();
-            sb.append(time);
-            sb.append(CLOCK_EVENT_KEY_SEPARATOR);
-            sb.append(numEvts);
-            
-//            Event<String> clockEvt = new Event<String>(time, nodeId, EventType.TICK, String.valueOf(numEvts)); 
-            Event<Object> clockEvt = new Event<Object>(time, nodeId, EventType.TICK, data, sb.toString()); 
-            this.appEvents.add(clockEvt);
-            
-            //Return clock event key
-            return sb.toString();
+            //Schedule clock event and return its handle
+            return this.schedule(this.getGlobalTime() + timeout, nodeId, EventType.TICK, data);
             
         } else {
             throw new ComEngineException("Invalid timeout value, must be greater than 0: "+timeout);
@@ -804,20 +1617,132 @@ public class ComEngine {
     
     
     /**
-     * Remove the matching clock event (clock reset)
+     * Create a periodic clock timer for the specified node (asynchronous model), triggering a clock 
+     * event at every time t such that t % period == phase. Timers of the same period and phase are 
+     * kept as one scheduled event for all their nodes (ticks delivered by ascending node id); a node 
+     * has at most one timer of each period and phase. 
+     * In the synchronous model nodes are executed at every round (timer ignored). In a partitioned 
+     * execution, the clock events are scheduled per node by its logical process (next one scheduled 
+     * when processed).
      * 
-     * @param clockEvtKey Clock event key (specific to the node)
-     * @param nodeId ID of the concerned node
+     * @param period time between clock events
+     * @param phase time of the clock events modulo the period
+     * @param nodeId Id of the node associated to the timer
+     * 
+     * @return handle to identify the node timer (NO_TIMEOUT in the synchronous model)
+     * 
+     * @throws ComEngineException
+     */
+    public long setPeriodicTimeout(int period, int phase, int nodeId) throws ComEngineException {
+        
+        if(period < 1){
+            throw new ComEngineException("Invalid timer period, must be greater than 0: "+period);
+        }
+        if((phase < 0) || (phase >= period)){
+            throw new ComEngineException("Invalid timer phase, must be between 0 and the period: "+phase);
+        }
+        
+        if(this.mailboxes != null){
+            return NO_TIMEOUT;
+        }
+        
+        PeriodicTimers.TimerGroup group = this.timers.getGroup(period, phase);
+        int time = this.getGlobalTime();
+        
+        if(this.logicalProcesses != null){
+            //Clock events of the node, kept by its logical process
+            long timer = PeriodicTimers.handle(group, nodeId);
+            if(!this.logicalProcesses[nodeId % this.logicalProcesses.length].hasTimer(timer)){
+                this.scheduleTimer(group, nodeId, group.nextTime(time));
+            }
+            return timer;
+        }
+        
+        if(group.add(nodeId) && (group.getEvent() == NO_TIMEOUT)){
+            group.setEvent(this.appEvents.add(group.nextTime(time), Event.NO_NODE, EventType.TICK_GROUP, group));
+        }
+        
+        return PeriodicTimers.handle(group, nodeId);
+    }
+    
+    
+    /**
+     * Remove the periodic clock timer referred by the handle
+     * 
+     * @param timerHandle Timer handle (returned by setPeriodicTimeout)
+     * 
+     * @return true if the timer exists (successfully removed), false otherwise
+     */
+    public boolean resetPeriodicTimeout(long timerHandle){
+        
+        PeriodicTimers.TimerGroup group = this.timers.getGroup(timerHandle);
+        if(group == null){
+            return false;
+        }
+        
+        if(this.logicalProcesses != null){
+            //Next clock event of the node, kept by its logical process
+            int nodeId = PeriodicTimers.nodeOf(timerHandle);
+            return this.logicalProcesses[nodeId % this.logicalProcesses.length].cancelTimer(timerHandle);
+        }
+        
+        if(!group.remove(PeriodicTimers.nodeOf(timerHandle))){
+            return false;
+        }
+        
+        //No more nodes: cancel the clock event of the group
+        if((group.size() == 0) && (group.getEvent() != NO_TIMEOUT)){
+            this.appEvents.cancel(group.getEvent());
+            group.setEvent(NO_TIMEOUT);
+        }
+        
+        return true;
+    }
+    
+    
+    /**
+     * Remove the clock event referred by the handle (clock reset)
+     * 
+     * @param clockEvtHandle Clock event handle (returned by setTimeout)
      * 
      * @return true if the clock event exists (successfully removed), false otherwise
      */
-    public boolean reset(String clockEvtKey, String nodeId){
-        String[] keyValue = clockEvtKey.split(CLOCK_EVENT_KEY_SEPARATOR);
-        int time = Integer.parseInt(keyValue[0]);
-//        
-//        Event<String> clockEvt = new Event<String>(time, nodeId, EventType.TICK, keyValue[1]); 
-        Event<Object> clockEvt = new Event<Object>(time, nodeId, EventType.TICK, null, clockEvtKey); 
-        return this.appEvents.removeEvent(clockEvt);
+    public boolean reset(long clockEvtHandle){
+        return this.appEvents.cancel(clockEvtHandle);
+    }
+    
+    
+    /**
+     * Execute the state transition of the node in the next synchronous round phase, even if it 
+     * receives no messages (nodes ignoring empty inboxes are only visited when active)
+     * 
+     * @param nodeId Node to wake up
+     */
+    public void wakeUp(int nodeId){
+        RoundOutbox roundOutbox = this.outbox.get();
+        if(roundOutbox != null){
+            roundOutbox.wake(nodeId);
+        } else if(this.mailboxes != null){
+            this.mailboxes.wake(nodeId);
+        }
+    }
+    
+    
+    /**
+     * Remove the clock event of the node referred by the handle (clock reset)
+     * 
+     * @param clockEvtHandle Clock event handle (returned by setTimeout)
+     * @param nodeId Id of the node associated to the event
+     * 
+     * @return true if the clock event exists (successfully removed), false otherwise
+     */
+    public boolean reset(long clockEvtHandle, int nodeId){
+        if(this.logicalProcesses == null){
+            return this.appEvents.cancel(clockEvtHandle);
+        } else {
+            //Clock events are kept by the logical process of the node
+            return this.logicalProcesses[nodeId % this.logicalProcesses.length].cancel(clockEvtHandle);
+        }
     }
 
 
@@ -855,26 +1780,10 @@ public class ComEngine {
     }
 */    
     
-    private String generateMsgId(Message<?> msg){
-        StringBuffer sb = new StringBuffer();
-        //sb.append(this.getMsgCount());
-        sb.append(msg.getSeqNum());
-        sb.append("-");
-        sb.append(msg.getFrom());
-        sb.append("-");
-        sb.append(msg.getTo());
-        return sb.toString();
-    }
-    
-
     
-    private boolean toLose(){
-        float randVal = this.rndLoss.nextFloat();
-        if(randVal <= this.lossProbability){
-            return true;
-        } else {
-            return false;
-        }
+    private boolean toLose(int senderId){
+        //Trial of the sender stream (independent from the order nodes are processed), one draw per loss
+        return this.rndStreams.nextTrial(senderId);
     }
 
 
@@ -905,6 +1814,17 @@ public class ComEngine {
         return this.net;
     }
     
+    
+    /**
+     * Create a random generator for the application of a node (derived from the simulation seed)
+     * 
+     * @param nodeId Id of the node
+     * @return new random generator 
+     */
+    public Random createRandom(int nodeId){
+        return this.rndStreams.createRandom(nodeId);
+    }
+    
     public MathContext getMathContext(){
         return this.mc;
     }
@@ -948,18 +1868,65 @@ public class ComEngine {
      * @return the round
      */
     public int getGlobalTime() {
+        //Time of the events being processed by the logical process of the current thread (if any)
+        LogicalProcess lp = this.currentLogicalProcess();
+        if(lp != null){
+            return lp.getTime();
+        }
         return globalTime;
     }
     
     
     public void setModel(String model){
+        this.setModel(model, ExecutionMode.SEQUENTIAL.toString());
+    }
+    
+    
+    /**
+     * Set the network model and the way it is executed 
+     * (parallel execution: round phases of the synchronous model, or 
+     * conservative windows of the asynchronous model; optimistic execution:
+     * Time Warp windows of the asynchronous model, round phases of the synchronous model)
+     */
+    public void setModel(String model, String execution){
         this.model = Model.valueOf(model);
+        this.executionMode = ExecutionMode.valueOf(execution);
+        this.setLogicalProcesses(null);
+        this.setMailboxes(null);
+        
+        //Create the simulation engine of the model
+        switch (this.model) {
+            case Synchronous:
+                if(this.executionMode != ExecutionMode.SEQUENTIAL){
+                    this.engine = new ParallelSynchronousEngine(this);
+                } else {
+                    this.engine = new SynchronousEngine(this);
+                }
+                break;
+            default:
+                if(this.executionMode == ExecutionMode.PARALLEL){
+                    this.engine = new ConservativeAsynchronousEngine(this);
+                } else if(this.executionMode == ExecutionMode.OPTIMISTIC){
+                    this.engine = new OptimisticAsynchronousEngine(this);
+                } else {
+                    this.engine = new AsynchronousEngine(this);
+                }
+                break;
+        }
+    }
+    
+    public SimulationEngine getEngine(){
+        return this.engine;
     }
     
     public Model getModel(){
         return this.model;
     }
     
+    public ExecutionMode getExecutionMode(){
+        return this.executionMode;
+    }
+    
     
     public boolean registerMsgLatencies(){
         return this.registerMsgLatencies;
@@ -0,0 +1,265 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import msm.simulator.exceptions.ComEngineException;
+import msm.simulator.exceptions.ConfigException;
+import msm.simulator.network.Network;
+
+
+/**
+ * Simulation engine for the asynchronous network model, executing the events
+ * in parallel (conservative synchronization, in time windows).
+ *
+ * The nodes are partitioned in logical processes (node id modulo the number of
+ * logical processes), each one keeping the events of its nodes. At each step, all
+ * logical processes execute (in the workers of a ForkJoin pool) their events before
+ * the end of the window: the next event time plus the lookahead (minimum message
+ * transmission time), limited by the horizon set by the simulator (next results
+ * sample or dynamism event). No event scheduled by another logical process can
+ * occur inside the window, so events are processed in time order by each node.
+ *
+ * Events and messages for nodes of other logical processes are merged at the end
+ * of the window, in logical process order. Events of the same time are processed
+ * in the order they were sent (as in the sequential execution). Churn and value
+ * changes happen between windows (never inside, due to the horizon).
+ *
+ * Results are reproducible for the same seed and number of logical processes,
+ * but differ from the sequential execution (each logical process draws the
+ * transmission times from its own generator).
+ *
+ * Applications must only change the state of their own node in the event handlers.
+ *
+ * @author pcjesus
+ *
+ */
+public class ConservativeAsynchronousEngine implements SimulationEngine {
+
+    //Logical processes per worker (load balancing)
+    private static final int LOGICAL_PROCESSES_PER_THREAD = 4;
+
+    private final ComEngine comEngine;
+
+    private ForkJoinPool pool;
+    private int threads;
+    private ConservativeLogicalProcess[] lps;
+
+    //Minimum message transmission time
+    private int lookahead;
+    //Time limit set by the simulator for the next step
+    private int horizon;
+    //End of the current window (exclusive)
+    private int windowEnd;
+
+
+    public ConservativeAsynchronousEngine(ComEngine comEngine){
+        this.comEngine = comEngine;
+        this.horizon = Integer.MAX_VALUE;
+    }
+
+
+    public void init(Network net, Config conf, Integer simulationIndex, Integer repetitionCount)
+        throws ClassNotFoundException, IllegalAccessException, InstantiationException, ComEngineException {
+
+        int logicalProcesses;
+        int buckets;
+        try {
+            this.threads = Integer.parseInt(conf.getValueWithDefault(String.valueOf(Runtime.getRuntime().availableProcessors()), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_THREADS));
+            logicalProcesses = Integer.parseInt(conf.getValueWithDefault(String.valueOf(this.threads * LOGICAL_PROCESSES_PER_THREAD), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_LOGICAL_PROCESSES));
+            buckets = Integer.parseInt(conf.getValueWithDefault(String.valueOf(CalendarScheduledEvents.DEFAULT_BUCKETS), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_SCHEDULER_BUCKETS));
+
+            //Sequential execution (debug output must keep the events order)
+            if(ComEngine.useDebug){
+                this.lps = null;
+            } else {
+                this.lps = new ConservativeLogicalProcess[logicalProcesses];
+                for(int i=0; i < logicalProcesses; i++){
+                    //Calendar queue (events of the same time ordered by sending time)
+                    this.lps[i] = new ConservativeLogicalProcess(i, new CalendarScheduledEvents(buckets));
+                }
+            }
+        }catch (ConfigException ce){
+            throw (ComEngineException)new ComEngineException(ce).initCause(ce);
+        }
+
+        if(this.threads < 1){
+            throw new ComEngineException("Invalid number of threads, must be greater than 0: "+this.threads);
+        }
+
+        if(logicalProcesses < 1){
+            throw new ComEngineException("Invalid number of logical processes, must be greater than 0: "+logicalProcesses);
+        }
+
+        //Initial events are scheduled in the logical processes
+        this.comEngine.setLogicalProcesses(this.lps);
+        this.comEngine.AsynchronousInitCommunication(net, conf, simulationIndex, repetitionCount);
+
+        if(this.lps == null){
+            return;
+        }
+
+        for(ConservativeLogicalProcess lp : this.lps){
+            this.comEngine.initLogicalProcess(lp);
+        }
+        this.lookahead = this.comEngine.getMinMsgTransmissionTime();
+
+        //Create the workers pool (reused by the following repetitions)
+        if((this.pool == null) || (this.pool.getParallelism() != this.threads)){
+            if(this.pool != null){
+                this.pool.shutdown();
+            }
+            this.pool = new ForkJoinPool(this.threads);
+        }
+    }
+
+
+    public void step() throws ComEngineException {
+
+        if(this.lps == null){
+            this.comEngine.AsynchronousCommunication();
+            return;
+        }
+
+        Network net = this.comEngine.getNetwork();
+
+        this.comEngine.beginRound();
+
+        //Window: from the next events (always processed) to the lookahead, not beyond the horizon
+        int start = this.timeOfNextEvents();
+        long end = Math.min((long) start + this.lookahead, Math.max((long) this.horizon, (long) start + 1));
+        this.windowEnd = (int) Math.min(end, Integer.MAX_VALUE);
+
+        this.pool.invoke(new Window(0, this.lps.length));
+
+        //End of the window: merge events and messages sent to other logical processes
+        for(ConservativeLogicalProcess lp : this.lps){
+
+            if(lp.getFailure() != null){
+                throw lp.getFailure();
+            }
+
+            for(int i=0; i < lp.sends(); i++){
+                int nodeId = lp.getSendNode(i);
+                if(lp.getSendTime(i) < this.windowEnd){
+                    throw new ComEngineException("Event scheduled inside the window for a node of another logical process (time: "
+                            +lp.getSendTime(i)+", window end: "+this.windowEnd+", node: "+nodeId+")");
+                }
+                this.lps[nodeId % this.lps.length].getScheduler().add(lp.getSendTime(i), nodeId, lp.getSendType(i), lp.getSendData(i), lp.getSendOrder(i));
+            }
+
+            for(int i=0; i < lp.deliveries(); i++){
+                net.getNode(lp.getTo(i)).addReceiveMessage(lp.getMsg(i));
+            }
+
+            this.comEngine.mergeStatistics(lp);
+            lp.clear();
+        }
+
+        // Update Global Time
+        this.comEngine.setGlobalTime(this.timeOfNextEvents());
+    }
+
+
+    public void setHorizon(int time){
+        this.horizon = time;
+    }
+
+
+    public void setQuiescenceHorizon(int time){
+        //Quiescence not detected in the partitioned execution (timers kept by the logical processes)
+    }
+
+
+    public int getGlobalTime(){
+        return this.comEngine.getGlobalTime();
+    }
+
+
+    public ComEngine getComEngine(){
+        return this.comEngine;
+    }
+
+
+    public int getThreads(){
+        return this.threads;
+    }
+
+
+    public int getLookahead(){
+        return this.lookahead;
+    }
+
+
+    /**
+     * Time of the next events of all logical processes
+     */
+    private int timeOfNextEvents(){
+        int time = Integer.MAX_VALUE;
+        boolean empty = true;
+        for(ConservativeLogicalProcess lp : this.lps){
+            if(!lp.getScheduler().isEmpty()){
+                time = Math.min(time, lp.getScheduler().getTimeOfNextEvents());
+                empty = false;
+            }
+        }
+        if(empty){
+            throw new NoSuchElementException();
+        }
+        return time;
+    }
+
+
+    /**
+     * Execution of the window over a range of logical processes (split between workers)
+     */
+    private class Window extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+
+        Window(int from, int to){
+            this.from = from;
+            this.to = to;
+        }
+
+
+        protected void compute(){
+            if(this.to - this.from == 1){
+                this.execute(lps[this.from]);
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new Window(this.from, middle), new Window(middle, this.to));
+            }
+        }
+
+
+        private void execute(ConservativeLogicalProcess lp){
+
+            EventScheduler events = lp.getScheduler();
+            EventBatch evtSet = lp.getBatch();
+
+            comEngine.setLogicalProcess(lp);
+            try {
+                while(!events.isEmpty() && (events.getTimeOfNextEvents() < windowEnd)){
+                    lp.setTime(events.pullNext(evtSet));
+                    comEngine.processAsynchronousEvents(evtSet);
+                    evtSet.clear();
+                }
+            } catch (ComEngineException ce){
+                lp.setFailure(ce);
+            } finally {
+                comEngine.setLogicalProcess(null);
+            }
+        }
+
+    }
+
+}
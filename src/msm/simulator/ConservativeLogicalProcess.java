@@ -0,0 +1,223 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import msm.simulator.Event.EventType;
+import msm.simulator.network.Message;
+import msm.simulator.network.Node;
+
+
+/**
+ * Logical process of the conservative asynchronous engine, holding the events
+ * of a subset of the nodes (node id modulo the number of logical processes).
+ *
+ * Events and messages sent by its nodes to nodes of other logical processes are
+ * kept until the end of the window, to be merged by the engine (in logical
+ * process order).
+ *
+ * @author pcjesus
+ *
+ */
+class ConservativeLogicalProcess extends LogicalProcess {
+
+    //Events of the nodes of the logical process
+    private final CalendarScheduledEvents events;
+    //Events pulled for processing (reused at each time)
+    private final EventBatch evtBatch;
+    //Next clock event of the periodic timers of the nodes (by timer handle)
+    private final Map<Long, Long> timers;
+
+    //Events for nodes of other logical processes (time, node, type, data, sending time)
+    private int[] sendTime;
+    private int[] sendNode;
+    private EventType[] sendType;
+    private Object[] sendData;
+    private int[] sendOrder;
+    private int sends;
+
+    //Messages delivered to nodes of other logical processes (receiver, message)
+    private int[] to;
+    private Message<?>[] msg;
+    private int deliveries;
+
+
+    ConservativeLogicalProcess(int index, CalendarScheduledEvents events){
+        super(index);
+        this.events = events;
+        this.evtBatch = new EventBatch();
+        this.timers = new HashMap<Long, Long>();
+        this.sendTime = new int[64];
+        this.sendNode = new int[64];
+        this.sendType = new EventType[64];
+        this.sendData = new Object[64];
+        this.sendOrder = new int[64];
+        this.to = new int[64];
+        this.msg = new Message<?>[64];
+    }
+
+
+    /**
+     * Schedule directly, if done by this logical process (or outside a window), or else 
+     * at the end of the window (always beyond it, given the lookahead)
+     */
+    long schedule(LogicalProcess from, int t, int node, EventType type, Object data, int order){
+        if((from == null) || (from == this)){
+            return this.events.add(t, node, type, data, order);
+        } else {
+            ((ConservativeLogicalProcess) from).send(t, node, type, data, order);
+            return ComEngine.NO_TIMEOUT;
+        }
+    }
+
+
+    boolean cancel(long handle){
+        return this.events.cancel(handle);
+    }
+
+
+    long scheduleTimer(LogicalProcess from, long timer, int t, int node, PeriodicTimers.TimerGroup group, int order){
+        long handle = this.events.add(t, node, EventType.TICK, group, order);
+        this.timers.put(timer, handle);
+        return handle;
+    }
+
+
+    boolean cancelTimer(long timer){
+        Long handle = this.timers.remove(timer);
+        return (handle != null) && this.events.cancel(handle);
+    }
+
+
+    boolean hasTimer(long timer){
+        Long handle = this.timers.get(timer);
+        return (handle != null) && this.events.isScheduled(handle);
+    }
+
+
+    /**
+     * Add message directly, if done by this logical process (or outside a window), 
+     * or else at the end of the window
+     */
+    void addReceiveMessage(LogicalProcess from, Node receiver, Message<?> m){
+        if((from == null) || (from == this)){
+            receiver.addReceiveMessage(m);
+        } else {
+            ((ConservativeLogicalProcess) from).deliver(receiver.getId(), m);
+        }
+    }
+
+
+    private void send(int t, int node, EventType type, Object data, int order){
+        if(this.sends == this.sendTime.length){
+            int capacity = this.sendTime.length << 1;
+            int[] ts = new int[capacity];
+            System.arraycopy(this.sendTime, 0, ts, 0, this.sends);
+            this.sendTime = ts;
+            int[] ns = new int[capacity];
+            System.arraycopy(this.sendNode, 0, ns, 0, this.sends);
+            this.sendNode = ns;
+            EventType[] es = new EventType[capacity];
+            System.arraycopy(this.sendType, 0, es, 0, this.sends);
+            this.sendType = es;
+            Object[] ds = new Object[capacity];
+            System.arraycopy(this.sendData, 0, ds, 0, this.sends);
+            this.sendData = ds;
+            int[] os = new int[capacity];
+            System.arraycopy(this.sendOrder, 0, os, 0, this.sends);
+            this.sendOrder = os;
+        }
+        this.sendTime[this.sends] = t;
+        this.sendNode[this.sends] = node;
+        this.sendType[this.sends] = type;
+        this.sendData[this.sends] = data;
+        this.sendOrder[this.sends] = order;
+        this.sends++;
+    }
+
+
+    private void deliver(int receiverId, Message<?> m){
+        if(this.deliveries == this.to.length){
+            int capacity = this.to.length << 1;
+            int[] t = new int[capacity];
+            System.arraycopy(this.to, 0, t, 0, this.deliveries);
+            this.to = t;
+            Message<?>[] ms = new Message<?>[capacity];
+            System.arraycopy(this.msg, 0, ms, 0, this.deliveries);
+            this.msg = ms;
+        }
+        this.to[this.deliveries] = receiverId;
+        this.msg[this.deliveries] = m;
+        this.deliveries++;
+    }
+
+
+    /**
+     * Remove the events, messages and statistics of the window (releasing references)
+     */
+    void clear(){
+        for(int i=0; i < this.sends; i++){
+            this.sendData[i] = null;
+        }
+        for(int i=0; i < this.deliveries; i++){
+            this.msg[i] = null;
+        }
+        this.sends = 0;
+        this.deliveries = 0;
+        super.clear();
+    }
+
+
+    /**
+     * GETTERS / SETTERS
+     */
+
+
+    CalendarScheduledEvents getScheduler(){
+        return this.events;
+    }
+
+    EventBatch getBatch(){
+        return this.evtBatch;
+    }
+
+    int sends(){
+        return this.sends;
+    }
+
+    int getSendTime(int i){
+        return this.sendTime[i];
+    }
+
+    int getSendNode(int i){
+        return this.sendNode[i];
+    }
+
+    EventType getSendType(int i){
+        return this.sendType[i];
+    }
+
+    Object getSendData(int i){
+        return this.sendData[i];
+    }
+
+    int getSendOrder(int i){
+        return this.sendOrder[i];
+    }
+
+    int deliveries(){
+        return this.deliveries;
+    }
+
+    int getTo(int i){
+        return this.to[i];
+    }
+
+    Message<?> getMsg(int i){
+        return this.msg[i];
+    }
+
+}
@@ -12,36 +12,58 @@ package msm.simulator;
  */
 public class Event<D> {
     
-    public enum EventType {TICK, MSG_RECEIVE, MSG_LOSS, CHURN, VALUE_CHANGE};
+    //MSG_MULTICAST: receive events of the receivers of a broadcast with the same delivery time
+    //TICK_GROUP: clock events of the nodes of a group of periodic timers (see PeriodicTimers)
+    //SAMPLE: results sample of the simulator main loop (see SimulationEvents)
+    //MSG_CHANNEL: delivery of the messages at the head of a link channel (see LinkChannels)
+    public enum EventType {TICK, MSG_RECEIVE, MSG_LOSS, CHURN, VALUE_CHANGE, MSG_MULTICAST, TICK_GROUP, SAMPLE, MSG_CHANNEL};
+    
+    //Node ID of the events not associated to a node
+    public static final int NO_NODE = -1;
     
     //Time the event is scheduled to occur
     private int time;
-    //ID of the node associated to the event
-    private String nodeID;
+    //ID of the node associated to the event (NO_NODE if none)
+    private int nodeId;
     //Type of the event
     private EventType type;
     //Data associated to the event
     private D data;
     //Event ID (may not uniquely identify event...)
     private String id;
+    
+    //Slot of the clock event handle (-1 if none)
+    int timer = -1;
 
     
     /**
      * Constructor 
      * 
      * @param time Time the event will occur;
-     * @param nodeID Node associated to the event;
+     * @param nodeId Node associated to the event (NO_NODE if none);
      * @param type Event Type;
      * @param data Data associated to the event;
      */
-    public Event(int time, String nodeID, EventType type, D data){
+    public Event(int time, int nodeId, EventType type, D data){
         this.time = time;
-        this.nodeID = nodeID!=null?new String(nodeID):null;
+        this.nodeId = nodeId;
         this.type = type;
         this.data = data;
         this.id = null;
     }
     
+    /**
+     * Constructor 
+     * 
+     * @param time Time the event will occur;
+     * @param nodeID Node associated to the event (null if none);
+     * @param type Event Type;
+     * @param data Data associated to the event;
+     */
+    public Event(int time, String nodeID, EventType type, D data){
+        this(time, (nodeID != null) ? Integer.parseInt(nodeID) : NO_NODE, type, data);
+    }
+    
     /**
      * Constructor 
      * 
@@ -53,7 +75,7 @@ public class Event<D> {
      */
     public Event(int time, String nodeID, EventType type, D data, String id){
         this.time = time;
-        this.nodeID = nodeID!=null?new String(nodeID):null;
+        this.nodeId = (nodeID != null) ? Integer.parseInt(nodeID) : NO_NODE;
         this.type = type;
         this.data = data;
         this.id = id;
@@ -67,12 +89,12 @@ public class Event<D> {
         } else if(event.getData() != null){
             return ( (this.time == event.getTime()) 
                     && (this.type == event.getType()) 
-                    && (this.nodeID.equals(event.getNodeID())) 
+                    && (this.nodeId == event.getNodeId()) 
                     && (this.data.equals(event.getData())) );
         } else {
             return ( (this.time == event.getTime()) 
                     && (this.type == event.getType()) 
-                    && (this.nodeID.equals(event.getNodeID())) );
+                    && (this.nodeId == event.getNodeId()) );
         }
     }
     
@@ -92,10 +114,20 @@ public class Event<D> {
 
     
     /**
-     * @return the nodeID
+     * @return the node id (NO_NODE if none)
+     */
+    public int getNodeId() {
+        return nodeId;
+    }
+    
+    
+    /**
+     * @return the nodeID (null if none)
+     * @deprecated use getNodeId
      */
+    @Deprecated
     public String getNodeID() {
-        return nodeID;
+        return (nodeId != NO_NODE) ? String.valueOf(nodeId) : null;
     }
 
 
@@ -155,7 +187,7 @@ public class Event<D> {
         sb.append("; time=");
         sb.append(this.getTime());
         sb.append("; nodeID=");
-        sb.append(this.getNodeID());
+        sb.append(this.getNodeId());
         sb.append("; data=");
         sb.append(this.getData());
         sb.append("; Id=");
@@ -0,0 +1,140 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import msm.simulator.Event.EventType;
+
+
+/**
+ * Set of events scheduled at the same time, pulled from an event scheduler.
+ *
+ * Events are stored in parallel arrays, reused from one pull to the next
+ * (no object is allocated per event).
+ *
+ * @author pcjesus
+ *
+ */
+public class EventBatch {
+
+    private static final EventType[] TYPES = EventType.values();
+
+    private int time;
+    private int size;
+
+    private int[] node;
+    private byte[] type;
+    private Object[] data;
+
+
+    public EventBatch(){
+        this(64);
+    }
+
+
+    public EventBatch(int capacity){
+        this.node = new int[capacity];
+        this.type = new byte[capacity];
+        this.data = new Object[capacity];
+        this.size = 0;
+    }
+
+
+    /**
+     * Append an event to the batch
+     */
+    void add(int node, byte type, Object data){
+
+        if(this.size == this.node.length){
+            this.grow();
+        }
+
+        this.node[this.size] = node;
+        this.type[this.size] = type;
+        this.data[this.size] = data;
+        this.size++;
+    }
+
+
+    void add(int node, EventType type, Object data){
+        this.add(node, (byte) type.ordinal(), data);
+    }
+
+
+    /**
+     * Remove all events from the batch (releasing data references)
+     */
+    public void clear(){
+        for(int i=0; i < this.size; i++){
+            this.data[i] = null;
+        }
+        this.size = 0;
+    }
+
+
+    private void grow(){
+        int capacity = this.node.length << 1;
+        int[] n = new int[capacity];
+        System.arraycopy(this.node, 0, n, 0, this.size);
+        this.node = n;
+        byte[] t = new byte[capacity];
+        System.arraycopy(this.type, 0, t, 0, this.size);
+        this.type = t;
+        Object[] d = new Object[capacity];
+        System.arraycopy(this.data, 0, d, 0, this.size);
+        this.data = d;
+    }
+
+
+    /**
+     * GETTERS / SETTERS
+     */
+
+
+    public int size(){
+        return this.size;
+    }
+
+
+    /**
+     * @return the time of the events
+     */
+    public int getTime(){
+        return this.time;
+    }
+
+
+    void setTime(int time){
+        this.time = time;
+    }
+
+
+    public int getNode(int i){
+        return this.node[i];
+    }
+
+
+    public EventType getType(int i){
+        return TYPES[this.type[i]];
+    }
+
+
+    public Object getData(int i){
+        return this.data[i];
+    }
+
+
+    public String toString(int i){
+        StringBuilder sb = new StringBuilder("Event[type=");
+        sb.append(this.getType(i));
+        sb.append("; time=");
+        sb.append(this.time);
+        sb.append("; nodeID=");
+        sb.append(this.node[i]);
+        sb.append("; data=");
+        sb.append(this.data[i]);
+        sb.append("]");
+        return sb.toString();
+    }
+
+}
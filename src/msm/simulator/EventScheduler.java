@@ -0,0 +1,91 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import msm.simulator.Event.EventType;
+
+
+/**
+ * Pending events of a simulation, ordered by (integer) time.
+ *
+ * Events scheduled for the same time are handled as a set (slot), pulled
+ * all at once by the communication engine. Each scheduled event is
+ * referred by a long handle, valid until the event is pulled or cancelled.
+ *
+ * @author pcjesus
+ *
+ */
+public interface EventScheduler {
+
+
+    /**
+     * Add (schedule) a new event
+     *
+     * @param time Time the event will occur
+     * @param node Node associated to the event
+     * @param type Event Type
+     * @param data Data associated to the event
+     *
+     * @return handle of the event (never 0)
+     */
+    public long add(int time, int node, EventType type, Object data);
+
+
+    /**
+     * Remove the event referred by the handle
+     *
+     * @param handle of the event (returned by add)
+     *
+     * @return true if the event was still scheduled (successfully removed), false otherwise
+     */
+    public boolean cancel(long handle);
+
+
+    /**
+     * Pull (get and remove) the next set of events, scheduled at the same (earliest) time
+     *
+     * @param batch where the pulled events are stored (previous content is discarded)
+     * @return time of the pulled events
+     */
+    public int pullNext(EventBatch batch);
+
+
+    /**
+     * Return the time of the first occurring set of events
+     *
+     * @return time of the first set of events
+     */
+    public int getTimeOfNextEvents();
+
+
+    /**
+     * Return the number of events scheduled for the same time
+     *
+     * @param time when the event is scheduled
+     *
+     * @return number of events scheduled for the same time
+     */
+    public int numberOfEventAtSameTime(int time);
+
+
+    /**
+     * Remove (the first) event matching the given attributes (data is ignored if null).
+     *
+     * @return true if the event exists (successfully removed), false otherwise
+     */
+    public boolean removeEvent(int time, int node, EventType type, Object data);
+
+
+    /**
+     * @return number of scheduled events
+     */
+    public int numberOfEvents();
+
+
+    public boolean isEmpty();
+
+
+    public void clear();
+
+}
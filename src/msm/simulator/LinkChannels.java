@@ -0,0 +1,178 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import msm.simulator.network.Message;
+
+
+/**
+ * Messages in transit on the directed links of the network (sequential asynchronous model).
+ *
+ * Each link keeps its messages in a small queue ordered by delivery time, and only the
+ * delivery of the head of the queue is scheduled (MSG_CHANNEL event): the scheduler holds
+ * one event per busy link, instead of one per message in transit, and messages are carried
+ * by the channel (not kept in the receiver message buffer).
+ *
+ * FIFO channels deliver the messages of a link in the order they were sent (a message is
+ * not delivered before the previous ones, delaying it if needed).
+ *
+ * @author pcjesus
+ *
+ */
+class LinkChannels {
+
+    private final boolean fifo;
+
+    //Channels by link (sender id in the upper 32 bits, receiver id in the lower ones)
+    private final Map<Long, Channel> channels;
+
+
+    LinkChannels(boolean fifo){
+        this.fifo = fifo;
+        this.channels = new HashMap<Long, Channel>();
+    }
+
+
+    /**
+     * Add a message to the channel of its link
+     *
+     * @param time delivery time of the message (drawn transmission time)
+     *
+     * @return channel of the link, if its head changed (delivery event to be scheduled again), null otherwise
+     */
+    Channel enqueue(int from, int to, int time, Message<?> msg){
+
+        Long key = (((long) from) << 32) | (to & 0xFFFFFFFFL);
+        Channel channel = this.channels.get(key);
+        if(channel == null){
+            channel = new Channel(to);
+            this.channels.put(key, channel);
+        }
+
+        if(this.fifo && !channel.isEmpty()){
+            //No overtaking
+            time = Math.max(time, channel.getTailTime());
+        }
+
+        return channel.add(time, msg) ? channel : null;
+    }
+
+
+    void clear(){
+        this.channels.clear();
+    }
+
+
+    /**
+     * Messages of a link, ordered by delivery time (ring buffer)
+     */
+    static class Channel {
+
+        private final int to;
+
+        private int[] times;
+        private Message<?>[] msgs;
+        private int head;
+        private int size;
+
+        //Handle of the scheduled delivery of the head (0 if not scheduled)
+        private long event;
+
+
+        Channel(int to){
+            this.to = to;
+            this.times = new int[4];
+            this.msgs = new Message<?>[4];
+        }
+
+
+        /**
+         * Insert the message after the ones with lower or equal delivery time
+         *
+         * @return true if the message is the new head of the channel
+         */
+        private boolean add(int time, Message<?> msg){
+
+            if(this.size == this.times.length){
+                this.grow();
+            }
+
+            int mask = this.times.length - 1;
+            int i = this.size;
+            while((i > 0) && (this.times[(this.head + i - 1) & mask] > time)){
+                this.times[(this.head + i) & mask] = this.times[(this.head + i - 1) & mask];
+                this.msgs[(this.head + i) & mask] = this.msgs[(this.head + i - 1) & mask];
+                i--;
+            }
+            this.times[(this.head + i) & mask] = time;
+            this.msgs[(this.head + i) & mask] = msg;
+            this.size++;
+
+            return i == 0;
+        }
+
+
+        private void grow(){
+            int capacity = this.times.length << 1;
+            int[] t = new int[capacity];
+            Message<?>[] m = new Message<?>[capacity];
+            for(int i=0; i < this.size; i++){
+                t[i] = this.times[(this.head + i) & (this.times.length - 1)];
+                m[i] = this.msgs[(this.head + i) & (this.times.length - 1)];
+            }
+            this.times = t;
+            this.msgs = m;
+            this.head = 0;
+        }
+
+
+        /**
+         * Remove the head of the channel
+         *
+         * @return message at the head
+         */
+        Message<?> poll(){
+            Message<?> msg = this.msgs[this.head];
+            this.msgs[this.head] = null;
+            this.head = (this.head + 1) & (this.times.length - 1);
+            this.size--;
+            return msg;
+        }
+
+
+        boolean isEmpty(){
+            return this.size == 0;
+        }
+
+        int getHeadTime(){
+            return this.times[this.head];
+        }
+
+        int getTailTime(){
+            return this.times[(this.head + this.size - 1) & (this.times.length - 1)];
+        }
+
+        int getReceiver(){
+            return this.to;
+        }
+
+        long getEvent(){
+            return this.event;
+        }
+
+        void setEvent(long event){
+            this.event = event;
+        }
+
+        @Override
+        public String toString(){
+            return "Channel(to=" + this.to + ", msgs=" + this.size + ")";
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import msm.simulator.Event.EventType;
+import msm.simulator.exceptions.ComEngineException;
+import msm.simulator.network.Message;
+import msm.simulator.network.Node;
+import msm.simulator.util.NumGenerator;
+
+
+/**
+ * Logical process of a parallel asynchronous engine, holding the events of a 
+ * subset of the nodes (node id modulo the number of logical processes).
+ *
+ * Each logical process computes the messages transmission times with its own 
+ * generator, and keeps its messages statistics until they are merged by the engine.
+ *
+ * @author pcjesus
+ *
+ */
+abstract class LogicalProcess {
+
+    private final int index;
+
+    //Time of the events being processed
+    private int time;
+
+    //Number generator of the messages transmission time (own random sequence)
+    private NumGenerator timeGenerator;
+    private final Map<Integer, Integer> msgLatencies;
+    private long msgCount;
+
+    //Error raised while processing the window
+    private ComEngineException failure;
+
+
+    LogicalProcess(int index){
+        this.index = index;
+        this.msgLatencies = new HashMap<Integer, Integer>();
+    }
+
+
+    /**
+     * Schedule an event for a node of this logical process
+     *
+     * @param from logical process of the current thread (null outside a window)
+     * @param order sending time (events of the same time are processed in this order)
+     *
+     * @return handle of the event (ComEngine.NO_TIMEOUT if it can not be reset)
+     */
+    abstract long schedule(LogicalProcess from, int t, int node, EventType type, Object data, int order);
+
+
+    /**
+     * Remove the clock event (of a node of this logical process) referred by the handle
+     *
+     * @return true if the clock event exists (successfully removed), false otherwise
+     */
+    abstract boolean cancel(long handle);
+
+
+    /**
+     * Schedule the next clock event of a periodic timer of a node of this logical process
+     * (always set by the logical process of the node, or outside a window), replacing the
+     * previous one as the event of the timer
+     *
+     * @param timer handle of the timer (see PeriodicTimers.handle)
+     *
+     * @return handle of the event
+     */
+    abstract long scheduleTimer(LogicalProcess from, long timer, int t, int node, PeriodicTimers.TimerGroup group, int order);
+
+
+    /**
+     * Remove the next clock event of the periodic timer (timer reset)
+     *
+     * @return true if the timer has a clock event (successfully removed), false otherwise
+     */
+    abstract boolean cancelTimer(long timer);
+
+
+    /**
+     * @return true if the periodic timer has a clock event to process
+     */
+    abstract boolean hasTimer(long timer);
+
+
+    /**
+     * Add message to the buffer of a receiver of this logical process
+     *
+     * @param from logical process of the current thread (null outside a window)
+     */
+    abstract void addReceiveMessage(LogicalProcess from, Node receiver, Message<?> m);
+
+
+    /**
+     * @return true if the message receive events carry the message (instead of its id)
+     */
+    boolean carriesMessages(){
+        return false;
+    }
+
+
+    void incMsgCount(){
+        this.msgCount++;
+    }
+
+
+    void registerMsgLatency(int latency){
+        this.addMsgLatency(latency, 1);
+    }
+
+
+    void addMsgCount(long count){
+        this.msgCount += count;
+    }
+
+
+    void addMsgLatency(int latency, int count){
+        Integer c = this.msgLatencies.get(latency);
+        this.msgLatencies.put(latency, (c == null) ? count : c + count);
+    }
+
+
+    /**
+     * Remove the statistics and error of the window
+     */
+    void clear(){
+        this.msgCount = 0;
+        this.msgLatencies.clear();
+        this.failure = null;
+    }
+
+
+    /**
+     * GETTERS / SETTERS
+     */
+
+
+    int getIndex(){
+        return this.index;
+    }
+
+    int getTime(){
+        return this.time;
+    }
+
+    void setTime(int time){
+        this.time = time;
+    }
+
+    NumGenerator getTimeGenerator(){
+        return this.timeGenerator;
+    }
+
+    void setTimeGenerator(NumGenerator timeGenerator){
+        this.timeGenerator = timeGenerator;
+    }
+
+    Map<Integer, Integer> getMsgLatencies(){
+        return this.msgLatencies;
+    }
+
+    long getMsgCount(){
+        return this.msgCount;
+    }
+
+    ComEngineException getFailure(){
+        return this.failure;
+    }
+
+    void setFailure(ComEngineException failure){
+        this.failure = failure;
+    }
+
+}
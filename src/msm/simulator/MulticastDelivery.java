@@ -0,0 +1,186 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.Arrays;
+
+import msm.simulator.network.Message;
+
+
+/**
+ * Delivery record of a broadcast message (asynchronous model): the message shared by all
+ * the receivers, and the receivers ordered by delivery time (in the neighbors order for the
+ * same time).
+ *
+ * A single multicast event is scheduled for each distinct delivery time, and the receivers
+ * of that time are only materialized (delivered) when the event is processed.
+ *
+ * Records are taken from a Pool, and go back to it once the receivers of their last delivery
+ * time are delivered (see delivered), keeping their arrays for the next broadcasts.
+ *
+ * @author pcjesus
+ *
+ */
+class MulticastDelivery {
+
+    private Message<?> msg;
+    private int[] receivers;
+    private int[] times;
+    private int size;
+    //First receiver not delivered yet
+    private int next;
+
+    //Pool of the record, and next free record of the pool
+    private final Pool pool;
+    private MulticastDelivery nextFree;
+
+
+    private MulticastDelivery(Pool pool, int capacity){
+        this.pool = pool;
+        this.receivers = new int[capacity];
+        this.times = new int[capacity];
+    }
+
+
+    /**
+     * @param msg broadcast message
+     * @param neighbors receivers ids (from start)
+     * @param times delivery time of each receiver
+     * @param count number of receivers
+     * @param keys sort keys (at least count)
+     */
+    private void init(Message<?> msg, int[] neighbors, int start, int[] times, int count, long[] keys){
+        this.msg = msg;
+        this.size = count;
+        this.next = 0;
+        if(this.receivers.length < count){
+            this.receivers = new int[count];
+            this.times = new int[count];
+        }
+
+        //Sort by time, keeping the receivers order for the same time (index in the lower bits)
+        for(int i=0; i < count; i++){
+            keys[i] = (((long) times[i]) << 32) | i;
+        }
+        Arrays.sort(keys, 0, count);
+        for(int i=0; i < count; i++){
+            int index = (int) keys[i];
+            this.receivers[i] = neighbors[start + index];
+            this.times[i] = times[index];
+        }
+    }
+
+
+    Message<?> getMessage(){
+        return this.msg;
+    }
+
+
+    /**
+     * @return number of receivers
+     */
+    int size(){
+        return this.size;
+    }
+
+
+    /**
+     * @return delivery time of the i-th receiver (ascending)
+     */
+    int getTime(int i){
+        return this.times[i];
+    }
+
+
+    int getReceiver(int i){
+        return this.receivers[i];
+    }
+
+
+    /**
+     * Pull the receivers of the next delivery time (the multicast events of the record
+     * are processed in time order)
+     *
+     * @return index of the first receiver, up to getNext() (exclusive)
+     */
+    int pullNext(){
+        int first = this.next;
+        int time = this.times[first];
+        while((this.next < this.size) && (this.times[this.next] == time)){
+            this.next++;
+        }
+        return first;
+    }
+
+
+    /**
+     * @return index of the first receiver not delivered
+     */
+    int getNext(){
+        return this.next;
+    }
+
+
+    /**
+     * End the delivery of the receivers pulled: the record goes back to its pool if all the
+     * receivers were delivered (no longer to be used)
+     */
+    void delivered(){
+        if(this.next == this.size){
+            this.msg = null;
+            this.pool.release(this);
+        }
+    }
+
+
+    /**
+     * Pool of delivery records (sequential asynchronous execution, not thread safe)
+     */
+    static final class Pool {
+
+        private MulticastDelivery free;
+        private long[] keys = new long[16];
+
+        //Metrics
+        private long acquired;
+        private long allocated;
+
+
+        /**
+         * Get a delivery record of the message to the receivers
+         *
+         * @param neighbors receivers ids (from start)
+         * @param times delivery time of each receiver
+         * @param count number of receivers
+         */
+        MulticastDelivery acquire(Message<?> msg, int[] neighbors, int start, int[] times, int count){
+            MulticastDelivery delivery = this.free;
+            if(delivery != null){
+                this.free = delivery.nextFree;
+                delivery.nextFree = null;
+            } else {
+                delivery = new MulticastDelivery(this, count);
+                this.allocated++;
+            }
+            if(this.keys.length < count){
+                this.keys = new long[Math.max(count, this.keys.length << 1)];
+            }
+            delivery.init(msg, neighbors, start, times, count, this.keys);
+            this.acquired++;
+            return delivery;
+        }
+
+
+        private void release(MulticastDelivery delivery){
+            delivery.nextFree = this.free;
+            this.free = delivery;
+        }
+
+
+        public String toString(){
+            return "Multicast delivery pool - acquired: "+this.acquired+", allocated: "+this.allocated;
+        }
+    }
+
+}
@@ -7,8 +7,6 @@ package msm.simulator;
 
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
@@ -21,6 +19,7 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import msm.simulator.GraphDef.AxisValues;
+import msm.simulator.exceptions.ComEngineException;
 import msm.simulator.exceptions.ConfigException;
 import msm.simulator.exceptions.DynamicsException;
 import msm.simulator.exceptions.NetStatisticsException;
@@ -475,9 +474,11 @@ public class NetworkSimulator {
             // Get algorithms to use
             String sApp = null;
             String sComEng = null;
+            String sExecution = null;
             try {
                 sApp = config.getValue(Config.PARAM_APPLICATION_TYPE, i);
                 sComEng = config.getValue(Config.PARAM_COMMUNICATION_ENGINE, i);
+                sExecution = config.getValueWithDefault(ComEngine.ExecutionMode.SEQUENTIAL.toString(), i, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_EXECUTION);
             }catch (ConfigException ce){
                 System.err.println("Cannot execute simulation  "+i);
                 System.err.println("Parameter not defined: "+ce.getMessage());
@@ -487,8 +488,8 @@ public class NetworkSimulator {
             System.out.println("Execute Algorithm: "+sApp+" - "+sComEng+" ["+i+"] (repeat: "+repeatSim+"x + "+extraRepeatSim+" extra):");
                 
             ComEngine comEng = new ComEngine();
-            Class<?>[] argClasses = {Network.class, Config.class, Integer.class, Integer.class};
-            comEng.setModel(sComEng);
+            comEng.setModel(sComEng, sExecution);
+            SimulationEngine engine = comEng.getEngine();
             
            
             //Init variables to store results for all repetitions
@@ -602,7 +603,7 @@ public class NetworkSimulator {
                                 
                 int totalTime=0; //total simulation time
                 int cntResultSamples=0; //number of results samples
-                int nextSampleTime=resultPeriod; //Results sample time
+                SimulationEvents simEvents = new SimulationEvents(); //Dynamism and results sample events
                 BigDecimal dev = BigDecimal.ZERO;
                 BigDecimal normdev = BigDecimal.ZERO;
                 BigDecimal trueValue = BigDecimal.ZERO;
@@ -616,6 +617,8 @@ public class NetworkSimulator {
                
                     //Set Network to use
                     System.out.print("\tSet network topology..."); 
+                    //Saved networks are not kept in memory: read again (full deserialization) for each run,
+                    //otherwise a copy of the network (see Network(Network) for its cost)
                     if(saveNetwork && (rep != 0)){
                         try {
                             System.out.print("("+netFiles[rep]+")...");
@@ -634,16 +637,15 @@ public class NetworkSimulator {
                     
 
                     
-                    //Invoke Init Comunication Method
-                    Method im = comEng.getClass().getDeclaredMethod(sComEng+ComEngine.METHOD_INIT_COMMUNICATION, argClasses);
-                    Object[] argObjects = {net, config, i, rep};
-                    im.invoke(comEng, argObjects);
+                    //Init Communication (simulation engine)
+                    engine.init(net, config, i, rep);
                     if(validRepetitions.get(0) == rep){
                         comEng.setRegisterMsgLatencies(true);
                     }
                     
-                    //Schedule Churn events
-                    dynamism.scheduleEvents(limitTime);
+                    //Schedule Churn events and first results sample
+                    dynamism.scheduleEvents(simEvents, limitTime);
+                    simEvents.add(resultPeriod, Event.EventType.SAMPLE, null);
                     
                     //Collect initial statistics (time = 0)
                     if(processDataDistribution){
@@ -727,24 +729,36 @@ public class NetworkSimulator {
                
                     //Start Simulation Iteration
                     //for(int iter=0; iter < limitIters; iter++, iterCnt=iter){
-                    for(int time=0; time < limitTime; time=comEng.getGlobalTime()){
+                    //(samples over a skipped quiescent network are taken after it, up to the end time)
+                    for(int time=0; (time < limitTime) || (simEvents.getTimeOfNextEvents() < limitTime); time=engine.getGlobalTime()){
                         
                         //Update Total Time (only for executed iterations)
                         totalTime=time; 
                         
-                        //Check if next event in time correspond to churn
-                        while((dynamism.nextDynamismEventTime() <= time) && (dynamism.nextDynamismEventTime() <= nextSampleTime)){
+                        //Pull simulation events due at this time (before the engine events of the same time)
+                        EventBatch simEvtSet = null;
+                        if(simEvents.getTimeOfNextEvents() <= time){
+                            simEvtSet = simEvents.pullNext();
+                            //Earlier than the current time if skipped
+                            totalTime = simEvtSet.getTime();
+                        }
+                        
+                        //Process dynamic events (churn before value change)
+                        for(int e=0; (simEvtSet != null) && (e < simEvtSet.size()); e++){
+                            
+                            if(simEvtSet.getType(e) == Event.EventType.SAMPLE){
+                                continue;
+                            }
                         
                             //Process next dynamic event
-                            Event<Integer> dynamicEvt = dynamism.pullNextEvent();
-                            int churnNum = dynamism.processEvent(dynamicEvt, net, netData, comEng, config, i, rep);
+                            int churnNum = dynamism.processEvent(simEvtSet.getType(e), (Integer) simEvtSet.getData(e), net, netData, comEng, config, i, rep);
                             if(churnNum != 0){
-                                switch (dynamicEvt.getType()) {
+                                switch (simEvtSet.getType(e)) {
                                     case CHURN:
                                         System.out.println("\t["+time+"] CHURN: "+churnNum+"; Network size: "+net.getNumNodes()+", Mean Degree: "+net.calculateMeanDegree(mc));
                                         break;
                                     case VALUE_CHANGE:
-                                        System.out.println("\t["+time+"] VALUE CHANGE: "+churnNum+"; Operator: "+dynamism.getValueChangeOperator(dynamicEvt.getData())+", Rate/Value: "+dynamism.getValueChangeRate(dynamicEvt.getData()));
+                                        System.out.println("\t["+time+"] VALUE CHANGE: "+churnNum+"; Operator: "+dynamism.getValueChangeOperator((Integer) simEvtSet.getData(e))+", Rate/Value: "+dynamism.getValueChangeRate((Integer) simEvtSet.getData(e)));
                                         break;
                                     default:
                                         System.out.println("\t["+time+"] UNKNOWN DYNAMIC EVENT!");
@@ -759,17 +773,23 @@ public class NetworkSimulator {
                             }
                         }
                    
-                        //Only invoke engine event no more result sampling and churn are excepted
-                        if((nextSampleTime > time) && (dynamism.nextDynamismEventTime() > time)) {
+                        //Only invoke engine event if no result sampling and churn are due
+                        if(simEvtSet == null) {
                         
-                            //Invoke Communication Method
-                            Method cm = comEng.getClass().getDeclaredMethod(sComEng+ComEngine.METHOD_COMMUNICATION, new Class<?>[]{});
-                            cm.invoke(comEng, new Object[]{});
+                            //Execute Communication step (simulation engine), not beyond the next sample, churn or end time
+                            engine.setHorizon(Math.min(limitTime, simEvents.getTimeOfNextEvents()));
+                            //Quiescent network skipped up to the next churn or end time (not samples)
+                            engine.setQuiescenceHorizon(Math.min(limitTime, simEvents.getTimeOfNextDynamism()));
+                            engine.step();
                         }
                    
                         //Only compute and sample result at specific sampling time intervals
                         
-                        while ((nextSampleTime <= time) && (nextSampleTime < dynamism.nextDynamismEventTime())){
+                        for(int e=0; (simEvtSet != null) && (e < simEvtSet.size()); e++){
+                            
+                            if(simEvtSet.getType(e) != Event.EventType.SAMPLE){
+                                continue;
+                            }
                             
                             sampleCnt++;
                             
@@ -902,7 +922,7 @@ public class NetworkSimulator {
 //                            tempNumMsgDiscSend.add(new BigDecimal(net.getTotalMessageDiscardSend(), mc));
 //                            tempNumMsgDiscRcv.add(new BigDecimal(net.getTotalMessageDiscardRcv(), mc));
                             tempNumMsgLoss.add(new BigDecimal(net.getTotalMessageLoss(), mc));
-                            tempTimes.add(new BigDecimal(time, mc));
+                            tempTimes.add(new BigDecimal(simEvtSet.getTime(), mc));
 
                             
                             //Only on the first valid repetition
@@ -936,13 +956,13 @@ public class NetworkSimulator {
                                 }
                             }
                             
-                            //Update next sample time
-                            nextSampleTime = nextSampleTime + resultPeriod;
+                            //Schedule next sample
+                            simEvents.add(simEvtSet.getTime() + resultPeriod, Event.EventType.SAMPLE, null);
                             
                             //Increment results sample count
                             cntResultSamples++;
                             
-                        } //while sample results
+                        } //for sample events
                         
                    
                         if (!processDataDistribution) {
@@ -967,15 +987,11 @@ public class NetworkSimulator {
                     } //for simulation iterations
                                         
                     
-                } catch (SecurityException e) {
+                } catch (ClassNotFoundException e) {
                     System.out.println("ERROR! ");
                     e.printStackTrace();
                     System.exit(0);
-                } catch (NoSuchMethodException e) {
-                    System.out.println("ERROR! ");
-                    e.printStackTrace();
-                    System.exit(0);
-                } catch (IllegalArgumentException e) {
+                } catch (InstantiationException e) {
                     System.out.println("ERROR! ");
                     e.printStackTrace();
                     System.exit(0);
@@ -983,7 +999,7 @@ public class NetworkSimulator {
                     System.out.println("ERROR! ");
                     e.printStackTrace();
                     System.exit(0);
-                } catch (InvocationTargetException e) {
+                } catch (ComEngineException e) {
                     System.out.println("ERROR! ");
                     e.printStackTrace();
                     System.exit(0);
@@ -1008,7 +1024,7 @@ public class NetworkSimulator {
                         
                         //Invalidate repetition simulation
                         validSimulation = false;
-                        validRepetitions.remove(new Integer(rep));
+                        validRepetitions.remove(Integer.valueOf(rep));
                     }
                 } catch (ArithmeticException ne) {
                     System.out.println("ERROR! TRUE Value: "+trueValue);
@@ -1073,6 +1089,9 @@ public class NetworkSimulator {
                 }
                 
                 System.out.println("\tTotal Time: "+totalTime);
+                if(comEng.getScheduler() instanceof SpillingScheduledEvents){
+                    System.out.println("\t"+comEng.getScheduler());
+                }
                 if(processDataDistribution){
                     
                     //TODO Print any desired data distribution statistic 
@@ -0,0 +1,335 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import msm.simulator.exceptions.ComEngineException;
+import msm.simulator.exceptions.ConfigException;
+import msm.simulator.network.Network;
+
+
+/**
+ * Simulation engine for the asynchronous network model, executing the events
+ * in parallel with optimistic synchronization (Time Warp, in time windows).
+ *
+ * The nodes are partitioned in logical processes (node id modulo the number of
+ * logical processes). At each step, all logical processes execute (in the workers
+ * of a ForkJoin pool) their events before the end of the window: the next event time
+ * plus the optimistic window, limited by the horizon set by the simulator (next results
+ * sample or dynamism event). Unlike the conservative engine, the window is not limited by
+ * on the minimum message transmission time: events sent to other logical processes
+ * inside the window are exchanged at the end of each phase, and the receivers roll
+ * back if they already processed later events. Phases are repeated until no more
+ * events are exchanged. The GVT (minimum time of the events to process or received)
+ * is computed at the end of each phase, to commit the processed events before it.
+ *
+ * The window is set in the configuration, or else adapted at each step: doubled while
+ * few events are rolled back, halved (down to the minimum message transmission time)
+ * when too many are.
+ *
+ * Results are reproducible for the same seed, number of logical processes and window,
+ * but differ from the sequential execution (each logical process draws the transmission
+ * times from its own generator, including for the events rolled back).
+ *
+ * Applications must only change the state of their own node in the event handlers,
+ * and it must be saved and restored by Application.saveState/restoreState (by default,
+ * all the fields of the application). Output produced by the event handlers (e.g.
+ * reports) is not rolled back.
+ *
+ * @author pcjesus
+ *
+ */
+public class OptimisticAsynchronousEngine implements SimulationEngine {
+
+    //Logical processes per worker (load balancing)
+    private static final int LOGICAL_PROCESSES_PER_THREAD = 4;
+    //Rolled back events ratio (of the processed events in a step) to adapt the window
+    private static final double MIN_ROLLBACK_RATIO = 0.05;
+    private static final double MAX_ROLLBACK_RATIO = 0.2;
+    //Maximum adapted window, in minimum message transmission times
+    private static final int MAX_WINDOW_LOOKAHEADS = 64;
+
+    private final ComEngine comEngine;
+
+    private ForkJoinPool pool;
+    private int threads;
+    private OptimisticLogicalProcess[] lps;
+
+    //Optimistic window (time processed beyond the next events at each step), and if it is adapted
+    private int window;
+    private boolean adaptive;
+    //Minimum message transmission time
+    private int lookahead;
+    //Time limit set by the simulator for the next step
+    private int horizon;
+    //End of the current window (exclusive), and GVT of the current phase
+    private int windowEnd;
+    private int gvt;
+
+    //Number of phases executed
+    private long phases;
+
+
+    public OptimisticAsynchronousEngine(ComEngine comEngine){
+        this.comEngine = comEngine;
+        this.horizon = Integer.MAX_VALUE;
+    }
+
+
+    public void init(Network net, Config conf, Integer simulationIndex, Integer repetitionCount)
+        throws ClassNotFoundException, IllegalAccessException, InstantiationException, ComEngineException {
+
+        int logicalProcesses;
+        String window;
+        try {
+            this.threads = Integer.parseInt(conf.getValueWithDefault(String.valueOf(Runtime.getRuntime().availableProcessors()), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_THREADS));
+            logicalProcesses = Integer.parseInt(conf.getValueWithDefault(String.valueOf(this.threads * LOGICAL_PROCESSES_PER_THREAD), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_LOGICAL_PROCESSES));
+            window = conf.getValueWithDefault(null, simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_OPTIMISTIC_WINDOW);
+
+            //Sequential execution (debug output must keep the events order)
+            if(ComEngine.useDebug){
+                this.lps = null;
+            } else {
+                this.lps = new OptimisticLogicalProcess[logicalProcesses];
+                for(int i=0; i < logicalProcesses; i++){
+                    this.lps[i] = new OptimisticLogicalProcess(i, logicalProcesses, this.comEngine);
+                }
+            }
+        }catch (ConfigException ce){
+            throw (ComEngineException)new ComEngineException(ce).initCause(ce);
+        }
+
+        if(this.threads < 1){
+            throw new ComEngineException("Invalid number of threads, must be greater than 0: "+this.threads);
+        }
+
+        if(logicalProcesses < 1){
+            throw new ComEngineException("Invalid number of logical processes, must be greater than 0: "+logicalProcesses);
+        }
+
+        //Initial events are scheduled in the logical processes
+        this.comEngine.setLogicalProcesses(this.lps);
+        this.comEngine.AsynchronousInitCommunication(net, conf, simulationIndex, repetitionCount);
+
+        if(this.lps == null){
+            return;
+        }
+
+        for(OptimisticLogicalProcess lp : this.lps){
+            this.comEngine.initLogicalProcess(lp);
+        }
+        this.lookahead = this.comEngine.getMinMsgTransmissionTime();
+        this.adaptive = (window == null);
+        this.window = this.adaptive ? this.lookahead : Integer.parseInt(window.trim());
+        if(this.window < 1){
+            throw new ComEngineException("Invalid optimistic window, must be greater than 0: "+this.window);
+        }
+        this.phases = 0;
+
+        //Create the workers pool (reused by the following repetitions)
+        if((this.pool == null) || (this.pool.getParallelism() != this.threads)){
+            if(this.pool != null){
+                this.pool.shutdown();
+            }
+            this.pool = new ForkJoinPool(this.threads);
+        }
+    }
+
+
+    public void step() throws ComEngineException {
+
+        if(this.lps == null){
+            this.comEngine.AsynchronousCommunication();
+            return;
+        }
+
+        this.comEngine.beginRound();
+
+        //Window: from the next events (always processed), not beyond the horizon
+        int start = this.timeOfNextEvents();
+        long end = Math.min((long) start + this.window, Math.max((long) this.horizon, (long) start + 1));
+        this.windowEnd = (int) Math.min(end, Integer.MAX_VALUE);
+        this.gvt = start;
+
+        long processed = this.getProcessedEvents();
+        long rolledBack = this.getRolledBackEvents();
+
+        boolean exchanged;
+        do {
+            this.pool.invoke(new Phase(0, this.lps.length));
+            this.phases++;
+
+            for(OptimisticLogicalProcess lp : this.lps){
+                if(lp.getFailure() != null){
+                    throw lp.getFailure();
+                }
+            }
+
+            //End of the phase: exchange events and anti-messages (in logical process order)
+            exchanged = false;
+            for(OptimisticLogicalProcess lp : this.lps){
+                OptimisticLogicalProcess.Exchange outgoing = lp.getOutgoing();
+                for(int i=0; i < outgoing.size(); i++){
+                    TimeWarpEvent evt = outgoing.get(i);
+                    this.lps[evt.node % this.lps.length].receive(evt, outgoing.isAnti(i));
+                }
+                exchanged |= (outgoing.size() > 0);
+                outgoing.clear();
+            }
+
+            //GVT: no event before it can be rolled back
+            this.gvt = Integer.MAX_VALUE;
+            for(OptimisticLogicalProcess lp : this.lps){
+                this.gvt = Math.min(this.gvt, lp.getNextTime());
+            }
+        } while(exchanged);
+
+        //End of the window: all events before it are committed
+        for(OptimisticLogicalProcess lp : this.lps){
+            lp.fossilCollect(Integer.MAX_VALUE);
+            this.comEngine.mergeStatistics(lp);
+            lp.clear();
+        }
+
+        //Adapt the window to the rolled back events (only if the window was not limited by the horizon)
+        if(this.adaptive && (end == (long) start + this.window)){
+            double ratio = (double) (this.getRolledBackEvents() - rolledBack) / (double) Math.max(1, this.getProcessedEvents() - processed);
+            if(ratio < MIN_ROLLBACK_RATIO){
+                this.window = (int) Math.min((long) this.window << 1, (long) this.lookahead * MAX_WINDOW_LOOKAHEADS);
+            } else if(ratio > MAX_ROLLBACK_RATIO){
+                this.window = Math.max(this.lookahead, this.window >> 1);
+            }
+        }
+
+        // Update Global Time
+        this.comEngine.setGlobalTime(this.timeOfNextEvents());
+    }
+
+
+    public void setHorizon(int time){
+        this.horizon = time;
+    }
+
+
+    public void setQuiescenceHorizon(int time){
+        //Quiescence not detected in the partitioned execution (timers kept by the logical processes)
+    }
+
+
+    public int getGlobalTime(){
+        return this.comEngine.getGlobalTime();
+    }
+
+
+    public ComEngine getComEngine(){
+        return this.comEngine;
+    }
+
+
+    public int getThreads(){
+        return this.threads;
+    }
+
+
+    public int getWindow(){
+        return this.window;
+    }
+
+
+    public long getPhases(){
+        return this.phases;
+    }
+
+
+    /**
+     * @return number of events processed (including the ones rolled back)
+     */
+    public long getProcessedEvents(){
+        long count = 0;
+        if(this.lps != null){
+            for(OptimisticLogicalProcess lp : this.lps){
+                count += lp.getProcessedCount();
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * @return number of events rolled back
+     */
+    public long getRolledBackEvents(){
+        long count = 0;
+        if(this.lps != null){
+            for(OptimisticLogicalProcess lp : this.lps){
+                count += lp.getRolledBackCount();
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Time of the next events of all logical processes
+     */
+    private int timeOfNextEvents(){
+        int time = Integer.MAX_VALUE;
+        boolean empty = true;
+        for(OptimisticLogicalProcess lp : this.lps){
+            if(!lp.isEmpty()){
+                time = Math.min(time, lp.getNextTime());
+                empty = false;
+            }
+        }
+        if(empty){
+            throw new NoSuchElementException();
+        }
+        return time;
+    }
+
+
+    /**
+     * Execution of a phase over a range of logical processes (split between workers)
+     */
+    private class Phase extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+
+        Phase(int from, int to){
+            this.from = from;
+            this.to = to;
+        }
+
+
+        protected void compute(){
+            if(this.to - this.from == 1){
+                this.execute(lps[this.from]);
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new Phase(this.from, middle), new Phase(middle, this.to));
+            }
+        }
+
+
+        private void execute(OptimisticLogicalProcess lp){
+            comEngine.setLogicalProcess(lp);
+            try {
+                lp.execute(windowEnd, gvt);
+            } catch (ComEngineException ce){
+                lp.setFailure(ce);
+            } finally {
+                comEngine.setLogicalProcess(null);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,500 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import msm.simulator.Event.EventType;
+import msm.simulator.exceptions.ComEngineException;
+import msm.simulator.network.Message;
+import msm.simulator.network.Network;
+import msm.simulator.network.Node;
+
+
+/**
+ * Logical process of the optimistic (Time Warp) asynchronous engine, holding the
+ * events of a subset of the nodes (node id modulo the number of logical processes).
+ *
+ * Events are processed optimistically, saving the state of the node before each one.
+ * The receive events of a node at the same time are delivered together, at the position
+ * of the first one, unless another event of the node comes in between (as ReceiveBatches
+ * in the sequential and conservative executions), so all the events of a time are
+ * processed (and rolled back) together.
+ * When an event arrives at or before the time of the logical process (straggler), or an
+ * event already processed is annihilated (anti-message), the logical process rolls back:
+ * the processed events are undone in reverse order, restoring the state of their node,
+ * removing the events they created (anti-messages for the nodes of other logical
+ * processes) and the clock events they removed. Processed events before the GVT
+ * (global virtual time) are committed (fossil collection).
+ *
+ * @author pcjesus
+ *
+ */
+class OptimisticLogicalProcess extends LogicalProcess {
+
+    private final ComEngine comEngine;
+    private final int processes;
+
+    //Events to process, and processed events (not committed, in processing order)
+    private final TreeSet<TimeWarpEvent> pending;
+    private final List<TimeWarpEvent> processed;
+    //Clock events of the nodes, by handle (not committed)
+    private final Map<Long, TimeWarpEvent> clocks;
+    //Next clock event of the periodic timers of the nodes, by timer handle
+    private final Map<Long, TimeWarpEvent> timers;
+
+    //Events of the time being processed, first receive event of each node at that time,
+    //and messages of the receive events delivered together (reused)
+    private final List<TimeWarpEvent> timeEvents;
+    private final Map<Integer, TimeWarpEvent> firstReceive;
+    private final List<Message<?>> msgs;
+
+    //Event being processed
+    private TimeWarpEvent current;
+    //Sequence number of the next event created by the logical process, or by the simulator
+    private long seq;
+    private long simulatorSeq;
+
+    //Events (and anti-messages) received from other logical processes, and sent to them
+    private final Exchange incoming;
+    private final Exchange outgoing;
+
+    //Statistics
+    private long processedCount;
+    private long rolledBackCount;
+
+
+    OptimisticLogicalProcess(int index, int processes, ComEngine comEngine){
+        super(index);
+        this.comEngine = comEngine;
+        this.processes = processes;
+        this.pending = new TreeSet<TimeWarpEvent>(TimeWarpEvent.ORDER);
+        this.processed = new ArrayList<TimeWarpEvent>();
+        this.clocks = new HashMap<Long, TimeWarpEvent>();
+        this.timers = new HashMap<Long, TimeWarpEvent>();
+        this.timeEvents = new ArrayList<TimeWarpEvent>();
+        this.firstReceive = new HashMap<Integer, TimeWarpEvent>();
+        this.msgs = new ArrayList<Message<?>>();
+        this.incoming = new Exchange();
+        this.outgoing = new Exchange();
+    }
+
+
+    /**
+     * Schedule an event, created by the event being processed (recorded to be removed
+     * on rollback) or by the simulator; events for the nodes of other logical processes
+     * are sent at the end of the phase
+     */
+    long schedule(LogicalProcess from, int t, int node, EventType type, Object data, int order){
+        OptimisticLogicalProcess lp = (OptimisticLogicalProcess) from;
+        TimeWarpEvent evt;
+        if(lp == null){
+            evt = new TimeWarpEvent(t, order, node, type, data, TimeWarpEvent.SIMULATOR, this.simulatorSeq++);
+        } else {
+            evt = new TimeWarpEvent(t, order, node, type, data, lp.getIndex(), lp.seq++);
+            lp.current.addCreated(evt);
+            if(lp != this){
+                lp.outgoing.add(evt, false);
+                return ComEngine.NO_TIMEOUT;
+            }
+        }
+        this.pending.add(evt);
+        if(type == EventType.TICK){
+            this.clocks.put(evt.handle(), evt);
+        }
+        return evt.handle();
+    }
+
+
+    /**
+     * Remove a clock event, recorded to be restored on rollback (clock events of the time 
+     * being processed can no longer be reset, as in the sequential execution)
+     */
+    boolean cancel(long handle){
+        TimeWarpEvent evt = this.clocks.get(handle);
+        if((evt == null) || evt.processed || evt.cancelled || ((this.current != null) && (evt.time <= this.current.time))){
+            return false;
+        }
+        this.pending.remove(evt);
+        evt.cancelled = true;
+        if(this.current != null){
+            //Restored if the event is rolled back
+            this.current.addRemoved(evt);
+        } else {
+            this.clocks.remove(handle);
+        }
+        return true;
+    }
+
+
+    long scheduleTimer(LogicalProcess from, long timer, int t, int node, PeriodicTimers.TimerGroup group, int order){
+        long handle = this.schedule(from, t, node, EventType.TICK, group, order);
+        this.timers.put(timer, this.clocks.get(handle));
+        return handle;
+    }
+
+
+    boolean cancelTimer(long timer){
+        TimeWarpEvent evt = this.timers.get(timer);
+        if((evt == null) || !this.cancel(evt.handle())){
+            return false;
+        }
+        //Restored if the event is rolled back
+        this.timers.remove(timer);
+        return true;
+    }
+
+
+    boolean hasTimer(long timer){
+        TimeWarpEvent evt = this.timers.get(timer);
+        return (evt != null) && !evt.processed && !evt.cancelled;
+    }
+
+
+    /**
+     * @return handle of the periodic timer of the clock event, or 0 if not from a periodic timer
+     */
+    private static long timerOf(TimeWarpEvent evt){
+        if((evt.type == EventType.TICK) && (evt.data instanceof PeriodicTimers.TimerGroup)){
+            return PeriodicTimers.handle((PeriodicTimers.TimerGroup) evt.data, evt.node);
+        }
+        return 0;
+    }
+
+
+    void addReceiveMessage(LogicalProcess from, Node receiver, Message<?> m){
+        //Message carried by the receive event
+    }
+
+
+    boolean carriesMessages(){
+        return true;
+    }
+
+
+    void incMsgCount(){
+        this.current.msgCount++;
+    }
+
+
+    void registerMsgLatency(int latency){
+        this.current.addLatency(latency);
+    }
+
+
+    /**
+     * Receive an event (or anti-message) from another logical process,
+     * handled at the beginning of the next phase
+     */
+    void receive(TimeWarpEvent evt, boolean anti){
+        this.incoming.add(evt, anti);
+    }
+
+
+    /**
+     * Phase of the window: commit the events before the GVT, handle the received events
+     * (rolling back if needed), and process the events before the end of the window
+     */
+    void execute(int windowEnd, int gvt) throws ComEngineException {
+
+        this.fossilCollect(gvt);
+
+        for(int i=0; i < this.incoming.size(); i++){
+            TimeWarpEvent evt = this.incoming.get(i);
+            if(this.incoming.isAnti(i)){
+                //Annihilate event (undo it first, if already processed)
+                if(evt.processed){
+                    this.rollback(evt.time);
+                }
+                this.pending.remove(evt);
+                evt.cancelled = true;
+            } else {
+                //Straggler: undo the events processed at its time and after it
+                if(!this.processed.isEmpty() && (evt.time <= this.processed.get(this.processed.size()-1).time)){
+                    this.rollback(evt.time);
+                }
+                this.pending.add(evt);
+            }
+        }
+        this.incoming.clear();
+
+        while(!this.pending.isEmpty() && (this.pending.first().time < windowEnd)){
+            this.processTime(this.pending.first().time);
+        }
+    }
+
+
+    /**
+     * Process all the events of the time (no event of the same time is created by them),
+     * grouping the receive events of each node
+     */
+    private void processTime(int t) throws ComEngineException {
+
+        while(!this.pending.isEmpty() && (this.pending.first().time == t)){
+            TimeWarpEvent evt = this.pending.pollFirst();
+            this.timeEvents.add(evt);
+            if(evt.type == EventType.MSG_RECEIVE){
+                TimeWarpEvent first = this.firstReceive.get(evt.node);
+                if(first != null){
+                    //Delivered with the first one (not processed on its own)
+                    first.addBatch(evt);
+                    evt.processed = true;
+                } else {
+                    this.firstReceive.put(evt.node, evt);
+                }
+            } else {
+                //Other event of the node: next receive events in a new group
+                this.firstReceive.remove(evt.node);
+            }
+        }
+        this.firstReceive.clear();
+
+        try {
+            for(TimeWarpEvent evt : this.timeEvents){
+                if(!evt.processed){
+                    this.process(evt);
+                }
+            }
+        } finally {
+            this.timeEvents.clear();
+        }
+    }
+
+
+    private void process(TimeWarpEvent evt) throws ComEngineException {
+
+        this.setTime(evt.time);
+        evt.seqBefore = this.seq;
+
+        //Save the state of the node
+        Network net = this.comEngine.getNetwork();
+        if(!net.isDeadNode(evt.node)){
+            Node node = net.getNode(evt.node);
+            evt.saved = true;
+            evt.appState = node.getApplication().saveState();
+            evt.msgSendCount = node.getMsgSendCount();
+            evt.msgRcvCount = node.getMsgRcvCount();
+            evt.msgLossCount = node.getMsgLossCount();
+            evt.draws = this.comEngine.getRandomStreams().getDraws(evt.node);
+            evt.trials = this.comEngine.getRandomStreams().getTrials(evt.node);
+        }
+
+        this.current = evt;
+        try {
+            if(evt.batch == null){
+                this.comEngine.processAsynchronousEvent(evt.node, evt.type, evt.data);
+            } else {
+                this.msgs.add((Message<?>) evt.data);
+                for(TimeWarpEvent next : evt.batch){
+                    this.msgs.add((Message<?>) next.data);
+                }
+                this.comEngine.processAsynchronousReceives(evt.node, this.msgs);
+            }
+        } finally {
+            this.current = null;
+            this.msgs.clear();
+        }
+
+        evt.processed = true;
+        this.processed.add(evt);
+        this.processedCount += (evt.batch == null) ? 1 : 1 + evt.batch.size();
+    }
+
+
+    /**
+     * Undo the processed events of the time and after it
+     */
+    private void rollback(int time){
+        int i = this.processed.size();
+        while((i > 0) && (this.processed.get(i-1).time >= time)){
+            this.undo(this.processed.get(i-1));
+            i--;
+        }
+        this.processed.subList(i, this.processed.size()).clear();
+    }
+
+
+    private void undo(TimeWarpEvent evt){
+
+        //Restore the state of the node
+        if(evt.saved){
+            Node node = this.comEngine.getNetwork().getNode(evt.node);
+            node.getApplication().restoreState(evt.appState);
+            node.setMsgSendCount(evt.msgSendCount);
+            node.setMsgRcvCount(evt.msgRcvCount);
+            node.setMsgLossCount(evt.msgLossCount);
+            this.comEngine.getRandomStreams().setDraws(evt.node, evt.draws);
+            this.comEngine.getRandomStreams().setTrials(evt.node, evt.trials);
+        }
+
+        //Restore the removed clock events (before removing the created ones, that may be among them)
+        if(evt.removed != null){
+            for(int i=evt.removed.size()-1; i >= 0; i--){
+                TimeWarpEvent clock = evt.removed.get(i);
+                clock.cancelled = false;
+                this.pending.add(clock);
+                long timer = timerOf(clock);
+                if(timer != 0){
+                    this.timers.put(timer, clock);
+                }
+            }
+        }
+
+        //Remove the created events (always after it, so not processed)
+        if(evt.created != null){
+            for(int i=evt.created.size()-1; i >= 0; i--){
+                TimeWarpEvent child = evt.created.get(i);
+                if((child.node % this.processes) == this.getIndex()){
+                    this.pending.remove(child);
+                    child.cancelled = true;
+                    if((child.type == EventType.TICK) && (this.clocks.get(child.handle()) == child)){
+                        this.clocks.remove(child.handle());
+                    }
+                    long timer = timerOf(child);
+                    if((timer != 0) && (this.timers.get(timer) == child)){
+                        this.timers.remove(timer);
+                    }
+                } else {
+                    this.outgoing.add(child, true);
+                }
+            }
+        }
+
+        //Clock event of a periodic timer pending again
+        long timer = timerOf(evt);
+        if(timer != 0){
+            this.timers.put(timer, evt);
+        }
+
+        //Receive events delivered with it pending again
+        if(evt.batch != null){
+            for(TimeWarpEvent next : evt.batch){
+                next.processed = false;
+                this.pending.add(next);
+                this.rolledBackCount++;
+            }
+        }
+
+        this.seq = evt.seqBefore;
+        evt.clearRecord();
+        evt.processed = false;
+        this.pending.add(evt);
+        this.rolledBackCount++;
+    }
+
+
+    /**
+     * Commit the processed events before the GVT (they can no longer be rolled back)
+     */
+    void fossilCollect(int gvt){
+        int i = 0;
+        while((i < this.processed.size()) && (this.processed.get(i).time < gvt)){
+            TimeWarpEvent evt = this.processed.get(i);
+            this.addMsgCount(evt.msgCount);
+            for(int l=0; l < evt.latenciesCount; l++){
+                this.addMsgLatency(evt.latencies[l], 1);
+            }
+            if((evt.type == EventType.TICK) && (this.clocks.get(evt.handle()) == evt)){
+                this.clocks.remove(evt.handle());
+            }
+            long timer = timerOf(evt);
+            if((timer != 0) && (this.timers.get(timer) == evt)){
+                this.timers.remove(timer);
+            }
+            if(evt.removed != null){
+                for(TimeWarpEvent clock : evt.removed){
+                    if(this.clocks.get(clock.handle()) == clock){
+                        this.clocks.remove(clock.handle());
+                    }
+                }
+            }
+            evt.clearRecord();
+            i++;
+        }
+        this.processed.subList(0, i).clear();
+    }
+
+
+    /**
+     * @return time of the next event to process or received (Integer.MAX_VALUE if none)
+     */
+    int getNextTime(){
+        int time = this.pending.isEmpty() ? Integer.MAX_VALUE : this.pending.first().time;
+        for(int i=0; i < this.incoming.size(); i++){
+            time = Math.min(time, this.incoming.get(i).time);
+        }
+        return time;
+    }
+
+
+    boolean isEmpty(){
+        return this.pending.isEmpty() && (this.incoming.size() == 0);
+    }
+
+
+    Exchange getOutgoing(){
+        return this.outgoing;
+    }
+
+    long getProcessedCount(){
+        return this.processedCount;
+    }
+
+    long getRolledBackCount(){
+        return this.rolledBackCount;
+    }
+
+
+    /**
+     * Events and anti-messages exchanged between logical processes (in sending order)
+     */
+    static class Exchange {
+
+        private TimeWarpEvent[] events = new TimeWarpEvent[64];
+        private boolean[] anti = new boolean[64];
+        private int size;
+
+
+        void add(TimeWarpEvent evt, boolean antiMessage){
+            if(this.size == this.events.length){
+                TimeWarpEvent[] es = new TimeWarpEvent[this.size << 1];
+                System.arraycopy(this.events, 0, es, 0, this.size);
+                this.events = es;
+                boolean[] as = new boolean[this.size << 1];
+                System.arraycopy(this.anti, 0, as, 0, this.size);
+                this.anti = as;
+            }
+            this.events[this.size] = evt;
+            this.anti[this.size] = antiMessage;
+            this.size++;
+        }
+
+
+        void clear(){
+            for(int i=0; i < this.size; i++){
+                this.events[i] = null;
+            }
+            this.size = 0;
+        }
+
+
+        int size(){
+            return this.size;
+        }
+
+        TimeWarpEvent get(int i){
+            return this.events[i];
+        }
+
+        boolean isAnti(int i){
+            return this.anti[i];
+        }
+
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import msm.simulator.exceptions.ComEngineException;
+import msm.simulator.exceptions.ConfigException;
+import msm.simulator.network.Network;
+
+
+/**
+ * Simulation engine for the synchronous network model, executing each round
+ * phase (message generation and state transition) in parallel.
+ *
+ * The nodes of a phase are partitioned in contiguous chunks, executed by the
+ * workers of a ForkJoin pool. Messages sent by a chunk are kept in its outbox
+ * and merged into the round mailboxes at the round barrier, in chunk order, so that the nodes receive
+ * their messages in the same order as in the sequential execution (same results
+ * as SynchronousEngine, for the same seed).
+ *
+ * Applications must only change the state of their own node in the message
+ * generation and state transition functions.
+ *
+ * @author pcjesus
+ *
+ */
+public class ParallelSynchronousEngine implements SimulationEngine {
+
+    //Chunks per worker (load balancing)
+    private static final int CHUNKS_PER_THREAD = 4;
+    //Minimum number of nodes per chunk
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private final ComEngine comEngine;
+
+    private ForkJoinPool pool;
+    private int threads;
+    private RoundOutbox[] outboxes;
+    private RoundMailboxes.Inbox[] inboxes;
+
+    //Sequential execution of the rounds (sharing its mailboxes)
+    private final SynchronousEngine sequential;
+    private final RoundMailboxes mailboxes;
+
+
+    public ParallelSynchronousEngine(ComEngine comEngine){
+        this.comEngine = comEngine;
+        this.sequential = new SynchronousEngine(comEngine);
+        this.mailboxes = this.sequential.getMailboxes();
+    }
+
+
+    public void init(Network net, Config conf, Integer simulationIndex, Integer repetitionCount)
+        throws ClassNotFoundException, IllegalAccessException, InstantiationException, ComEngineException {
+
+        this.sequential.init(net, conf, simulationIndex, repetitionCount);
+
+        try {
+            this.threads = Integer.parseInt(conf.getValueWithDefault(String.valueOf(Runtime.getRuntime().availableProcessors()), simulationIndex, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_THREADS));
+        }catch (ConfigException ce){
+            throw (ComEngineException)new ComEngineException(ce).initCause(ce);
+        }
+
+        if(this.threads < 1){
+            throw new ComEngineException("Invalid number of threads, must be greater than 0: "+this.threads);
+        }
+
+        //Create the workers pool (reused by the following repetitions)
+        if((this.pool == null) || (this.pool.getParallelism() != this.threads)){
+            if(this.pool != null){
+                this.pool.shutdown();
+            }
+            this.pool = new ForkJoinPool(this.threads);
+            this.outboxes = new RoundOutbox[this.threads * CHUNKS_PER_THREAD];
+            this.inboxes = new RoundMailboxes.Inbox[this.outboxes.length];
+            for(int c=0; c < this.outboxes.length; c++){
+                this.outboxes[c] = new RoundOutbox();
+                this.inboxes[c] = new RoundMailboxes.Inbox();
+            }
+        }
+    }
+
+
+    public void step() throws ComEngineException {
+
+        //Sequential execution (debug output must keep the nodes order)
+        if(ComEngine.useDebug || (this.threads < 2)){
+            this.sequential.step();
+            return;
+        }
+
+        this.comEngine.beginRound();
+        this.mailboxes.update(this.comEngine.getNetwork());
+
+        if(this.sequential.skipQuiescentRounds()){
+            return;
+        }
+
+        //Message generation of all nodes
+        int chunks = this.chunks(this.mailboxes.numberOfNodes());
+        this.pool.invoke(new RoundPhase(true, this.mailboxes.numberOfNodes(), chunks, 0, chunks));
+
+        //Round barrier: merge outboxes (in chunk order, the same as the sequential execution), and swap the mailboxes
+        this.merge(chunks);
+        this.mailboxes.swap();
+
+        //State-transition of all active nodes in the same round
+        this.pool.invoke(new RoundPhase(false, this.mailboxes.numberOfNodes(), chunks, 0, chunks));
+
+        //Messages sent during the state transition (if any), received in the next round
+        this.merge(chunks);
+
+        // Update Global Time (next round)
+        this.comEngine.setGlobalTime(this.comEngine.getGlobalTime() + 1);
+    }
+
+
+    public void setHorizon(int time){
+        //Only the next time is processed at each step, unless the network is quiescent
+    }
+
+
+    public void setQuiescenceHorizon(int time){
+        this.sequential.setQuiescenceHorizon(time);
+    }
+
+
+    public int getGlobalTime(){
+        return this.comEngine.getGlobalTime();
+    }
+
+
+    public ComEngine getComEngine(){
+        return this.comEngine;
+    }
+
+
+    public int getThreads(){
+        return this.threads;
+    }
+
+
+    /**
+     * Deliver the messages (and losses) kept in the outboxes of the chunks to the mailboxes
+     */
+    private void merge(int chunks) throws ComEngineException {
+        for(int c=0; c < chunks; c++){
+            RoundOutbox roundOutbox = this.outboxes[c];
+            for(int l=0; l < roundOutbox.losses(); l++){
+                this.comEngine.scheduleMsgLoss(roundOutbox.getLossTo(l), roundOutbox.getLossMsg(l));
+            }
+            for(int w=0; w < roundOutbox.wakes(); w++){
+                this.mailboxes.wake(roundOutbox.getWake(w));
+            }
+            this.comEngine.deliver(roundOutbox);
+            roundOutbox.clear();
+        }
+    }
+
+
+    /**
+     * Number of chunks used to process the given number of items
+     */
+    private int chunks(int items){
+        return Math.max(1, Math.min(this.outboxes.length, items / MIN_CHUNK_SIZE));
+    }
+
+
+    private static int chunkStart(int chunk, int items, int chunks){
+        return (int) (((long) chunk * items) / chunks);
+    }
+
+
+    /**
+     * Execution of a round phase over a range of chunks (split between workers)
+     */
+    private class RoundPhase extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean generation;
+        private final int items;
+        private final int chunks;
+        private final int from;
+        private final int to;
+
+
+        RoundPhase(boolean generation, int items, int chunks, int from, int to){
+            this.generation = generation;
+            this.items = items;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        protected void compute(){
+            if(this.to - this.from == 1){
+                this.execute(this.from);
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new RoundPhase(this.generation, this.items, this.chunks, this.from, middle),
+                        new RoundPhase(this.generation, this.items, this.chunks, middle, this.to));
+            }
+        }
+
+
+        private void execute(int chunk){
+
+            Network net = comEngine.getNetwork();
+            RoundOutbox roundOutbox = outboxes[chunk];
+            RoundMailboxes.Inbox inbox = inboxes[chunk];
+            int end = chunkStart(chunk+1, this.items, this.chunks);
+
+            int start = chunkStart(chunk, this.items, this.chunks);
+
+            comEngine.setOutbox(roundOutbox);
+            try {
+                if(this.generation){
+                    for(int i=start; i < end; i++){
+                        //Invoke application message generation handler
+                        net.getNode(mailboxes.getNode(i)).getApplication().messageGeneration();
+                    }
+                } else {
+                    //Active nodes in the ids range of the chunk
+                    int startId = (start < this.items)? mailboxes.getNode(start) : Integer.MAX_VALUE;
+                    int endId = (end < this.items)? mailboxes.getNode(end) : Integer.MAX_VALUE;
+                    for(int id=mailboxes.nextActive(startId); (id >= 0) && (id < endId); id=mailboxes.nextActive(id + 1)){
+                        SynchronousEngine.transition(comEngine, net, mailboxes, inbox, id);
+                    }
+                }
+            } finally {
+                inbox.release();
+                comEngine.setOutbox(null);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,203 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Periodic clock timers of the nodes (asynchronous model), grouped by period and phase.
+ *
+ * Each group holds a bitmap of its nodes (at most one timer of each period and phase per
+ * node), and a single scheduled event (TICK_GROUP) for the next time of the group, re-armed
+ * by the engine when pulled: a clock tick of all the nodes of the group costs one scheduler
+ * operation. The handle of a timer holds its group index + 1 (upper 32 bits) and its node id
+ * (lower 32 bits).
+ *
+ * @author pcjesus
+ *
+ */
+class PeriodicTimers {
+
+    private final Map<Long, TimerGroup> groups;
+    private final List<TimerGroup> groupsByIndex;
+
+
+    PeriodicTimers(){
+        this.groups = new HashMap<Long, TimerGroup>();
+        this.groupsByIndex = new ArrayList<TimerGroup>();
+    }
+
+
+    /**
+     * Get (or create) the group of the given period and phase
+     */
+    synchronized TimerGroup getGroup(int period, int phase){
+        Long key = (((long) period) << 32) | phase;
+        TimerGroup group = this.groups.get(key);
+        if(group == null){
+            group = new TimerGroup(this.groupsByIndex.size(), period, phase);
+            this.groups.put(key, group);
+            this.groupsByIndex.add(group);
+        }
+        return group;
+    }
+
+
+    /**
+     * @return group of the timer handle, or null if not valid
+     */
+    synchronized TimerGroup getGroup(long handle){
+        int index = (int) (handle >>> 32) - 1;
+        if((index < 0) || (index >= this.groupsByIndex.size())){
+            return null;
+        }
+        return this.groupsByIndex.get(index);
+    }
+
+
+    static long handle(TimerGroup group, int nodeId){
+        return (((long) (group.index + 1)) << 32) | nodeId;
+    }
+
+
+    static int nodeOf(long handle){
+        return (int) handle;
+    }
+
+
+    /**
+     * @return all groups, by index (not thread safe: used between steps)
+     */
+    List<TimerGroup> getGroups(){
+        return this.groupsByIndex;
+    }
+
+
+    synchronized boolean isEmpty(){
+        return this.groupsByIndex.isEmpty();
+    }
+
+
+    /**
+     * Remove all timers (new simulation)
+     */
+    synchronized void clear(){
+        this.groups.clear();
+        this.groupsByIndex.clear();
+    }
+
+
+    /**
+     * Timers of the same period and phase: ticks at the times t such that t % period == phase
+     */
+    static class TimerGroup {
+
+        private final int index;
+        private final int period;
+        private final int phase;
+
+        //Nodes of the group (bitmap indexed by node id)
+        private long[] members;
+        private int count;
+
+        //Handle of the scheduled event of the group (0 if not scheduled)
+        private long event;
+
+
+        TimerGroup(int index, int period, int phase){
+            this.index = index;
+            this.period = period;
+            this.phase = phase;
+            this.members = new long[1];
+        }
+
+
+        /**
+         * @return true if the node was added (not yet a member)
+         */
+        boolean add(int nodeId){
+            int w = nodeId >> 6;
+            if(w >= this.members.length){
+                this.members = Arrays.copyOf(this.members, Math.max(w + 1, this.members.length << 1));
+            }
+            if((this.members[w] & (1L << nodeId)) != 0){
+                return false;
+            }
+            this.members[w] |= 1L << nodeId;
+            this.count++;
+            return true;
+        }
+
+
+        /**
+         * @return true if the node was removed (was a member)
+         */
+        boolean remove(int nodeId){
+            int w = nodeId >> 6;
+            if((w >= this.members.length) || ((this.members[w] & (1L << nodeId)) == 0)){
+                return false;
+            }
+            this.members[w] &= ~(1L << nodeId);
+            this.count--;
+            return true;
+        }
+
+
+        /**
+         * @return first node of the group with id equal or greater than the given one, or -1
+         */
+        int nextMember(int fromId){
+            int w = fromId >> 6;
+            if(w >= this.members.length){
+                return -1;
+            }
+            long word = this.members[w] & (-1L << fromId);
+            while(word == 0){
+                if(++w == this.members.length){
+                    return -1;
+                }
+                word = this.members[w];
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+
+        /**
+         * @return first time of the group after the given time
+         */
+        int nextTime(int time){
+            int delta = (this.phase - (time % this.period) + this.period) % this.period;
+            return time + ((delta == 0) ? this.period : delta);
+        }
+
+
+        int size(){
+            return this.count;
+        }
+
+        int getPeriod(){
+            return this.period;
+        }
+
+        long getEvent(){
+            return this.event;
+        }
+
+        void setEvent(long event){
+            this.event = event;
+        }
+
+        @Override
+        public String toString(){
+            return "Timers(period=" + this.period + ", phase=" + this.phase + ", nodes=" + this.count + ")";
+        }
+
+    }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import msm.simulator.Event.EventType;
+import msm.simulator.network.Message;
+
+
+/**
+ * Events of a batch (same time) with the messages received by the same node grouped,
+ * to be delivered together (asynchronous model, see Application.onReceiveBatch).
+ *
+ * Multicast events are expanded into the receive events of their receivers. A receive
+ * event joins the group of the previous receive events of its node, unless another event
+ * of the node (e.g. a clock tick) comes in between: groups are delivered at the position
+ * of their first event, keeping the order of the events of each node.
+ *
+ * @author pcjesus
+ *
+ */
+class ReceiveBatches {
+
+    private int size;
+
+    //Events (receive events of multicast expanded)
+    private int[] node;
+    private EventType[] type;
+    private Object[] data;
+
+    //Next event of the same group (-1 if last), and first event of each event group
+    private int[] next;
+    private int[] first;
+
+    //Last receive event of the open group of each node (index + 1, 0 if none)
+    private int[] open;
+
+    //Messages of the group being delivered
+    private final List<Message<?>> msgs;
+
+
+    ReceiveBatches(){
+        this.node = new int[64];
+        this.type = new EventType[64];
+        this.data = new Object[64];
+        this.next = new int[64];
+        this.first = new int[64];
+        this.open = new int[0];
+        this.msgs = new ArrayList<Message<?>>();
+    }
+
+
+    /**
+     * Expand and group the events of the batch (replacing the previous ones)
+     *
+     * @param evtSet events of the same time
+     */
+    void group(EventBatch evtSet){
+
+        this.clear();
+
+        for(int i=0; i < evtSet.size(); i++){
+            if(evtSet.getType(i) == EventType.MSG_MULTICAST){
+                //Receivers of this time (event node is the sender)
+                MulticastDelivery delivery = (MulticastDelivery) evtSet.getData(i);
+                int from = delivery.pullNext();
+                int end = delivery.getNext();
+                for(int r=from; r < end; r++){
+                    this.add(delivery.getReceiver(r), EventType.MSG_RECEIVE, delivery.getMessage());
+                }
+                delivery.delivered();
+            } else if(evtSet.getType(i) == EventType.MSG_CHANNEL){
+                //Messages at the head of the link channel delivered at this time
+                LinkChannels.Channel channel = (LinkChannels.Channel) evtSet.getData(i);
+                while(!channel.isEmpty() && (channel.getHeadTime() == evtSet.getTime())){
+                    this.add(channel.getReceiver(), EventType.MSG_RECEIVE, channel.poll());
+                }
+            } else if(evtSet.getType(i) == EventType.TICK_GROUP){
+                //Clock events of the nodes of the group of periodic timers
+                PeriodicTimers.TimerGroup group = (PeriodicTimers.TimerGroup) evtSet.getData(i);
+                for(int n=group.nextMember(0); n >= 0; n=group.nextMember(n + 1)){
+                    this.add(n, EventType.TICK, null);
+                }
+            } else {
+                this.add(evtSet.getNode(i), evtSet.getType(i), evtSet.getData(i));
+            }
+        }
+
+        //Close the open groups
+        for(int i=0; i < this.size; i++){
+            this.open[this.node[i]] = 0;
+        }
+    }
+
+
+    private void add(int nodeId, EventType evtType, Object evtData){
+
+        if(this.size == this.node.length){
+            int capacity = this.size << 1;
+            this.node = Arrays.copyOf(this.node, capacity);
+            this.type = Arrays.copyOf(this.type, capacity);
+            this.data = Arrays.copyOf(this.data, capacity);
+            this.next = Arrays.copyOf(this.next, capacity);
+            this.first = Arrays.copyOf(this.first, capacity);
+        }
+
+        if(nodeId >= this.open.length){
+            this.open = Arrays.copyOf(this.open, Math.max(nodeId + 1, this.open.length << 1));
+        }
+
+        int i = this.size++;
+        this.node[i] = nodeId;
+        this.type[i] = evtType;
+        this.data[i] = evtData;
+        this.next[i] = -1;
+
+        int last = this.open[nodeId] - 1;
+        if(evtType != EventType.MSG_RECEIVE){
+            //Other event of the node: close its group
+            this.first[i] = i;
+            this.open[nodeId] = 0;
+        } else if(last < 0){
+            //Open a new group
+            this.first[i] = i;
+            this.open[nodeId] = i + 1;
+        } else {
+            //Join the open group
+            this.first[i] = this.first[last];
+            this.next[last] = i;
+            this.open[nodeId] = i + 1;
+        }
+    }
+
+
+    /**
+     * Remove all events (releasing data references)
+     */
+    void clear(){
+        Arrays.fill(this.data, 0, this.size, null);
+        this.size = 0;
+    }
+
+
+    /**
+     * GETTERS / SETTERS
+     */
+
+
+    int size(){
+        return this.size;
+    }
+
+    int getNode(int i){
+        return this.node[i];
+    }
+
+    EventType getType(int i){
+        return this.type[i];
+    }
+
+    Object getData(int i){
+        return this.data[i];
+    }
+
+    /**
+     * @return true if the event is the first of its group (other events of the group are delivered with it)
+     */
+    boolean isFirst(int i){
+        return this.first[i] == i;
+    }
+
+    /**
+     * @return next event of the group, or -1
+     */
+    int getNext(int i){
+        return this.next[i];
+    }
+
+    /**
+     * @return list of the messages of the group being delivered (reused)
+     */
+    List<Message<?>> getMessages(){
+        return this.msgs;
+    }
+
+}
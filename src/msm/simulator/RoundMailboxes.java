@@ -0,0 +1,314 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import msm.simulator.network.Network;
+import msm.simulator.network.Message;
+
+
+/**
+ * Message channels of the synchronous model: double-buffered inboxes of all nodes
+ * (indexed by node id), and the order in which the nodes execute each round.
+ *
+ * Messages sent during a round are appended to the next inboxes, which are swapped
+ * with the current ones at the round barrier (before the state transition). The inbox
+ * arrays are kept between rounds (only grown when needed), and the node order is only
+ * rebuilt when nodes arrive or leave.
+ *
+ * The nodes visited by the state transition (active set) are kept in a bitset: nodes
+ * with messages (or losses) or woken up, and all the nodes whose application does not
+ * ignore empty inboxes (see Application.isEmptyInboxNoOp).
+ *
+ * @author pcjesus
+ *
+ */
+class RoundMailboxes {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    //Nodes of the round (ascending ids)
+    private int[] nodes;
+    private int numNodes;
+    //Network state of the current order (total, alive and dead nodes)
+    private int totalNodes;
+    private int aliveNodes;
+    private int deadNodes;
+
+    //Current inboxes (read by the state transition) and next inboxes (written by the senders)
+    private Message<?>[][] current;
+    private int[] currentSize;
+    private Message<?>[][] next;
+    private int[] nextSize;
+
+    //Messages lost at the receivers (counted by the receiver at the state transition)
+    private int[] currentLosses;
+    private int[] nextLosses;
+    //Messages (and losses) in the next inboxes
+    private int pending;
+
+    //Active set of the current and next state transitions, nodes of the network and
+    //nodes always active (bitsets indexed by node id)
+    private long[] currentActive;
+    private long[] nextActive;
+    private long[] members;
+    private long[] always;
+
+
+    RoundMailboxes(){
+        this.nodes = new int[0];
+        this.current = new Message<?>[0][];
+        this.currentSize = new int[0];
+        this.next = new Message<?>[0][];
+        this.nextSize = new int[0];
+        this.currentLosses = new int[0];
+        this.nextLosses = new int[0];
+        this.currentActive = new long[0];
+        this.nextActive = new long[0];
+        this.members = new long[0];
+        this.always = new long[0];
+        this.totalNodes = -1;
+    }
+
+
+    /**
+     * Rebuild the nodes order if nodes arrived or left the network since the last round
+     *
+     * @return true if the order was rebuilt
+     */
+    boolean update(Network net){
+
+        if((net.getTotalNumNodes() == this.totalNodes) && (net.getNumNodes() == this.aliveNodes)
+                && (net.getNumDeadNodes() == this.deadNodes)){
+            return false;
+        }
+
+        this.totalNodes = net.getTotalNumNodes();
+        this.aliveNodes = net.getNumNodes();
+        this.deadNodes = net.getNumDeadNodes();
+
+        if(this.nodes.length < net.getNodesKeySet().size()){
+            this.nodes = new int[net.getNodesKeySet().size()];
+        }
+        this.numNodes = 0;
+        int maxId = -1;
+        for(Integer id : net.getNodesKeySet()){
+            this.nodes[this.numNodes++] = id.intValue();
+            maxId = Math.max(maxId, id.intValue());
+        }
+        Arrays.sort(this.nodes, 0, this.numNodes);
+
+        //Inboxes of the arriving nodes (ids are not reused)
+        if(maxId >= this.current.length){
+            int capacity = Math.max(maxId + 1, this.totalNodes);
+            this.current = Arrays.copyOf(this.current, capacity);
+            this.currentSize = Arrays.copyOf(this.currentSize, capacity);
+            this.next = Arrays.copyOf(this.next, capacity);
+            this.nextSize = Arrays.copyOf(this.nextSize, capacity);
+            this.currentLosses = Arrays.copyOf(this.currentLosses, capacity);
+            this.nextLosses = Arrays.copyOf(this.nextLosses, capacity);
+            int words = (capacity + 63) >> 6;
+            this.currentActive = Arrays.copyOf(this.currentActive, words);
+            this.nextActive = Arrays.copyOf(this.nextActive, words);
+            this.members = new long[words];
+            this.always = new long[words];
+        }
+
+        Arrays.fill(this.members, 0L);
+        Arrays.fill(this.always, 0L);
+        for(int i=0; i < this.numNodes; i++){
+            int id = this.nodes[i];
+            this.members[id >> 6] |= 1L << id;
+            if(!net.getNode(id).getApplication().isEmptyInboxNoOp()){
+                this.always[id >> 6] |= 1L << id;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Remove all messages and the nodes order (new simulation)
+     */
+    void reset(){
+        for(int id=0; id < this.current.length; id++){
+            this.clear(id);
+            if(this.nextSize[id] > 0){
+                Arrays.fill(this.next[id], 0, this.nextSize[id], null);
+                this.nextSize[id] = 0;
+            }
+            this.nextLosses[id] = 0;
+        }
+        Arrays.fill(this.currentActive, 0L);
+        Arrays.fill(this.nextActive, 0L);
+        this.numNodes = 0;
+        this.totalNodes = -1;
+        this.pending = 0;
+    }
+
+
+    /**
+     * Add the message to the next inbox of the receiver
+     */
+    void post(int receiverId, Message<?> msg){
+        Message<?>[] inbox = this.next[receiverId];
+        int size = this.nextSize[receiverId];
+        if(inbox == null){
+            inbox = new Message<?>[INITIAL_CAPACITY];
+            this.next[receiverId] = inbox;
+        } else if(size == inbox.length){
+            inbox = Arrays.copyOf(inbox, size << 1);
+            this.next[receiverId] = inbox;
+        }
+        inbox[size] = msg;
+        this.nextSize[receiverId] = size + 1;
+        this.nextActive[receiverId >> 6] |= 1L << receiverId;
+        this.pending++;
+    }
+
+
+    /**
+     * Count a message lost at the receiver (at its next state transition)
+     */
+    void lose(int receiverId){
+        this.nextLosses[receiverId]++;
+        this.nextActive[receiverId >> 6] |= 1L << receiverId;
+        this.pending++;
+    }
+
+
+    /**
+     * Add the node to the active set of the next state transition (even without messages)
+     */
+    void wake(int nodeId){
+        this.nextActive[nodeId >> 6] |= 1L << nodeId;
+    }
+
+
+    /**
+     * Round barrier: the next inboxes become the current ones (the previous ones,
+     * already cleared, are reused for the next round), and the active set of the
+     * state transition is set (only nodes of the network: the messages sent to
+     * nodes that left are dropped)
+     */
+    void swap(){
+        Message<?>[][] inboxes = this.current;
+        this.current = this.next;
+        this.next = inboxes;
+        int[] sizes = this.currentSize;
+        this.currentSize = this.nextSize;
+        this.nextSize = sizes;
+        int[] losses = this.currentLosses;
+        this.currentLosses = this.nextLosses;
+        this.nextLosses = losses;
+        this.pending = 0;
+        long[] active = this.currentActive;
+        this.currentActive = this.nextActive;
+        this.nextActive = active;
+        for(int w=0; w < this.currentActive.length; w++){
+            for(long left=this.currentActive[w] & ~this.members[w]; left != 0; left &= left - 1){
+                this.clear((w << 6) + Long.numberOfTrailingZeros(left));
+            }
+            this.currentActive[w] = (this.currentActive[w] | this.always[w]) & this.members[w];
+            this.nextActive[w] = 0L;
+        }
+    }
+
+
+    /**
+     * Remove the messages (and losses) of the current inbox of the node
+     */
+    void clear(int nodeId){
+        int size = this.currentSize[nodeId];
+        if(size > 0){
+            Arrays.fill(this.current[nodeId], 0, size, null);
+            this.currentSize[nodeId] = 0;
+        }
+        this.currentLosses[nodeId] = 0;
+    }
+
+
+    /**
+     * GETTERS / SETTERS
+     */
+
+
+    int numberOfNodes(){
+        return this.numNodes;
+    }
+
+    int getNode(int i){
+        return this.nodes[i];
+    }
+
+    /**
+     * @return first node of the active set with id equal or greater than the given one, or -1
+     */
+    int nextActive(int fromId){
+        int w = fromId >> 6;
+        if(w >= this.currentActive.length){
+            return -1;
+        }
+        long word = this.currentActive[w] & (-1L << fromId);
+        while(word == 0){
+            if(++w == this.currentActive.length){
+                return -1;
+            }
+            word = this.currentActive[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    int getLosses(int nodeId){
+        return this.currentLosses[nodeId];
+    }
+
+    /**
+     * @return true if messages (or losses) were sent to the next round
+     */
+    boolean hasPending(){
+        return this.pending > 0;
+    }
+
+
+    /**
+     * View of the current inbox of a node (messages in the order they were sent),
+     * only valid until the inbox is cleared
+     */
+    static class Inbox extends AbstractList<Message<?>> {
+
+        private Message<?>[] msgs;
+        private int size;
+
+
+        void set(RoundMailboxes mailboxes, int nodeId){
+            this.msgs = mailboxes.current[nodeId];
+            this.size = mailboxes.currentSize[nodeId];
+        }
+
+
+        void release(){
+            this.msgs = null;
+            this.size = 0;
+        }
+
+
+        public Message<?> get(int index){
+            if(index >= this.size){
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+this.size);
+            }
+            return this.msgs[index];
+        }
+
+
+        public int size(){
+            return this.size;
+        }
+
+    }
+
+}
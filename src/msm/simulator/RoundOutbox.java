@@ -0,0 +1,151 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import msm.simulator.network.Message;
+
+
+/**
+ * Messages sent by a chunk of nodes during a parallel synchronous round,
+ * kept apart until the round barrier (then delivered in chunk order).
+ *
+ * @author pcjesus
+ *
+ */
+class RoundOutbox {
+
+    //Delivered messages (receiver, message)
+    private int[] to;
+    private Message<?>[] msg;
+    private int deliveries;
+
+    //Lost messages (receiver, message)
+    private int[] lossTo;
+    private Message<?>[] lossMsg;
+    private int losses;
+
+    //Nodes woken up (active at the next state transition)
+    private int[] wake;
+    private int wakes;
+
+    //Number of messages sent
+    private long msgCount;
+
+
+    RoundOutbox(){
+        this.to = new int[64];
+        this.msg = new Message<?>[64];
+        this.lossTo = new int[16];
+        this.lossMsg = new Message<?>[16];
+        this.wake = new int[16];
+    }
+
+
+    void deliver(int receiverId, Message<?> m){
+        if(this.deliveries == this.to.length){
+            int capacity = this.to.length << 1;
+            int[] t = new int[capacity];
+            System.arraycopy(this.to, 0, t, 0, this.deliveries);
+            this.to = t;
+            Message<?>[] ms = new Message<?>[capacity];
+            System.arraycopy(this.msg, 0, ms, 0, this.deliveries);
+            this.msg = ms;
+        }
+        this.to[this.deliveries] = receiverId;
+        this.msg[this.deliveries] = m;
+        this.deliveries++;
+    }
+
+
+    void lose(int receiverId, Message<?> m){
+        if(this.losses == this.lossTo.length){
+            int capacity = this.lossTo.length << 1;
+            int[] t = new int[capacity];
+            System.arraycopy(this.lossTo, 0, t, 0, this.losses);
+            this.lossTo = t;
+            Message<?>[] ms = new Message<?>[capacity];
+            System.arraycopy(this.lossMsg, 0, ms, 0, this.losses);
+            this.lossMsg = ms;
+        }
+        this.lossTo[this.losses] = receiverId;
+        this.lossMsg[this.losses] = m;
+        this.losses++;
+    }
+
+
+    void wake(int nodeId){
+        if(this.wakes == this.wake.length){
+            int[] w = new int[this.wakes << 1];
+            System.arraycopy(this.wake, 0, w, 0, this.wakes);
+            this.wake = w;
+        }
+        this.wake[this.wakes] = nodeId;
+        this.wakes++;
+    }
+
+
+    void incMsgCount(){
+        this.msgCount++;
+    }
+
+
+    /**
+     * Remove all messages (releasing references)
+     */
+    void clear(){
+        for(int i=0; i < this.deliveries; i++){
+            this.msg[i] = null;
+        }
+        for(int i=0; i < this.losses; i++){
+            this.lossMsg[i] = null;
+        }
+        this.deliveries = 0;
+        this.losses = 0;
+        this.wakes = 0;
+        this.msgCount = 0;
+    }
+
+
+    /**
+     * GETTERS / SETTERS
+     */
+
+
+    int deliveries(){
+        return this.deliveries;
+    }
+
+    int getTo(int i){
+        return this.to[i];
+    }
+
+    Message<?> getMsg(int i){
+        return this.msg[i];
+    }
+
+    int losses(){
+        return this.losses;
+    }
+
+    int getLossTo(int i){
+        return this.lossTo[i];
+    }
+
+    Message<?> getLossMsg(int i){
+        return this.lossMsg[i];
+    }
+
+    int wakes(){
+        return this.wakes;
+    }
+
+    int getWake(int i){
+        return this.wake[i];
+    }
+
+    long getMsgCount(){
+        return this.msgCount;
+    }
+
+}
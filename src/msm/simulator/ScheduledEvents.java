@@ -11,14 +11,22 @@ import msm.simulator.Event.EventType;
 
 
 /**
+ * Event scheduler backed by a sorted map of time slots (one set of events per time).
+ * 
+ * Each scheduled event is an Event object (see CalendarScheduledEvents for an
+ * allocation free alternative).
+ * 
  * @author pcjesus
  *
  */
-public class ScheduledEvents {
+public class ScheduledEvents implements EventScheduler {
     
     //Scheduled events
     private TreeMap<Integer, Set<Event<?>>> events;
     
+    //Handles of the events scheduled through the EventScheduler interface
+    private TimerHandles handles;
+    
     
     /**
      * CONSTRUCTORS
@@ -29,6 +37,7 @@ public class ScheduledEvents {
         
         //Create an empty event structure
         this.events = new TreeMap<Integer, Set<Event<?>>>();
+        this.handles = new TimerHandles();
     }
     
     
@@ -40,9 +49,10 @@ public class ScheduledEvents {
         
         //Create an event structure, containing the event passed as parameter
         this.events = new TreeMap<Integer, Set<Event<?>>>();
+        this.handles = new TimerHandles();
         Set<Event<?>> eventSet = new HashSet<Event<?>>();
         eventSet.add(event);
-        this.events.put(new Integer(event.getTime()), eventSet);
+        this.events.put(Integer.valueOf(event.getTime()), eventSet);
     }
     
     
@@ -64,7 +74,7 @@ public class ScheduledEvents {
             //Create a new event set and add the event
             Set<Event<?>> eventSet = new HashSet<Event<?>>();
             eventSet.add(event);
-            this.events.put(new Integer(tKey), eventSet);
+            this.events.put(Integer.valueOf(tKey), eventSet);
         
         //Event set for the same time already exist
         } else {
@@ -109,6 +119,54 @@ public class ScheduledEvents {
     }
     
     
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#add(int, int, msm.simulator.Event.EventType, java.lang.Object)
+     */
+    public long add(int time, int node, EventType type, Object data){
+        
+        Event<Object> event = new Event<Object>(time, node, type, data);
+        this.add(event);
+        
+        return this.handles.register(event);
+    }
+    
+    
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#cancel(long)
+     */
+    public boolean cancel(long handle){
+        
+        Event<?> event = this.handles.get(handle);
+        
+        if(event == null){
+            //Event already pulled or cancelled
+            return false;
+        }
+        
+        this.handles.release(event);
+        return this.remove(event);
+    }
+    
+    
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#pullNext(msm.simulator.EventBatch)
+     */
+    public int pullNext(EventBatch batch){
+        
+        Integer time = this.events.firstKey();
+        Set<Event<?>> evtSet = this.events.remove(time);
+        
+        batch.clear();
+        batch.setTime(time);
+        for(Event<?> evt : evtSet){
+            this.handles.release(evt);
+            batch.add(evt.getNodeId(), evt.getType(), evt.getData());
+        }
+        
+        return time;
+    }
+    
+    
     /**
      * Return the time of the first occurring set of events
      * 
@@ -138,7 +196,7 @@ public class ScheduledEvents {
      * 
      * @return number of similar events scheduled for the same time
      */
-    public int numberOfSimilarEventAtSameTime(int time, EventType evtType, String nodeId) {
+    public int numberOfSimilarEventAtSameTime(int time, EventType evtType, int nodeId) {
         
         //Get events scheduled for the same time
         Set<Event<?>> evtSet = this.events.get(time);
@@ -154,7 +212,7 @@ public class ScheduledEvents {
             int count = 0;
             
             for(Event<?> evt : evtSet){
-                if((evt.getType() == evtType) && evt.getNodeID().equals(nodeId)){
+                if((evt.getType() == evtType) && (evt.getNodeId() == nodeId)){
                     count++;
                 }
             }
@@ -234,13 +292,76 @@ public class ScheduledEvents {
     }
     
     
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#removeEvent(int, int, msm.simulator.Event.EventType, java.lang.Object)
+     */
+    public boolean removeEvent(int time, int node, EventType type, Object data){
+        
+        Event<Object> probe = new Event<Object>(time, node, type, data);
+        Set<Event<?>> evtSet = this.events.get(time);
+        
+        if(evtSet != null){
+            for(Event<?> evt : evtSet){
+                if(evt.match(probe)){
+                    this.handles.release(evt);
+                    return this.remove(evt);
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    
+    /**
+     * Remove the given event instance (previously added).
+     * 
+     * @param event to remove
+     * 
+     * @return true if the event was scheduled (successfully removed), false otherwise
+     */
+    public boolean remove(Event<?> event){
+        
+        Integer tKey = event.getTime();
+        Set<Event<?>> evtSet = this.events.get(tKey);
+        
+        if((evtSet != null) && evtSet.remove(event)){
+            if(evtSet.isEmpty()){
+                //Remove events entry if set is empty
+                this.events.remove(tKey);
+            }
+            return true;
+        }
+        
+        return false;
+    }
+    
+    
     public int size(){
         return this.events.size();
     }
     
     
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#numberOfEvents()
+     */
+    public int numberOfEvents(){
+        int count = 0;
+        for(Set<Event<?>> evtSet : this.events.values()){
+            count += evtSet.size();
+        }
+        return count;
+    }
+    
+    
+    public boolean isEmpty(){
+        return this.events.isEmpty();
+    }
+    
+    
     public void clear(){
         this.events.clear();
+        this.handles = new TimerHandles();
     }
     
 
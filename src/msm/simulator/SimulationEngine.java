@@ -0,0 +1,59 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import msm.simulator.exceptions.ComEngineException;
+import msm.simulator.network.Network;
+
+
+/**
+ * Simulation engine, executing a network model on top of the communication engine.
+ *
+ * The engine is chosen once per simulation (according to the communication
+ * engine model) and invoked by the simulator main loop at each step.
+ *
+ * @author pcjesus
+ *
+ */
+public interface SimulationEngine {
+
+
+    /**
+     * Initialize the simulation (applications of all nodes and initial events)
+     */
+    public void init(Network net, Config conf, Integer simulationIndex, Integer repetitionCount)
+        throws ClassNotFoundException, IllegalAccessException, InstantiationException, ComEngineException;
+
+
+    /**
+     * Execute the next simulation step (process the next set of events)
+     */
+    public void step() throws ComEngineException;
+
+
+    /**
+     * Set the time limit of the next step (next results sample or dynamism event):
+     * events at or beyond this time must not be processed by the step
+     * (only relevant for engines processing several times per step)
+     */
+    public void setHorizon(int time);
+
+
+    /**
+     * Set the time up to which a quiescent network can be skipped (next dynamism event or 
+     * end time): results samples over the skipped time are filled by the simulator, as the 
+     * state of the nodes does not change
+     */
+    public void setQuiescenceHorizon(int time);
+
+
+    /**
+     * @return the global time (time of the next step)
+     */
+    public int getGlobalTime();
+
+
+    public ComEngine getComEngine();
+
+}
@@ -0,0 +1,119 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.PriorityQueue;
+
+import msm.simulator.Event.EventType;
+
+
+/**
+ * Events of the simulator main loop (not associated to a node): network dynamism
+ * (CHURN and VALUE_CHANGE) and results samples (SAMPLE), kept in their own calendar
+ * queue, separate from the application events of the engines.
+ *
+ * Events of the same time are pulled together, ordered by priority: churn, value change
+ * and then sample (any number of events can be scheduled for the same time). The main loop
+ * drains them before the application events of the same time, and steps the simulation
+ * engine up to the time of the next one (see SimulationEngine.setHorizon). A quiescent
+ * network can be skipped up to the next dynamism event (samples are then filled by the
+ * simulator).
+ *
+ * @author pcjesus
+ *
+ */
+public class SimulationEvents {
+
+    //Order of the events of the same time
+    public static final int PRIORITY_CHURN = 0;
+    public static final int PRIORITY_VALUE_CHANGE = 1;
+    public static final int PRIORITY_SAMPLE = 2;
+
+    private final CalendarScheduledEvents events;
+
+    //Events pulled for processing (reused at each pull)
+    private final EventBatch batch;
+
+    //Times of the dynamism events (not samples)
+    private final PriorityQueue<Integer> dynamismTimes;
+
+
+    public SimulationEvents(){
+        this.events = new CalendarScheduledEvents(64);
+        this.batch = new EventBatch(8);
+        this.dynamismTimes = new PriorityQueue<Integer>();
+    }
+
+
+    /**
+     * Schedule an event of the main loop
+     *
+     * @param time Time the event will occur
+     * @param type Event type (CHURN, VALUE_CHANGE or SAMPLE)
+     * @param data Data associated to the event (e.g. index of the dynamism definition)
+     */
+    public void add(int time, EventType type, Object data){
+        this.events.add(time, Event.NO_NODE, type, data, priority(type));
+        if(type != EventType.SAMPLE){
+            this.dynamismTimes.add(time);
+        }
+    }
+
+
+    private static int priority(EventType type){
+        switch (type) {
+            case CHURN:
+                return PRIORITY_CHURN;
+            case VALUE_CHANGE:
+                return PRIORITY_VALUE_CHANGE;
+            case SAMPLE:
+                return PRIORITY_SAMPLE;
+            default:
+                throw new IllegalArgumentException("Not a simulation event: "+type);
+        }
+    }
+
+
+    /**
+     * @return time of the next events, or maximum time if none exists
+     */
+    public int getTimeOfNextEvents(){
+        return this.events.isEmpty() ? Integer.MAX_VALUE : this.events.getTimeOfNextEvents();
+    }
+
+
+    /**
+     * @return time of the next dynamism events (CHURN or VALUE_CHANGE), or maximum time if none exists
+     */
+    public int getTimeOfNextDynamism(){
+        return this.dynamismTimes.isEmpty() ? Integer.MAX_VALUE : this.dynamismTimes.peek();
+    }
+
+
+    /**
+     * Pull (get and remove) the events of the next time, ordered by priority
+     *
+     * @return pulled events (valid until the next pull)
+     */
+    public EventBatch pullNext(){
+        this.events.pullNext(this.batch);
+        while(!this.dynamismTimes.isEmpty() && (this.dynamismTimes.peek() <= this.batch.getTime())){
+            this.dynamismTimes.poll();
+        }
+        return this.batch;
+    }
+
+
+    public boolean isEmpty(){
+        return this.events.isEmpty();
+    }
+
+
+    public void clear(){
+        this.events.clear();
+        this.batch.clear();
+        this.dynamismTimes.clear();
+    }
+
+}
@@ -0,0 +1,753 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import msm.simulator.Event.EventType;
+
+
+/**
+ * Two-tier event scheduler, for long runs with a large far future (e.g. heavy-tailed
+ * transmission times).
+ *
+ * Events before the spill boundary are kept in memory by a calendar queue (hot window).
+ * Later events are spilled: appended to a buffer, written as a sorted run file (memory-mapped)
+ * when the buffer is full, and merged back into the hot window when it reaches them (the
+ * boundary then moves one window ahead of the earliest spilled event). Events of the same
+ * time are still pulled in the order they were added.
+ *
+ * Event data is spilled by value if null, Long or Integer (e.g. clock events and ids of
+ * buffered messages); other objects stay resident in memory, referred by the spilled record.
+ * A spilled event is referred by a negative handle (spill sequence number), valid until pulled.
+ * Spilled events not yet merged are tracked with one bit per sequence number, from the earliest
+ * of them (moved ahead when merged) to the last one spilled.
+ *
+ * @author pcjesus
+ *
+ */
+public class SpillingScheduledEvents implements EventScheduler {
+
+    public static final int DEFAULT_WINDOW = 1000;
+    public static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+    private static final EventType[] TYPES = EventType.values();
+
+    //Spilled record: time, node, type, data kind, data value, sequence number
+    private static final int RECORD_SIZE = 4 + 4 + 1 + 1 + 8 + 8;
+
+    private static final byte DATA_NULL = 0;
+    private static final byte DATA_LONG = 1;
+    private static final byte DATA_INTEGER = 2;
+    private static final byte DATA_RESIDENT = 3;
+
+    private static final long SPILL_HANDLE = Long.MIN_VALUE;
+
+    //Hot window
+    private final CalendarScheduledEvents hot;
+    private final int window;
+    private int boundary;
+
+    //Spill buffer (in sequence order)
+    private final int runSize;
+    private int[] bufTime;
+    private int[] bufNode;
+    private byte[] bufType;
+    private byte[] bufKind;
+    private long[] bufValue;
+    private long[] bufSeq;
+    private int bufSize;
+
+    //Run files (sorted by time and sequence number)
+    private final File dir;
+    private final List<Run> runs;
+
+    //Spilled objects (not serialized), and free slots
+    private Object[] residents;
+    private int[] freeResidents;
+    private int freeSize;
+    private int residentSize;
+
+    //Spilled events not yet merged nor cancelled (by sequence number, from pendingBase)
+    private BitSet pending;
+    private long pendingBase;
+    private long nextSeq;
+    private long pendingCount;
+
+    //Handles of the events merged in the current window (by sequence number)
+    private final HandleTable merged;
+
+    //Metrics
+    private long spilledEvents;
+    private long mergedEvents;
+    private int runFiles;
+    private long spilledBytes;
+    private int maxHotSize;
+
+
+    public SpillingScheduledEvents(int buckets, int window, int runSize, File dir){
+
+        if(window < 1){
+            throw new IllegalArgumentException("Invalid spill window, must be greater than 0: "+window);
+        }
+        if(runSize < 1){
+            throw new IllegalArgumentException("Invalid spill run size, must be greater than 0: "+runSize);
+        }
+
+        this.hot = new CalendarScheduledEvents(buckets);
+        this.window = window;
+        this.boundary = window;
+        this.runSize = runSize;
+        this.dir = dir;
+        this.runs = new ArrayList<Run>();
+        this.pending = new BitSet();
+        this.merged = new HandleTable();
+        this.residents = new Object[16];
+        this.freeResidents = new int[16];
+        this.allocateBuffer(Math.min(runSize, 1024));
+    }
+
+
+    private void allocateBuffer(int capacity){
+        this.bufTime = new int[capacity];
+        this.bufNode = new int[capacity];
+        this.bufType = new byte[capacity];
+        this.bufKind = new byte[capacity];
+        this.bufValue = new long[capacity];
+        this.bufSeq = new long[capacity];
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#add(int, int, msm.simulator.Event.EventType, java.lang.Object)
+     */
+    public long add(int time, int node, EventType type, Object data){
+
+        if(time < this.boundary){
+            long handle = this.hot.add(time, node, type, data);
+            this.maxHotSize = Math.max(this.maxHotSize, this.hot.size());
+            return handle;
+        }
+
+        if(this.bufSize == this.bufTime.length){
+            if(this.bufSize >= this.runSize){
+                this.writeRun();
+            } else {
+                this.growBuffer();
+            }
+        }
+
+        long seq = this.nextSeq++;
+        int i = this.bufSize++;
+        this.bufTime[i] = time;
+        this.bufNode[i] = node;
+        this.bufType[i] = (byte) type.ordinal();
+        this.bufSeq[i] = seq;
+        if(data == null){
+            this.bufKind[i] = DATA_NULL;
+        } else if(data instanceof Long){
+            this.bufKind[i] = DATA_LONG;
+            this.bufValue[i] = (Long) data;
+        } else if(data instanceof Integer){
+            this.bufKind[i] = DATA_INTEGER;
+            this.bufValue[i] = (Integer) data;
+        } else {
+            this.bufKind[i] = DATA_RESIDENT;
+            this.bufValue[i] = this.addResident(data);
+        }
+
+        this.setPending(seq);
+        this.pendingCount++;
+        this.spilledEvents++;
+
+        return SPILL_HANDLE | seq;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#cancel(long)
+     */
+    public boolean cancel(long handle){
+
+        if(handle >= 0){
+            return this.hot.cancel(handle);
+        }
+
+        long seq = handle & ~SPILL_HANDLE;
+        if(this.isPending(seq)){
+            //Skipped when merged
+            this.clearPending(seq);
+            this.pendingCount--;
+            return true;
+        }
+
+        long hotHandle = this.merged.get(seq);
+        return (hotHandle != 0) && this.hot.cancel(hotHandle);
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#pullNext(msm.simulator.EventBatch)
+     */
+    public int pullNext(EventBatch batch){
+
+        this.checkWindow();
+
+        int t = this.hot.pullNext(batch);
+
+        //Nothing spilled: keep the boundary one window ahead
+        if(this.pendingCount == 0){
+            this.boundary = Math.max(this.boundary, t + this.window);
+        }
+
+        return t;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#getTimeOfNextEvents()
+     */
+    public int getTimeOfNextEvents(){
+        this.checkWindow();
+        return this.hot.getTimeOfNextEvents();
+    }
+
+
+    /**
+     * Merge the next spilled events if the hot window has no more events before the boundary
+     */
+    private void checkWindow(){
+        if((this.pendingCount > 0)
+                && (this.hot.isEmpty() || (this.hot.getTimeOfNextEvents() >= this.boundary))){
+            this.advance();
+        }
+    }
+
+
+    /**
+     * Move the boundary one window ahead of the earliest spilled event, merging the
+     * spilled events before it into the hot window (all the events of the previous
+     * window were pulled)
+     */
+    private void advance(){
+
+        //Earliest spilled event (not cancelled)
+        int min = Integer.MAX_VALUE;
+        for(int r=this.runs.size()-1; r >= 0; r--){
+            Run run = this.runs.get(r);
+            boolean more = true;
+            while(more && !this.isPending(run.seq)){
+                if(run.kind == DATA_RESIDENT){
+                    this.removeResident((int) run.value);
+                }
+                more = run.advance();
+            }
+            if(more){
+                min = Math.min(min, run.time);
+            } else {
+                this.runs.remove(r);
+                run.delete();
+            }
+        }
+        for(int i=0; i < this.bufSize; i++){
+            if(this.isPending(this.bufSeq[i])){
+                min = Math.min(min, this.bufTime[i]);
+            }
+        }
+
+        int end = (min > Integer.MAX_VALUE - this.window) ? Integer.MAX_VALUE : min + this.window;
+        this.boundary = Math.max(this.boundary, end);
+        this.merged.clear();
+
+        //Runs (merged by time and sequence number), before the buffer (later sequence numbers)
+        while(true){
+            Run next = null;
+            for(Run run : this.runs){
+                if((run.time < this.boundary)
+                        && ((next == null) || (run.time < next.time) || ((run.time == next.time) && (run.seq < next.seq)))){
+                    next = run;
+                }
+            }
+            if(next == null){
+                break;
+            }
+            this.merge(next.time, next.node, next.type, next.kind, next.value, next.seq);
+            if(!next.advance()){
+                this.runs.remove(next);
+                next.delete();
+            }
+        }
+
+        int kept = 0;
+        for(int i=0; i < this.bufSize; i++){
+            if(this.bufTime[i] < this.boundary){
+                this.merge(this.bufTime[i], this.bufNode[i], this.bufType[i], this.bufKind[i], this.bufValue[i], this.bufSeq[i]);
+            } else {
+                this.bufTime[kept] = this.bufTime[i];
+                this.bufNode[kept] = this.bufNode[i];
+                this.bufType[kept] = this.bufType[i];
+                this.bufKind[kept] = this.bufKind[i];
+                this.bufValue[kept] = this.bufValue[i];
+                this.bufSeq[kept] = this.bufSeq[i];
+                kept++;
+            }
+        }
+        this.bufSize = kept;
+        this.rebasePending();
+
+        this.maxHotSize = Math.max(this.maxHotSize, this.hot.size());
+    }
+
+
+    private void merge(int time, int node, byte type, byte kind, long value, long seq){
+
+        Object data;
+        switch (kind) {
+            case DATA_LONG:
+                data = Long.valueOf(value);
+                break;
+            case DATA_INTEGER:
+                data = Integer.valueOf((int) value);
+                break;
+            case DATA_RESIDENT:
+                data = this.removeResident((int) value);
+                break;
+            default:
+                data = null;
+        }
+
+        //Cancelled while spilled
+        if(!this.isPending(seq)){
+            return;
+        }
+        this.clearPending(seq);
+        this.pendingCount--;
+        this.mergedEvents++;
+
+        this.merged.put(seq, this.hot.add(time, node, TYPES[type], data));
+    }
+
+
+    private boolean isPending(long seq){
+        long index = seq - this.pendingBase;
+        return (index >= 0) && this.pending.get((int) index);
+    }
+
+    private void setPending(long seq){
+        long index = seq - this.pendingBase;
+        if(index >= Integer.MAX_VALUE){
+            throw new IllegalStateException("Too many events spilled after the earliest pending one (sequence number: "+this.pendingBase+")");
+        }
+        this.pending.set((int) index);
+    }
+
+    private void clearPending(long seq){
+        this.pending.clear((int) (seq - this.pendingBase));
+    }
+
+
+    /**
+     * Move the start of the pending bits to the earliest pending event (bits before it are
+     * all clear), when it frees at least half of them
+     */
+    private void rebasePending(){
+        int first = this.pending.nextSetBit(0);
+        if(first < 0){
+            this.pending = new BitSet();
+            this.pendingBase = this.nextSeq;
+        } else if((first > 0) && (first >= (this.pending.length() >> 1))){
+            this.pending = this.pending.get(first, this.pending.length());
+            this.pendingBase += first;
+        }
+    }
+
+
+    /**
+     * Write the buffer as a run file, sorted by time (and sequence number)
+     */
+    private void writeRun(){
+
+        Integer[] order = new Integer[this.bufSize];
+        for(int i=0; i < this.bufSize; i++){
+            order[i] = i;
+        }
+        //Stable: same time kept in sequence order
+        Arrays.sort(order, new java.util.Comparator<Integer>() {
+            public int compare(Integer a, Integer b){
+                int ta = bufTime[a];
+                int tb = bufTime[b];
+                return (ta < tb) ? -1 : ((ta == tb) ? 0 : 1);
+            }
+        });
+
+        try {
+            File file = File.createTempFile("msm-events-", ".run", this.dir);
+            long bytes = (long) this.bufSize * RECORD_SIZE;
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            MappedByteBuffer buf;
+            try {
+                buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            } finally {
+                raf.close();
+            }
+            for(Integer i : order){
+                buf.putInt(this.bufTime[i]);
+                buf.putInt(this.bufNode[i]);
+                buf.put(this.bufType[i]);
+                buf.put(this.bufKind[i]);
+                buf.putLong(this.bufValue[i]);
+                buf.putLong(this.bufSeq[i]);
+            }
+            buf.flip();
+
+            Run run = new Run(file, buf);
+            run.advance();
+            this.runs.add(run);
+            this.runFiles++;
+            this.spilledBytes += bytes;
+        } catch (IOException ioe) {
+            throw (IllegalStateException) new IllegalStateException("Error spilling events to disk: "+ioe.getMessage()).initCause(ioe);
+        }
+
+        this.bufSize = 0;
+    }
+
+
+    private void growBuffer(){
+        int capacity = Math.min(this.runSize, this.bufTime.length << 1);
+        this.bufTime = Arrays.copyOf(this.bufTime, capacity);
+        this.bufNode = Arrays.copyOf(this.bufNode, capacity);
+        this.bufType = Arrays.copyOf(this.bufType, capacity);
+        this.bufKind = Arrays.copyOf(this.bufKind, capacity);
+        this.bufValue = Arrays.copyOf(this.bufValue, capacity);
+        this.bufSeq = Arrays.copyOf(this.bufSeq, capacity);
+    }
+
+
+    private int addResident(Object data){
+        int slot;
+        if(this.freeSize > 0){
+            slot = this.freeResidents[--this.freeSize];
+        } else {
+            if(this.residentSize == this.residents.length){
+                this.residents = Arrays.copyOf(this.residents, this.residentSize << 1);
+            }
+            slot = this.residentSize++;
+        }
+        this.residents[slot] = data;
+        return slot;
+    }
+
+
+    private Object removeResident(int slot){
+        Object data = this.residents[slot];
+        this.residents[slot] = null;
+        if(this.freeSize == this.freeResidents.length){
+            this.freeResidents = Arrays.copyOf(this.freeResidents, this.freeSize << 1);
+        }
+        this.freeResidents[this.freeSize++] = slot;
+        return data;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#numberOfEventAtSameTime(int)
+     */
+    public int numberOfEventAtSameTime(int time){
+
+        if(time < this.boundary){
+            return this.hot.numberOfEventAtSameTime(time);
+        }
+
+        int n = 0;
+        for(int i=0; i < this.bufSize; i++){
+            if((this.bufTime[i] == time) && this.isPending(this.bufSeq[i])){
+                n++;
+            }
+        }
+        for(Run run : this.runs){
+            for(int p=run.position; p < run.buf.limit(); p += RECORD_SIZE){
+                if((run.buf.getInt(p) == time) && this.isPending(run.buf.getLong(p + 18))){
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#removeEvent(int, int, msm.simulator.Event.EventType, java.lang.Object)
+     */
+    public boolean removeEvent(int time, int node, EventType type, Object data){
+
+        if(time < this.boundary){
+            return this.hot.removeEvent(time, node, type, data);
+        }
+
+        //Spilled events (data compared only if kept by value or resident)
+        for(int i=0; i < this.bufSize; i++){
+            if((this.bufTime[i] == time) && (this.bufNode[i] == node) && (this.bufType[i] == type.ordinal())
+                    && this.isPending(this.bufSeq[i])
+                    && ((data == null) || data.equals(this.spilledData(this.bufKind[i], this.bufValue[i])))){
+                return this.cancel(SPILL_HANDLE | this.bufSeq[i]);
+            }
+        }
+        for(Run run : this.runs){
+            for(int p=run.position; p < run.buf.limit(); p += RECORD_SIZE){
+                long seq = run.buf.getLong(p + 18);
+                if((run.buf.getInt(p) == time) && (run.buf.getInt(p + 4) == node) && (run.buf.get(p + 8) == type.ordinal())
+                        && this.isPending(seq)
+                        && ((data == null) || data.equals(this.spilledData(run.buf.get(p + 9), run.buf.getLong(p + 10))))){
+                    return this.cancel(SPILL_HANDLE | seq);
+                }
+            }
+        }
+        return false;
+    }
+
+
+    private Object spilledData(byte kind, long value){
+        switch (kind) {
+            case DATA_LONG:
+                return Long.valueOf(value);
+            case DATA_INTEGER:
+                return Integer.valueOf((int) value);
+            case DATA_RESIDENT:
+                return this.residents[(int) value];
+            default:
+                return null;
+        }
+    }
+
+
+    public int size(){
+        return this.hot.size() + (int) this.pendingCount;
+    }
+
+
+    /* (non-Javadoc)
+     * @see msm.simulator.EventScheduler#numberOfEvents()
+     */
+    public int numberOfEvents(){
+        return this.size();
+    }
+
+
+    public boolean isEmpty(){
+        return this.hot.isEmpty() && (this.pendingCount == 0);
+    }
+
+
+    public void clear(){
+        this.hot.clear();
+        for(Run run : this.runs){
+            run.delete();
+        }
+        this.runs.clear();
+        this.bufSize = 0;
+        Arrays.fill(this.residents, null);
+        this.residentSize = 0;
+        this.freeSize = 0;
+        this.pending = new BitSet();
+        this.pendingBase = this.nextSeq;
+        this.pendingCount = 0;
+        this.merged.clear();
+        this.boundary = this.window;
+    }
+
+
+    /**
+     * METRICS
+     */
+
+
+    /**
+     * @return number of events spilled beyond the hot window
+     */
+    public long getSpilledEvents(){
+        return this.spilledEvents;
+    }
+
+    /**
+     * @return number of spilled events merged back into the hot window
+     */
+    public long getMergedEvents(){
+        return this.mergedEvents;
+    }
+
+    /**
+     * @return number of run files written
+     */
+    public int getRunFiles(){
+        return this.runFiles;
+    }
+
+    /**
+     * @return bytes written to run files
+     */
+    public long getSpilledBytes(){
+        return this.spilledBytes;
+    }
+
+    /**
+     * @return maximum number of events in the hot window
+     */
+    public int getMaxHotSize(){
+        return this.maxHotSize;
+    }
+
+    public int getWindow(){
+        return this.window;
+    }
+
+    public int getRunSize(){
+        return this.runSize;
+    }
+
+    @Override
+    public String toString(){
+        return "Spilling scheduler (window: "+this.window+", run size: "+this.runSize+") - spilled events: "+this.spilledEvents
+            +", merged events: "+this.mergedEvents+", run files: "+this.runFiles+", spilled bytes: "+this.spilledBytes
+            +", max hot events: "+this.maxHotSize;
+    }
+
+
+    /**
+     * Sorted run file, read sequentially (current record kept in the fields)
+     */
+    private static class Run {
+
+        private final File file;
+        private final MappedByteBuffer buf;
+        private int position;
+
+        private int time;
+        private int node;
+        private byte type;
+        private byte kind;
+        private long value;
+        private long seq;
+
+
+        Run(File file, MappedByteBuffer buf){
+            this.file = file;
+            this.buf = buf;
+        }
+
+
+        /**
+         * Read the next record
+         *
+         * @return false if the run has no more records
+         */
+        boolean advance(){
+            if(this.buf.remaining() < RECORD_SIZE){
+                return false;
+            }
+            this.position = this.buf.position();
+            this.time = this.buf.getInt();
+            this.node = this.buf.getInt();
+            this.type = this.buf.get();
+            this.kind = this.buf.get();
+            this.value = this.buf.getLong();
+            this.seq = this.buf.getLong();
+            return true;
+        }
+
+
+        void delete(){
+            this.file.delete();
+        }
+    }
+
+
+    /**
+     * Open addressing table of the hot handles of the merged events, by sequence number
+     */
+    private static class HandleTable {
+
+        private long[] keys;
+        private long[] values;
+        private int size;
+
+
+        HandleTable(){
+            this.keys = new long[64];
+            this.values = new long[64];
+        }
+
+
+        void put(long key, long value){
+            if((this.size + 1) << 1 > this.keys.length){
+                this.rehash(this.keys.length << 1);
+            }
+            int mask = this.keys.length - 1;
+            int i = mix(key) & mask;
+            while(this.values[i] != 0){
+                if(this.keys[i] == key){
+                    this.values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = key;
+            this.values[i] = value;
+            this.size++;
+        }
+
+
+        /**
+         * @return value of the key, or 0 if none
+         */
+        long get(long key){
+            int mask = this.keys.length - 1;
+            int i = mix(key) & mask;
+            while(this.values[i] != 0){
+                if(this.keys[i] == key){
+                    return this.values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return 0;
+        }
+
+
+        void clear(){
+            if(this.size > 0){
+                Arrays.fill(this.values, 0);
+                this.size = 0;
+            }
+        }
+
+
+        private void rehash(int capacity){
+            long[] k = this.keys;
+            long[] v = this.values;
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+            this.size = 0;
+            for(int i=0; i < k.length; i++){
+                if(v[i] != 0){
+                    this.put(k[i], v[i]);
+                }
+            }
+        }
+
+
+        private static int mix(long key){
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import msm.simulator.apps.Application;
+import msm.simulator.exceptions.ComEngineException;
+import msm.simulator.network.Network;
+import msm.simulator.network.Node;
+
+
+/**
+ * Simulation engine for the synchronous network model (nodes execute in lock-step rounds).
+ *
+ * Each step executes a round of all the nodes of the network (ascending ids), without
+ * clock events: message generation, then (after the round barrier swapping the mailboxes)
+ * state transition over the messages received in the round (only the active nodes, see
+ * RoundMailboxes). Messages are kept in the round mailboxes instead of the nodes receive
+ * buffer. When all nodes are quiescent, the
+ * step skips the rounds up to the quiescence horizon (next dynamism event or end time).
+ *
+ * @author pcjesus
+ *
+ */
+public class SynchronousEngine implements SimulationEngine {
+
+    private final ComEngine comEngine;
+
+    private final RoundMailboxes mailboxes;
+    //View of the inbox of the node executing the state transition
+    private final RoundMailboxes.Inbox inbox;
+    //Time up to which rounds are skipped, if the network is quiescent
+    private int horizon;
+
+
+    public SynchronousEngine(ComEngine comEngine){
+        this.comEngine = comEngine;
+        this.mailboxes = new RoundMailboxes();
+        this.inbox = new RoundMailboxes.Inbox();
+    }
+
+
+    public void init(Network net, Config conf, Integer simulationIndex, Integer repetitionCount)
+        throws ClassNotFoundException, IllegalAccessException, InstantiationException, ComEngineException {
+        this.mailboxes.reset();
+        this.comEngine.setMailboxes(this.mailboxes);
+        this.comEngine.SynchronousInitCommunication(net, conf, simulationIndex, repetitionCount);
+    }
+
+
+    public void step() throws ComEngineException {
+
+        Network net = this.comEngine.getNetwork();
+
+        this.comEngine.beginRound();
+        this.mailboxes.update(net);
+
+        if(this.skipQuiescentRounds()){
+            return;
+        }
+
+        if(ComEngine.useDebug){
+            System.out.println("\n\nCURRENT GLOBAL TIME: "+this.comEngine.getGlobalTime());
+        }
+
+        //Message generation of all nodes
+        for(int i=0; i < this.mailboxes.numberOfNodes(); i++){
+            net.getNode(this.mailboxes.getNode(i)).getApplication().messageGeneration();
+        }
+
+        //Round barrier: messages sent in the round are received
+        this.mailboxes.swap();
+
+        //State-transition of all active nodes in the same round
+        for(int id=this.mailboxes.nextActive(0); id >= 0; id=this.mailboxes.nextActive(id + 1)){
+            transition(this.comEngine, net, this.mailboxes, this.inbox, id);
+        }
+        this.inbox.release();
+
+        // Update Global Time (next round)
+        this.comEngine.setGlobalTime(this.comEngine.getGlobalTime() + 1);
+    }
+
+
+    public void setHorizon(int time){
+        //Only the next time is processed at each step, unless the network is quiescent
+    }
+
+
+    public void setQuiescenceHorizon(int time){
+        this.horizon = time;
+    }
+
+
+    public int getGlobalTime(){
+        return this.comEngine.getGlobalTime();
+    }
+
+
+    public ComEngine getComEngine(){
+        return this.comEngine;
+    }
+
+
+    RoundMailboxes getMailboxes(){
+        return this.mailboxes;
+    }
+
+
+    /**
+     * Jump to the horizon if the network is quiescent: no messages sent to the next round, and
+     * all nodes quiescent (rounds would not change their state, besides the elapsed rounds
+     * accounted by each node). Results samples over the skipped rounds are filled by the
+     * simulator with the last values, as the state of the nodes does not change.
+     *
+     * @return true if the rounds up to the horizon were skipped
+     */
+    boolean skipQuiescentRounds(){
+
+        int time = this.comEngine.getGlobalTime();
+        int rounds = this.horizon - time;
+        if((rounds < 1) || this.mailboxes.hasPending()){
+            return false;
+        }
+
+        Network net = this.comEngine.getNetwork();
+        for(int i=0; i < this.mailboxes.numberOfNodes(); i++){
+            if(!net.getNode(this.mailboxes.getNode(i)).getApplication().isQuiescent()){
+                return false;
+            }
+        }
+
+        Application app = null;
+        for(int i=0; i < this.mailboxes.numberOfNodes(); i++){
+            app = net.getNode(this.mailboxes.getNode(i)).getApplication();
+            app.skipRounds(time, rounds);
+        }
+        if(app != null){
+            //Accounting shared by the nodes (once for all of them)
+            app.skipQuiescentNodes(time, 1, rounds, this.mailboxes.numberOfNodes());
+            app.skipDone();
+        }
+
+        if(ComEngine.useDebug){
+            System.out.println("\n\nQUIESCENT NETWORK, ROUNDS SKIPPED: "+time+" to "+(this.horizon - 1));
+        }
+
+        this.comEngine.setGlobalTime(this.horizon);
+        return true;
+    }
+
+
+    /**
+     * Apply the state-transition function of a node to its current inbox (and count the
+     * messages lost in its channels), clearing it
+     */
+    static void transition(ComEngine comEngine, Network net, RoundMailboxes mailboxes, RoundMailboxes.Inbox inbox, int nodeId){
+        Node node = net.getNode(nodeId);
+        int losses = mailboxes.getLosses(nodeId);
+        if(losses > 0){
+            node.incMsgLossCountBy(losses);
+        }
+        inbox.set(mailboxes, nodeId);
+        comEngine.stateTransition(node, inbox);
+        mailboxes.clear(nodeId);
+    }
+
+}
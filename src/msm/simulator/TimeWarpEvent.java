@@ -0,0 +1,155 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import msm.simulator.Event.EventType;
+
+
+/**
+ * Event of the optimistic asynchronous engine, with the record of its processing
+ * (kept until committed): the state of the node before the event, the events it
+ * created and the clock events it removed, the receive events delivered with it,
+ * and its messages statistics.
+ *
+ * Events are ordered by time, sending time, creator (logical process, or the
+ * simulator) and creation sequence number, which does not depend on the threads
+ * execution. The same event object is used as anti-message, to annihilate it.
+ *
+ * @author pcjesus
+ *
+ */
+class TimeWarpEvent {
+
+    //Creator of the events scheduled by the simulator (outside the windows)
+    static final int SIMULATOR = -1;
+
+    static final Comparator<TimeWarpEvent> ORDER = new Comparator<TimeWarpEvent>(){
+        public int compare(TimeWarpEvent e1, TimeWarpEvent e2){
+            if(e1.time != e2.time){
+                return (e1.time < e2.time) ? -1 : 1;
+            } else if(e1.order != e2.order){
+                return (e1.order < e2.order) ? -1 : 1;
+            } else if(e1.source != e2.source){
+                return (e1.source < e2.source) ? -1 : 1;
+            } else if(e1.seq != e2.seq){
+                return (e1.seq < e2.seq) ? -1 : 1;
+            } else {
+                return 0;
+            }
+        }
+    };
+
+    final int time;
+    final int order;
+    final int node;
+    final EventType type;
+    final Object data;
+
+    //Creator (logical process index) and its creation sequence number
+    final int source;
+    final long seq;
+
+    boolean processed;
+    boolean cancelled;
+
+    //Record of the processing: creator sequence number before the event
+    long seqBefore;
+    //State of the node before the event (application, counters, random stream position)
+    boolean saved;
+    Object appState;
+    long msgSendCount;
+    long msgRcvCount;
+    long msgLossCount;
+    long draws;
+    long trials;
+    //Events created and clock events removed by the event
+    List<TimeWarpEvent> created;
+    List<TimeWarpEvent> removed;
+    //Next receive events of the node at the same time, delivered with the event
+    List<TimeWarpEvent> batch;
+    //Messages statistics of the event
+    int msgCount;
+    int[] latencies;
+    int latenciesCount;
+
+
+    TimeWarpEvent(int time, int order, int node, EventType type, Object data, int source, long seq){
+        this.time = time;
+        this.order = order;
+        this.node = node;
+        this.type = type;
+        this.data = data;
+        this.source = source;
+        this.seq = seq;
+    }
+
+
+    /**
+     * @return handle of the event (unique in the logical process of its node, never ComEngine.NO_TIMEOUT)
+     */
+    long handle(){
+        return (((long) (this.source + 2)) << 40) | this.seq;
+    }
+
+
+    void addCreated(TimeWarpEvent evt){
+        if(this.created == null){
+            this.created = new ArrayList<TimeWarpEvent>(4);
+        }
+        this.created.add(evt);
+    }
+
+
+    void addRemoved(TimeWarpEvent evt){
+        if(this.removed == null){
+            this.removed = new ArrayList<TimeWarpEvent>(2);
+        }
+        this.removed.add(evt);
+    }
+
+
+    void addBatch(TimeWarpEvent evt){
+        if(this.batch == null){
+            this.batch = new ArrayList<TimeWarpEvent>(4);
+        }
+        this.batch.add(evt);
+    }
+
+
+    void addLatency(int latency){
+        if(this.latencies == null){
+            this.latencies = new int[4];
+        } else if(this.latenciesCount == this.latencies.length){
+            int[] l = new int[this.latenciesCount << 1];
+            System.arraycopy(this.latencies, 0, l, 0, this.latenciesCount);
+            this.latencies = l;
+        }
+        this.latencies[this.latenciesCount++] = latency;
+    }
+
+
+    /**
+     * Remove the record of the processing (releasing references)
+     */
+    void clearRecord(){
+        this.saved = false;
+        this.appState = null;
+        this.created = null;
+        this.removed = null;
+        this.batch = null;
+        this.msgCount = 0;
+        this.latencies = null;
+        this.latenciesCount = 0;
+    }
+
+
+    public String toString(){
+        return "[T:"+this.time+"; N:"+this.node+"; "+this.type+"; S:"+this.source+"/"+this.seq+"]";
+    }
+
+}
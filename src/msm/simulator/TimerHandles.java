@@ -0,0 +1,112 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+
+/**
+ * Table of the pending clock (timeout) events, referred by long handles.
+ *
+ * A handle holds the table slot of the event (lower 32 bits) and the slot
+ * generation (upper 32 bits), so a handle of a released slot is no longer
+ * valid. Generations start at 1, thus 0 is never a valid handle.
+ *
+ * @author pcjesus
+ *
+ */
+class TimerHandles {
+
+    private Event<?>[] timers;
+    private int[] generation;
+
+    //Released slots (available for reuse)
+    private int[] free;
+    private int freeCount;
+
+    //Number of slots already used
+    private int used;
+
+
+    TimerHandles(){
+        this.timers = new Event<?>[64];
+        this.generation = new int[64];
+        this.free = new int[64];
+        this.freeCount = 0;
+        this.used = 0;
+    }
+
+
+    /**
+     * Register a clock event
+     *
+     * @param event clock event
+     * @return handle of the event
+     */
+    long register(Event<?> event){
+
+        int slot;
+        if(this.freeCount > 0){
+            slot = this.free[--this.freeCount];
+        } else {
+            if(this.used == this.timers.length){
+                this.grow();
+            }
+            slot = this.used++;
+            this.generation[slot] = 1;
+        }
+
+        this.timers[slot] = event;
+        event.timer = slot;
+
+        return (((long) this.generation[slot]) << 32) | slot;
+    }
+
+
+    /**
+     * Get the (pending) clock event referred by the handle
+     *
+     * @param handle clock event handle
+     * @return the clock event, or null if the handle is not valid (anymore)
+     */
+    Event<?> get(long handle){
+
+        int slot = (int) handle;
+        if((slot < 0) || (slot >= this.used) || (this.generation[slot] != (int) (handle >>> 32))){
+            return null;
+        }
+
+        return this.timers[slot];
+    }
+
+
+    /**
+     * Release the handle of the clock event (if any)
+     *
+     * @param event clock event
+     */
+    void release(Event<?> event){
+
+        int slot = event.timer;
+        if(slot >= 0){
+            this.timers[slot] = null;
+            this.generation[slot] = (this.generation[slot] == Integer.MAX_VALUE) ? 1 : this.generation[slot] + 1;
+            this.free[this.freeCount++] = slot;
+            event.timer = -1;
+        }
+    }
+
+
+    private void grow(){
+        int size = this.timers.length << 1;
+        Event<?>[] t = new Event<?>[size];
+        System.arraycopy(this.timers, 0, t, 0, this.used);
+        this.timers = t;
+        int[] g = new int[size];
+        System.arraycopy(this.generation, 0, g, 0, this.used);
+        this.generation = g;
+        int[] f = new int[size];
+        System.arraycopy(this.free, 0, f, 0, this.freeCount);
+        this.free = f;
+    }
+
+}
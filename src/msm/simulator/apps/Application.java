@@ -4,11 +4,13 @@
 
 package msm.simulator.apps;
 
+import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Random;
 
 import msm.simulator.ComEngine;
 import msm.simulator.Config;
@@ -19,6 +21,7 @@ import msm.simulator.network.Message;
 import msm.simulator.network.MessageBroadcast;
 import msm.simulator.network.Node;
 import msm.simulator.util.DataDistribution;
+import msm.simulator.util.ObjectState;
 
 
 
@@ -45,7 +48,10 @@ public abstract class Application {
     
     private MathContext mc;
     
-    //Register last EvtClockId
+    //Random generator of the node (created on first use)
+    private Random random;
+    
+    //Register last EvtClockId (no longer set by the communication engine)
     private Event<?> lastEvt;
     
     public Application(){
@@ -57,7 +63,14 @@ public abstract class Application {
         //Create Application Instance
         String className = Application.class.getName() + appType;
         Class<?> applicationClass = Class.forName(className);
-        Application app = (Application)applicationClass.newInstance();
+        Application app;
+        try {
+            app = (Application)applicationClass.getConstructor().newInstance();
+        } catch (NoSuchMethodException e) {
+            throw (InstantiationException) new InstantiationException(className).initCause(e);
+        } catch (InvocationTargetException e) {
+            throw (InstantiationException) new InstantiationException(className).initCause(e.getCause());
+        }
 
         app.setAppType(appType);
         app.setAppNode(appNode);
@@ -74,6 +87,19 @@ public abstract class Application {
     public abstract void init(Config config, String... args) throws ApplicationException;
     
     public abstract void onReceive(Message<?> msg);
+    
+    /**
+     * Handle the messages received by the node at the same time (asynchronous model), in 
+     * the order they would be received by onReceive. By default, onReceive is invoked for 
+     * each message; redefine this method to process them at once.
+     * 
+     * @param msgs received messages (the list is only valid during the call)
+     */
+    public void onReceiveBatch(List<Message<?>> msgs){
+        for(Message<?> msg : msgs){
+            this.onReceive(msg);
+        }
+    }
 
     public abstract void onTick();
     
@@ -84,6 +110,8 @@ public abstract class Application {
     public abstract String getState();
     
     
+    //Note: messageGeneration and stateTransition of different nodes may be executed concurrently 
+    //(parallel synchronous engine), only the state of the application node should be changed
     public abstract void messageGeneration();
     
     public abstract void stateTransition(Collection<Message<?>> msgsReceived);
@@ -91,9 +119,83 @@ public abstract class Application {
     //Redefine this method to set initial state depending from the all network initialization
     public void init2(){};
     
+    
+    /**
+     * Indicate if the node is quiescent: it will not send messages, and its rounds (or clock ticks,
+     * in the asynchronous model) will not change its state (besides the elapsed rounds, see skipRounds 
+     * and skipTicks) until it receives a message or the network changes. When all nodes are quiescent 
+     * (and no messages are on their way), the engine skips the time up to the next dynamism event.
+     * By default, nodes are never quiescent.
+     * 
+     * @return true if the node is quiescent
+     */
+    public boolean isQuiescent(){
+        return false;
+    }
+    
+    
+    /**
+     * Account the rounds skipped by the engine while the node was quiescent 
+     * (redefine this method if the node keeps data by round)
+     * 
+     * @param time time of the first skipped round
+     * @param rounds number of skipped rounds
+     */
+    public void skipRounds(int time, int rounds){}
+    
+    
     /**
-     * @deprecated
+     * Account the clock ticks of a periodic timer skipped by the engine while the node was quiescent
+     * (asynchronous model; redefine this method if the node keeps data by tick)
+     * 
+     * @param time time of the first skipped tick
+     * @param period time between the skipped ticks
+     * @param ticks number of skipped ticks
      */
+    public void skipTicks(int time, int period, int ticks){}
+    
+    
+    /**
+     * Account the rounds (period 1) or clock ticks skipped by the engine for a number of quiescent 
+     * nodes, invoked once per skipped range (on the application of one of the nodes, after skipRounds 
+     * or skipTicks of each node): redefine this method to account data shared by the nodes (e.g. a 
+     * report of the number of quiescent nodes by time) once for all of them
+     * 
+     * @param time time of the first skipped round or tick
+     * @param period time between the skipped rounds or ticks
+     * @param count number of skipped rounds or ticks
+     * @param nodes number of nodes
+     */
+    public void skipQuiescentNodes(int time, int period, int count, int nodes){}
+    
+    
+    /**
+     * Indicate the end of a skip of the engine, invoked once (on the application of one of the 
+     * nodes) after the skipped rounds or ticks of all the nodes were accounted
+     */
+    public void skipDone(){}
+    
+    
+    /**
+     * Indicate if the state transition does nothing without messages (synchronous model): 
+     * the node is then only visited by the state transition when it receives messages, 
+     * or when it is woken up (see wakeUp).
+     * By default, the state transition is executed at every round.
+     * 
+     * @return true if an empty inbox is a no-op
+     */
+    public boolean isEmptyInboxNoOp(){
+        return false;
+    }
+    
+    public int sendMessage(int from, int to, Object msgData){
+        return this.sendMessage(new Message<Object>(from, to, msgData));
+    }
+    
+    /**
+     * @deprecated use the node ids method
+     */
+    @Deprecated
     public int sendMessage(String from, String to, Object msgData){
         try {
             return this.comEngine.sendMessage(new Message<Object>(from, to, msgData));
@@ -123,9 +225,14 @@ public abstract class Application {
         this.comEngine.sendMessage(msg);
     }
 */
+    public int broadcastMessage(int from, Object msgData){
+        return this.broadcastMessage(new Message<Object>(from, Message.TO_ANY_ID, msgData));
+    }
+    
     /**
-     * @deprecated
+     * @deprecated use the node ids method
      */
+    @Deprecated
     public int broadcastMessage(String from, Object msgData){
         try {
             return this.comEngine.broadcastMessage(new Message<Object>(from, MessageBroadcast.TO_ANY, msgData));
@@ -151,26 +258,130 @@ public abstract class Application {
     }
     
     /**
-     * @deprecated
+     * Get a message of this node from the message pool of the engine, to be sent by sendMessage 
+     * or broadcastMessage: once sent the message is owned by the engine (not to be used by the 
+     * sender), and recycled when delivered to all its receivers
+     * 
+     * @param to receiver id (Message.TO_ANY_ID for a broadcast)
      */
-    public String setTimeout(int timeout) throws ApplicationException {
+    public Message<Object> acquireMessage(int to, Object msgData){
+        return this.comEngine.getMessagePool().acquire(this.appNode.getId(), to, msgData);
+    }
+    
+    /**
+     * Keep a received message after the receive handler (a pooled message is recycled when 
+     * delivered, unless retained), until released by releaseMessage
+     */
+    public void retainMessage(Message<?> msg){
+        this.comEngine.getMessagePool().retain(msg);
+    }
+    
+    public void releaseMessage(Message<?> msg){
+        this.comEngine.getMessagePool().release(msg);
+    }
+    
+    /**
+     * Clock timeout: onTick after the timeout
+     * 
+     * @return handle of the timeout (see resetTimeout)
+     */
+    public long scheduleTimeout(int timeout) throws ApplicationException {
+        return this.scheduleTimeout(timeout, null);
+    }
+    
+    public long scheduleTimeout(int timeout, Object data) throws ApplicationException {
         try {
-            return this.comEngine.setTimeout(timeout, String.valueOf(this.getAppNode().getId()), null);
+            return this.comEngine.setTimeout(timeout, this.getAppNode().getId(), data);
         } catch (ComEngineException e) {
             throw (ApplicationException) new ApplicationException(e).initCause(e);
         }
     }
     
+    /**
+     * @return key of the timeout (handle as a string)
+     * @deprecated use scheduleTimeout
+     */
+    @Deprecated
+    public String setTimeout(int timeout) throws ApplicationException {
+        return String.valueOf(this.scheduleTimeout(timeout, null));
+    }
+    
+    /**
+     * @deprecated use scheduleTimeout
+     */
+    @Deprecated
     public String setTimeout(int timeout, Object data) throws ApplicationException {
+        return String.valueOf(this.scheduleTimeout(timeout, data));
+    }
+    
+    /**
+     * Periodic clock timer: onTick every period, starting one period from now 
+     * (cheaper than setting a new timeout at each tick)
+     * 
+     * @return handle of the timer (see resetPeriodicTimeout)
+     */
+    public long setPeriodicTimeout(int period) throws ApplicationException {
+        return this.setPeriodicTimeout(period, (period > 0) ? this.comEngine.getGlobalTime() % period : 0);
+    }
+    
+    public long setPeriodicTimeout(int period, int phase) throws ApplicationException {
         try {
-            return this.comEngine.setTimeout(timeout, String.valueOf(this.getAppNode().getId()), data);
+            return this.comEngine.setPeriodicTimeout(period, phase, this.getAppNode().getId());
         } catch (ComEngineException e) {
             throw (ApplicationException) new ApplicationException(e).initCause(e);
         }
     }
     
+    public boolean resetPeriodicTimeout(long timerHandle){
+        return this.comEngine.resetPeriodicTimeout(timerHandle);
+    }
+    
+    /**
+     * Execute the state transition at the next round phase, even without messages
+     * (only needed if an empty inbox is a no-op)
+     */
+    public void wakeUp(){
+        this.comEngine.wakeUp(this.appNode.getId());
+    }
+    
+    
+    public boolean resetTimeout(long clockEvtHandle){
+        return this.comEngine.reset(clockEvtHandle, this.getAppNode().getId());
+    }
+    
+    /**
+     * @deprecated use resetTimeout(long)
+     */
+    @Deprecated
     public boolean resetTimeout(String clockEvtKey){
-        return this.comEngine.reset(clockEvtKey, String.valueOf(this.getAppNode().getId()));
+        try {
+            return (clockEvtKey != null) && this.resetTimeout(Long.parseLong(clockEvtKey));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
+    
+    /**
+     * Save the state of the application (used by the optimistic execution to roll back 
+     * the node). By default, all fields are saved by reflection, copying the content of 
+     * collections, maps and arrays (one level); applications keeping other mutable 
+     * objects (e.g. nested collections) must override it, and restoreState.
+     * 
+     * @return saved state
+     */
+    public Object saveState(){
+        return ObjectState.save(this, Application.class);
+    }
+    
+    
+    /**
+     * Restore a state of the application (returned by saveState)
+     * 
+     * @param state saved state
+     */
+    public void restoreState(Object state){
+        ObjectState.restore(this, state, Application.class);
     }
     
     
@@ -260,6 +471,20 @@ public abstract class Application {
     }
 
     
+    /**
+     * Random generator of the application node (reproducible from the simulation seed, 
+     * independently from the order nodes are executed)
+     * 
+     * @return the random generator
+     */
+    public Random getRandom() {
+        if(this.random == null){
+            this.random = this.comEngine.createRandom(this.appNode.getId());
+        }
+        return this.random;
+    }
+
+    
     /**
      * @return the mc
      */
@@ -319,7 +544,9 @@ public abstract class Application {
     
     /**
      * @return the lastEvtId
+     * @deprecated events are no longer objects, the engine does not set it
      */
+    @Deprecated
     public Event<?> getLastEvt() {
         return this.lastEvt;
     }
@@ -327,7 +554,9 @@ public abstract class Application {
     
     /**
      * @param lastEvt the lastEvt to set
+     * @deprecated events are no longer objects, the engine does not set it
      */
+    @Deprecated
     public void setLastEvt(Event<?> lastEvt) {
         this.lastEvt = lastEvt;
     }
@@ -75,8 +75,8 @@ public class ApplicationDRG extends Application {
     //Message timeout Config (time to wait for the reception of a message)
     private int msgTimeout;
     
-    String clockTick;
-    String clockGAM;
+    long clockTick = ComEngine.NO_TIMEOUT;
+    long clockGAM = ComEngine.NO_TIMEOUT;
 
     //Function to compute
     private NetStatistics.AggFunctions function;
@@ -162,7 +162,7 @@ public class ApplicationDRG extends Application {
             throw (ApplicationException)new ApplicationException(ce).initCause(ce);
         }
         
-        this.rndStart = new Random();
+        this.rndStart = super.getRandom();
         
         
         this.setValue(super.getInitValue());
@@ -255,7 +255,7 @@ public class ApplicationDRG extends Application {
         }
 */
         this.mode = StateModes.IDLE;
-        this.rnd = new Random();
+        this.rnd = super.getRandom();
         
 //        this.waitResponse = false;
         this.cntTime = 0;
@@ -265,7 +265,7 @@ public class ApplicationDRG extends Application {
     public void onReceive(Message<?> msg){
         
         // Get Sender Id
-        Integer senderId = Integer.valueOf(msg.getFrom());
+        Integer senderId = msg.getFromId();
 
         // Get Message Data (format: TYPE|DATA;...;TYPEn|DATAn;)
         String msgData = (String) msg.getData();
@@ -288,10 +288,10 @@ public class ApplicationDRG extends Application {
                             this.setMode(StateModes.MEMBER);
                             this.setLeader(senderId);
                             sendJACK();
-                            super.resetTimeout(this.clockTick);
+                            this.stopTick();
                             try {
                                 //Waiting for GAM
-                                this.clockGAM = super.setTimeout(this.msgTimeout);
+                                this.clockGAM = super.scheduleTimeout(this.msgTimeout);
                             } catch (ApplicationException e) {
                                 System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
                                 e.printStackTrace();
@@ -327,14 +327,8 @@ public class ApplicationDRG extends Application {
                                 super.resetTimeout(this.clockGAM);
                                 reset();
                                 this.setMode(StateModes.IDLE);
-                                try {
-                                    //Wait before deciding to become leader again
-                                    this.clockTick = super.setTimeout(this.tickTimeout);
-                                } catch (ApplicationException e) {
-                                    System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
-                                    e.printStackTrace();
-                                    System.exit(0);
-                                }
+                                //Wait before deciding to become leader again
+                                this.startTick();
                             }
                         }
                         break;
@@ -358,37 +352,26 @@ public class ApplicationDRG extends Application {
                     if(decideToBecomeLeader()){
                         //Send GCM
                         sendGCM();
+                        this.stopTick();
                         try {
                             //Waiting for JACKs
-                            super.setTimeout(this.msgTimeout);
+                            super.scheduleTimeout(this.msgTimeout);
                         } catch (ApplicationException e) {
                             System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
                             e.printStackTrace();
                             System.exit(0);
                         }
                     } else {
-                        try {
-                            //Wait before deciding to become leader again
-                            this.clockTick = super.setTimeout(this.tickTimeout);
-                        } catch (ApplicationException e) {
-                            System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
-                            e.printStackTrace();
-                            System.exit(0);
-                        }
+                        //Wait before deciding to become leader again (first tick, or next of the periodic timer)
+                        this.startTick();
                     }
                 break;
             case MEMBER:
                       //Stop waiting for Leader
                     reset();
                     this.setMode(StateModes.IDLE);
-                    try {
-                        //Wait before deciding to become leader again
-                        this.clockTick = super.setTimeout(this.tickTimeout);
-                    } catch (ApplicationException e) {
-                        System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
-                        e.printStackTrace();
-                        System.exit(0);
-                    }
+                    //Wait before deciding to become leader again
+                    this.startTick();
                 break;
             case LEADER:
                     computeAverage();
@@ -397,14 +380,8 @@ public class ApplicationDRG extends Application {
                         sendGAM();
                     }
                     this.setMode(StateModes.IDLE);
-                    try {
-                        //Wait before deciding to become leader again
-                        this.clockTick = super.setTimeout(this.tickTimeout);
-                    } catch (ApplicationException e) {
-                        System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
-                        e.printStackTrace();
-                        System.exit(0);
-                    }
+                    //Wait before deciding to become leader again
+                    this.startTick();
                 break;
             default:
                 System.err.println("\n[stateTransition] Unexcpected State Mode: "+this.getMode());
@@ -414,6 +391,33 @@ public class ApplicationDRG extends Application {
     }
 
     
+    /**
+     * Set the periodic timer of the idle mode (ticks every tick timeout from now), if not set
+     */
+    private void startTick(){
+        try {
+            if(this.clockTick == ComEngine.NO_TIMEOUT){
+                this.clockTick = super.setPeriodicTimeout(this.tickTimeout);
+            }
+        } catch (ApplicationException e) {
+            System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
+            e.printStackTrace();
+            System.exit(0);
+        }
+    }
+    
+    
+    /**
+     * Remove the periodic timer of the idle mode (leaving it)
+     */
+    private void stopTick(){
+        if(this.clockTick != ComEngine.NO_TIMEOUT){
+            super.resetPeriodicTimeout(this.clockTick);
+            this.clockTick = ComEngine.NO_TIMEOUT;
+        }
+    }
+    
+    
     public String debugOnReceiveStatus(){
         return "Value="+super.getValue()+"; Estimate="+this.getEstimate();
     }
@@ -460,7 +464,7 @@ public class ApplicationDRG extends Application {
         
         //Set Sender (i)
         Integer self = super.getAppNode().getId();
-        String from = String.valueOf(self);
+        int from = self;
         
         if(this.sendByBroadcast){
             
@@ -486,7 +490,7 @@ public class ApplicationDRG extends Application {
                 sb.append(from);
         
                 //Send Message (i -> j) - Put it in the senders channel
-                super.sendMessage(from, receiverId.toString(), sb.toString());
+                super.sendMessage(from, receiverId, sb.toString());
                 
             }
         
@@ -501,8 +505,8 @@ public class ApplicationDRG extends Application {
         Integer self = super.getAppNode().getId();
 
         // Set Sender (i)
-        String from = String.valueOf(self);
-        String to = this.getLeader().toString();
+        int from = self;
+        int to = this.getLeader();
 
         //Create Message Data (format: TYPE|DATA)
         StringBuffer sb = new StringBuffer();
@@ -538,7 +542,7 @@ public class ApplicationDRG extends Application {
     private void sendGAM(){
         
         //Set Sender (i)
-        String from = String.valueOf(super.getAppNode().getId());
+        int from = super.getAppNode().getId();
         
         if(this.sendByBroadcast){
             
@@ -584,7 +588,7 @@ public class ApplicationDRG extends Application {
                 sb.append(this.getEstimate());
                 
                 //Send Message (i -> j) - Put it in the senders channel
-                super.sendMessage(from, receiverId.toString(), sb.toString());
+                super.sendMessage(from, receiverId, sb.toString());
         
             }
         }
@@ -636,7 +640,7 @@ public class ApplicationDRG extends Application {
         for (Message<?> msg : msgsReceived) {
 
             // Get Sender Id
-            Integer senderId = Integer.valueOf(msg.getFrom());
+            Integer senderId = msg.getFromId();
 
             // Get Message Data (format: TYPE|DATA;...;TYPEn|DATAn;)
             String msgData = (String) msg.getData();
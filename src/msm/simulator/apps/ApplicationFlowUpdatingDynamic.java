@@ -73,11 +73,11 @@ public class ApplicationFlowUpdatingDynamic extends Application {
     
 
     //Received Message Buffer
-    private Map<String, Message<?>> msgRcvBuffer;
+    private Map<Integer, Message<?>> msgRcvBuffer;
     
     //Tick timeout Config
     private int tickTimeout;
-    String clockEvtKey = null;
+    long clockEvtKey = ComEngine.NO_TIMEOUT;
     
     //Asynchronous strategy used, and parameters
     private AsynchronousStrategy asyncStrategy;
@@ -108,6 +108,8 @@ public class ApplicationFlowUpdatingDynamic extends Application {
     private double avgQ;
     private int qPeriod;
     private List<Integer> qPeriods;
+    //Initial value at the last state transition (changed by dynamism)
+    private BigDecimal qInitValue;
     
     //Function to compute
     private NetStatistics.AggFunctions function;
@@ -233,6 +235,11 @@ public class ApplicationFlowUpdatingDynamic extends Application {
             throw (ApplicationException)new ApplicationException(ce).initCause(ce);
         }        
         
+        //Report data is written by the event handlers (would not be rolled back)
+        if((this.useFD || this.useQuiescence) && (super.getComEngine().getExecutionMode() == ComEngine.ExecutionMode.OPTIMISTIC)){
+            throw new ApplicationException("Fault detector and quiescence are not supported by the optimistic execution");
+        }
+        
         super.setValue(super.getInitValue());
         this.setEstimate(super.getInitValue());
         super.setBaseValue(this.getEstimate()); //trick for nice result values
@@ -372,7 +379,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
         }
         
         //Clear message received buffer
-        this.msgRcvBuffer = new HashMap<String, Message<?>>();
+        this.msgRcvBuffer = new HashMap<Integer, Message<?>>();
         
         
     }
@@ -380,17 +387,44 @@ public class ApplicationFlowUpdatingDynamic extends Application {
     
     public void onReceive(Message<?> msg){
         
+        this.bufferMessage(msg);
+        
+        this.applyAsyncStrategy();
+    }
+    
+    
+    /**
+     * Buffer all the messages received at the same time, applying the asynchronous strategy
+     * (that may force the execution of the algorithm) only once for all of them
+     */
+    public void onReceiveBatch(List<Message<?>> msgs){
+        
+        for(Message<?> msg : msgs){
+            this.bufferMessage(msg);
+        }
+        
+        this.applyAsyncStrategy();
+    }
+    
+    
+    private void bufferMessage(Message<?> msg){
+        
         //Add message to local buffer (overwrite existing message from the same source)
         try {
 
-            Message<?> m = this.msgRcvBuffer.get(msg.getFrom());
+            Message<?> m = this.msgRcvBuffer.get(msg.getFromId());
             if(m != null && m.getSeqNum() > msg.getSeqNum()){
                 //Old message not add to buffer
 //                if(super.getAppNode().getId() == 20){
 //                    System.out.println("NOT ADDED ["+super.getAppNode().getId()+"] - \tRcv Msg Id: "+msg.getMsgId()+"; \tMsg seq: "+msg.getSeqNum());
 //                }
             } else {
-                this.msgRcvBuffer.put(msg.getFrom(), msg);
+                //Kept until processed (pooled message)
+                super.retainMessage(msg);
+                Message<?> old = this.msgRcvBuffer.put(msg.getFromId(), msg);
+                if(old != null){
+                    super.releaseMessage(old);
+                }
 //                if(super.getAppNode().getId() == 20){
 //                    System.out.println("ADDED ["+super.getAppNode().getId()+"] - \tRcv Msg Id: "+msg.getMsgId()+"; \tMsg seq: "+msg.getSeqNum());
 //                }
@@ -412,6 +446,10 @@ public class ApplicationFlowUpdatingDynamic extends Application {
             System.err.flush();
         }
         
+    }
+    
+    
+    private void applyAsyncStrategy(){
         
         if(super.getComEngine().getModel() == Model.Asynchronous){
 
@@ -419,9 +457,10 @@ public class ApplicationFlowUpdatingDynamic extends Application {
                 case ONLY_TIMEOUT:
                     // Check if message from all neighbors have been received
                     if (this.msgRcvBuffer.size() >= this.stateFlows.size()) {
-                        // Remove previously scheduled tick event
-                        if (this.clockEvtKey != null) {
-                            super.resetTimeout(this.clockEvtKey);
+                        // Remove periodic timer (set again from now by the onTick event)
+                        if (this.clockEvtKey != ComEngine.NO_TIMEOUT) {
+                            super.resetPeriodicTimeout(this.clockEvtKey);
+                            this.clockEvtKey = ComEngine.NO_TIMEOUT;
                         }
                         // Force execution of algorithm (onTick event)
                         this.onTick();
@@ -438,7 +477,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
     
     private void updateFD(Message<?> msg){
         
-        Integer senderId = Integer.valueOf(msg.getFrom());
+        Integer senderId = msg.getFromId();
         Integer msgTime = msg.getTime();
         
         //Register interrogation tag (time)
@@ -562,14 +601,19 @@ public class ApplicationFlowUpdatingDynamic extends Application {
         this.stateTransition(this.msgRcvBuffer.values());
         
         //Clear message buffer
+        for(Message<?> msg : this.msgRcvBuffer.values()){
+            super.releaseMessage(msg);
+        }
         this.msgRcvBuffer.clear();
         
         //Invoke message generation (send message to neighbors)
         this.messageGeneration();
         
-        //Schedule next tick
+        //Schedule next ticks (periodic timer)
         try {
-            this.clockEvtKey = super.setTimeout(this.tickTimeout);
+            if(this.clockEvtKey == ComEngine.NO_TIMEOUT){
+                this.clockEvtKey = super.setPeriodicTimeout(this.tickTimeout);
+            }
         } catch (ApplicationException e) {
             System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
             e.printStackTrace();
@@ -617,7 +661,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
         
         
             //Set Sender (i)
-            String from = String.valueOf(super.getAppNode().getId());
+            int from = super.getAppNode().getId();
         
             if(this.sendByBroadcast){
             
@@ -637,7 +681,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
             
                 if(neighboorsToSend.size() > 0){
                     //Send Broadcast Message (i -> 0..j) - Put it in the (single) sender channel
-                    super.broadcastMessage(from, sb.toString());
+                    super.broadcastMessage(super.acquireMessage(Message.TO_ANY_ID, sb.toString()));
                                 
                 } else {
                     int id = super.getAppNode().getId();
@@ -662,7 +706,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
                     sb.append(this.getEstimate());
         
                     //Send Message (i -> j) - Put it in the senders channel
-                    super.sendMessage(from, receiverId.toString(), sb.toString());   
+                    super.sendMessage(super.acquireMessage(receiverId, sb.toString()));   
         
                 }
             }
@@ -716,7 +760,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
         for (Message<?> msg : msgsReceived){
             
             //Get Sender Id
-            Integer senderId = Integer.valueOf(msg.getFrom());
+            Integer senderId = msg.getFromId();
             
             
             //Update FD data (if used)
@@ -884,6 +928,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
             this.prevQuiescent = this.quiescent;
             this.quiescent = this.determineQuiscence(super.getMathContext());
             this.prevEstimate = super.getValue();
+            this.qInitValue = super.getInitValue();
             this.registerQuiescenceData(time);
         }
         
@@ -903,7 +948,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
     private Integer selectNeighbor(boolean random, BigDecimal ei){
         if(random){
             //Get Random Neighbor (use tmpFlows instead of statFlows, because tmpFlows consider flows from new neighbors)
-            List<Integer> randomNeighborsList = SetUtils.randomizeSet(this.tmpFlows.keySet());
+            List<Integer> randomNeighborsList = SetUtils.randomizeSet(this.tmpFlows.keySet(), super.getRandom());
             return randomNeighborsList.get(0);
         } else {
             HashSet<Integer> candidates = new HashSet<Integer>();
@@ -922,7 +967,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
 //            System.out.println(super.getAppNode().getId()+" - ei="+ei+"; "+toStringMap("knownEstimates", this.knownEstimates));
             
             
-            List<Integer> randomNeighborsList = SetUtils.randomizeSet(candidates);
+            List<Integer> randomNeighborsList = SetUtils.randomizeSet(candidates, super.getRandom());
             
 //            System.out.println(super.getAppNode().getId()+" - "+"Selected Neighbor: "+randomNeighborsList.get(0));
             return randomNeighborsList.get(0);
@@ -1024,6 +1069,61 @@ public class ApplicationFlowUpdatingDynamic extends Application {
     }
     
 
+    /**
+     * Quiescent node that stopped sending messages (after the quiescence timeout).
+     * Without messages, its rounds (or ticks) keep the same flows (and estimate) only if all the 
+     * neighbors are assessed and sent, and if no FD is used (suspicions change with time).
+     */
+    public boolean isQuiescent(){
+        return this.useQuiescence && this.quiescent && (this.qTimeout < this.qPeriod) && this.msgRcvBuffer.isEmpty()
+                && !this.useFD && this.assessAllNeighbors && this.sendToAllNeighbors
+                && (super.getInitValue().compareTo(this.qInitValue) == 0)
+                && super.getAppNode().getArrivingNodes().isEmpty() && super.getAppNode().getLeavingNodes().isEmpty();
+    }
+    
+    
+    /**
+     * Skipped rounds extend the quiescence period (reported by skipQuiescentNodes)
+     */
+    public void skipRounds(int time, int rounds){
+        this.skipTicks(time, 1, rounds);
+    }
+    
+    
+    /**
+     * Skipped ticks extend the quiescence period (reported by skipQuiescentNodes)
+     */
+    public void skipTicks(int time, int period, int ticks){
+        
+        this.prevQuiescent = true;
+        this.qPeriod += ticks;
+    }
+    
+    
+    /**
+     * Skipped rounds or ticks of the nodes reported as quiescent at their time (once for all the nodes)
+     */
+    public void skipQuiescentNodes(int time, int period, int count, int nodes){
+        
+        this.fuReport.addQuiescentTicks(this.repetition, time, period, count, nodes);
+    }
+    
+    
+    /**
+     * Store the report once all the skipped ticks are accounted (the skip may reach the end time)
+     */
+    public void skipDone(){
+        
+        try {
+            this.fuReport.storeReport(this.useFD, this.useQuiescence, this.limitRepetition, this.limitTime, this.index, this.repetition, this.netType, this.outDir, super.getMathContext());
+        } catch (IOException e1) {
+            // TODO Auto-generated catch block
+            e1.printStackTrace();
+            System.exit(0);
+        }
+    }
+    
+    
     private BigDecimal estimate(Map<?,BigDecimal> allFlows){
         
         return super.getInitValue().subtract(sumMapValues(allFlows), super.getMathContext());
@@ -1342,6 +1442,7 @@ public class ApplicationFlowUpdatingDynamic extends Application {
  * Singleton class to store costume report data.
  * Implementation according to the classical singleton design pattern
  * Issues: not thread safe, sensible to multiple class loaders, not support serialize/deserialize sequences)
+ * Report data updates are synchronized (nodes may be executed concurrently by the parallel synchronous engine).
  * 
  * @author pcjesus
  *
@@ -1365,6 +1466,8 @@ class CustomFUReport {
     //Control variables
     private int currentTime;
     private int currentRepetition;
+    //Times with initialized data (may be reported out of order, by parallel logical processes)
+    private Set<Integer> initializedTimes;
     
     private CustomFUReport() {
         // Exists only to defeat instantiation.
@@ -1387,6 +1490,7 @@ class CustomFUReport {
         //Generic data
         this.currentTime = 0;
         this.currentRepetition = 0;
+        this.initializedTimes = new HashSet<Integer>();
     }
     
     public static CustomFUReport getInstance() {
@@ -1397,7 +1501,7 @@ class CustomFUReport {
     }
     
     
-    public void initCustomFUReport(boolean useFD, boolean useQuiescence, int rep){
+    public synchronized void initCustomFUReport(boolean useFD, boolean useQuiescence, int rep){
         
         if(useFD){
             this.initFDFUReport(rep);
@@ -1407,6 +1511,7 @@ class CustomFUReport {
             this.initQuiescenceFUReport(rep);
         }
         this.currentTime = -1;
+        this.initializedTimes.clear();
     }
     
     private void initFDFUReport(int rep){
@@ -1435,9 +1540,9 @@ class CustomFUReport {
     }
     
     
-    public void initTimeReportData(boolean useFD, boolean useQuiescence, int rep, int time){
-        if(this.currentTime != time){
-            this.currentTime = time;
+    public synchronized void initTimeReportData(boolean useFD, boolean useQuiescence, int rep, int time){
+        if(this.initializedTimes.add(time)){
+            this.currentTime = Math.max(this.currentTime, time);
             
             if(useFD){
                 this.initFDTimeData(rep,time);
@@ -1451,22 +1556,22 @@ class CustomFUReport {
     
     
     private void initFDTimeData(int rep, int time){
-            this.fdMistakes.get(rep).put(this.currentTime, 0);
-            this.fdNotSuspected.get(rep).put(this.currentTime, 0);
-            this.fdIncorreclySuspected.get(rep).put(this.currentTime, 0);
-            this.fdWithMistakes.get(rep).put(this.currentTime, 0);
-            this.fdWithNotSuspected.get(rep).put(this.currentTime, 0);
-            this.fdWithIncorreclySuspected.get(rep).put(this.currentTime, 0);
+            this.fdMistakes.get(rep).put(time, 0);
+            this.fdNotSuspected.get(rep).put(time, 0);
+            this.fdIncorreclySuspected.get(rep).put(time, 0);
+            this.fdWithMistakes.get(rep).put(time, 0);
+            this.fdWithNotSuspected.get(rep).put(time, 0);
+            this.fdWithIncorreclySuspected.get(rep).put(time, 0);
     }
     
     
     private void initQuiescenceTimeData(int rep, int time){
-        this.qNumNodes.get(rep).put(this.currentTime, 0);
-        this.qNumNodesLeaveQuiescence.get(rep).put(this.currentTime, 0);
+        this.qNumNodes.get(rep).put(time, 0);
+        this.qNumNodesLeaveQuiescence.get(rep).put(time, 0);
     }
     
     
-    public void storeReport(boolean useFD, boolean useQuiescence, int repetitionToStore, int timeToStore, 
+    public synchronized void storeReport(boolean useFD, boolean useQuiescence, int repetitionToStore, int timeToStore, 
             int simulatonNumber, int repNum, String netType, 
             String outputDir, MathContext mc) throws IOException {
         
@@ -1715,7 +1820,11 @@ class CustomFUReport {
             //Get values from all simulation repetitions
             Map<Integer, Integer> repValues = allValuesByRepetition.get(validRep);
             
-            for(int i=0; i < repValues.size(); i++){
+            //Times with values (not all times have values in the asynchronous model)
+            for(Integer i : repValues.keySet()){
+                if(i > time){
+                    continue;
+                }
                 if(total[i] != null){
                     total[i] = total[i].add(new BigDecimal(repValues.get(i)), mc);
                     count[i] = count[i] + 1;
@@ -1727,8 +1836,10 @@ class CustomFUReport {
             
         }
         
-        for(int i=0; (i < total.length) && (total[i] != null); i++){
-            result.put(i, total[i].divide(new BigDecimal(count[i]), mc));
+        for(int i=0; i < total.length; i++){
+            if(total[i] != null){
+                result.put(i, total[i].divide(new BigDecimal(count[i]), mc));
+            }
         }
         
         return result;
@@ -1772,55 +1883,63 @@ class CustomFUReport {
     }
     
     
-    public void addNotSuspected(Integer rep, Integer time, Integer value){
+    public synchronized void addNotSuspected(Integer rep, Integer time, Integer value){
         Integer prevValue = this.fdNotSuspected.get(rep).get(time);
         this.fdNotSuspected.get(rep).put(time, prevValue + value);
     }
     
-    public void addWithNotSuspected(Integer rep, Integer time){
+    public synchronized void addWithNotSuspected(Integer rep, Integer time){
         Integer prevValue = this.fdWithNotSuspected.get(rep).get(time);
         this.fdWithNotSuspected.get(rep).put(time, prevValue + 1);
     }
     
-    public void addIncorreclySuspected(Integer rep, Integer time, Integer value){
+    public synchronized void addIncorreclySuspected(Integer rep, Integer time, Integer value){
         Integer prevValue = this.fdIncorreclySuspected.get(rep).get(time);
         this.fdIncorreclySuspected.get(rep).put(time, prevValue + value);
     }
     
-    public void addWithIncorreclySuspected(Integer rep, Integer time){
+    public synchronized void addWithIncorreclySuspected(Integer rep, Integer time){
         Integer prevValue = this.fdWithIncorreclySuspected.get(rep).get(time);
         this.fdWithIncorreclySuspected.get(rep).put(time, prevValue + 1);
     }
     
-    public void addMistake(Integer rep, Integer time, Integer value){
+    public synchronized void addMistake(Integer rep, Integer time, Integer value){
         Integer prevValue = this.fdMistakes.get(rep).get(time);
         this.fdMistakes.get(rep).put(time, prevValue + value);
     }
     
-    public void addWithMistake(Integer rep, Integer time){
+    public synchronized void addWithMistake(Integer rep, Integer time){
         Integer prevValue = this.fdWithMistakes.get(rep).get(time);
         this.fdWithMistakes.get(rep).put(time, prevValue + 1);
     }
     
     
-    public void incQuiescentNodes(Integer rep, Integer time) {
+    public synchronized void incQuiescentNodes(Integer rep, Integer time) {
         Integer prevValue = this.qNumNodes.get(rep).get(time);
         this.qNumNodes.get(rep).put(time, prevValue + 1);
     }
     
-    public void incNodesLeavingQuiescence(Integer rep, Integer time) {
+    public synchronized void addQuiescentTicks(Integer rep, int time, int period, int ticks, int nodes) {
+        Map<Integer, Integer> numNodes = this.qNumNodes.get(rep);
+        for(int t=time; t < time + ticks * period; t+=period){
+            this.initTimeReportData(false, true, rep, t);
+            numNodes.put(t, numNodes.get(t) + nodes);
+        }
+    }
+    
+    public synchronized void incNodesLeavingQuiescence(Integer rep, Integer time) {
         Integer prevValue = this.qNumNodesLeaveQuiescence.get(rep).get(time);
         this.qNumNodesLeaveQuiescence.get(rep).put(time, prevValue + 1);
     }
     
-    public void setMaxPeriodByRep(Integer rep, Integer max) {
+    public synchronized void setMaxPeriodByRep(Integer rep, Integer max) {
         Integer currentMax = this.qMaxPeriodByRep.get(rep);
         if(max > currentMax){
             this.qMaxPeriodByRep.put(rep, max);
         }
     }
     
-    public void setMinPeriodByRep(Integer rep, Integer min) {
+    public synchronized void setMinPeriodByRep(Integer rep, Integer min) {
         Integer currentMin = this.qMinPeriodByRep.get(rep);
         if(min < currentMin){
             this.qMinPeriodByRep.put(rep, min);
@@ -1828,7 +1947,7 @@ class CustomFUReport {
     }
     
     
-    public void addQuiescencePeriod(Integer rep, Integer period) {
+    public synchronized void addQuiescencePeriod(Integer rep, Integer period) {
         Integer prevValue = this.qPeriodsDistribution.get(rep).get(period);
         if(prevValue == null){
             this.qPeriodsDistribution.get(rep).put(period, 1);
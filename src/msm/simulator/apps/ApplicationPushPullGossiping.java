@@ -58,16 +58,19 @@ public class ApplicationPushPullGossiping extends Application {
     private NetStatistics.AggFunctions function;
 
     private boolean active;
-    private String waitFor;
+    private Integer waitFor;
     
     private Map<Integer, BigDecimal> pullTargets;
 //    private Map<Integer, BigDecimal> massTracker;
     
     //Received Message Buffer
-    private Map<String, Message<?>> msgRcvBuffer;
+    private Map<Integer, Message<?>> msgRcvBuffer;
     
     //Tick timeout Config
     private int tickTimeout;
+    
+    //Periodic clock timer set (at the first tick)
+    private boolean tickTimerSet;
 
     public ApplicationPushPullGossiping(){
         super();
@@ -114,7 +117,7 @@ public class ApplicationPushPullGossiping extends Application {
         this.initState();
         
         this.cycleCount = this.cycle;
-        Random randCycle = new Random();
+        Random randCycle = super.getRandom();
         this.tickCount = randCycle.nextInt(this.cycle);
         
         this.epoch = (super.getComEngine().getGlobalTime() == 0)?0:((super.getComEngine().getGlobalTime() - 1) / this.getEpochLength()) + 1;
@@ -155,21 +158,25 @@ public class ApplicationPushPullGossiping extends Application {
     
     private void initState(){
         this.active = false;
-        this.waitFor = new String();
+        this.waitFor = null;
         
         this.pullTargets = new HashMap<Integer, BigDecimal>();
 //        this.massTracker = new HashMap<Integer, BigDecimal>();
         
         //Clear message received buffer
-        this.msgRcvBuffer = new HashMap<String, Message<?>>();
+        this.msgRcvBuffer = new HashMap<Integer, Message<?>>();
         
     }
    
     
     public void onReceive(Message<?> msg){
         
-        //Add message to local buffer (overwrite existing message from the same source)
-        this.msgRcvBuffer.put(msg.getFrom(), msg); 
+        //Add message to local buffer (overwrite existing message from the same source, kept until processed)
+        super.retainMessage(msg);
+        Message<?> old = this.msgRcvBuffer.put(msg.getFromId(), msg); 
+        if(old != null){
+            super.releaseMessage(old);
+        }
 
 /*        
         String msgData = (String)msg.getData();
@@ -195,8 +202,8 @@ public class ApplicationPushPullGossiping extends Application {
             String syncMsgData =  sb.toString();
         
             //Get Sender and Receiver
-            String from = msg.getTo();
-            String to = msg.getFrom();
+            int from = msg.getToId();
+            int to = msg.getFromId();
         
             //SEND Pull MESSAGE
             super.sendMessage(from, to, syncMsgData);
@@ -239,14 +246,20 @@ public class ApplicationPushPullGossiping extends Application {
         this.stateTransition(this.msgRcvBuffer.values());
         
         //Clear message buffer
+        for(Message<?> msg : this.msgRcvBuffer.values()){
+            super.releaseMessage(msg);
+        }
         this.msgRcvBuffer.clear();
         
         //Invoke message generation (send message to neighbors)
         this.messageGeneration();
         
-        //Schedule next tick
+        //Schedule next ticks (periodic timer)
         try {
-            super.setTimeout(this.tickTimeout);
+            if(!this.tickTimerSet){
+                super.setPeriodicTimeout(this.tickTimeout);
+                this.tickTimerSet = true;
+            }
         } catch (ApplicationException e) {
             System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
             e.printStackTrace();
@@ -264,13 +277,12 @@ public class ApplicationPushPullGossiping extends Application {
             sb.append(this.getEstimate());
             String syncMsgData =  sb.toString();
             
-            //Get Sender and Receiver
-            String from = String.valueOf(super.getAppNode().getId());
+            //Get Receiver
             //GETNEIGHBOR
-            String to = super.getAppNode().selectRandomNeighboor().toString();
+            int to = super.getAppNode().selectRandomNeighboor();
             
             //SEND Push Message
-            super.sendMessage(from, to, syncMsgData);
+            super.sendMessage(super.acquireMessage(to, syncMsgData));
             
             //Set Active Thread
             this.setActive(true);
@@ -284,8 +296,7 @@ public class ApplicationPushPullGossiping extends Application {
             this.cycleCount = cycle;
             
             //Set tick in next cycle
-            Random randCycle = new Random();
-            this.tickCount = randCycle.nextInt(this.cycle);
+            this.tickCount = super.getRandom().nextInt(this.cycle);
         }
 */
     }
@@ -317,10 +328,6 @@ public class ApplicationPushPullGossiping extends Application {
                 this.detectChurn();
         
         
-                //Set Sender (i)
-                String from = String.valueOf(super.getAppNode().getId());
-        
-        
                 //Generate all PULL Messages
                 for(Integer targetID : this.pullTargets.keySet()){
             
@@ -330,10 +337,10 @@ public class ApplicationPushPullGossiping extends Application {
                     String syncMsgData =  sb.toString();
         
                     //Set Receiver
-                    String to = targetID.toString();
+                    int to = targetID;
         
                     //SEND Pull MESSAGE
-                    super.sendMessage(from, to, syncMsgData);
+                    super.sendMessage(super.acquireMessage(to, syncMsgData));
                 }
         
                 //clear stored data of pull messages to send
@@ -356,10 +363,10 @@ public class ApplicationPushPullGossiping extends Application {
             
                     //Get Receiver
                     //GETNEIGHBOR
-                    String to = super.getAppNode().selectRandomNeighboor().toString();
+                    int to = super.getAppNode().selectRandomNeighboor(super.getRandom());
             
                     //SEND Push Message
-                    super.sendMessage(from, to, syncMsgData);
+                    super.sendMessage(super.acquireMessage(to, syncMsgData));
             
                     //Set Active Thread
                     this.setActive(true);
@@ -373,7 +380,7 @@ public class ApplicationPushPullGossiping extends Application {
                     this.cycleCount = this.cycle;
             
                     //Set tick in next cycle
-                    Random randCycle = new Random();
+                    Random randCycle = super.getRandom();
                     this.tickCount = randCycle.nextInt(this.cycle);
                 }
                 
@@ -384,6 +391,14 @@ public class ApplicationPushPullGossiping extends Application {
     }
     
     
+    /**
+     * The state only changes with the received PUSH/PULL messages
+     */
+    public boolean isEmptyInboxNoOp(){
+        return true;
+    }
+    
+    
     public void stateTransition(Collection<Message<?>> msgsReceived){
         
         //Allow new nodes only to participate in the next epoch
@@ -414,7 +429,7 @@ public class ApplicationPushPullGossiping extends Application {
                 } else if(msgType.equals(MSG_TYPE_PUSH)) {
                 
                     //Store data to further generate PULL messages 
-                    Integer senderId = Integer.valueOf(msg.getFrom());
+                    Integer senderId = msg.getFromId();
                     this.pullTargets.put(senderId, this.getEstimate());
 //                this.massTracker.put(senderId, this.massDifference(val));
                 
@@ -480,7 +495,7 @@ public class ApplicationPushPullGossiping extends Application {
         for(Integer nodeID : nodes){          
             
             //If target of a PUSH fails... 
-            if(this.isActive() && (Integer.valueOf(this.getWaitFor()).equals(nodeID))){
+            if(this.isActive() && nodeID.equals(this.getWaitFor())){
                 
                 //just stop waiting for the PULL message (no mass restore required)
                 this.setWaitFor(null);
@@ -583,7 +598,7 @@ public class ApplicationPushPullGossiping extends Application {
     /**
      * @return Returns the waitFor.
      */
-    private String getWaitFor() {
+    private Integer getWaitFor() {
         return waitFor;
     }
 
@@ -592,7 +607,7 @@ public class ApplicationPushPullGossiping extends Application {
     /**
      * @param waitFor The waitFor to set.
      */
-    private void setWaitFor(String waitFor) {
+    private void setWaitFor(Integer waitFor) {
         this.waitFor = waitFor;
     }
 
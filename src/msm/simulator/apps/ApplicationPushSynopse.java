@@ -66,11 +66,14 @@ public class ApplicationPushSynopse extends Application {
     
 
     //Received Message Buffer
-    private Map<String, Message<?>> msgRcvBuffer;
+    private Map<Integer, Message<?>> msgRcvBuffer;
     
     //Tick timeout Config
     private int tickTimeout;
     
+    //Periodic clock timer set (at the first tick)
+    private boolean tickTimerSet;
+    
 
     public ApplicationPushSynopse(){
         super();
@@ -116,8 +119,7 @@ public class ApplicationPushSynopse extends Application {
 //        super.setValue(w.divide(s, super.getMathContext()));
         
 //        this.cycleCount = this.cycle;
-//        Random randCycle = new Random();
-//        this.tickCount = randCycle.nextInt(this.cycle);
+//        this.tickCount = super.getRandom().nextInt(this.cycle);
         
     }
     
@@ -159,14 +161,14 @@ public class ApplicationPushSynopse extends Application {
         this.w = super.getInitValue();
         
         //Clear message received buffer
-        this.msgRcvBuffer = new HashMap<String, Message<?>>();
+        this.msgRcvBuffer = new HashMap<Integer, Message<?>>();
     }
    
     
     public void onReceive(Message<?> msg){
         
         //Add message to local buffer (overwrite existing message from the same source)
-        this.msgRcvBuffer.put(msg.getFrom(), msg); 
+        this.msgRcvBuffer.put(msg.getFromId(), msg); 
         
 /*        
         String msgData = (String)msg.getData();
@@ -219,9 +221,12 @@ public class ApplicationPushSynopse extends Application {
         //Invoke message generation (send message to neighbors)
         this.messageGeneration();
         
-        //Schedule next tick
+        //Schedule next ticks (periodic timer)
         try {
-            super.setTimeout(this.tickTimeout);
+            if(!this.tickTimerSet){
+                super.setPeriodicTimeout(this.tickTimeout);
+                this.tickTimerSet = true;
+            }
         } catch (ApplicationException e) {
             System.err.println("ERROR SETTING TIMOUT: "+e.getMessage());
             e.printStackTrace();
@@ -267,18 +272,18 @@ public class ApplicationPushSynopse extends Application {
             String msgData =  sb.toString();
             
             //Get Sender and Receivers
-            String from = String.valueOf(super.getAppNode().getId());
+            int from = super.getAppNode().getId();
             List<Integer> targets;
             if(super.getComEngine().useOverlay()){
-                targets = super.getAppNode().selectRandomOverlayNeighboors(nTargets-1);
+                targets = super.getAppNode().selectRandomOverlayNeighboors(nTargets-1, super.getRandom());
             } else {
-                targets = super.getAppNode().selectRandomNeighboors(nTargets-1);
+                targets = super.getAppNode().selectRandomNeighboors(nTargets-1, super.getRandom());
             }
             
             //SEND Push Messages (to itself and selected neighbors)
             super.sendMessage(from, from, msgData);
             for(Integer to : targets){
-                super.sendMessage(from, to.toString(), msgData);
+                super.sendMessage(from, to, msgData);
             }
             
             
@@ -291,8 +296,7 @@ public class ApplicationPushSynopse extends Application {
             this.cycleCount = cycle;
             
             //Set tick in next cycle
-            Random randCycle = new Random();
-            this.tickCount = randCycle.nextInt(this.cycle);
+            this.tickCount = super.getRandom().nextInt(this.cycle);
         }
 */
     }
@@ -323,18 +327,18 @@ public class ApplicationPushSynopse extends Application {
         String msgData =  sb.toString();
         
         //Get Sender and Receivers
-        String from = String.valueOf(super.getAppNode().getId());
+        int from = super.getAppNode().getId();
         List<Integer> targets;
         if(super.getComEngine().useOverlay()){
-            targets = super.getAppNode().selectRandomOverlayNeighboors(nTargets-1);
+            targets = super.getAppNode().selectRandomOverlayNeighboors(nTargets-1, super.getRandom());
         } else {
-            targets = super.getAppNode().selectRandomNeighboors(nTargets-1);
+            targets = super.getAppNode().selectRandomNeighboors(nTargets-1, super.getRandom());
         }
         
         //SEND Push Messages (to itself and selected neighbors)
         super.sendMessage(from, from, msgData);
         for(Integer to : targets){
-            super.sendMessage(from, to.toString(), msgData);
+            super.sendMessage(from, to, msgData);
         }
         
     }
@@ -367,11 +371,13 @@ public class ApplicationPushSynopse extends Application {
         }
         
         
-        //Process buffered data
-        this.s = this.sumBufferValues(bufS);
-        this.w = this.sumBufferValues(bufW);
-        bufS.clear();
-        bufW.clear();
+        //Process buffered data (none before the first messages arrive: keep the initial values)
+        if(!bufS.isEmpty()){
+            this.s = this.sumBufferValues(bufS);
+            this.w = this.sumBufferValues(bufW);
+            bufS.clear();
+            bufW.clear();
+        }
         
         //set new estimate
         this.setEstimate(this.estimate());
@@ -4,11 +4,11 @@
 package msm.simulator.network;
 
 import java.math.MathContext;
-import java.util.TreeMap;
 
 import msm.simulator.ComEngine;
 import msm.simulator.Config;
 import msm.simulator.Event;
+import msm.simulator.SimulationEvents;
 import msm.simulator.exceptions.ApplicationException;
 import msm.simulator.exceptions.DynamicsException;
 import msm.simulator.util.ArrayUtils;
@@ -51,8 +51,8 @@ public class Dynamics {
     public static String VC_OP_MULTI = "*";
     public static String VC_OP_ADD = "+";
     
-    //Churn Events
-    private TreeMap<Integer, Event<Integer>> dynamicEvents;
+    //Scheduler of the dynamic events (shared with the results samples of the main loop)
+    private SimulationEvents dynamicEvents;
     
     
     public Dynamics(Config config) 
@@ -116,7 +116,6 @@ public class Dynamics {
             }
         }
         
-        this.dynamicEvents = new TreeMap<Integer, Event<Integer>>();
         this.dynamismOccured = false;
         
         
@@ -221,16 +220,14 @@ public class Dynamics {
     
     /**
      * Create dynamic events (i.e. churn and value change), according to loaded definitions
+     * (events of the same time are all kept, churn processed before value change)
      * 
+     * @param events scheduler of the simulation events
      * @param timeLimit
      */
-    public void scheduleEvents(int timeLimit){
+    public void scheduleEvents(SimulationEvents events, int timeLimit){
         
-        //IMPORTANTE: Value Change will replace Churn Events at the same time (losing them).
-        //TODO: Use a Set of events at the same time to allow both events to occure at the same time.
-        
-        //Clear events
-        this.dynamicEvents.clear();
+        this.dynamicEvents = events;
         
         //Schedule churn events
         this.scheduleChurnEvents(timeLimit);
@@ -272,8 +269,7 @@ public class Dynamics {
                         t = t + this.churnAtTime[i];
 
                         // Create churn event
-                        this.dynamicEvents.put(t, new Event<Integer>(t, null,
-                                Event.EventType.CHURN, i));
+                        this.dynamicEvents.add(t, Event.EventType.CHURN, i);
 
                         // Increment repetition
                         j++;
@@ -305,8 +301,7 @@ public class Dynamics {
                         t = t + this.churnAtTime[i];
 
                         // Create churn event
-                        this.dynamicEvents.put(t, new Event<Integer>(t, null,
-                                Event.EventType.CHURN, i));
+                        this.dynamicEvents.add(t, Event.EventType.CHURN, i);
 
                         // Increment repetition
                         j++;
@@ -354,8 +349,7 @@ public class Dynamics {
                         t = t + this.valueChangeAtTime[i];
 
                         // Create value change event
-                        this.dynamicEvents.put(t, new Event<Integer>(t, null, 
-                                Event.EventType.VALUE_CHANGE, i));
+                        this.dynamicEvents.add(t, Event.EventType.VALUE_CHANGE, i);
 
                         // Increment repetition
                         j++;
@@ -387,8 +381,7 @@ public class Dynamics {
                         t = t + this.valueChangeAtTime[i];
 
                         // Create churn event
-                        this.dynamicEvents.put(t, new Event<Integer>(t, null,
-                                Event.EventType.VALUE_CHANGE, i));
+                        this.dynamicEvents.add(t, Event.EventType.VALUE_CHANGE, i);
 
                         // Increment repetition
                         j++;
@@ -408,48 +401,32 @@ public class Dynamics {
     
     
     /**
-     * Return time next scheduled dynamic event (churn or value change), 
-     * or maximum time if none exists
+     * Process a dynamic event (pulled from the simulation events)
+     * 
+     * @param evtType Event type (churn or value change)
+     * @param index Index of the churn or value change definition (event data)
      * 
-     * @return time of the next churn event
+     * @return number of nodes leaving/arriving or changing their value
      */
-    public int nextDynamismEventTime(){
-        
-        if(this.dynamicEvents.size() > 0){
-            return this.dynamicEvents.firstKey();
-        } else {
-            return Integer.MAX_VALUE;
-        }
-    }
-    
-    
-    public int processEvent(Event<Integer> dynamicEvt, Network net, SpatialDataDistribution dd, 
+    public int processEvent(Event.EventType evtType, int index, Network net, SpatialDataDistribution dd, 
                             ComEngine ce, Config conf, Integer simulationIndex, 
                             Integer repetitionCount) throws DynamicsException {
         
-        switch (dynamicEvt.getType()) {
+        switch (evtType) {
             case CHURN:
-                return churn(dynamicEvt, net, dd, ce, conf, simulationIndex, repetitionCount);
+                return applyChurn(index, net, dd, ce, conf, simulationIndex, repetitionCount);
             case VALUE_CHANGE:
-                return valueChange(dynamicEvt, net, ce.getMathContext());
+                return applyValueChange(index, net, ce.getMathContext());
             default:
-                throw new DynamicsException("Dynamic event type not supported (invalid): "+dynamicEvt.getType()+". ");
+                throw new DynamicsException("Dynamic event type not supported (invalid): "+evtType+". ");
         }
     }
     
-    /**
-     * Pull (get and remove) next dynamic event
-     * @return next dynamic event to process
-     */
-    public Event<Integer> pullNextEvent(){
-        return this.dynamicEvents.pollFirstEntry().getValue();
-    }
-    
     
     /**
      * Apply churn model to the given network (at the beginning of each round)
      * 
-     * @param churnEvt Churn Event
+     * @param index Churn definition index
      * @param net Target network
      * @param dd Spatial Data Distribution
      * @param ce Communication Engine
@@ -461,12 +438,9 @@ public class Dynamics {
      * 
      * @throws DynamicsException
      */
-    private int churn(Event<Integer> churnEvt, Network net, SpatialDataDistribution dd, ComEngine ce, Config conf, 
+    private int applyChurn(int index, Network net, SpatialDataDistribution dd, ComEngine ce, Config conf, 
             Integer simulationIndex, Integer repetitionCount) throws DynamicsException {
         
-        //Get churn configuration index
-        int index = churnEvt.getData();
-        
         //Get churn rate
         double rate = this.churnRates[index];
         int churnNum;
@@ -513,7 +487,7 @@ public class Dynamics {
     /**
      * Apply value change event to the given network (at the beginning of each round)
      * 
-     * @param valueChangeEvt Value Change Event
+     * @param index Value change definition index
      * @param net Target network
      * @param dd Spatial Data Distribution
      * @param ce Communication Engine
@@ -525,10 +499,7 @@ public class Dynamics {
      * 
      * @throws DynamicsException
      */
-    private int valueChange(Event<Integer> valueChangeEvt, Network net, MathContext mc) throws DynamicsException {
-        
-        //Get value change configuration index
-        int index = valueChangeEvt.getData();
+    private int applyValueChange(int index, Network net, MathContext mc) throws DynamicsException {
         
         //Get value change parameters
         double rate = this.valueChangeRates[index];
@@ -557,6 +528,7 @@ public class Dynamics {
      * @throws DynamicsException
      * @deprecated
      */
+    @Deprecated
     private int churn(int iteration, Network net, SpatialDataDistribution dd, ComEngine ce, Config conf, 
             Integer simulationIndex, Integer repetitionCount) throws DynamicsException {
         
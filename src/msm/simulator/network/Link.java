@@ -28,6 +28,9 @@ public class Link implements Serializable {
     private int status;
     private int appStatus;
     
+    //Position in the links table of the network
+    transient int position;
+    
     
     
     /**
@@ -240,7 +243,7 @@ public class Link implements Serializable {
     public boolean contains(Collection<Integer> lNodes){
         
         for(Integer nodeId : lNodes){
-            if( this.n1.equals(nodeId) || this.n2.equals(nodeId) ){
+            if( this.n1.equals(nodeId.intValue()) || this.n2.equals(nodeId.intValue()) ){
                 return true;
             }
         }
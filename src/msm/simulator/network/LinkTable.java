@@ -0,0 +1,453 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Links of the network, kept in insertion order and indexed by the pair of nodes
+ * (long key with the lower and the higher node id, open addressing with linear probing)
+ * and by node (incident links of each node id, in insertion order).
+ *
+ * Links are appended to an array (removed ones leave a hole, reclaimed when the array
+ * is full: only adding moves the links). Getting the link of a pair of nodes is O(1),
+ * removing a link or the links of a node is O(degree). Access by position is O(1) while
+ * there are no holes, and a scan of the array otherwise.
+ *
+ * If the same pair of nodes has several links, the index keeps the first one (as a
+ * search of the list would). Saved as an ArrayList (same format as a list of links).
+ *
+ * @author pcjesus
+ *
+ */
+class LinkTable extends AbstractList<Link> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    //Hash table: pair key and first link of the pair (null if the slot is free)
+    private long[] keys;
+    private Link[] values;
+    private int mask;
+
+    //Links in insertion order (null if removed), up to end
+    private Link[] links;
+    private int end;
+    private int size;
+
+    //Incident links by node id
+    private Link[][] incident;
+    private int[] degrees;
+
+
+    LinkTable(){
+        this.keys = new long[INITIAL_CAPACITY << 1];
+        this.values = new Link[INITIAL_CAPACITY << 1];
+        this.mask = (INITIAL_CAPACITY << 1) - 1;
+        this.links = new Link[INITIAL_CAPACITY];
+        this.incident = new Link[INITIAL_CAPACITY][];
+        this.degrees = new int[INITIAL_CAPACITY];
+    }
+
+
+    LinkTable(Collection<Link> links){
+        this();
+        for(Link l : links){
+            this.add(l);
+        }
+    }
+
+
+    /**
+     * Copy of the table with the nodes of a copy of the network: each link copied between
+     * the nodes of the same ids, in the same positions (hash table and incident links copied
+     * as they are, not indexed again)
+     */
+    LinkTable(LinkTable table, NodeTable nodes){
+        this.links = new Link[table.links.length];
+        for(int i=0; i < table.end; i++){
+            Link l = table.links[i];
+            if(l != null){
+                Link copy = new Link(nodes.get(l.getNode1().getId()), nodes.get(l.getNode2().getId()), l.getStatus(), l.getAppStatus());
+                copy.position = i;
+                this.links[i] = copy;
+            }
+        }
+        this.end = table.end;
+        this.size = table.size;
+
+        this.keys = table.keys.clone();
+        this.values = new Link[table.values.length];
+        this.mask = table.mask;
+        for(int i=0; i < table.values.length; i++){
+            if(table.values[i] != null){
+                this.values[i] = this.links[table.values[i].position];
+            }
+        }
+
+        this.incident = new Link[table.incident.length][];
+        this.degrees = table.degrees.clone();
+        for(int id=0; id < table.incident.length; id++){
+            Link[] nodeLinks = table.incident[id];
+            if(nodeLinks != null){
+                Link[] copy = new Link[nodeLinks.length];
+                for(int i=0; i < this.degrees[id]; i++){
+                    copy[i] = this.links[nodeLinks[i].position];
+                }
+                this.incident[id] = copy;
+            }
+        }
+    }
+
+
+    /**
+     * Key of the pair of nodes (same for both directions)
+     */
+    private static long key(int n1, int n2){
+        int min = Math.min(n1, n2);
+        int max = Math.max(n1, n2);
+        return (((long) min) << 32) | (max & 0xFFFFFFFFL);
+    }
+
+    private static long key(Link l){
+        return key(l.getNode1().getId(), l.getNode2().getId());
+    }
+
+
+    @Override
+    public boolean add(Link l){
+
+        if(this.end == this.links.length){
+            this.makeRoom();
+        }
+        l.position = this.end;
+        this.links[this.end++] = l;
+        this.size++;
+
+        //Index the first link of the pair
+        long key = key(l);
+        int slot = this.find(key);
+        if(this.values[slot] == null){
+            this.keys[slot] = key;
+            this.values[slot] = l;
+        }
+
+        this.addIncident(l.getNode1().getId(), l);
+        if(l.getNode2().getId() != l.getNode1().getId()){
+            this.addIncident(l.getNode2().getId(), l);
+        }
+
+        return true;
+    }
+
+
+    /**
+     * @return first link between the nodes (any direction), null if none exists
+     */
+    Link get(int n1, int n2){
+        return this.values[this.find(key(n1, n2))];
+    }
+
+
+    /**
+     * @return links of the node, in insertion order
+     */
+    List<Link> getIncident(int id){
+        List<Link> result = new ArrayList<Link>();
+        if((id >= 0) && (id < this.degrees.length)){
+            for(int i=0; i < this.degrees[id]; i++){
+                result.add(this.incident[id][i]);
+            }
+        }
+        return result;
+    }
+
+
+    @Override
+    public boolean remove(Object o){
+
+        if(!(o instanceof Link)){
+            return false;
+        }
+        Link l = (Link) o;
+        if((l.position >= this.end) || (this.links[l.position] != l)){
+            return false;
+        }
+
+        this.links[l.position] = null;
+        this.size--;
+        if(this.size == 0){
+            this.end = 0;
+        }
+
+        int id1 = l.getNode1().getId();
+        int id2 = l.getNode2().getId();
+        this.removeIncident(id1, l);
+        if(id2 != id1){
+            this.removeIncident(id2, l);
+        }
+
+        //Index the next link of the same pair, if any
+        long key = key(l);
+        int slot = this.find(key);
+        if(this.values[slot] == l){
+            Link next = null;
+            for(int i=0; i < this.degrees[id1]; i++){
+                if(key(this.incident[id1][i]) == key){
+                    next = this.incident[id1][i];
+                    break;
+                }
+            }
+            if(next != null){
+                this.values[slot] = next;
+            } else {
+                this.deleteSlot(slot);
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Remove all the links of the node
+     *
+     * @return number of removed links
+     */
+    int removeIncident(int id){
+        if((id < 0) || (id >= this.degrees.length) || (this.degrees[id] == 0)){
+            return 0;
+        }
+        int count = this.degrees[id];
+        Link[] nodeLinks = Arrays.copyOf(this.incident[id], count);
+        for(Link l : nodeLinks){
+            this.remove(l);
+        }
+        return count;
+    }
+
+
+    @Override
+    public Link get(int index){
+        if((index < 0) || (index >= this.size)){
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+this.size);
+        }
+        if(this.size == this.end){
+            return this.links[index];
+        }
+        
+        //Holes of removed links: not reclaimed on reads (positions of the links kept)
+        int count = index;
+        for(int i=0; i < this.end; i++){
+            if((this.links[i] != null) && (count-- == 0)){
+                return this.links[i];
+            }
+        }
+        throw new IllegalStateException("Links table inconsistent: "+this.size+" links");
+    }
+
+
+    @Override
+    public Link remove(int index){
+        Link l = this.get(index);
+        this.remove(l);
+        return l;
+    }
+
+
+    @Override
+    public int size(){
+        return this.size;
+    }
+
+
+    @Override
+    public void clear(){
+        Arrays.fill(this.links, 0, this.end, null);
+        Arrays.fill(this.values, null);
+        for(int id=0; id < this.degrees.length; id++){
+            if(this.degrees[id] > 0){
+                Arrays.fill(this.incident[id], 0, this.degrees[id], null);
+                this.degrees[id] = 0;
+            }
+        }
+        this.end = 0;
+        this.size = 0;
+    }
+
+
+    /**
+     * Links in insertion order (removing through the iterator is supported)
+     */
+    @Override
+    public Iterator<Link> iterator(){
+        return new Iterator<Link>(){
+
+            private int next = this.skip(0);
+            private Link last;
+
+            private int skip(int i){
+                while((i < end) && (links[i] == null)){
+                    i++;
+                }
+                return i;
+            }
+
+            public boolean hasNext(){
+                return this.next < end;
+            }
+
+            public Link next(){
+                if(this.next >= end){
+                    throw new NoSuchElementException();
+                }
+                this.last = links[this.next];
+                this.next = this.skip(this.next + 1);
+                return this.last;
+            }
+
+            public void remove(){
+                if(this.last == null){
+                    throw new IllegalStateException();
+                }
+                LinkTable.this.remove(this.last);
+                this.last = null;
+                if(size == 0){
+                    this.next = 0;
+                }
+            }
+        };
+    }
+
+
+    private void addIncident(int id, Link l){
+        if(id >= this.degrees.length){
+            int length = Math.max(id + 1, this.degrees.length << 1);
+            this.incident = Arrays.copyOf(this.incident, length);
+            this.degrees = Arrays.copyOf(this.degrees, length);
+        }
+        Link[] nodeLinks = this.incident[id];
+        if(nodeLinks == null){
+            nodeLinks = new Link[4];
+        } else if(this.degrees[id] == nodeLinks.length){
+            nodeLinks = Arrays.copyOf(nodeLinks, nodeLinks.length << 1);
+        }
+        nodeLinks[this.degrees[id]++] = l;
+        this.incident[id] = nodeLinks;
+    }
+
+
+    private void removeIncident(int id, Link l){
+        Link[] nodeLinks = this.incident[id];
+        int degree = this.degrees[id];
+        for(int i=0; i < degree; i++){
+            if(nodeLinks[i] == l){
+                //Keep the insertion order
+                System.arraycopy(nodeLinks, i + 1, nodeLinks, i, degree - i - 1);
+                nodeLinks[--this.degrees[id]] = null;
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Slot of the key in the hash table, or the free slot where it should be added
+     */
+    private int find(long key){
+        int slot = hash(key) & this.mask;
+        while((this.values[slot] != null) && (this.keys[slot] != key)){
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+
+    /**
+     * Free a slot of the hash table, moving back the following entries of its probe sequence
+     */
+    private void deleteSlot(int slot){
+        int free = slot;
+        int next = (slot + 1) & this.mask;
+        while(this.values[next] != null){
+            int home = hash(this.keys[next]) & this.mask;
+            //Move the entry if its home slot is not between the free slot and it (cyclically)
+            if(((next - home) & this.mask) >= ((next - free) & this.mask)){
+                this.keys[free] = this.keys[next];
+                this.values[free] = this.values[next];
+                free = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.values[free] = null;
+    }
+
+
+    /**
+     * Reclaim the holes of the removed links, or grow the arrays (and the hash table)
+     */
+    private void makeRoom(){
+        if(this.size > (this.links.length >> 1)){
+            this.compact();
+            this.links = Arrays.copyOf(this.links, this.links.length << 1);
+
+            //Rehash the pairs (first links kept)
+            long[] oldKeys = this.keys;
+            Link[] oldValues = this.values;
+            this.keys = new long[this.links.length << 1];
+            this.values = new Link[this.links.length << 1];
+            this.mask = this.keys.length - 1;
+            for(int i=0; i < oldValues.length; i++){
+                if(oldValues[i] != null){
+                    int slot = this.find(oldKeys[i]);
+                    this.keys[slot] = oldKeys[i];
+                    this.values[slot] = oldValues[i];
+                }
+            }
+        } else {
+            this.compact();
+        }
+    }
+
+
+    /**
+     * Move the links to the start of the array (insertion order kept)
+     */
+    private void compact(){
+        int n = 0;
+        for(int i=0; i < this.end; i++){
+            Link l = this.links[i];
+            if(l != null){
+                l.position = n;
+                this.links[n++] = l;
+            }
+        }
+        Arrays.fill(this.links, n, this.end, null);
+        this.end = n;
+    }
+
+
+    private static int hash(long key){
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+
+    /**
+     * Saved as a list of links
+     */
+    private Object writeReplace(){
+        return new ArrayList<Link>(this);
+    }
+
+}
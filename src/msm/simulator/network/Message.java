@@ -10,15 +10,26 @@ package msm.simulator.network;
  */
 public class Message<DATA> {
     
+    //Node id of the destination of a broadcast message (any neighbor)
+    public static final int TO_ANY_ID = -1;
+    
+    //Message id (sender and sequence number), set when sent
+    private long id;
+    //Legacy string id (set explicitly)
     private String msgId;
     
-    private String from;
-    private String to;
+    private int from;
+    private int to;
     private long seqNum;
     private DATA data;
     
     private int time; //send/creation time
     
+    //Pool of the message (null if not pooled), pending uses, and released state (pool debug mode)
+    MessagePool pool;
+    int refs;
+    boolean released;
+    
     
     /**
      * Constructors
@@ -27,26 +38,66 @@ public class Message<DATA> {
     public Message(){
     }
     
-    public Message(String from, String to, DATA data){
+    public Message(int from, int to, DATA data){
         this.from = from;
         this.to = to;
         this.data = data;
     }
     
+    /**
+     * @deprecated use the node ids constructor
+     */
+    @Deprecated
+    public Message(String from, String to, DATA data){
+        this(parseNodeId(from), parseNodeId(to), data);
+    }
+    
     
+    /**
+     * @deprecated use the node ids constructor (the message id is set when sent)
+     */
+    @Deprecated
     public Message(String msgId, String from, String to, long seqNum, DATA data){
+        this(parseNodeId(from), parseNodeId(to), data);
         this.msgId = msgId;
-        this.from = from;
-        this.to = to;
         this.seqNum = seqNum;
-        this.data = data;
     }
 
     
+    /**
+     * Identifier of the message: sender id and sequence number (unique among the messages 
+     * in transit to a node)
+     * 
+     * @param from sender id
+     * @param seqNum sender sequence number
+     * @return message id
+     */
+    public static long generateId(int from, long seqNum){
+        return (((long) from) << 32) | (seqNum & 0xFFFFFFFFL);
+    }
+    
+    
+    /**
+     * Parse a node id of the legacy string representation (MessageBroadcast.TO_ANY for any neighbor)
+     */
+    static int parseNodeId(String nodeId){
+        return MessageBroadcast.TO_ANY.equals(nodeId) ? TO_ANY_ID : Integer.parseInt(nodeId);
+    }
+    
+    
+    /**
+     * String representation of a node id (MessageBroadcast.TO_ANY for any neighbor)
+     */
+    static String nodeIdToString(int nodeId){
+        return (nodeId == TO_ANY_ID) ? MessageBroadcast.TO_ANY : String.valueOf(nodeId);
+    }
+    
+    
     /**
      * @return Returns the data.
      */
     public Object getData() {
+        this.checkReleased();
         return data;
     }
 
@@ -55,37 +106,84 @@ public class Message<DATA> {
      * @param data The data to set.
      */
     public void setData(DATA data) {
+        this.checkReleased();
         this.data = data;
     }
 
     
+    /**
+     * @return Returns the sender id.
+     */
+    public int getFromId() {
+        this.checkReleased();
+        return from;
+    }
+
+    
+    /**
+     * @param from The sender id to set.
+     */
+    public void setFromId(int from) {
+        this.from = from;
+    }
+
+    
     /**
      * @return Returns the from.
+     * @deprecated use getFromId
      */
+    @Deprecated
     public String getFrom() {
-        return from;
+        return nodeIdToString(from);
     }
 
     
     /**
      * @param from The from to set.
+     * @deprecated use setFromId
      */
+    @Deprecated
     public void setFrom(String from) {
-        this.from = from;
+        this.from = parseNodeId(from);
+    }
+
+    
+    /**
+     * @return Returns the message id.
+     */
+    public long getId() {
+        this.checkReleased();
+        return id;
     }
 
     
     /**
-     * @return Returns the msgId.
+     * @param id The message id to set.
      */
+    public void setId(long id) {
+        this.checkReleased();
+        this.id = id;
+    }
+
+    
+    /**
+     * @return Returns the msgId (if not set: sequence number, sender and destination).
+     * @deprecated use getId
+     */
+    @Deprecated
     public String getMsgId() {
-        return msgId;
+        if(msgId != null){
+            return msgId;
+        }
+        return seqNum + "-" + nodeIdToString(from) + "-" + nodeIdToString(to);
     }
 
     
     /**
      * @param msgId The msgId to set.
+     * @deprecated use setId
      */
+    @Deprecated
     public void setMsgId(String msgId) {
         this.msgId = msgId;
     }
@@ -95,6 +193,7 @@ public class Message<DATA> {
      * @return Returns the seqNum.
      */
     public long getSeqNum() {
+        this.checkReleased();
         return seqNum;
     }
 
@@ -103,23 +202,63 @@ public class Message<DATA> {
      * @param seqNum The seqNum to set.
      */
     public void setSeqNum(long seqNum) {
+        this.checkReleased();
         this.seqNum = seqNum;
     }
 
     
+    /**
+     * @return Returns the destination id.
+     */
+    public int getToId() {
+        this.checkReleased();
+        return to;
+    }
+
+    
+    /**
+     * @param to The destination id to set.
+     */
+    public void setToId(int to) {
+        this.to = to;
+    }
+
+    
     /**
      * @return Returns the to.
+     * @deprecated use getToId
      */
+    @Deprecated
     public String getTo() {
-        return to;
+        return nodeIdToString(to);
     }
 
     
     /**
      * @param to The to to set.
+     * @deprecated use setToId
      */
+    @Deprecated
     public void setTo(String to) {
-        this.to = to;
+        this.to = parseNodeId(to);
+    }
+    
+    /**
+     * Clear the message fields (message recycled by its pool)
+     */
+    void reset(){
+        this.id = 0;
+        this.msgId = null;
+        this.seqNum = 0;
+        this.data = null;
+        this.time = 0;
+    }
+    
+    
+    private void checkReleased(){
+        if(this.released){
+            throw new IllegalStateException("Message used after release (message pool debug mode)");
+        }
     }
     
     public String toString(){
@@ -144,6 +283,7 @@ public class Message<DATA> {
      * @return the time
      */
     public int getTime() {
+        this.checkReleased();
         return time;
     }
 
@@ -152,6 +292,7 @@ public class Message<DATA> {
      * @param time the time to set
      */
     public void setTime(int time) {
+        this.checkReleased();
         this.time = time;
     }
     
@@ -15,7 +15,7 @@ public class MessageBroadcast<DATA> extends Message<DATA> {
     
     public static final String TO_ANY = "ANY";
     
-    private List<String> toList;
+    private List<Integer> toList;
     
     /**
      * Constructors
@@ -25,15 +25,38 @@ public class MessageBroadcast<DATA> extends Message<DATA> {
         super();
     }
     
+    public MessageBroadcast(int from, long seqNum, DATA data){
+        super(from, TO_ANY_ID, data);
+        this.setSeqNum(seqNum);
+        this.toList = new ArrayList<Integer>();
+    }
+    
+    
+    public MessageBroadcast(int from, List<Integer> to, long seqNum, DATA data){
+        this(from, seqNum, data);
+        this.toList.addAll(to);
+    }
+    
+    
+    /**
+     * @deprecated use the node ids constructor (the message id is set when sent)
+     */
+    @Deprecated
     public MessageBroadcast(String msgId, String from, long seqNum, DATA data){
         super(msgId, from, TO_ANY, seqNum, data);
-        this.toList = new ArrayList<String>();
+        this.toList = new ArrayList<Integer>();
     }
     
     
+    /**
+     * @deprecated use the node ids constructor (the message id is set when sent)
+     */
+    @Deprecated
     public MessageBroadcast(String msgId, String from, List<String> to, long seqNum, DATA data){
-        super(msgId, from, TO_ANY, seqNum, data);
-        this.toList = new ArrayList<String>(to);
+        this(msgId, from, seqNum, data);
+        for(String id : to){
+            this.toList.add(Integer.valueOf(id));
+        }
     }
     
     
@@ -41,8 +64,16 @@ public class MessageBroadcast<DATA> extends Message<DATA> {
      * Add brodcast destination
      * @param to
      */
+    public void addBrodcastDestination(int to){
+        this.toList.add(Integer.valueOf(to));
+    }
+    
+    /**
+     * @deprecated use the node id method
+     */
+    @Deprecated
     public void addBrodcastDestination(String to){
-        this.toList.add(to);
+        this.addBrodcastDestination(Integer.parseInt(to));
     }
     
     /**
@@ -57,14 +88,14 @@ public class MessageBroadcast<DATA> extends Message<DATA> {
     
     public String toString(){
         StringBuffer sb = new StringBuffer(this.getClass().getSimpleName()+"[ID=");
-        sb.append(this.getMsgId());
+        sb.append(this.getId());
         sb.append(";TO=");
-        sb.append(this.getTo());
+        sb.append(nodeIdToString(this.getToId()));
         sb.append("(");
         sb.append(this.toList);
         sb.append(")");
         sb.append(";FROM=");
-        sb.append(this.getFrom());
+        sb.append(nodeIdToString(this.getFromId()));
         sb.append(";SEQN=");
         sb.append(this.getSeqNum());
         sb.append(";DATA=");
@@ -0,0 +1,189 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.util.Arrays;
+
+
+/**
+ * Pool of the messages sent by the applications (sequential asynchronous execution).
+ *
+ * A pooled message is acquired by the sender, and owned by the engine once sent: it keeps
+ * the number of its pending uses (deliveries to the receivers, and references retained by
+ * the applications), and is recycled when all of them are done. A received message is only
+ * valid during the receive handler, unless retained by the application (then released when
+ * no longer used).
+ *
+ * In debug mode released messages are not recycled, but marked: any later use of the message
+ * (or a second release) throws an IllegalStateException.
+ *
+ * When the pool is disabled (synchronous model or partitioned execution) acquired messages
+ * are new unpooled messages, ignored by the pool.
+ *
+ * @author pcjesus
+ *
+ */
+public class MessagePool {
+
+    private boolean enabled;
+    private boolean debug;
+
+    //Recycled messages
+    private Message<?>[] free;
+    private int size;
+
+    //Metrics
+    private long acquired;
+    private long allocated;
+
+
+    public MessagePool(){
+        this.free = new Message<?>[64];
+    }
+
+
+    /**
+     * Get a message from the pool (a new unpooled message if the pool is disabled)
+     *
+     * @param from sender id
+     * @param to receiver id (Message.TO_ANY_ID for a broadcast)
+     * @param data message payload
+     */
+    @SuppressWarnings("unchecked")
+    public Message<Object> acquire(int from, int to, Object data){
+
+        if(!this.enabled){
+            return new Message<Object>(from, to, data);
+        }
+
+        Message<Object> msg;
+        if(this.size > 0){
+            msg = (Message<Object>) this.free[--this.size];
+            this.free[this.size] = null;
+            msg.setFromId(from);
+            msg.setToId(to);
+            msg.setData(data);
+        } else {
+            msg = new Message<Object>(from, to, data);
+            msg.pool = this;
+            this.allocated++;
+        }
+        this.acquired++;
+
+        return msg;
+    }
+
+
+    /**
+     * Account the deliveries of a sent message (recycled when all of them are done, or now if none)
+     *
+     * @param deliveries number of receive events that carry or refer the message
+     */
+    public void sent(Message<?> msg, int deliveries){
+        if(msg.pool == this){
+            this.check(msg);
+            msg.refs += deliveries;
+            if(msg.refs == 0){
+                this.recycle(msg);
+            }
+        }
+    }
+
+
+    /**
+     * Keep the message after its receive handler (or after sent, by the sender)
+     */
+    public void retain(Message<?> msg){
+        if(msg.pool == this){
+            this.check(msg);
+            msg.refs++;
+        }
+    }
+
+
+    /**
+     * End a use of the message (delivery done, or reference retained by an application)
+     */
+    public void release(Message<?> msg){
+        if(msg.pool == this){
+            this.check(msg);
+            if(msg.refs <= 0){
+                throw new IllegalStateException("Message released more times than retained: id="+msg.getId());
+            }
+            if(--msg.refs == 0){
+                this.recycle(msg);
+            }
+        }
+    }
+
+
+    private void check(Message<?> msg){
+        if(msg.released){
+            throw new IllegalStateException("Message used after release");
+        }
+    }
+
+
+    private void recycle(Message<?> msg){
+
+        if(this.debug){
+            //Never reused: later uses detected
+            msg.released = true;
+            return;
+        }
+
+        msg.reset();
+        if(this.size == this.free.length){
+            this.free = Arrays.copyOf(this.free, this.size << 1);
+        }
+        this.free[this.size++] = msg;
+    }
+
+
+    /**
+     * @param enabled true if messages are recycled (sequential asynchronous execution)
+     * @param debug true to detect the uses of released messages (not recycled)
+     */
+    public void setMode(boolean enabled, boolean debug){
+        this.enabled = enabled;
+        this.debug = debug;
+    }
+
+
+    public boolean isEnabled(){
+        return this.enabled;
+    }
+
+
+    /**
+     * Drop the recycled messages (new simulation)
+     */
+    public void clear(){
+        Arrays.fill(this.free, 0, this.size, null);
+        this.size = 0;
+        this.acquired = 0;
+        this.allocated = 0;
+    }
+
+
+    /**
+     * @return number of messages acquired from the pool
+     */
+    public long getAcquired(){
+        return this.acquired;
+    }
+
+    /**
+     * @return number of messages created by the pool (acquired and not recycled)
+     */
+    public long getAllocated(){
+        return this.allocated;
+    }
+
+    @Override
+    public String toString(){
+        return "Message pool - acquired: "+this.acquired+", allocated: "+this.allocated+", free: "+this.size;
+    }
+
+}
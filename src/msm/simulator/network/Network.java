@@ -6,6 +6,8 @@
 package msm.simulator.network;
 
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -14,15 +16,16 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -73,7 +76,7 @@ public abstract class Network implements Serializable, Cloneable {
     private int numDeadNodes;
     private Map<Integer, Node> deadNodes;
 
-    //Links list (over all the network)
+    //Links list (over all the network), indexed by pair of nodes and by node (see LinkTable)
     private List<Link> links;
 
     //Application specific for count (should be elsewhere)
@@ -89,6 +92,12 @@ public abstract class Network implements Serializable, Cloneable {
     private List<Integer> partitions;
     
     private int diameter;
+    
+    //Snapshot of the nodes links (CSR), built on first use, not saved with the network
+    private transient volatile NetworkTopology topology;
+    
+    //Position, eccentricity and counters of the active and dead nodes (by id), not saved
+    private transient NodeState nodeState;
 
 
     /**
@@ -96,28 +105,35 @@ public abstract class Network implements Serializable, Cloneable {
      */
     
     public Network() {
-        this.nodes = new HashMap<Integer, Node>();
-        this.links = new ArrayList<Link>();
+        this.nodeState = new NodeState(0);
+        this.nodes = new NodeTable(this.nodeState, 0);
+        this.links = new LinkTable();
         
-        this.deadNodes = new HashMap<Integer, Node>();
+        this.deadNodes = new NodeTable(this.nodeState, 0);
     }
 
     public Network(int num_nodes) {
         this.initNumNodes = num_nodes;
         this.totalNumNodes = num_nodes;
         this.numNodes = num_nodes;
-        this.nodes = new HashMap<Integer, Node>(num_nodes);
-        this.links = new ArrayList<Link>();
+        this.nodeState = new NodeState(num_nodes);
+        this.nodes = new NodeTable(this.nodeState, num_nodes);
+        this.links = new LinkTable();
         this.numClouds = 0;
         this.cloudNodes = new HashSet<Integer>();
         
         this.numDeadNodes = 0;
-        this.deadNodes = new HashMap<Integer, Node>();
+        this.deadNodes = new NodeTable(this.nodeState, 0);
         
         this.partitions = new ArrayList<Integer>();
         this.maxPartitionSize = 0;
     }
     
+    /**
+     * Copy of the network: nodes and links are copied (they hold the state of a simulation),
+     * so a copy is O(nodes + links). Shared until changed by the copy: the topology snapshot
+     * and the node link sets (copy on write).
+     */
     public Network(Network net){
         
         this.type = new String(net.getType());
@@ -126,38 +142,37 @@ public abstract class Network implements Serializable, Cloneable {
         this.totalNumNodes = net.getTotalNumNodes();
         
         this.numNodes = net.getNumNodes();
-        this.nodes = new HashMap<Integer, Node>(net.getNumNodes());
-        for(Integer id : net.getNodesKeySet()){
-            this.nodes.put(new Integer(id), new Node(net.getNode(id)));
+        this.nodeState = new NodeState(net.getTotalNumNodes());
+        this.nodes = new NodeTable(this.nodeState, net.getTotalNumNodes());
+        for(Node n : net.getNodes()){
+            this.nodeTable().put(n.getId(), new Node(n));
         }
         
         this.numDeadNodes = net.getNumDeadNodes();
-        this.deadNodes = new HashMap<Integer, Node>(net.getNumDeadNodes());
-        for(Integer id : net.getDeadNodesKeySet()){
-            this.deadNodes.put(new Integer(id), new Node(net.getDeadNode(id)));
+        this.deadNodes = new NodeTable(this.nodeState, net.getTotalNumNodes());
+        for(Node n : net.getDeadNodes()){
+            this.deadNodeTable().put(n.getId(), new Node(n));
         }
         
-        this.links = new ArrayList<Link>(net.getNumOfLinks());
-        for(Link l : net.getLinks()){
-            Node n1 = this.nodes.get(l.getNode1().getId());
-            Node n2 = this.nodes.get(l.getNode2().getId());
-            this.links.add(new Link(n1, n2, l.getStatus(), l.getAppStatus()));
-        }
+        this.links = new LinkTable(net.linkTable(), this.nodeTable());
+        
+        //Same links: share the topology snapshot (immutable)
+        this.topology = net.getTopology().withVersion(this.nodeState.getLinksVersion());
         
         this.numClouds = net.getNumClouds();
         this.cloudNodes = new HashSet<Integer>(net.getNumClouds());
         for(Integer id : net.getCloudNodes()){
-            this.cloudNodes.add(new Integer(id));
+            this.cloudNodes.add(Integer.valueOf(id));
         }
         
         this.maxPartitionSize = net.getMaxPartitionSize();
         this.maxPartitionNodes = new HashSet<Integer>(net.getMaxPartitionSize());
         for(Integer id : net.getMaxPartitionNodes()){
-            this.maxPartitionNodes.add(new Integer(id));
+            this.maxPartitionNodes.add(Integer.valueOf(id));
         }
         this.partitions = new ArrayList<Integer>(net.getNumberOfPartitions());
         for(Integer psize : net.getPartitions()){
-            this.partitions.add(new Integer(psize));
+            this.partitions.add(Integer.valueOf(psize));
         }
         
         this.diameter = net.getDiameter();
@@ -189,7 +204,14 @@ public abstract class Network implements Serializable, Cloneable {
       String netType = config.getValue(Config.PARAM_NETWORK_TYPE);
       String className = Network.class.getName() + netType;
       Class<?> networkClass = Class.forName(className);
-      Network net = (Network)networkClass.newInstance();
+      Network net;
+      try {
+          net = (Network)networkClass.getConstructor().newInstance();
+      } catch (NoSuchMethodException e) {
+          throw (InstantiationException) new InstantiationException(className).initCause(e);
+      } catch (InvocationTargetException e) {
+          throw (InstantiationException) new InstantiationException(className).initCause(e.getCause());
+      }
       
       //Initialize Network Instance
       net.init(netType, config);
@@ -304,16 +326,61 @@ public abstract class Network implements Serializable, Cloneable {
      * @param nodes The nodes to set.
      */
     public void setNodes(Map<Integer, Node> nodes) {
-        this.nodes = new HashMap<Integer, Node>(nodes);
+        this.nodeTable().detachAll();
+        this.nodes = new NodeTable(this.nodeState, nodes);
+        this.invalidateTopology();
     }
     
     
     public Node getNode(int id){
-        return this.nodes.get(id);
+        return this.nodeTable().get(id);
     }
     
     public void addNode(Integer id, Node node){
-        this.nodes.put(id, node);
+        this.nodeTable().put(id.intValue(), node);
+        this.invalidateTopology();
+    }
+    
+    
+    /**
+     * @return active nodes by id (nodes maps are NodeTable, declared as Map: saved format)
+     */
+    private NodeTable nodeTable(){
+        return (NodeTable) this.nodes;
+    }
+    
+    private NodeTable deadNodeTable(){
+        return (NodeTable) this.deadNodes;
+    }
+    
+    
+    /**
+     * Get the snapshot of the links of the active nodes (CSR), built again if the links of
+     * the nodes changed since the last one
+     * 
+     * @return current topology of the network
+     */
+    public NetworkTopology getTopology(){
+        long version = this.nodeState.getLinksVersion();
+        NetworkTopology t = this.topology;
+        if((t == null) || (t.getVersion() != version)){
+            synchronized (this) {
+                t = this.topology;
+                if((t == null) || (t.getVersion() != version)){
+                    t = NetworkTopology.build(this.nodes.values(), version);
+                    this.topology = t;
+                }
+            }
+        }
+        return t;
+    }
+    
+    
+    /**
+     * Drop the topology snapshot (to be used if the nodes links sets are changed directly)
+     */
+    public void invalidateTopology(){
+        this.topology = null;
     }
     
     
@@ -349,16 +416,17 @@ public abstract class Network implements Serializable, Cloneable {
      * @param deadNodes The dead nodes to set.
      */
     public void setDeadNodes(Map<Integer, Node> deadNodes) {
-        this.deadNodes = new HashMap<Integer, Node>(deadNodes);
+        this.deadNodeTable().detachAll();
+        this.deadNodes = new NodeTable(this.nodeState, deadNodes);
     }
     
     
     public Node getDeadNode(int id){
-        return this.deadNodes.get(id);
+        return this.deadNodeTable().get(id);
     }
     
     public void addDeadNode(Integer id, Node node){
-        this.deadNodes.put(id, node);
+        this.deadNodeTable().put(id.intValue(), node);
     }
     
     
@@ -368,7 +436,7 @@ public abstract class Network implements Serializable, Cloneable {
     
     
     public boolean isDeadNode(int id){
-        return this.deadNodes.containsKey(id);
+        return this.deadNodeTable().containsKey(id);
     }
     
     
@@ -443,42 +511,39 @@ public abstract class Network implements Serializable, Cloneable {
     }
     
     public List<Link> getLinks(Node n){
-        List<Link> result = new ArrayList<Link>();
-        for(Link l : this.links){
-            if(l.contains(n)){
-                result.add(l);
-            }
-        }
-        return result;
+        return this.linkTable().getIncident(n.getId());
     }
     
     public List<Link> getLinks(int n){
-        List<Link> result = new ArrayList<Link>();
-        for(Link l : this.links){
-            if(l.contains(n)){
-                result.add(l);
-            }
-        }
-        return result;
+        return this.linkTable().getIncident(n);
     }
     
     public Link getLink(Node n1, Node n2){
-        for(Link l : this.links){
-            if(l.equals(n1, n2)){
-                return l;
-            }
-        }
-        return null;
+        return this.linkTable().get(n1.getId(), n2.getId());
     }
     
     
     public Link getLink(int n1, int n2){
-        for(Link l : this.links){
-            if(l.equals(n1, n2)){
-                return l;
-            }
-        }
-        return null;
+        return this.linkTable().get(n1, n2);
+    }
+    
+    
+    /**
+     * @return links table (declared as List: saved format)
+     */
+    private LinkTable linkTable(){
+        return (LinkTable) this.links;
+    }
+    
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        
+        //Saved as a map of nodes and a list of links: index them
+        this.nodeState = new NodeState(this.totalNumNodes);
+        this.nodes = new NodeTable(this.nodeState, this.nodes);
+        this.deadNodes = new NodeTable(this.nodeState, this.deadNodes);
+        this.links = new LinkTable(this.links);
     }
     
     public void resetLinksAppStatus(boolean useOverlay){
@@ -493,7 +558,7 @@ public abstract class Network implements Serializable, Cloneable {
 
     
     protected void addLink(Node n1, Node n2, int status){
-        this.links.add(new Link(n1, n2, status));
+        this.linkTable().add(new Link(n1, n2, status));
         n1.addLink(n2.getId());
         n2.addLink(n1.getId());
         n1.addOverlayLink(n2.getId());
@@ -504,7 +569,7 @@ public abstract class Network implements Serializable, Cloneable {
     protected void addLink(Integer id1, Integer id2, int status){
         Node n1 = this.getNode(id1);
         Node n2 = this.getNode(id2);
-        this.links.add(new Link(n1, n2, status));
+        this.linkTable().add(new Link(n1, n2, status));
         n1.addLink(id2);
         n2.addLink(id1);
         n1.addOverlayLink(id2);
@@ -520,7 +585,7 @@ public abstract class Network implements Serializable, Cloneable {
         } else {
             boolean result = n1.delLink(n2.getId());
             result = result && n2.delLink(n1.getId());
-            return result && this.links.remove(l);
+            return result && this.linkTable().remove(l);
         }
     }
     
@@ -533,7 +598,7 @@ public abstract class Network implements Serializable, Cloneable {
         } else {
             boolean result = this.getNode(id1).delLink(id2);
             result = result && this.getNode(id2).delLink(id1);
-            return result && this.links.remove(l);
+            return result && this.linkTable().remove(l);
         }
     }
     
@@ -679,6 +744,7 @@ public abstract class Network implements Serializable, Cloneable {
   
     
     /** @deprecated **/
+    @Deprecated
     public BigDecimal calculateDeviation(MathContext mathContext){
         BigDecimal a = RatingCalc.divide(this.numClouds, this.numNodes, mathContext);
         BigDecimal s = BigDecimal.ZERO;
@@ -701,6 +767,7 @@ public abstract class Network implements Serializable, Cloneable {
     
     //RMSE "Normalized?!..."
     /** @deprecated **/
+    @Deprecated
     public BigDecimal calculateRootMeanSquareError(MathContext mathContext){
         BigDecimal nc = new BigDecimal(this.numClouds, mathContext);
         BigDecimal nn = new BigDecimal(this.numNodes, mathContext);
@@ -955,6 +1022,7 @@ public abstract class Network implements Serializable, Cloneable {
     
     //NEW (Normalized for COUNT - Fraction relatively to the correct (mean) value: RMSE/trueValue)
     /** @deprecated **/
+    @Deprecated
     public BigDecimal calculateRootMeanSquareError2(NetStatistics.AggFunctions aggfunc, BigDecimal trueValue, MathContext mathContext){
         BigDecimal n = new BigDecimal(this.numNodes, mathContext);
         BigDecimal ss = NetStatistics.sumNodeSquaredValues(this.nodes.values(), mathContext);
@@ -972,6 +1040,7 @@ public abstract class Network implements Serializable, Cloneable {
     
     //NEW (Normalized for COUNT - Fraction relatively to the correct squared (mean) value: RMSE/trueValue^2)
     /** @deprecated **/
+    @Deprecated
     public BigDecimal calculateMeanSquareError2(NetStatistics.AggFunctions aggfunc, BigDecimal trueValue, MathContext mathContext){
         BigDecimal n = new BigDecimal(this.numNodes, mathContext);
         BigDecimal ss = NetStatistics.sumNodeSquaredValues(this.nodes.values(), mathContext);
@@ -986,11 +1055,13 @@ public abstract class Network implements Serializable, Cloneable {
      * @deprecated
      */
     
+    @Deprecated
     public BigDecimal calculateCorrectValue(NetStatistics.AggFunctions aggfunc, MathContext mathContext){        
         return NetStatistics.calculateCorrectValue(aggfunc, this.nodes.values(), mathContext);
     }
     
     /** @deprecated **/
+    @Deprecated
     public BigDecimal calculateRMSE(MathContext mathContext){
         BigDecimal nc = new BigDecimal(this.numClouds, mathContext);
         BigDecimal nn = new BigDecimal(this.numNodes, mathContext);
@@ -1016,6 +1087,7 @@ public abstract class Network implements Serializable, Cloneable {
     }
     
     /** @deprecated **/
+    @Deprecated
     public BigDecimal calculateMSE(MathContext mathContext){
         BigDecimal nc = new BigDecimal(this.numClouds, mathContext);
         BigDecimal nn = new BigDecimal(this.numNodes, mathContext);
@@ -1042,12 +1114,8 @@ public abstract class Network implements Serializable, Cloneable {
     
     public BigDecimal calculateMeanDegree(MathContext mathContext){
 
-        double sum = 0;
-        
         //Sum total of nodes links
-        for (Node n : this.nodes.values()) {
-            sum = sum + n.numberOfLinks();      
-        }
+        double sum = this.getTopology().getLinks().getNumLinks();
         
         //Return mean node links      
         return new BigDecimal(sum, mathContext).divide(new BigDecimal(this.getNumNodes(), mathContext), mathContext);
@@ -1057,10 +1125,10 @@ public abstract class Network implements Serializable, Cloneable {
 
         int min = this.numNodes;
         
-        //Sum total of nodes links
-        for (Node n : this.nodes.values()) {
-            if(min > n.numberOfLinks()){
-                min = n.numberOfLinks();
+        NetworkTopology.Adjacency adj = this.getTopology().getLinks();
+        for (Integer id : this.nodes.keySet()) {
+            if(min > adj.getDegree(id)){
+                min = adj.getDegree(id);
             }
         }
         
@@ -1073,10 +1141,10 @@ public abstract class Network implements Serializable, Cloneable {
 
         int max = 0;
         
-        //Sum total of nodes links
-        for (Node n : this.nodes.values()) {
-            if(max < n.numberOfLinks()){
-                max = n.numberOfLinks();
+        NetworkTopology.Adjacency adj = this.getTopology().getLinks();
+        for (Integer id : this.nodes.keySet()) {
+            if(max < adj.getDegree(id)){
+                max = adj.getDegree(id);
             }
         }
         
@@ -1134,18 +1202,36 @@ public abstract class Network implements Serializable, Cloneable {
      */
     public int computeNodeEccentricity(Node n){
        
-        //Compute the shortest path distance to all nodes
-        Map<Integer, Double> shortPathDist = Dijkstra(n);
-        
-        //Compute max, i.e. eccentricity
-        double max = 0;
-        for(Double e : shortPathDist.values()){
-            if((e != Double.MAX_VALUE) && (e > max)){
-                max = e;
+        //Compute the shortest path distance (number of hops) to all nodes: breadth-first search
+        NetworkTopology.Adjacency adj = this.getTopology().getLinks();
+        int[] neighbors = adj.getNeighbors();
+        int[] dist = new int[adj.getNumRows()];
+        Arrays.fill(dist, -1);
+        int[] queue = new int[adj.getNumRows()];
+        int head = 0;
+        int tail = 0;
+        
+        if(!adj.hasRow(n.getId())){
+            return 0;
+        }
+        dist[n.getId()] = 0;
+        queue[tail++] = n.getId();
+        
+        //Compute max, i.e. eccentricity (distance of the last visited node)
+        int max = 0;
+        while(head < tail){
+            int u = queue[head++];
+            max = dist[u];
+            for(int i=adj.getStart(u), end=adj.getEnd(u); i < end; i++){
+                int v = neighbors[i];
+                if(adj.hasRow(v) && (dist[v] < 0)){
+                    dist[v] = dist[u] + 1;
+                    queue[tail++] = v;
+                }
             }
         }
         
-        return (int)max;
+        return max;
     }
     
     
@@ -1177,53 +1263,6 @@ public abstract class Network implements Serializable, Cloneable {
     }
     
     
-    private Map<Integer, Double> Dijkstra(Node start){
-        
-        //Initializations
-        HashMap<Integer, Double> dist = new HashMap<Integer, Double>(this.numNodes);
-        //previous -> Only needed to keep track of the shortest paths
-//        HashMap<Integer, Integer> previous = new HashMap<Integer, Integer>(this.numNodes); 
-        for(Integer nodeID  : this.getNodesKeySet()){
-            dist.put(nodeID, Double.MAX_VALUE); // Unknown distance function from source to v
-//            previous.put(nodeID, null); // Previous node in optimal path from source
-        }
-        
-        dist.put(start.getId(), 0.0); // Distance from source to source
-        Set<Integer> q = new HashSet<Integer>(this.getNodesKeySet()); // All nodes in the graph are unoptimized - thus are in Q
-        
-        // The main loop
-        while(!q.isEmpty()){
-            
-            Double min = Double.MAX_VALUE;
-            Integer u = null; //vertex in q with smallest distance in dist[]
-            for(Integer id : q){
-                if(dist.get(id) < min){
-                    min = dist.get(id);
-                    u = id;
-                }
-            }
-            
-            if(min == Double.MAX_VALUE){
-                break; // all remaining vertices are inaccessible from source
-            }
-            
-            q.remove(u);
-            Set<Integer> unvisitedNeighbors = SetUtils.intersection(this.nodes.get(u).getLinks(), q);
-            for(Integer v : unvisitedNeighbors){
-                double alt = dist.get(u) + 1; // dist_between(u, v) always equal to one in this case
-                if(alt < dist.get(v)){
-                    dist.put(v, alt);
-//                    previous.put(v, u);
-                    //possible optimization here: decrease-key v in q (Reorder v in the Queue: see wikipedia)
-                }
-            }
-        }
-        
-        return dist;
-        
-    }
-    
-    
     public int calculateNumberOfLinks(){
         
         return this.links.size();
@@ -1273,6 +1312,7 @@ public abstract class Network implements Serializable, Cloneable {
     /**
      * @deprecated
      */
+    @Deprecated
     public String createResultPlotGroup(String outputDir, List<String> files, int numSim) throws IOException {
         String filename = getReportPrefixName() + "_" + numSim + ".gp";
 
@@ -1304,6 +1344,7 @@ public abstract class Network implements Serializable, Cloneable {
     
     
     /** @deprecated **/
+    @Deprecated
     public String createGenericResultPlot(String outputDir, String appType, Integer simIndex, String resultType, 
             List<BigDecimal> xValues, List<BigDecimal> yValues) throws IOException {
         
@@ -1326,6 +1367,7 @@ public abstract class Network implements Serializable, Cloneable {
     }
     
     /** @deprecated **/
+    @Deprecated
     public String createGenericResultPlotGroup(String outputDir, List<String> files, String resultType, int numSim,
                                                String title, String xlabel, String ylabel, 
                                                String graphType) 
@@ -1529,6 +1571,7 @@ public abstract class Network implements Serializable, Cloneable {
      * @deprecated
      * @return
      */
+    @Deprecated
     public BigDecimal getMeanValue(MathContext mathContext){
         
         BigDecimal sum = BigDecimal.ZERO;
@@ -1740,27 +1783,17 @@ public abstract class Network implements Serializable, Cloneable {
     }
     
     
+    /*
+     * Totals of the active and dead nodes (sums of the counters columns)
+     */
+    
     public long getTotalMessageSend(){
-    	long result = 0;
-        for (Node n : this.nodes.values()) {
-                result += n.getMsgSendCount();
-        }
-        for (Node n : this.deadNodes.values()) {    
-            result += n.getMsgSendCount();
-        }
-        return result;
+        return this.nodeState.getTotalSent();
     }
     
     
     public long getTotalMessageRcv(){
-    	long result = 0;
-        for (Node n : this.nodes.values()) {
-                result += n.getMsgRcvCount();
-        }
-        for (Node n : this.deadNodes.values()) {
-            result += n.getMsgRcvCount();
-    }
-        return result;
+        return this.nodeState.getTotalReceived();
     }
     
 /*    
@@ -1789,14 +1822,7 @@ public abstract class Network implements Serializable, Cloneable {
 */    
     
     public long getTotalMessageLoss(){
-        long result = 0;
-        for (Node n : this.nodes.values()) {
-                result += n.getMsgLossCount();
-        }
-        for (Node n : this.deadNodes.values()) {
-            result += n.getMsgLossCount();
-        }
-        return result;
+        return this.nodeState.getTotalLost();
     }
 
     
@@ -1805,9 +1831,9 @@ public abstract class Network implements Serializable, Cloneable {
         
         String fileName = net.getReportPrefixName() + sufix + ".net";
         
-        //Serialize the original class object
+        //Serialize the original class object (buffered: many small writes)
         FileOutputStream fo = new FileOutputStream(outputDir + fileName);
-        ObjectOutputStream so = new ObjectOutputStream(fo);
+        ObjectOutputStream so = new ObjectOutputStream(new BufferedOutputStream(fo));
         so.writeObject(net);
         so.flush();
         so.close();
@@ -1818,9 +1844,9 @@ public abstract class Network implements Serializable, Cloneable {
 
     public static Network loadFromFile(String outputDir, String fileName) throws FileNotFoundException, IOException, ClassNotFoundException {
         
-        //Deserialize in to new class object
+        //Deserialize in to new class object (buffered: many small reads)
         FileInputStream fi = new FileInputStream(outputDir + fileName);
-        ObjectInputStream si = new ObjectInputStream(fi);  
+        ObjectInputStream si = new ObjectInputStream(new BufferedInputStream(fi));  
         Network net = (Network) si.readObject();
         si.close();
         
@@ -2472,14 +2498,15 @@ public abstract class Network implements Serializable, Cloneable {
         
         //Remove Nodes from active map and add to dead map
         for(Integer nodeId : leavingNodes){
-            this.deadNodes.put(nodeId, this.getNode(nodeId));
+            this.deadNodeTable().put(nodeId, this.getNode(nodeId));
             this.numDeadNodes++;
-            this.nodes.remove(nodeId);
+            this.nodeTable().remove(nodeId.intValue());
             this.numNodes--;
         }
         
         //Remove all nodes links
         this.removeNodeLinks(rNodes);
+        this.invalidateTopology();
         
 /*        
         //Re-connect and Initialize disconnected cloud nodes
@@ -2523,7 +2550,7 @@ public abstract class Network implements Serializable, Cloneable {
             //Create nodes at a random position
             double x = randPos.nextDouble();
             double y = randPos.nextDouble();
-            this.addNode(new Integer(nextID), new Node(nextID, x, y));
+            this.addNode(Integer.valueOf(nextID), new Node(nextID, x, y));
             this.numNodes++;
             
             //Connect new node to the network (establish links)
@@ -2561,7 +2588,7 @@ public abstract class Network implements Serializable, Cloneable {
             this.getNode(newNode).getApplication().init2();
             
             //Schedule initial clock tick event for node to start processing
-            ce.addApplicationEvent(0, String.valueOf(newNode), EventType.TICK, null);
+            ce.addApplicationEvent(0, newNode, EventType.TICK, null);
         }
         
         
@@ -2646,12 +2673,9 @@ public abstract class Network implements Serializable, Cloneable {
      * @param lNodes - node's links to be removed
      */
     private void removeNodeLinks(Collection<Integer> lNodes){
-        ListIterator<Link> lit = this.links.listIterator();
-        while(lit.hasNext()){
-            Link l = lit.next();
-            if(l.contains(lNodes)){
-                lit.remove();
-            }
+        LinkTable table = this.linkTable();
+        for(Integer nodeId : lNodes){
+            table.removeIncident(nodeId);
         }
     }
     
@@ -2680,16 +2704,26 @@ public abstract class Network implements Serializable, Cloneable {
         List<Integer> netNodes = new ArrayList<Integer>(this.getNodesKeySet());
         int netSize = netNodes.size();
         
+        //Nodes not yet in a partition
+        NetworkTopology.Adjacency adj = this.getTopology().getLinks();
+        boolean[] pending = new boolean[adj.getNumRows()];
+        for(Integer id : netNodes){
+            pending[id] = true;
+        }
+        int[] queue = new int[netSize];
+        
         int cloudPartitionIndex = -1;
         int maxIndex = -1;
         int maxSize = 0;
         Set<Integer> maxNodes = new HashSet<Integer>();
         this.clearPartitionsData();
         
-        while(!netNodes.isEmpty()){
-            Integer currentNode = netNodes.get(0);
+        for(Integer currentNode : netNodes){
+            if(!pending[currentNode]){
+                continue;
+            }
             Set<Integer> partitionNodes = new HashSet<Integer>();
-            getPartition(currentNode, netNodes, partitionNodes);
+            getPartition(adj, currentNode, pending, queue, partitionNodes);
             int partitionSize = partitionNodes.size();
             
             if(partitionSize == netSize){
@@ -2758,7 +2792,12 @@ public abstract class Network implements Serializable, Cloneable {
         Integer currentNode = netNodes.get(0);
         Set<Integer> partitionNodes = new HashSet<Integer>();
         
-        getPartition(currentNode, netNodes, partitionNodes);
+        NetworkTopology.Adjacency adj = this.getTopology().getLinks();
+        boolean[] pending = new boolean[adj.getNumRows()];
+        for(Integer id : netNodes){
+            pending[id] = true;
+        }
+        getPartition(adj, currentNode, pending, new int[netSize], partitionNodes);
         int partitionSize = partitionNodes.size();
         
         if(partitionSize == netSize){
@@ -2772,16 +2811,31 @@ public abstract class Network implements Serializable, Cloneable {
     }
     
     
-    private Set<Integer> getPartition(Integer currentNode, List<Integer> nodesToCheck, Set<Integer> partition){
-        nodesToCheck.remove(currentNode);
-        for(Integer neighbor : this.getNode(currentNode).getLinks()){
-            if(nodesToCheck.contains(neighbor)){
-                getPartition(neighbor, nodesToCheck, partition);
+    /**
+     * Get the nodes reachable from the current one (breadth-first search), among the pending ones
+     * 
+     * @param pending nodes not yet in a partition, by id (reached nodes are unmarked)
+     * @param queue search queue (size of the network)
+     */
+    private Set<Integer> getPartition(NetworkTopology.Adjacency adj, int currentNode, boolean[] pending, int[] queue, Set<Integer> partition){
+        int[] neighbors = adj.getNeighbors();
+        int head = 0;
+        int tail = 0;
+        
+        pending[currentNode] = false;
+        queue[tail++] = currentNode;
+        while(head < tail){
+            int u = queue[head++];
+            partition.add(u);
+            for(int i=adj.getStart(u), end=adj.getEnd(u); i < end; i++){
+                int v = neighbors[i];
+                if((v < pending.length) && pending[v]){
+                    pending[v] = false;
+                    queue[tail++] = v;
+                }
             }
         }
         
-        partition.add(currentNode);
-        
         return partition;
     }
 
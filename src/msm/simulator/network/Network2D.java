@@ -91,7 +91,7 @@ public class Network2D extends Network {
         for (int i = 0; i < super.getNumNodes(); i++) {
             double x = randPos.nextDouble();
             double y = randPos.nextDouble();
-            super.addNode(new Integer(i), new Node(i, x, y));
+            super.addNode(Integer.valueOf(i), new Node(i, x, y));
         }
         
         //Generate 2D links
@@ -123,13 +123,13 @@ public class Network2D extends Network {
         while(nn.size() < (super.getNumNodes()/2)){
             Map<Integer, Node> pending = new HashMap<Integer, Node>();
             int randN = randNode.nextInt(super.getNumNodes());
-            pending.put(new Integer(randN), super.getNode(randN));
+            pending.put(Integer.valueOf(randN), super.getNode(randN));
             //nn.clear();
             nn = new HashMap<Integer, Node>(pending);
             while(pending.size() > 0){
                 Iterator<Node> it = pending.values().iterator();
                 Node n1 = it.next();
-                pending.remove(new Integer(n1.getId()));
+                pending.remove(Integer.valueOf(n1.getId()));
                 for(Integer n2 : n1.getLinks()){
                     if(!nn.containsKey(n2)){
                         nn.put(n2, super.getNode(n2));
@@ -65,7 +65,7 @@ public class NetworkBus extends Network {
         for (int i = 0; i < super.getNumNodes(); i++) {
             double x = randPos.nextDouble();
             double y = randPos.nextDouble();
-            super.addNode(new Integer(i), new Node(i, x, y));
+            super.addNode(Integer.valueOf(i), new Node(i, x, y));
         }
         
         //Get all nodes
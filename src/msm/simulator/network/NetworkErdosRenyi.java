@@ -113,7 +113,7 @@ public class NetworkErdosRenyi extends Network implements Cloneable {
         for (int i = 0; i < super.getNumNodes(); i++) {
             double x = randPos.nextDouble();
             double y = randPos.nextDouble();
-            super.addNode(new Integer(i), new Node(i, x, y));
+            super.addNode(Integer.valueOf(i), new Node(i, x, y));
         }
         
         //Generate Random Links with uniform probability p
@@ -147,13 +147,13 @@ public class NetworkErdosRenyi extends Network implements Cloneable {
 //        while(nn.size() < (super.getNumNodes()/2)){
 //            Map<Integer, Node> pending = new HashMap<Integer, Node>();
 //            int randN = randNode.nextInt(super.getNumNodes());
-//            pending.put(new Integer(randN), super.getNode(randN));
+//            pending.put(Integer.valueOf(randN), super.getNode(randN));
 //            //nn.clear();
 //            nn = new HashMap<Integer, Node>(pending);
 //            while(pending.size() > 0){
 //                Iterator<Node> it = pending.values().iterator();
 //                Node n1 = it.next();
-//                pending.remove(new Integer(n1.getId()));
+//                pending.remove(Integer.valueOf(n1.getId()));
 //                for(Integer n2 : n1.getLinks()){
 //                    if(!nn.containsKey(n2)){
 //                        nn.put(n2, super.getNode(n2));
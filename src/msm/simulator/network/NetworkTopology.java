@@ -0,0 +1,194 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.util.Collection;
+
+import msm.simulator.util.IntSet;
+
+
+/**
+ * Immutable snapshot of the links of the network, in compressed sparse row (CSR) format:
+ * the neighbors of all the nodes are kept in one int array, the ones of node id being at
+ * positions [offsets[id], offsets[id+1]) (same order as the node link sets). Physical and
+ * overlay links are kept in separate arrays.
+ *
+ * Built by the network on first use, and built again when the links of its nodes change
+ * (i.e. once after generation, and once after each churn epoch). Shared by the copies of
+ * the network (e.g. the one simulated by each repetition) until their links change; not
+ * saved (built again by networks loaded from file).
+ *
+ * @author pcjesus
+ *
+ */
+public final class NetworkTopology {
+
+    //Links version of the nodes when the snapshot was built
+    private final long version;
+
+    private final Adjacency links;
+    private final Adjacency overlayLinks;
+
+
+    private NetworkTopology(long version, Adjacency links, Adjacency overlayLinks){
+        this.version = version;
+        this.links = links;
+        this.overlayLinks = overlayLinks;
+    }
+
+
+    /**
+     * Create the snapshot of the links of the given nodes
+     *
+     * @param version links version of the nodes (see NodeState.getLinksVersion)
+     */
+    static NetworkTopology build(Collection<Node> nodes, long version){
+
+        int maxId = -1;
+        for(Node n : nodes){
+            if(n.getId() > maxId){
+                maxId = n.getId();
+            }
+        }
+
+        return new NetworkTopology(version, Adjacency.build(nodes, maxId, false), Adjacency.build(nodes, maxId, true));
+    }
+
+
+    long getVersion(){
+        return this.version;
+    }
+
+
+    /**
+     * @return the same snapshot (links shared) for another version of the nodes links
+     */
+    NetworkTopology withVersion(long version){
+        return (version == this.version) ? this : new NetworkTopology(version, this.links, this.overlayLinks);
+    }
+
+    /**
+     * @return physical links of the nodes
+     */
+    public Adjacency getLinks(){
+        return this.links;
+    }
+
+    /**
+     * @return overlay links of the nodes
+     */
+    public Adjacency getOverlayLinks(){
+        return this.overlayLinks;
+    }
+
+    /**
+     * @param overlay true for the overlay links, false for the physical ones
+     */
+    public Adjacency getLinks(boolean overlay){
+        return overlay ? this.overlayLinks : this.links;
+    }
+
+
+    /**
+     * Neighbors of all the nodes (one type of links), in CSR format.
+     *
+     * Iteration over the neighbors of a node:
+     * <pre>
+     * int[] neighbors = adj.getNeighbors();
+     * for(int i=adj.getStart(id), end=adj.getEnd(id); i < end; i++){ ... neighbors[i] ... }
+     * </pre>
+     */
+    public static final class Adjacency {
+
+        //Row of node id: [offsets[id], offsets[id+1]) (size max id + 2)
+        private final int[] offsets;
+        private final int[] neighbors;
+
+
+        private Adjacency(int[] offsets, int[] neighbors){
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+        }
+
+
+        private static Adjacency build(Collection<Node> nodes, int maxId, boolean overlay){
+
+            //Degrees, then rows start
+            int[] offsets = new int[maxId + 2];
+            for(Node n : nodes){
+                IntSet links = overlay ? n.getOverlayLinks() : n.getLinks();
+                offsets[n.getId() + 1] = links.size();
+            }
+            for(int id=0; id <= maxId; id++){
+                offsets[id + 1] += offsets[id];
+            }
+
+            //Neighbors, in the iteration order of the link sets
+            int[] neighbors = new int[offsets[maxId + 1]];
+            for(Node n : nodes){
+                IntSet links = overlay ? n.getOverlayLinks() : n.getLinks();
+                links.copyTo(neighbors, offsets[n.getId()]);
+            }
+
+            return new Adjacency(offsets, neighbors);
+        }
+
+
+        /**
+         * @return true if the node has a row (not greater than the max node id of the snapshot)
+         */
+        public boolean hasRow(int id){
+            return (id >= 0) && (id < this.offsets.length - 1);
+        }
+
+        /**
+         * @return number of neighbors of the node (0 if unknown)
+         */
+        public int getDegree(int id){
+            return this.hasRow(id) ? this.offsets[id + 1] - this.offsets[id] : 0;
+        }
+
+        /**
+         * @return index of the first neighbor of the node in the neighbors array
+         */
+        public int getStart(int id){
+            return this.hasRow(id) ? this.offsets[id] : 0;
+        }
+
+        /**
+         * @return index after the last neighbor of the node in the neighbors array
+         */
+        public int getEnd(int id){
+            return this.hasRow(id) ? this.offsets[id + 1] : 0;
+        }
+
+        /**
+         * @return neighbors of all the nodes (not to be modified)
+         */
+        public int[] getNeighbors(){
+            return this.neighbors;
+        }
+
+        /**
+         * @return number of directed links (sum of the degrees)
+         */
+        public int getNumLinks(){
+            return this.neighbors.length;
+        }
+
+        /**
+         * @return number of rows (max node id + 1)
+         */
+        public int getNumRows(){
+            return this.offsets.length - 1;
+        }
+
+    }
+
+    @Override
+    public String toString(){
+        return "Topology - nodes: "+this.links.getNumRows()+", links: "+this.links.getNumLinks()+", overlay links: "+this.overlayLinks.getNumLinks();
+    }
+
+}
@@ -5,18 +5,24 @@
 
 package msm.simulator.network;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import msm.simulator.apps.Application;
+import msm.simulator.util.IntSet;
 
 
 /**
@@ -45,7 +51,7 @@ public class Node implements Serializable {
     // Node eccentricity;
     private int eccentricity;
     
-    // Node Links
+    // Node Links (id sets are IntSet, declared as Set: saved format)
     private Set<Integer> physicalLinks;
     
     // Node Overlay Links
@@ -61,8 +67,8 @@ public class Node implements Serializable {
     //Message to Send
     //private LinkedHashMap<String, Message<?>> msgToSend;
     
-    //Message Received
-    private Map<String, Message<?>> msgReceived;
+    //Message Received (by message id), not saved with the network (reset by init)
+    private transient ReceiveBuffer msgReceived;
     
     //private boolean isSender;
     //private boolean isReceiver;
@@ -77,6 +83,10 @@ public class Node implements Serializable {
     private Set<Integer> arrivingNodes;
     private Set<Integer> leavingNodes;
     
+    //Columns of the network of the node (position, eccentricity and counters kept in
+    //its row), null if not in a network (values kept in the fields above)
+    private transient NodeState state;
+    
     
     /**
      * Constructors
@@ -86,12 +96,12 @@ public class Node implements Serializable {
         this.id = id;
         this.x = x;
         this.y = y;
-        this.physicalLinks = new HashSet<Integer>();
-        this.overlayLinks = new HashSet<Integer>();
+        this.physicalLinks = new IntSet();
+        this.overlayLinks = new IntSet();
         this.connected = false;
         
-        this.arrivingNodes = new HashSet<Integer>();
-        this.leavingNodes = new HashSet<Integer>();
+        this.arrivingNodes = new IntSet();
+        this.leavingNodes = new IntSet();
         
         this.init(null);
     }
@@ -103,29 +113,15 @@ public class Node implements Serializable {
         this.y = node.getY();
         this.eccentricity = node.getEccentricity();
         
-        this.physicalLinks = new HashSet<Integer>();
-        for(Integer id : node.getLinks()){
-            this.physicalLinks.add(new Integer(id));
-        }
-        
-        this.overlayLinks = new HashSet<Integer>();
-        for(Integer id : node.getOverlayLinks()){
-            this.overlayLinks.add(new Integer(id));
-        }
+        this.physicalLinks = new IntSet(node.getLinks());
+        this.overlayLinks = new IntSet(node.getOverlayLinks());
         
         this.connected = node.isConnected();
         
         this.dataValue = new BigDecimal(node.getDataValue().doubleValue());
         
-        this.arrivingNodes = new HashSet<Integer>();
-        for(Integer id : node.getArrivingNodes()){
-            this.arrivingNodes.add(new Integer(id));
-        }
-        
-        this.leavingNodes = new HashSet<Integer>();
-        for(Integer id : node.getLeavingNodes()){
-            this.leavingNodes.add(new Integer(id));
-        }
+        this.arrivingNodes = new IntSet(node.getArrivingNodes());
+        this.leavingNodes = new IntSet(node.getLeavingNodes());
         
         //NOTE: Remaining data is set by init method (ready to simulate an application)
         this.init(null);
@@ -135,14 +131,35 @@ public class Node implements Serializable {
     public void init(Application app){
         this.setApplication(app);
 //        this.msgToSend = new LinkedHashMap<String, Message<?>>();
-        this.msgReceived = new LinkedHashMap<String, Message<?>>();
+        this.msgReceived = new ReceiveBuffer();
 //        this.isSender = false;
 //        this.isReceiver = false;
-        this.msgSendCount = 0;
-        this.msgRcvCount = 0;
+        this.setMsgSendCount(0);
+        this.setMsgRcvCount(0);
 //        this.msgDiscardSendCount = 0;
 //        this.msgDiscardRcvCount = 0;
-        this.msgLossCount = 0;
+        this.setMsgLossCount(0);
+    }
+    
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        //Saved in the fields
+        if(this.state != null){
+            this.copyRow();
+        }
+        out.defaultWriteObject();
+    }
+    
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.msgReceived = new ReceiveBuffer();
+        
+        //Saved as sets of ids
+        this.physicalLinks = new IntSet(this.physicalLinks);
+        this.overlayLinks = new IntSet(this.overlayLinks);
+        this.arrivingNodes = new IntSet(this.arrivingNodes);
+        this.leavingNodes = new IntSet(this.leavingNodes);
     }
 
     
@@ -159,7 +176,63 @@ public class Node implements Serializable {
      * @param id The id to set.
      */
     public void setId(int id) {
-        this.id = id;
+        NodeState s = this.state;
+        if(s != null){
+            //Move to the row of the new id
+            this.detach(s);
+            this.id = id;
+            this.attach(s);
+        } else {
+            this.id = id;
+        }
+    }
+    
+    
+    /**
+     * Keep the scalar values of the node in the given columns (row of its id), moved from
+     * the fields or the columns of the previous network of the node
+     */
+    void attach(NodeState s){
+        if(this.state == s){
+            return;
+        }
+        if(this.state != null){
+            this.detach(this.state);
+        }
+        s.ensureRow(this.id);
+        s.x[this.id] = this.x;
+        s.y[this.id] = this.y;
+        s.eccentricity[this.id] = this.eccentricity;
+        s.sent[this.id] = this.msgSendCount;
+        s.received[this.id] = this.msgRcvCount;
+        s.lost[this.id] = this.msgLossCount;
+        this.state = s;
+        s.linksChanged();
+    }
+    
+    
+    /**
+     * Keep the scalar values of the node back in its fields (row cleared), if attached to
+     * the given columns
+     */
+    void detach(NodeState s){
+        if((this.state != s) || (s == null)){
+            return;
+        }
+        this.copyRow();
+        s.clearRow(this.id);
+        this.state = null;
+        s.linksChanged();
+    }
+    
+    
+    private void copyRow(){
+        this.x = this.state.x[this.id];
+        this.y = this.state.y[this.id];
+        this.eccentricity = this.state.eccentricity[this.id];
+        this.msgSendCount = this.state.sent[this.id];
+        this.msgRcvCount = this.state.received[this.id];
+        this.msgLossCount = this.state.lost[this.id];
     }
 
 
@@ -167,7 +240,7 @@ public class Node implements Serializable {
      * @return Returns the x.
      */
     public double getX() {
-        return x;
+        return (this.state != null) ? this.state.x[this.id] : this.x;
     }
 
 
@@ -175,7 +248,11 @@ public class Node implements Serializable {
      * @param x The x to set.
      */
     public void setX(double x) {
-        this.x = x;
+        if(this.state != null){
+            this.state.x[this.id] = x;
+        } else {
+            this.x = x;
+        }
     }
 
 
@@ -183,7 +260,7 @@ public class Node implements Serializable {
      * @return Returns the y.
      */
     public double getY() {
-        return y;
+        return (this.state != null) ? this.state.y[this.id] : this.y;
     }
 
 
@@ -191,21 +268,27 @@ public class Node implements Serializable {
      * @param y The y to set.
      */
     public void setY(double y) {
-        this.y = y;
+        if(this.state != null){
+            this.state.y[this.id] = y;
+        } else {
+            this.y = y;
+        }
     }
     
     
     public boolean existLink(int id){
-        return this.physicalLinks.contains(new Integer(id));
+        return this.getLinks().contains(id);
     }
     
     
     public void addLink(int id){
-        this.physicalLinks.add(new Integer(id));
+        this.getLinks().add(id);
+        this.linksChanged();
     }
     
     public boolean delLink(Integer id){
         boolean result = this.physicalLinks.remove(id);
+        this.linksChanged();
         if(this.physicalLinks.isEmpty()){
             this.disconnect();
         }
@@ -217,15 +300,17 @@ public class Node implements Serializable {
     public void clearAllLinks(){
         this.physicalLinks.clear();
         this.overlayLinks.clear();
+        this.linksChanged();
         this.disconnect();
     }
     
-    public Set<Integer> getLinks(){
-        return this.physicalLinks;
+    public IntSet getLinks(){
+        return (IntSet) this.physicalLinks;
     }
     
     public void setLinks(Set<Integer> links){
-        this.physicalLinks = links;
+        this.physicalLinks = new IntSet(links);
+        this.linksChanged();
     }
     
 //    public Integer getLinkedNode(int index){
@@ -246,24 +331,27 @@ public class Node implements Serializable {
     
     
     public boolean existOverlayLink(int id){
-        return this.overlayLinks.contains(new Integer(id));
+        return this.getOverlayLinks().contains(id);
     }
     
     
     public void addOverlayLink(int id){
-        this.overlayLinks.add(new Integer(id));
+        this.getOverlayLinks().add(id);
+        this.linksChanged();
     }
     
     public void delOverlayLink(Integer id){
         this.overlayLinks.remove(id);
+        this.linksChanged();
     }
     
-    public Set<Integer> getOverlayLinks(){
-        return this.overlayLinks;
+    public IntSet getOverlayLinks(){
+        return (IntSet) this.overlayLinks;
     }
     
     public void setOverlayLinks(Set<Integer> links){
-        this.overlayLinks = links;
+        this.overlayLinks = new IntSet(links);
+        this.linksChanged();
     }
     
 //    public Integer getOverlayLinkedNode(int index){
@@ -293,11 +381,11 @@ public class Node implements Serializable {
         
         int normValue = 50;
         //Normalize X value (Multiply by "normValue") to be visible in graph image
-        sb.append(this.x*normValue);
+        sb.append(this.getX()*normValue);
         sb.append(",");
         
         //Normalize Y value (Multiply by "normValue") to be visible in graph image
-        sb.append(this.y*normValue);
+        sb.append(this.getY()*normValue);
         sb.append("!\"];\n");
         return sb.toString();
     }
@@ -422,6 +510,16 @@ public class Node implements Serializable {
     public int numberOfOverlayLinks(){
         return this.overlayLinks.size();
     }
+    
+    /**
+     * Count a change of the links in the network of the node (its topology snapshot is built
+     * again), nothing to do if not in a network
+     */
+    private void linksChanged(){
+        if(this.state != null){
+            this.state.linksChanged();
+        }
+    }
 
     
     public List<Integer> selectRandomNeighboors(int numberOfLinks) {
@@ -443,6 +541,25 @@ public class Node implements Serializable {
     }
     
     
+    public List<Integer> selectRandomNeighboors(int numberOfLinks, Random rnd) {
+        List <Integer> randNodes = new ArrayList<Integer>(this.physicalLinks);
+        Collections.shuffle(randNodes, rnd);
+        if(numberOfLinks > this.numberOfLinks()){
+            numberOfLinks = this.numberOfLinks();
+        }
+        List <Integer> result = randNodes.subList(0, numberOfLinks);
+        return result;
+    }
+    
+    
+    public Integer selectRandomNeighboor(Random rnd) {
+        List <Integer> randNodes = new ArrayList<Integer>(this.physicalLinks);
+        Collections.shuffle(randNodes, rnd);
+        Integer result = randNodes.get(0);
+        return result;
+    }
+    
+    
     public List<Integer> selectRandomOverlayNeighboors(int numberOfLinks) {
         List <Integer> randNodes = new ArrayList<Integer>(this.overlayLinks);
         Collections.shuffle(randNodes);
@@ -454,6 +571,17 @@ public class Node implements Serializable {
     }
     
     
+    public List<Integer> selectRandomOverlayNeighboors(int numberOfLinks, Random rnd) {
+        List <Integer> randNodes = new ArrayList<Integer>(this.overlayLinks);
+        Collections.shuffle(randNodes, rnd);
+        if(numberOfLinks > this.numberOfOverlayLinks()){
+            numberOfLinks = this.numberOfOverlayLinks();
+        }
+        List <Integer> result = randNodes.subList(0, numberOfLinks);
+        return result;
+    }
+    
+    
     public Integer selectRandomOverlayNeighboor() {
         List <Integer> randNodes = new ArrayList<Integer>(this.overlayLinks);
         Collections.shuffle(randNodes);
@@ -500,10 +628,10 @@ public class Node implements Serializable {
 */
     
     public void addReceiveMessage(Message<?> msg){
-        this.msgReceived.put(msg.getMsgId(), msg);
+        this.msgReceived.put(msg.getId(), msg);
     }
     
-    public void delReceivedMessage(String msgId){
+    public void delReceivedMessage(long msgId){
         this.msgReceived.remove(msgId);
     }
     
@@ -516,7 +644,7 @@ public class Node implements Serializable {
     }
     
     
-    public Message<?> getReceivedMessage(String msgId){
+    public Message<?> getReceivedMessage(long msgId){
         return this.msgReceived.get(msgId);
     }
     
@@ -567,16 +695,24 @@ public class Node implements Serializable {
 */
 
 	public long getMsgSendCount() {
-		return msgSendCount;
+		return (this.state != null) ? this.state.sent[this.id] : this.msgSendCount;
 	}
 
 
 	public void setMsgSendCount(long msgSendCount) {
-		this.msgSendCount = msgSendCount;
+		if(this.state != null){
+			this.state.sent[this.id] = msgSendCount;
+		} else {
+			this.msgSendCount = msgSendCount;
+		}
 	}
 	
 	public void incMsgSendCount() {
-		this.msgSendCount++;
+		if(this.state != null){
+			this.state.sent[this.id]++;
+		} else {
+			this.msgSendCount++;
+		}
 	}
 
 /*
@@ -591,34 +727,103 @@ public class Node implements Serializable {
 */
 
 	public long getMsgRcvCount() {
-		return msgRcvCount;
+		return (this.state != null) ? this.state.received[this.id] : this.msgRcvCount;
 	}
 
 
 	public void setMsgRcvCount(long msgRcvCount) {
-		this.msgRcvCount = msgRcvCount;
+		if(this.state != null){
+			this.state.received[this.id] = msgRcvCount;
+		} else {
+			this.msgRcvCount = msgRcvCount;
+		}
 	}
 	
 	
 	public void incMsgRcvCount() {
-		this.msgRcvCount++;
+		this.incMsgRcvCount(1);
 	}
 	
 	
 	public void incMsgRcvCount(long msgRcvCount) {
-        this.msgRcvCount+=msgRcvCount;
+        if(this.state != null){
+            this.state.received[this.id]+=msgRcvCount;
+        } else {
+            this.msgRcvCount+=msgRcvCount;
+        }
     }
 
 
+	/**
+	 * @return view of the received messages by message id (see Message.getMsgId)
+	 * @deprecated use getReceivedMessages and getReceivedMessage (long message ids)
+	 */
+	@Deprecated
 	public Map<String, Message<?>> getMsgReceivedMap() {
-		return msgReceived;
+		return new AbstractMap<String, Message<?>>(){
+
+			public Set<Map.Entry<String, Message<?>>> entrySet(){
+				return new AbstractSet<Map.Entry<String, Message<?>>>(){
+
+					public int size(){
+						return msgReceived.size();
+					}
+
+					public Iterator<Map.Entry<String, Message<?>>> iterator(){
+						final Iterator<Message<?>> it = msgReceived.values().iterator();
+						return new Iterator<Map.Entry<String, Message<?>>>(){
+
+							public boolean hasNext(){
+								return it.hasNext();
+							}
+
+							public Map.Entry<String, Message<?>> next(){
+								Message<?> msg = it.next();
+								return new AbstractMap.SimpleImmutableEntry<String, Message<?>>(msg.getMsgId(), msg);
+							}
+
+							public void remove(){
+								throw new UnsupportedOperationException();
+							}
+						};
+					}
+				};
+			}
+
+			public Message<?> put(String msgId, Message<?> msg){
+				Message<?> old = msgReceived.get(msg.getId());
+				msgReceived.put(msg.getId(), msg);
+				return old;
+			}
+
+			public Message<?> remove(Object msgId){
+				for(Message<?> msg : msgReceived.values()){
+					if(msg.getMsgId().equals(msgId)){
+						return msgReceived.remove(msg.getId());
+					}
+				}
+				return null;
+			}
+
+			public void clear(){
+				msgReceived.clear();
+			}
+		};
 	}
 
 
+	/**
+	 * @deprecated use addReceiveMessage
+	 */
+	@Deprecated
 	public void setMsgReceivedMap(Map<String, Message<?>> msgReceived) {
-		this.msgReceived = msgReceived;
+		this.msgReceived.clear();
+		for(Message<?> msg : msgReceived.values()){
+			this.msgReceived.put(msg.getId(), msg);
+		}
 	}
 
+
 /*    
     public long getMsgDiscardSendCount() {
         return msgDiscardSendCount;
@@ -660,22 +865,30 @@ public class Node implements Serializable {
 */    
     
     public long getMsgLossCount() {
-        return msgLossCount;
+        return (this.state != null) ? this.state.lost[this.id] : this.msgLossCount;
     }
 
 
     public void setMsgLossCount(long msgLossCount) {
-        this.msgLossCount = msgLossCount;
+        if(this.state != null){
+            this.state.lost[this.id] = msgLossCount;
+        } else {
+            this.msgLossCount = msgLossCount;
+        }
     }
     
     
     public void incMsgLossCount() {
-        this.msgLossCount++;
+        this.incMsgLossCountBy(1);
     }
     
     
     public void incMsgLossCountBy(long value) {
-        this.msgLossCount+=value;
+        if(this.state != null){
+            this.state.lost[this.id]+=value;
+        } else {
+            this.msgLossCount+=value;
+        }
     }
 
 
@@ -701,12 +914,12 @@ public class Node implements Serializable {
     /**
      * @return the arrivingNodes
      */
-    public Set<Integer> getArrivingNodes() {
-        return arrivingNodes;
+    public IntSet getArrivingNodes() {
+        return (IntSet) arrivingNodes;
     }
     
     public void addArrivingNode(int id){
-        this.arrivingNodes.add(new Integer(id));
+        this.getArrivingNodes().add(id);
     }
     
     public void clearArrivingNodes(){
@@ -718,12 +931,12 @@ public class Node implements Serializable {
     /**
      * @return the leavingNodes
      */
-    public Set<Integer> getLeavingNodes() {
-        return leavingNodes;
+    public IntSet getLeavingNodes() {
+        return (IntSet) leavingNodes;
     }
     
     public void addLeavingNode(int id){
-        this.leavingNodes.add(new Integer(id));
+        this.getLeavingNodes().add(id);
     }
     
     public void clearLeavingNodes(){
@@ -760,7 +973,7 @@ public class Node implements Serializable {
      * @return the eccentricity
      */
     public int getEccentricity() {
-        return eccentricity;
+        return (this.state != null) ? this.state.eccentricity[this.id] : this.eccentricity;
     }
 
 
@@ -769,7 +982,11 @@ public class Node implements Serializable {
      * @param eccentricity the eccentricity to set
      */
     public void setEccentricity(int eccentricity) {
-        this.eccentricity = eccentricity;
+        if(this.state != null){
+            this.state.eccentricity[this.id] = eccentricity;
+        } else {
+            this.eccentricity = eccentricity;
+        }
     }
     
     
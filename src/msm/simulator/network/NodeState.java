@@ -0,0 +1,110 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Scalar state of the nodes of a network in columns (one array per value, row = node id):
+ * position, eccentricity and message counters, and the version of the links of the nodes.
+ *
+ * Shared by the active and dead nodes of the network (ids are not reused): the nodes added
+ * to the network are attached to it and read/write their row, so whole-network sweeps (e.g.
+ * total of messages sent at each sample) go over contiguous arrays instead of the node objects.
+ * Rows of ids without a node are zero.
+ *
+ * Not saved: the values are kept in the node fields when saved (see Node.attach/detach).
+ *
+ * @author pcjesus
+ *
+ */
+final class NodeState {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    //Columns (accessed directly by the nodes)
+    double[] x;
+    double[] y;
+    int[] eccentricity;
+    long[] sent;
+    long[] received;
+    long[] lost;
+
+    //Changes of the links of the nodes (topology snapshot built again when it changes)
+    private final AtomicLong linksVersion = new AtomicLong();
+
+
+    NodeState(int capacity){
+        int length = Math.max(capacity, INITIAL_CAPACITY);
+        this.x = new double[length];
+        this.y = new double[length];
+        this.eccentricity = new int[length];
+        this.sent = new long[length];
+        this.received = new long[length];
+        this.lost = new long[length];
+    }
+
+
+    /**
+     * Grow the columns to hold the row of the node (not thread safe: done when nodes are added)
+     */
+    void ensureRow(int id){
+        if(id < 0){
+            throw new IllegalArgumentException("Invalid node id: "+id);
+        }
+        if(id >= this.sent.length){
+            int length = Math.max(id + 1, this.sent.length << 1);
+            this.x = Arrays.copyOf(this.x, length);
+            this.y = Arrays.copyOf(this.y, length);
+            this.eccentricity = Arrays.copyOf(this.eccentricity, length);
+            this.sent = Arrays.copyOf(this.sent, length);
+            this.received = Arrays.copyOf(this.received, length);
+            this.lost = Arrays.copyOf(this.lost, length);
+        }
+    }
+
+
+    void clearRow(int id){
+        this.x[id] = 0;
+        this.y[id] = 0;
+        this.eccentricity[id] = 0;
+        this.sent[id] = 0;
+        this.received[id] = 0;
+        this.lost[id] = 0;
+    }
+
+
+    long getLinksVersion(){
+        return this.linksVersion.get();
+    }
+
+    void linksChanged(){
+        this.linksVersion.incrementAndGet();
+    }
+
+
+    long getTotalSent(){
+        return sum(this.sent);
+    }
+
+    long getTotalReceived(){
+        return sum(this.received);
+    }
+
+    long getTotalLost(){
+        return sum(this.lost);
+    }
+
+
+    private static long sum(long[] column){
+        long result = 0;
+        for(int i=0; i < column.length; i++){
+            result += column[i];
+        }
+        return result;
+    }
+
+}
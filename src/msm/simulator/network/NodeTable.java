@@ -0,0 +1,274 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Nodes of the network indexed by id (dense array), with the set of ids present kept
+ * in a bit set (iteration by ascending id).
+ *
+ * The primitive methods (get(int), containsKey(int), put(int, Node), remove(int)) are the
+ * ones to use in hot paths; the Map methods are kept for compatibility.
+ *
+ * The nodes added are attached to the columns of the network (NodeState), if given: they are
+ * kept attached when removed (ids are not reused, e.g. a node leaving is moved to the dead
+ * nodes of the same network).
+ *
+ * Saved as a HashMap (same format as a map of nodes by id).
+ *
+ * @author pcjesus
+ *
+ */
+class NodeTable extends AbstractMap<Integer, Node> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Node[] nodes;
+    private final BitSet ids;
+    private int size;
+
+    //Columns of the scalar state of the nodes (not saved)
+    private final transient NodeState state;
+
+    //Views of the table (created when needed)
+    private transient Set<Integer> keySet;
+    private transient Collection<Node> values;
+    private transient Set<Map.Entry<Integer, Node>> entrySet;
+
+
+    NodeTable(NodeState state, int capacity){
+        this.nodes = new Node[Math.max(capacity, 16)];
+        this.ids = new BitSet(this.nodes.length);
+        this.state = state;
+    }
+
+
+    NodeTable(NodeState state, Map<Integer, Node> nodes){
+        this(state, nodes.size());
+        for(Map.Entry<Integer, Node> e : nodes.entrySet()){
+            this.put(e.getKey().intValue(), e.getValue());
+        }
+    }
+
+
+    Node get(int id){
+        return ((id >= 0) && (id < this.nodes.length)) ? this.nodes[id] : null;
+    }
+
+
+    boolean containsKey(int id){
+        return this.get(id) != null;
+    }
+
+
+    Node put(int id, Node node){
+        if(id < 0){
+            throw new IllegalArgumentException("Invalid node id: "+id);
+        }
+        if(node == null){
+            throw new NullPointerException("Null node: "+id);
+        }
+        if(id >= this.nodes.length){
+            this.nodes = Arrays.copyOf(this.nodes, Math.max(id + 1, this.nodes.length << 1));
+        }
+        if(this.state != null){
+            node.attach(this.state);
+        }
+        Node previous = this.nodes[id];
+        this.nodes[id] = node;
+        if(previous == null){
+            this.ids.set(id);
+            this.size++;
+        }
+        return previous;
+    }
+
+
+    Node remove(int id){
+        Node previous = this.get(id);
+        if(previous != null){
+            this.nodes[id] = null;
+            this.ids.clear(id);
+            this.size--;
+        }
+        return previous;
+    }
+
+
+    /**
+     * Detach the nodes from the columns of the network (table replaced)
+     */
+    void detachAll(){
+        for(int id = this.ids.nextSetBit(0); id >= 0; id = this.ids.nextSetBit(id + 1)){
+            this.nodes[id].detach(this.state);
+        }
+    }
+
+
+    /*
+     * Map<Integer, Node> methods
+     */
+
+    @Override
+    public Node get(Object key){
+        return (key instanceof Integer) ? this.get(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key){
+        return (key instanceof Integer) && this.containsKey(((Integer) key).intValue());
+    }
+
+    @Override
+    public Node put(Integer key, Node node){
+        return this.put(key.intValue(), node);
+    }
+
+    @Override
+    public Node remove(Object key){
+        return (key instanceof Integer) ? this.remove(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public int size(){
+        return this.size;
+    }
+
+    @Override
+    public void clear(){
+        Arrays.fill(this.nodes, null);
+        this.ids.clear();
+        this.size = 0;
+    }
+
+
+    @Override
+    public Set<Integer> keySet(){
+        if(this.keySet == null){
+            this.keySet = new AbstractSet<Integer>(){
+                public Iterator<Integer> iterator(){
+                    return new Ids<Integer>(){
+                        Integer value(int id){
+                            return Integer.valueOf(id);
+                        }
+                    };
+                }
+                public int size(){
+                    return size;
+                }
+                public boolean contains(Object o){
+                    return containsKey(o);
+                }
+                public boolean remove(Object o){
+                    return NodeTable.this.remove(o) != null;
+                }
+                public void clear(){
+                    NodeTable.this.clear();
+                }
+            };
+        }
+        return this.keySet;
+    }
+
+
+    @Override
+    public Collection<Node> values(){
+        if(this.values == null){
+            this.values = new AbstractCollection<Node>(){
+                public Iterator<Node> iterator(){
+                    return new Ids<Node>(){
+                        Node value(int id){
+                            return nodes[id];
+                        }
+                    };
+                }
+                public int size(){
+                    return size;
+                }
+                public void clear(){
+                    NodeTable.this.clear();
+                }
+            };
+        }
+        return this.values;
+    }
+
+
+    @Override
+    public Set<Map.Entry<Integer, Node>> entrySet(){
+        if(this.entrySet == null){
+            this.entrySet = new AbstractSet<Map.Entry<Integer, Node>>(){
+                public Iterator<Map.Entry<Integer, Node>> iterator(){
+                    return new Ids<Map.Entry<Integer, Node>>(){
+                        Map.Entry<Integer, Node> value(int id){
+                            return new AbstractMap.SimpleImmutableEntry<Integer, Node>(Integer.valueOf(id), nodes[id]);
+                        }
+                    };
+                }
+                public int size(){
+                    return size;
+                }
+                public void clear(){
+                    NodeTable.this.clear();
+                }
+            };
+        }
+        return this.entrySet;
+    }
+
+
+    /**
+     * Iteration by ascending id (removing through the iterator is supported)
+     */
+    private abstract class Ids<T> implements Iterator<T> {
+
+        private int next = ids.nextSetBit(0);
+        private int last = -1;
+
+        abstract T value(int id);
+
+        public boolean hasNext(){
+            return this.next >= 0;
+        }
+
+        public T next(){
+            if(this.next < 0){
+                throw new NoSuchElementException();
+            }
+            this.last = this.next;
+            this.next = ids.nextSetBit(this.next + 1);
+            return this.value(this.last);
+        }
+
+        public void remove(){
+            if(this.last < 0){
+                throw new IllegalStateException();
+            }
+            NodeTable.this.remove(this.last);
+            this.last = -1;
+        }
+    }
+
+
+    /**
+     * Saved as a map of nodes by id
+     */
+    private Object writeReplace(){
+        return new HashMap<Integer, Node>(this);
+    }
+
+}
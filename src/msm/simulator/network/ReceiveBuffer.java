@@ -0,0 +1,253 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Buffer of the messages received by a node, indexed by message id (long keys,
+ * open addressing with linear probing) and kept in insertion order.
+ *
+ * Messages are appended to an array (removed ones leave a hole, reclaimed when
+ * the array is full), and the hash table keeps the position of each message.
+ * The arrays are allocated on the first message (e.g. not for the nodes of the
+ * copies of a network, initialized again before simulating).
+ *
+ * @author pcjesus
+ *
+ */
+class ReceiveBuffer implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    //Tables of the empty buffer (one free slot, nothing written to them)
+    private static final long[] NO_KEYS = new long[1];
+    private static final int[] NO_POSITIONS = new int[1];
+    private static final Message<?>[] NO_MSGS = new Message<?>[0];
+    private static final long[] NO_IDS = new long[0];
+
+    //Hash table: message id and position (+1, 0 if the slot is free) of the message
+    private long[] keys;
+    private int[] positions;
+    private int mask;
+
+    //Messages in insertion order (null if removed), up to end
+    private Message<?>[] msgs;
+    private long[] ids;
+    private int end;
+    private int size;
+
+    //View of the messages (created when needed)
+    private transient Collection<Message<?>> values;
+
+
+    ReceiveBuffer(){
+        this.keys = NO_KEYS;
+        this.positions = NO_POSITIONS;
+        this.mask = 0;
+        this.msgs = NO_MSGS;
+        this.ids = NO_IDS;
+    }
+
+
+    /**
+     * Add the message (replacing the message with the same id, at its position)
+     */
+    void put(long id, Message<?> msg){
+        int slot = this.find(id);
+        if(this.positions[slot] != 0){
+            this.msgs[this.positions[slot] - 1] = msg;
+            return;
+        }
+        if(this.end == this.msgs.length){
+            this.makeRoom();
+            slot = this.find(id);
+        }
+        this.msgs[this.end] = msg;
+        this.ids[this.end] = id;
+        this.end++;
+        this.size++;
+        this.keys[slot] = id;
+        this.positions[slot] = this.end;
+    }
+
+
+    Message<?> get(long id){
+        int position = this.positions[this.find(id)];
+        return (position == 0) ? null : this.msgs[position - 1];
+    }
+
+
+    Message<?> remove(long id){
+        int slot = this.find(id);
+        int position = this.positions[slot];
+        if(position == 0){
+            return null;
+        }
+        Message<?> msg = this.msgs[position - 1];
+        this.msgs[position - 1] = null;
+        this.size--;
+        this.deleteSlot(slot);
+        if(this.size == 0){
+            this.end = 0;
+        }
+        return msg;
+    }
+
+
+    int size(){
+        return this.size;
+    }
+
+
+    void clear(){
+        if(this.end > 0){
+            Arrays.fill(this.msgs, 0, this.end, null);
+            Arrays.fill(this.positions, 0);
+            this.end = 0;
+            this.size = 0;
+        }
+    }
+
+
+    /**
+     * @return messages in insertion order (view of the buffer)
+     */
+    Collection<Message<?>> values(){
+        if(this.values == null){
+            this.values = new Values();
+        }
+        return this.values;
+    }
+
+
+    /**
+     * Slot of the id in the hash table, or the free slot where it should be added
+     */
+    private int find(long id){
+        int slot = hash(id) & this.mask;
+        while((this.positions[slot] != 0) && (this.keys[slot] != id)){
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+
+    /**
+     * Free a slot of the hash table, moving back the following entries of its probe sequence
+     */
+    private void deleteSlot(int slot){
+        int free = slot;
+        int next = (slot + 1) & this.mask;
+        while(this.positions[next] != 0){
+            int home = hash(this.keys[next]) & this.mask;
+            //Move the entry if its home slot is not between the free slot and it (cyclically)
+            if(((next - home) & this.mask) >= ((next - free) & this.mask)){
+                this.keys[free] = this.keys[next];
+                this.positions[free] = this.positions[next];
+                free = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.positions[free] = 0;
+    }
+
+
+    /**
+     * Reclaim the holes of the removed messages, or grow the arrays (and the hash table)
+     */
+    private void makeRoom(){
+        if(this.msgs.length == 0){
+            //First message
+            this.keys = new long[INITIAL_CAPACITY << 1];
+            this.positions = new int[INITIAL_CAPACITY << 1];
+            this.mask = (INITIAL_CAPACITY << 1) - 1;
+            this.msgs = new Message<?>[INITIAL_CAPACITY];
+            this.ids = new long[INITIAL_CAPACITY];
+            return;
+        }
+        if(this.size > (this.msgs.length >> 1)){
+            this.msgs = Arrays.copyOf(this.msgs, this.msgs.length << 1);
+            this.ids = Arrays.copyOf(this.ids, this.ids.length << 1);
+            this.keys = new long[this.msgs.length << 1];
+            this.positions = new int[this.msgs.length << 1];
+            this.mask = this.keys.length - 1;
+        } else {
+            Arrays.fill(this.positions, 0);
+        }
+
+        //Compact the messages and rebuild the hash table
+        int n = 0;
+        for(int i=0; i < this.end; i++){
+            if(this.msgs[i] != null){
+                long id = this.ids[i];
+                this.msgs[n] = this.msgs[i];
+                this.ids[n] = id;
+                n++;
+                int slot = this.find(id);
+                this.keys[slot] = id;
+                this.positions[slot] = n;
+            }
+        }
+        Arrays.fill(this.msgs, n, this.end, null);
+        this.end = n;
+    }
+
+
+    private static int hash(long id){
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+
+    /**
+     * Messages of the buffer in insertion order
+     */
+    private class Values extends AbstractCollection<Message<?>> {
+
+        public int size(){
+            return size;
+        }
+
+        public Iterator<Message<?>> iterator(){
+            return new Iterator<Message<?>>(){
+
+                private int next = this.skip(0);
+
+                private int skip(int i){
+                    while((i < end) && (msgs[i] == null)){
+                        i++;
+                    }
+                    return i;
+                }
+
+                public boolean hasNext(){
+                    return this.next < end;
+                }
+
+                public Message<?> next(){
+                    if(this.next >= end){
+                        throw new NoSuchElementException();
+                    }
+                    Message<?> msg = msgs[this.next];
+                    this.next = this.skip(this.next + 1);
+                    return msg;
+                }
+
+                public void remove(){
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+}
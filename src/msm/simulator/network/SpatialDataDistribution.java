@@ -163,6 +163,7 @@ public class SpatialDataDistribution {
      * 
      * @deprecated slower method?... Use: getNumberOfLines(String path)
      */
+    @Deprecated
     private static int getNumberOfLines2(String path) throws IOException {
         FileReader fr = new FileReader(path);
         
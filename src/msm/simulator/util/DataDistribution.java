@@ -91,7 +91,7 @@ public class DataDistribution implements Cloneable {
      */
     public void convertCDF2Histogram(BigDecimal minFrequency){
         
-        TreeMap<BigDecimal, BigDecimal> cdf = (TreeMap<BigDecimal, BigDecimal>) this.data.clone();
+        TreeMap<BigDecimal, BigDecimal> cdf = new TreeMap<BigDecimal, BigDecimal>(this.data);
         
         BigDecimal prevLabel = this.getMin();
         BigDecimal prevFreq = minFrequency;
@@ -0,0 +1,319 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.util;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Set of int values (e.g. node ids), without boxing: open addressing with linear probing,
+ * removed values leave a mark (reclaimed when the table is rebuilt).
+ *
+ * The primitive methods (add(int), contains(int), remove(int), copyTo) are the ones to use
+ * in hot paths; the Set&lt;Integer&gt; methods are kept for compatibility (values boxed when
+ * iterated). Removing values through the iterator is supported. The two lowest int values
+ * are reserved (not valid values).
+ *
+ * Copies are copy on write: the table is shared by the copies of a set until one of them
+ * is changed (e.g. the link sets of the copies of a network, until churn changes them).
+ *
+ * Saved as a HashSet (same format as a set of ids).
+ *
+ * @author pcjesus
+ *
+ */
+public class IntSet extends AbstractSet<Integer> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //Markers of the free and removed slots
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int REMOVED = Integer.MIN_VALUE + 1;
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int[] EMPTY = new int[0];
+
+    //Hash table (allocated on first add), kept at most half full (values and removed marks)
+    private int[] slots;
+    private int size;
+    private int removed;
+
+    //Table shared with a copy of the set (copied before being changed)
+    private boolean shared;
+
+
+    public IntSet(){
+        this.slots = EMPTY;
+    }
+
+
+    public IntSet(IntSet set){
+        if(set.size == 0){
+            this.slots = EMPTY;
+        } else {
+            this.slots = set.slots;
+            this.size = set.size;
+            this.removed = set.removed;
+            this.shared = true;
+            set.shared = true;
+        }
+    }
+
+
+    public IntSet(Collection<Integer> values){
+        this();
+        for(Integer v : values){
+            this.add(v.intValue());
+        }
+    }
+
+
+    public boolean add(int value){
+        if((value == FREE) || (value == REMOVED)){
+            throw new IllegalArgumentException("Reserved value: "+value);
+        }
+
+        if(((this.size + this.removed + 1) << 1) > this.slots.length){
+            this.rebuild();
+        }
+
+        int mask = this.slots.length - 1;
+        int slot = hash(value) & mask;
+        int reuse = -1;
+        while(this.slots[slot] != FREE){
+            if(this.slots[slot] == value){
+                return false;
+            }
+            if((this.slots[slot] == REMOVED) && (reuse < 0)){
+                reuse = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if(reuse >= 0){
+            slot = reuse;
+            this.removed--;
+        }
+        this.own();
+        this.slots[slot] = value;
+        this.size++;
+        return true;
+    }
+
+
+    public boolean contains(int value){
+        return this.find(value) >= 0;
+    }
+
+
+    public boolean remove(int value){
+        int slot = this.find(value);
+        if(slot < 0){
+            return false;
+        }
+        this.removeSlot(slot);
+        return true;
+    }
+
+
+    /**
+     * Copy the values of the set (iteration order) to the array
+     *
+     * @return number of values copied
+     */
+    public int copyTo(int[] dst, int offset){
+        int n = offset;
+        for(int i=0; i < this.slots.length; i++){
+            int v = this.slots[i];
+            if((v != FREE) && (v != REMOVED)){
+                dst[n++] = v;
+            }
+        }
+        return n - offset;
+    }
+
+
+    /**
+     * @return values of the set (iteration order)
+     */
+    public int[] toIntArray(){
+        int[] values = new int[this.size];
+        this.copyTo(values, 0);
+        return values;
+    }
+
+
+    /**
+     * Slot of the value, or -1 if not in the set
+     */
+    private int find(int value){
+        if((this.size == 0) || (value == FREE) || (value == REMOVED)){
+            return -1;
+        }
+        int mask = this.slots.length - 1;
+        int slot = hash(value) & mask;
+        while(this.slots[slot] != FREE){
+            if(this.slots[slot] == value){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    private void removeSlot(int slot){
+        this.own();
+        this.slots[slot] = REMOVED;
+        this.size--;
+        this.removed++;
+        if(this.size == 0){
+            //All slots reclaimed
+            Arrays.fill(this.slots, FREE);
+            this.removed = 0;
+        }
+    }
+
+
+    /**
+     * Rebuild the table (removed marks dropped), doubled if the values fill half of it
+     */
+    private void rebuild(){
+        int[] old = this.slots;
+        int capacity = Math.max(INITIAL_CAPACITY, old.length);
+        while(((this.size + 1) << 1) > capacity){
+            capacity <<= 1;
+        }
+        this.slots = new int[capacity];
+        Arrays.fill(this.slots, FREE);
+        this.removed = 0;
+        this.shared = false;
+
+        int mask = capacity - 1;
+        for(int i=0; i < old.length; i++){
+            int v = old[i];
+            if((v != FREE) && (v != REMOVED)){
+                int slot = hash(v) & mask;
+                while(this.slots[slot] != FREE){
+                    slot = (slot + 1) & mask;
+                }
+                this.slots[slot] = v;
+            }
+        }
+    }
+
+
+    /**
+     * Copy the table if shared, before changing it
+     */
+    private void own(){
+        if(this.shared){
+            this.slots = this.slots.clone();
+            this.shared = false;
+        }
+    }
+
+
+    private static int hash(int value){
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+
+    /*
+     * Set<Integer> methods
+     */
+
+    @Override
+    public boolean add(Integer value){
+        return this.add(value.intValue());
+    }
+
+    @Override
+    public boolean contains(Object o){
+        return (o instanceof Integer) && this.contains(((Integer) o).intValue());
+    }
+
+    @Override
+    public boolean remove(Object o){
+        return (o instanceof Integer) && this.remove(((Integer) o).intValue());
+    }
+
+    @Override
+    public int size(){
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    @Override
+    public void clear(){
+        if(this.shared){
+            this.slots = EMPTY;
+            this.shared = false;
+        } else if(this.slots.length > 0){
+            Arrays.fill(this.slots, FREE);
+        }
+        this.size = 0;
+        this.removed = 0;
+    }
+
+
+    @Override
+    public Iterator<Integer> iterator(){
+        return new Iterator<Integer>(){
+
+            private int next = this.skip(0);
+            private int last = -1;
+
+            private int skip(int i){
+                while((i < slots.length) && ((slots[i] == FREE) || (slots[i] == REMOVED))){
+                    i++;
+                }
+                return i;
+            }
+
+            public boolean hasNext(){
+                return this.next < slots.length;
+            }
+
+            public Integer next(){
+                if(this.next >= slots.length){
+                    throw new NoSuchElementException();
+                }
+                this.last = this.next;
+                this.next = this.skip(this.next + 1);
+                return Integer.valueOf(slots[this.last]);
+            }
+
+            public void remove(){
+                if(this.last < 0){
+                    throw new IllegalStateException();
+                }
+                removeSlot(this.last);
+                this.last = -1;
+                if(size == 0){
+                    this.next = slots.length;
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Saved as a set of ids
+     */
+    private Object writeReplace(){
+        return new HashSet<Integer>(this);
+    }
+
+}
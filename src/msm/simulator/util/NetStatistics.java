@@ -28,6 +28,7 @@ public class NetStatistics {
     /**
      * @deprecated
      */
+    @Deprecated
     public static BigDecimal calculateCorrectValue(AggFunctions function, Collection<Node> nodes, MathContext mathContext) {
 /*        
         switch(function) {
@@ -9,6 +9,7 @@ import org.apache.commons.math.MathException;
 import org.apache.commons.math.random.MersenneTwister;
 import org.apache.commons.math.random.RandomData;
 import org.apache.commons.math.random.RandomDataImpl;
+import org.apache.commons.math.random.RandomGenerator;
 
 
 
@@ -22,10 +23,18 @@ public class NumGenerator {
     public enum GenerationFunction {CONSTANT, GAUSSIAN, POISSON, UNIFORM, EXPONENTIAL, WEIBULL}
     
 
+    //Mean up to which the Poisson values are drawn from a table of the cumulative probabilities
+    private static final double POISSON_TABLE_MAX_MEAN = 500;
+    
+
     private GenerationFunction genFunc;
     private String[] params;
     RandomDataImpl randomData;
     
+    //Random generator (shared with randomData), and sampler of the function with the parsed parameters
+    private RandomGenerator rng;
+    private Sampler sampler;
+    
     /**
      * CONSTRUCTORS
      */
@@ -42,10 +51,12 @@ public class NumGenerator {
         System.arraycopy(parameters, 0, this.params, 0, parameters.length);
         
         if(seed != null){
-            this.randomData = new RandomDataImpl(new MersenneTwister(seed));
+            this.rng = new MersenneTwister(seed);
         } else {
-            this.randomData = new RandomDataImpl(new MersenneTwister());
+            this.rng = new MersenneTwister();
         }
+        this.randomData = new RandomDataImpl(this.rng);
+        this.sampler = this.createSampler();
 /*        
         switch (this.genFunc) {
             case CONSTANT:
@@ -105,7 +116,9 @@ public class NumGenerator {
         this.params = new String[params.length - 1];
         System.arraycopy(params, 1, this.params, 0, (params.length - 1));
         
-        this.randomData = new RandomDataImpl(new MersenneTwister());
+        this.rng = new MersenneTwister();
+        this.randomData = new RandomDataImpl(this.rng);
+        this.sampler = this.createSampler();
         
 /*
         switch (this.genFunc) {
@@ -140,69 +153,53 @@ public class NumGenerator {
     
     
     public Integer generateInteger() throws MathException {
-        
-        switch (this.genFunc) {
-            case CONSTANT:
-                return Integer.valueOf(this.params[0]);
-            case GAUSSIAN:
-                Double resultG = this.randomData.nextGaussian(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
-                if(this.params.length > 3){
-                    //Get adding factor
-                    resultG = resultG + Double.valueOf(this.params[3]);
-                }
-                if(this.params.length > 2){
-                    //Get Multiplication factor
-                    resultG = resultG * Double.valueOf(this.params[2]);
-                }
-                return Integer.valueOf((int) Math.round(resultG));
-            case POISSON:
-                Long resultP = this.randomData.nextPoisson(Double.valueOf(this.params[0]));
-                if(this.params.length > 2){
-                    //Get adding factor
-                    resultP = resultP + Long.valueOf(this.params[2]);
-                }
-                if(this.params.length > 1){
-                    //Get Multiplication factor
-                    resultP = resultP * Long.valueOf(this.params[1]);
-                }
-                return resultP.intValue();
-            case UNIFORM:
-                Double resultU = this.randomData.nextUniform(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
-                if(this.params.length > 3){
-                    //Get adding factor
-                    resultU = resultU + Double.valueOf(this.params[3]);
-                }
-                if(this.params.length > 2){
-                    //Get Multiplication factor
-                    resultU = resultU * Double.valueOf(this.params[2]);
-                }
-                return Integer.valueOf((int) Math.round(resultU));
-            case EXPONENTIAL:
-                Double resultE = this.randomData.nextExponential(Double.valueOf(this.params[0]));
-                if(this.params.length > 2){
-                    //Get adding factor
-                    resultE = resultE + Double.valueOf(this.params[2]);
-                }
-                if(this.params.length > 1){
-                    //Get Multiplication factor
-                    resultE = resultE * Double.valueOf(this.params[1]);
-                }
-                return Integer.valueOf((int) Math.round(resultE));
-            case WEIBULL:
-                Double resultW = this.randomData.nextWeibull(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
-                if(this.params.length > 2){
-                    //Get Multiplication factor
-                    resultW = resultW * Double.valueOf(this.params[2]);
-                }
-                if(this.params.length > 3){
-                    //Get adding factor
-                    resultW = resultW + Double.valueOf(this.params[3]);
-                }
-                return Integer.valueOf((int) Math.round(resultW));
-            default:
-                return null;
+        return Integer.valueOf(this.sampler.nextInt());
+    }
+    
+    
+    /**
+     * Fill the array with values of generateInteger (e.g. transmission times of a broadcast)
+     * 
+     * @param out array to fill
+     */
+    public void fill(int[] out) throws MathException {
+        this.fill(out, 0, out.length);
+    }
+    
+    
+    /**
+     * Fill the range of the array with values of generateInteger
+     * 
+     * @param out array to fill
+     * @param from first index to fill (inclusive)
+     * @param to last index to fill (exclusive)
+     */
+    public void fill(int[] out, int from, int to) throws MathException {
+        Sampler s = this.sampler;
+        for(int i=from; i < to; i++){
+            out[i] = s.nextInt();
         }
-        
+    }
+    
+    
+    /**
+     * Lower bound of the values returned by generateInteger (e.g. minimum message transmission time)
+     * 
+     * @return minimum generated value, or Integer.MIN_VALUE if the values are not bounded
+     */
+    public int minimumInteger() {
+        return this.sampler.minimum();
+    }
+    
+    
+    /**
+     * Create a generator with the same function and parameters, but with its own random sequence
+     * 
+     * @param seed seed of the new generator (null for a random seed)
+     * @return new number generator
+     */
+    public NumGenerator copy(Integer seed) {
+        return new NumGenerator(this.genFunc, seed, this.params);
     }
     
 /*    
@@ -294,45 +291,374 @@ public class NumGenerator {
     
 
     public Double generateDouble() throws MathException {
+        return this.sampler.nextDouble();
+    }
+    
+    public Float generateFloat() throws MathException {
+        return (float) this.sampler.nextDouble();
+    }
+    
+    
+    /**
+     * Create the sampler of the generation function, parsing its parameters
+     */
+    private Sampler createSampler() {
+        
+        double p0 = (this.params.length > 0) ? Double.valueOf(this.params[0]) : 0;
+        double p1 = (this.params.length > 1) ? Double.valueOf(this.params[1]) : 0;
         
         switch (this.genFunc) {
             case CONSTANT:
-                return Double.valueOf(this.params[0]);
+                return new ConstantSampler(this.params[0]);
             case GAUSSIAN:
-                return this.randomData.nextGaussian(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
+                //(value + adding factor) * multiplication factor
+                return new GaussianSampler(this.rng, p0, p1, this.factor(3, 0), this.factor(2, 1));
             case POISSON:
-                return (double) this.randomData.nextPoisson(Double.valueOf(this.params[0]));
+                //(value + adding factor) * multiplication factor (integer factors)
+                return new PoissonSampler(this.rng, this.randomData, p0, 
+                        (this.params.length > 2) ? Long.valueOf(this.params[2]) : 0, 
+                        (this.params.length > 1) ? Long.valueOf(this.params[1]) : 1);
             case UNIFORM:
-                return this.randomData.nextUniform(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
+                //(value + adding factor) * multiplication factor
+                return new UniformSampler(this.rng, p0, p1, this.factor(3, 0), this.factor(2, 1));
             case EXPONENTIAL:
-                return this.randomData.nextExponential(Double.valueOf(this.params[0]));
-            case WEIBULL: 
-                return this.randomData.nextWeibull(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
+                //(value + adding factor) * multiplication factor
+                return new ExponentialSampler(this.rng, p0, this.factor(2, 0), this.factor(1, 1));
+            case WEIBULL:
+                //value * multiplication factor + adding factor
+                return new WeibullSampler(this.rng, p0, p1, this.factor(3, 0), this.factor(2, 1));
             default:
                 return null;
         }
+    }
+    
+    
+    private double factor(int index, double defaultValue) {
+        return (this.params.length > index) ? Double.valueOf(this.params[index]) : defaultValue;
+    }
+    
+    
+    /**
+     * Sampler of a generation function, with the parameters already parsed
+     */
+    private static abstract class Sampler {
+        
+        protected final RandomGenerator rng;
         
+        Sampler(RandomGenerator rng){
+            this.rng = rng;
+        }
+        
+        /**
+         * @return value of the function (without adding and multiplication factors)
+         */
+        abstract double nextDouble();
+        
+        /**
+         * @return rounded value of the function, with the adding and multiplication factors
+         */
+        abstract int nextInt();
+        
+        /**
+         * @return lower bound of nextInt, or Integer.MIN_VALUE if not bounded
+         */
+        abstract int minimum();
+        
+        /**
+         * @return uniform value in ]0, 1]
+         */
+        protected final double nextOpenUniform(){
+            return 1.0 - this.rng.nextDouble();
+        }
     }
     
-    public Float generateFloat() throws MathException {
+    
+    private static final class ConstantSampler extends Sampler {
         
-        switch (this.genFunc) {
-            case CONSTANT:
-                return Float.valueOf(this.params[0]);
-            case GAUSSIAN:
-                return (float) this.randomData.nextGaussian(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
-            case POISSON:
-                return (float) this.randomData.nextPoisson(Double.valueOf(this.params[0]));
-            case UNIFORM:
-                return (float) this.randomData.nextUniform(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
-            case EXPONENTIAL:
-                return (float) this.randomData.nextExponential(Double.valueOf(this.params[0]));
-            case WEIBULL: 
-                return (float) this.randomData.nextWeibull(Double.valueOf(this.params[0]), Double.valueOf(this.params[1]));
-            default:
-                return null;
+        private final String param;
+        private final Integer value;
+        private final double doubleValue;
+        
+        ConstantSampler(String param){
+            super(null);
+            this.param = param;
+            this.doubleValue = Double.valueOf(param);
+            //Integer value only required by nextInt (e.g. double constant of a data distribution)
+            Integer v;
+            try {
+                v = Integer.valueOf(param);
+            } catch (NumberFormatException nfe){
+                v = null;
+            }
+            this.value = v;
+        }
+        
+        double nextDouble(){
+            return this.doubleValue;
+        }
+        
+        int nextInt(){
+            return (this.value != null) ? this.value.intValue() : Integer.parseInt(this.param);
+        }
+        
+        int minimum(){
+            return this.nextInt();
+        }
+    }
+    
+    
+    /**
+     * Normal values by the ziggurat method (Marsaglia and Tsang, 128 layers),
+     * taking the layer and the value from independent bits
+     */
+    private static final class GaussianSampler extends Sampler {
+        
+        private static final double R = 3.442619855899;
+        private static final double V = 9.91256303526217e-3;
+        private static final double M = 2147483648.0;
+        private static final long[] KN = new long[128];
+        private static final double[] WN = new double[128];
+        private static final double[] FN = new double[128];
+        
+        static {
+            double dn = R;
+            double tn = dn;
+            double q = V / Math.exp(-0.5 * dn * dn);
+            KN[0] = (long) ((dn / q) * M);
+            KN[1] = 0;
+            WN[0] = q / M;
+            WN[127] = dn / M;
+            FN[0] = 1.0;
+            FN[127] = Math.exp(-0.5 * dn * dn);
+            for(int i=126; i >= 1; i--){
+                dn = Math.sqrt(-2.0 * Math.log(V / dn + Math.exp(-0.5 * dn * dn)));
+                KN[i+1] = (long) ((dn / tn) * M);
+                tn = dn;
+                FN[i] = Math.exp(-0.5 * dn * dn);
+                WN[i] = dn / M;
+            }
+        }
+        
+        private final double mu;
+        private final double sigma;
+        private final double add;
+        private final double mult;
+        
+        GaussianSampler(RandomGenerator rng, double mu, double sigma, double add, double mult){
+            super(rng);
+            this.mu = mu;
+            this.sigma = sigma;
+            this.add = add;
+            this.mult = mult;
+        }
+        
+        double nextDouble(){
+            return this.mu + this.sigma * this.nextNormal();
+        }
+        
+        int nextInt(){
+            return (int) Math.round((this.nextDouble() + this.add) * this.mult);
+        }
+        
+        int minimum(){
+            return Integer.MIN_VALUE;
+        }
+        
+        private double nextNormal(){
+            for(;;){
+                long bits = this.rng.nextLong();
+                int iz = (int) (bits & 127);
+                long hz = (int) (bits >> 32);
+                double x = hz * WN[iz];
+                if(Math.abs(hz) < KN[iz]){
+                    //Inside the rectangle of the layer (most values)
+                    return x;
+                }
+                if(iz == 0){
+                    //Tail (beyond R)
+                    double y;
+                    do {
+                        x = -Math.log(this.nextOpenUniform()) / R;
+                        y = -Math.log(this.nextOpenUniform());
+                    } while(y + y < x * x);
+                    return (hz > 0) ? R + x : -R - x;
+                }
+                if(FN[iz] + this.rng.nextDouble() * (FN[iz-1] - FN[iz]) < Math.exp(-0.5 * x * x)){
+                    return x;
+                }
+            }
+        }
+    }
+    
+    
+    /**
+     * Poisson values by inversion of a table of the cumulative probabilities (small means),
+     * or else by the commons-math generator
+     */
+    private static final class PoissonSampler extends Sampler {
+        
+        private final RandomDataImpl randomData;
+        private final double mean;
+        private final long add;
+        private final long mult;
+        private final double[] cdf;
+        
+        PoissonSampler(RandomGenerator rng, RandomDataImpl randomData, double mean, long add, long mult){
+            super(rng);
+            this.randomData = randomData;
+            this.mean = mean;
+            this.add = add;
+            this.mult = mult;
+            if((mean > 0) && (mean <= POISSON_TABLE_MAX_MEAN)){
+                //Cumulative probabilities up to 1 (in double precision)
+                double[] table = new double[(int) (mean * 2) + 32];
+                double p = Math.exp(-mean);
+                double c = p;
+                int k = 0;
+                table[0] = c;
+                while(c < 1.0 && p > 0){
+                    k++;
+                    if(k == table.length){
+                        double[] t = new double[k << 1];
+                        System.arraycopy(table, 0, t, 0, k);
+                        table = t;
+                    }
+                    p = p * mean / k;
+                    c = c + p;
+                    table[k] = c;
+                }
+                this.cdf = new double[k + 1];
+                System.arraycopy(table, 0, this.cdf, 0, k + 1);
+            } else {
+                this.cdf = null;
+            }
+        }
+        
+        double nextDouble(){
+            return this.nextLong();
+        }
+        
+        int nextInt(){
+            return (int) ((this.nextLong() + this.add) * this.mult);
+        }
+        
+        int minimum(){
+            //(value >= 0 + adding factor) * multiplication factor
+            return (this.mult >= 0) ? (int) (this.add * this.mult) : Integer.MIN_VALUE;
+        }
+        
+        private long nextLong(){
+            if(this.cdf == null){
+                return this.randomData.nextPoisson(this.mean);
+            }
+            //First value with cumulative probability above u
+            double u = this.rng.nextDouble();
+            int low = 0;
+            int high = this.cdf.length - 1;
+            while(low < high){
+                int middle = (low + high) >>> 1;
+                if(this.cdf[middle] > u){
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+    
+    
+    private static final class UniformSampler extends Sampler {
+        
+        private final double lower;
+        private final double range;
+        private final double add;
+        private final double mult;
+        
+        UniformSampler(RandomGenerator rng, double lower, double upper, double add, double mult){
+            super(rng);
+            this.lower = lower;
+            this.range = upper - lower;
+            this.add = add;
+            this.mult = mult;
+        }
+        
+        double nextDouble(){
+            return this.lower + this.range * this.nextOpenUniform();
+        }
+        
+        int nextInt(){
+            return (int) Math.round((this.nextDouble() + this.add) * this.mult);
+        }
+        
+        int minimum(){
+            //(value >= a + adding factor) * multiplication factor
+            return (this.mult >= 0) ? (int) Math.round((this.lower + this.add) * this.mult) : Integer.MIN_VALUE;
+        }
+    }
+    
+    
+    /**
+     * Exponential values by inversion of the CDF
+     */
+    private static final class ExponentialSampler extends Sampler {
+        
+        private final double mean;
+        private final double add;
+        private final double mult;
+        
+        ExponentialSampler(RandomGenerator rng, double mean, double add, double mult){
+            super(rng);
+            this.mean = mean;
+            this.add = add;
+            this.mult = mult;
+        }
+        
+        double nextDouble(){
+            return -this.mean * Math.log(this.nextOpenUniform());
         }
         
+        int nextInt(){
+            return (int) Math.round((this.nextDouble() + this.add) * this.mult);
+        }
+        
+        int minimum(){
+            //(value >= 0 + adding factor) * multiplication factor
+            return (this.mult >= 0) ? (int) Math.round(this.add * this.mult) : Integer.MIN_VALUE;
+        }
+    }
+    
+    
+    /**
+     * Weibull values by inversion of the CDF: scale * (-ln(1 - u))^(1/shape)
+     */
+    private static final class WeibullSampler extends Sampler {
+        
+        private final double inverseShape;
+        private final double scale;
+        private final double add;
+        private final double mult;
+        
+        WeibullSampler(RandomGenerator rng, double shape, double scale, double add, double mult){
+            super(rng);
+            this.inverseShape = 1.0 / shape;
+            this.scale = scale;
+            this.add = add;
+            this.mult = mult;
+        }
+        
+        double nextDouble(){
+            return this.scale * Math.pow(-Math.log(this.nextOpenUniform()), this.inverseShape);
+        }
+        
+        int nextInt(){
+            return (int) Math.round(this.nextDouble() * this.mult + this.add);
+        }
+        
+        int minimum(){
+            //value >= 0 * multiplication factor + adding factor
+            return (this.mult >= 0) ? (int) Math.round(this.add) : Integer.MIN_VALUE;
+        }
     }
     
     
@@ -0,0 +1,145 @@
+/**
+ * MSM - Network Simulator
+ */
+
+package msm.simulator.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Save and restore the state of an object (its fields), by reflection.
+ *
+ * The value of each field is kept, and the content of the collections, maps,
+ * arrays and random generators (StreamRandom) it refers to is copied (one level,
+ * elements are not copied). The state is restored in place: the fields refer
+ * again to the same objects, with the saved content. Other objects referred by
+ * the fields must not be changed (e.g. immutable values like BigDecimal or String).
+ *
+ * @author pcjesus
+ * @version 1.0
+ */
+
+public final class ObjectState {
+
+    //Fields of each class (up to the top class of the last use), shared by all threads
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+
+
+    private ObjectState(){
+    }
+
+
+    /**
+     * Save the state of the object (fields of its class up to the top class)
+     *
+     * @param obj object to save
+     * @param top last superclass whose fields are saved
+     * @return saved state
+     */
+    public static Object save(Object obj, Class<?> top){
+        Field[] fields = fields(obj.getClass(), top);
+        Object[] state = new Object[fields.length << 1];
+        try {
+            for(int i=0; i < fields.length; i++){
+                Object value = fields[i].get(obj);
+                state[i << 1] = value;
+                state[(i << 1) + 1] = copy(value);
+            }
+        } catch (IllegalAccessException iae){
+            throw new IllegalStateException(iae);
+        }
+        return state;
+    }
+
+
+    /**
+     * Restore a state of the object (returned by save, with the same top class)
+     *
+     * @param obj object to restore
+     * @param savedState saved state
+     * @param top last superclass whose fields are restored
+     */
+    @SuppressWarnings("unchecked")
+    public static void restore(Object obj, Object savedState, Class<?> top){
+        Field[] fields = fields(obj.getClass(), top);
+        Object[] state = (Object[]) savedState;
+        try {
+            for(int i=0; i < fields.length; i++){
+                Object value = state[i << 1];
+                Object copy = state[(i << 1) + 1];
+                if(value instanceof Map){
+                    Map<Object, Object> map = (Map<Object, Object>) value;
+                    if(!map.equals(copy)){
+                        map.clear();
+                        map.putAll((Map<Object, Object>) copy);
+                    }
+                } else if(value instanceof Collection){
+                    Collection<Object> col = (Collection<Object>) value;
+                    List<Object> content = (List<Object>) copy;
+                    if((col instanceof List) ? !col.equals(content) : ((col.size() != content.size()) || !col.containsAll(content))){
+                        col.clear();
+                        col.addAll(content);
+                    }
+                } else if(value instanceof StreamRandom){
+                    ((StreamRandom) value).restoreState(copy);
+                } else if((value != null) && value.getClass().isArray()){
+                    System.arraycopy(copy, 0, value, 0, Array.getLength(copy));
+                }
+                if(fields[i].get(obj) != value){
+                    fields[i].set(obj, value);
+                }
+            }
+        } catch (IllegalAccessException iae){
+            throw new IllegalStateException(iae);
+        }
+    }
+
+
+    private static Object copy(Object value){
+        if(value instanceof Map){
+            return new LinkedHashMap<Object, Object>((Map<?, ?>) value);
+        } else if(value instanceof Collection){
+            return new ArrayList<Object>((Collection<?>) value);
+        } else if(value instanceof StreamRandom){
+            return ((StreamRandom) value).saveState();
+        } else if((value != null) && value.getClass().isArray()){
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        } else {
+            return value;
+        }
+    }
+
+
+    private static Field[] fields(Class<?> type, Class<?> top){
+        Field[] fields = FIELDS.get(type);
+        if((fields == null) || ((fields.length > 0) && (fields[fields.length - 1].getDeclaringClass() != top))){
+            List<Field> list = new ArrayList<Field>();
+            for(Class<?> c = type; c != null; c = c.getSuperclass()){
+                for(Field f : c.getDeclaredFields()){
+                    if(!Modifier.isStatic(f.getModifiers())){
+                        f.setAccessible(true);
+                        list.add(f);
+                    }
+                }
+                if(c == top){
+                    break;
+                }
+            }
+            fields = list.toArray(new Field[list.size()]);
+            FIELDS.put(type, fields);
+        }
+        return fields;
+    }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * MSM - Network Simulator
+ */
+
+package msm.simulator.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Independent pseudo-random streams (one per node), derived from a single seed.
+ *
+ * The n-th value of a stream only depends on the seed, the stream index and n
+ * (counter based generator, SplitMix64 mixing), not on the order in which the
+ * streams are used. Different streams may be used concurrently by different threads,
+ * as long as each stream is used by a single thread at a time.
+ *
+ * @author pcjesus
+ * @version 1.0
+ */
+
+public class RandomStreams {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    //Maximum number of Bernoulli trials drawn up to a success (very small probabilities)
+    private static final long MAX_TRIALS = Long.MAX_VALUE >> 1;
+
+    private final long seed;
+
+    //Number of values already drawn from each stream
+    private long[] draws;
+    //Bernoulli trials of each stream up to the next success (0 if not drawn yet)
+    private long[] trials;
+    //Success probability of the trials (and log of the failure probability)
+    private double trialProbability;
+    private double logFailure;
+
+
+    public RandomStreams(long seed){
+        this.seed = seed;
+        this.draws = new long[0];
+        this.trials = new long[0];
+        this.setTrialProbability(1.0);
+    }
+
+
+    /**
+     * Ensure the existence of the streams [0, streams)
+     * (not thread safe, must be called before using the new streams concurrently)
+     *
+     * @param streams number of streams
+     */
+    public void ensureCapacity(int streams){
+        if(streams > this.draws.length){
+            this.draws = Arrays.copyOf(this.draws, Math.max(streams, this.draws.length << 1));
+            this.trials = Arrays.copyOf(this.trials, this.draws.length);
+        }
+    }
+
+
+    /**
+     * Return the next value of the stream, uniformly distributed in [0, 1)
+     *
+     * @param stream index of the stream
+     * @return next value of the stream
+     */
+    public float nextFloat(int stream){
+        if(stream >= this.draws.length){
+            this.ensureCapacity(stream + 1);
+        }
+        long n = this.draws[stream]++;
+        long z = mix(this.streamSeed(stream) + (n * GOLDEN_GAMMA));
+        return (z >>> 40) * 0x1.0p-24f;
+    }
+
+
+    /**
+     * Set the success probability of the Bernoulli trials of all streams
+     * (must be set before the first trial)
+     *
+     * @param probability success probability, in ]0, 1]
+     */
+    public void setTrialProbability(double probability){
+        this.trialProbability = probability;
+        this.logFailure = Math.log1p(-Math.min(probability, 1.0));
+    }
+
+
+    /**
+     * Return the result of the next Bernoulli trial of the stream: the number of trials
+     * up to the next success is drawn when the previous one succeeds (geometric distribution),
+     * so only one value of the stream is used per success
+     *
+     * @param stream index of the stream
+     * @return true if the trial succeeds
+     */
+    public boolean nextTrial(int stream){
+        if(stream >= this.draws.length){
+            this.ensureCapacity(stream + 1);
+        }
+        long t = this.trials[stream];
+        if(t == 0){
+            //Failures before the next success: floor(log(U) / log(1 - p)), U uniform in ]0, 1]
+            long n = this.draws[stream]++;
+            long z = mix(this.streamSeed(stream) + (n * GOLDEN_GAMMA));
+            double u = 1.0 - ((z >>> 11) * 0x1.0p-53);
+            double failures = (this.trialProbability >= 1.0) ? 0.0 : Math.floor(Math.log(u) / this.logFailure);
+            t = (failures < MAX_TRIALS) ? ((long) failures) + 1 : MAX_TRIALS;
+        }
+        this.trials[stream] = t - 1;
+        return (t == 1);
+    }
+
+
+    /**
+     * Number of values already drawn from the stream 
+     * (position of the stream, to be restored by setDraws)
+     *
+     * @param stream index of the stream
+     * @return number of values drawn
+     */
+    public long getDraws(int stream){
+        return (stream < this.draws.length) ? this.draws[stream] : 0;
+    }
+
+
+    /**
+     * Set the position of the stream (number of values already drawn)
+     *
+     * @param stream index of the stream
+     * @param n number of values drawn
+     */
+    public void setDraws(int stream, long n){
+        if(stream >= this.draws.length){
+            this.ensureCapacity(stream + 1);
+        }
+        this.draws[stream] = n;
+    }
+
+
+    /**
+     * Number of Bernoulli trials of the stream up to the next success
+     * (state of the trials, to be restored by setTrials along with the position)
+     *
+     * @param stream index of the stream
+     * @return number of trials (0 if not drawn yet)
+     */
+    public long getTrials(int stream){
+        return (stream < this.trials.length) ? this.trials[stream] : 0;
+    }
+
+
+    public void setTrials(int stream, long t){
+        if(stream >= this.draws.length){
+            this.ensureCapacity(stream + 1);
+        }
+        this.trials[stream] = t;
+    }
+
+
+    /**
+     * Create a new random generator for the stream (e.g. to be used by the 
+     * application of a node), with the same sequence as java.util.Random
+     *
+     * @param stream index of the stream
+     * @return random generator initialized from the stream seed
+     */
+    public Random createRandom(int stream){
+        return new StreamRandom(mix(this.streamSeed(stream) ^ GOLDEN_GAMMA));
+    }
+
+
+    /**
+     * Return a seed derived from the streams seed, for an auxiliary generator
+     * (independent from the values of the streams)
+     *
+     * @param index index of the auxiliary generator
+     * @return derived seed
+     */
+    public int deriveSeed(int index){
+        return (int) mix(this.seed ^ mix(~((long) index) * GOLDEN_GAMMA));
+    }
+
+
+    public long getSeed(){
+        return this.seed;
+    }
+
+
+    private long streamSeed(int stream){
+        return mix(this.seed + ((stream + 1) * GOLDEN_GAMMA));
+    }
+
+
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -24,8 +24,8 @@ public class RatingCalc {
 
     public static double multiply(double n1, double n2, int precision) {
         MathContext mc = new MathContext(precision);
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.multiply(b, mc);
 
@@ -34,8 +34,8 @@ public class RatingCalc {
     
     public static double multiply(double n1, double n2, int precision, RoundingMode roundingMode) {
         MathContext mc = new MathContext(precision, roundingMode);
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.multiply(b, mc);
 
@@ -43,8 +43,8 @@ public class RatingCalc {
     }
     
     public static double multiply(double n1, double n2, MathContext mc) {
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.multiply(b, mc);
 
@@ -69,8 +69,8 @@ public class RatingCalc {
 
     public static double divide(double n1, double n2, int precision) {
         MathContext mc = new MathContext(precision);
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.divide(b, mc);
 
@@ -79,8 +79,8 @@ public class RatingCalc {
     
     public static double divide(double n1, double n2, int precision, RoundingMode roundingMode) {
         MathContext mc = new MathContext(precision, roundingMode);
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.divide(b, mc);
 
@@ -88,8 +88,8 @@ public class RatingCalc {
     }
     
     public static double divide(double n1, double n2, MathContext mc) {
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.divide(b, mc);
 
@@ -121,8 +121,8 @@ public class RatingCalc {
     
     public static double add(double n1, double n2, int precision) {
         MathContext mc = new MathContext(precision);
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.add(b, mc);
 
@@ -131,8 +131,8 @@ public class RatingCalc {
     
     public static double add(double n1, double n2, int precision, RoundingMode roundingMode) {
         MathContext mc = new MathContext(precision, roundingMode);
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.add(b, mc);
 
@@ -140,8 +140,8 @@ public class RatingCalc {
     }
     
     public static double add(double n1, double n2, MathContext mc) {
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.add(b, mc);
 
@@ -166,8 +166,8 @@ public class RatingCalc {
 
     public static double subtract(double n1, double n2, int precision) {
         MathContext mc = new MathContext(precision);
-        BigDecimal a = new BigDecimal(new Double(n1).toString());
-        BigDecimal b = new BigDecimal(new Double(n2).toString());
+        BigDecimal a = new BigDecimal(Double.toString(n1));
+        BigDecimal b = new BigDecimal(Double.toString(n2));
         BigDecimal c = null;
         c = a.subtract(b, mc);
 
@@ -176,8 +176,8 @@ public class RatingCalc {
     
     public static double subtract(double n1, double n2, int precision, RoundingMode roundingMode) {
         MathContext mc = new MathContext(precision, roundingMode);
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.subtract(b, mc);
 
@@ -185,8 +185,8 @@ public class RatingCalc {
     }
     
     public static double subtract(double n1, double n2, MathContext mc) {
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
-        BigDecimal b = new BigDecimal(new Double(n2).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
+        BigDecimal b = new BigDecimal(Double.toString(n2), mc);
         BigDecimal c = null;
         c = a.subtract(b, mc);
 
@@ -210,7 +210,7 @@ public class RatingCalc {
     
     public static double abs(double n1, int precision) {
         MathContext mc = new MathContext(precision);
-        BigDecimal a = new BigDecimal(new Double(n1).toString());
+        BigDecimal a = new BigDecimal(Double.toString(n1));
         BigDecimal c = null;
         c = a.abs(mc);
 
@@ -219,7 +219,7 @@ public class RatingCalc {
     
     public static double abs(double n1, int precision, RoundingMode roundingMode) {
         MathContext mc = new MathContext(precision, roundingMode);
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
         BigDecimal c = null;
         c = a.abs(mc);
 
@@ -227,7 +227,7 @@ public class RatingCalc {
     }
     
     public static double abs(double n1, MathContext mc) {
-        BigDecimal a = new BigDecimal(new Double(n1).toString(), mc);
+        BigDecimal a = new BigDecimal(Double.toString(n1), mc);
         BigDecimal c = null;
         c = a.abs(mc);
 
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 /**
@@ -36,6 +37,16 @@ public class SetUtils {
     }
     
     
+    /**
+     * Return a List randomizing a given Set elements, using the given random generator.
+     */
+    public static <T> List<T> randomizeSet(Set<T> objSet, Random rnd){
+        List<T> randomList = new ArrayList<T>(objSet); 
+        Collections.shuffle(randomList, rnd);
+        return randomList;
+    }
+    
+    
     public static <T extends Comparable<? super T>> List<T> sortSet(Set<T> objSet){
         List<T> list = new ArrayList<T>(objSet); 
         Collections.sort(list);
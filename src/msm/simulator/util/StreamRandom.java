@@ -0,0 +1,91 @@
+/**
+ * MSM - Network Simulator
+ */
+
+package msm.simulator.util;
+
+import java.util.Random;
+
+/**
+ * Random generator with the same sequence as java.util.Random (same linear
+ * congruential generator), but whose state can be saved and restored
+ * (e.g. to roll back the application of a node in the optimistic execution).
+ *
+ * Not thread safe, must be used by a single thread at a time.
+ *
+ * @author pcjesus
+ * @version 1.0
+ */
+
+public class StreamRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    //Generator state (set by the super constructor, through setSeed)
+    private long state;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+
+    public StreamRandom(long seed){
+        super(seed);
+    }
+
+
+    public void setSeed(long seed){
+        this.state = (seed ^ MULTIPLIER) & MASK;
+        this.haveNextNextGaussian = false;
+    }
+
+
+    protected int next(int bits){
+        this.state = (this.state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (this.state >>> (48 - bits));
+    }
+
+
+    public double nextGaussian(){
+        if(this.haveNextNextGaussian){
+            this.haveNextNextGaussian = false;
+            return this.nextNextGaussian;
+        }
+        double v1, v2, s;
+        do {
+            v1 = 2 * this.nextDouble() - 1;
+            v2 = 2 * this.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while(s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        this.nextNextGaussian = v2 * multiplier;
+        this.haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+
+    /**
+     * @return copy of the current state of the generator
+     */
+    public Object saveState(){
+        StreamRandom copy = new StreamRandom(0);
+        copy.restoreState(this);
+        return copy;
+    }
+
+
+    /**
+     * Restore a state of the generator (returned by saveState)
+     *
+     * @param savedState state to restore
+     */
+    public void restoreState(Object savedState){
+        StreamRandom copy = (StreamRandom) savedState;
+        this.state = copy.state;
+        this.nextNextGaussian = copy.nextNextGaussian;
+        this.haveNextNextGaussian = copy.haveNextNextGaussian;
+    }
+
+}
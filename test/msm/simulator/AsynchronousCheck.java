@@ -0,0 +1,230 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import msm.simulator.network.Network;
+import msm.simulator.network.Node;
+
+
+/**
+ * Equivalence check of the partitioned engines of the asynchronous model, for the FlowUpdating
+ * and PushSynopse simulations of the configuration:
+ * - PARALLEL (conservative) and OPTIMISTIC (Time Warp) give the same trace for the same seed
+ *   with 1, 2 and 4 threads (same number of logical processes);
+ * - OPTIMISTIC with 1 logical process gives the same trace as PARALLEL;
+ * - SEQUENTIAL and OPTIMISTIC give the same statistics over several seeds: mean messages sent
+ *   and mean estimation error (RMSE) at the end time, within 3 standard errors. OPTIMISTIC must
+ *   roll back events (rollback path covered).
+ *
+ * Messages take 1 to 50 time units (PushSynopse needs its own messages before its next tick),
+ * and the optimistic window is fixed wide enough for rollbacks.
+ *
+ * The trace is a digest of the value and message counters of every node, and of the global
+ * number of messages, at each sample period.
+ *
+ * Usage: AsynchronousCheck config [network size] [time] [seeds]
+ *
+ * @author pcjesus
+ *
+ */
+public class AsynchronousCheck {
+
+    private static final String[] APPS = {"FlowUpdatingDynamic", "PushSynopse"};
+    private static final String LOGICAL_PROCESSES = "8";
+    private static final String TRANSMISSION_TIME = "UNIFORM;1;50";
+    private static final String OPTIMISTIC_WINDOW = "5000";
+    private static final int SAMPLES = 20;
+
+
+    public static void main(String[] args) throws Exception {
+
+        Config config = new Config(args[0]);
+        if(args.length > 1){
+            config.setValue(Config.PARAM_NETWORK_SIZE, args[1]);
+        }
+        int time = (args.length > 2) ? Integer.parseInt(args[2]) : 20000;
+        int seeds = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+
+        Network net = ParallelCheck.createNetwork(config);
+
+        int differences = 0;
+        int simulations = Integer.parseInt(config.getValue(Config.PARAM_SIMULATION_NUMBER));
+        for(int sim=1; sim <= simulations; sim++){
+            String app = config.getValue(Config.PARAM_APPLICATION_TYPE, sim);
+            if(!Arrays.asList(APPS).contains(app)){
+                continue;
+            }
+            config.setValue("12345", sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_SEED);
+            config.setValue(TRANSMISSION_TIME, sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_MSG_TRANSMISSION_TIME);
+            config.setValue(OPTIMISTIC_WINDOW, sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_OPTIMISTIC_WINDOW);
+
+            //Same trace for any number of threads
+            for(String mode : new String[]{"PARALLEL", "OPTIMISTIC"}){
+                config.setValue(LOGICAL_PROCESSES, sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_LOGICAL_PROCESSES);
+                List<String> reference = null;
+                for(String threads : new String[]{"1", "2", "4"}){
+                    config.setValue(threads, sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_THREADS);
+                    List<String> trace = new ArrayList<String>();
+                    run(config, net, sim, mode, time, trace);
+                    if(reference == null){
+                        reference = trace;
+                    } else if(!reference.equals(trace)){
+                        differences++;
+                        System.out.println("simulation "+sim+" ("+app+") "+mode+": "+threads+" threads DIFFERENT from 1 thread");
+                    }
+                }
+                System.out.println("simulation "+sim+" ("+app+") "+mode+": 1, 2 and 4 threads checked");
+            }
+
+            //One logical process: OPTIMISTIC same as PARALLEL
+            config.setValue("1", sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_THREADS);
+            config.setValue("1", sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_LOGICAL_PROCESSES);
+            List<String> parallel = new ArrayList<String>();
+            List<String> optimistic = new ArrayList<String>();
+            run(config, net, sim, "PARALLEL", time, parallel);
+            run(config, net, sim, "OPTIMISTIC", time, optimistic);
+            boolean same = parallel.equals(optimistic);
+            if(!same){
+                differences++;
+            }
+            System.out.println("simulation "+sim+" ("+app+") 1 logical process: OPTIMISTIC "+(same ? "IDENTICAL" : "DIFFERENT")+" to PARALLEL");
+
+            //Statistics over seeds: SEQUENTIAL vs OPTIMISTIC
+            config.setValue("2", sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_THREADS);
+            config.setValue(LOGICAL_PROCESSES, sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_LOGICAL_PROCESSES);
+            double[][] sequential = new double[2][seeds];
+            double[][] timeWarp = new double[2][seeds];
+            long rolledBack = 0;
+            for(int s=0; s < seeds; s++){
+                config.setValue(String.valueOf(1000 + s), sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_SEED);
+                run(config, net, sim, "SEQUENTIAL", time, null, sequential, s);
+                rolledBack += run(config, net, sim, "OPTIMISTIC", time, null, timeWarp, s);
+            }
+            String[] names = {"messages sent", "RMSE"};
+            for(int k=0; k < names.length; k++){
+                boolean close = close(sequential[k], timeWarp[k]);
+                if(!close){
+                    differences++;
+                }
+                System.out.printf("simulation %d (%s) %s: SEQUENTIAL %.4g+-%.2g vs OPTIMISTIC %.4g+-%.2g %s%n", sim, app, names[k],
+                        mean(sequential[k]), stdDev(sequential[k]), mean(timeWarp[k]), stdDev(timeWarp[k]), close ? "SAME" : "DIFFERENT");
+            }
+            if(rolledBack == 0){
+                differences++;
+            }
+            System.out.println("simulation "+sim+" ("+app+") OPTIMISTIC rolled back events: "+rolledBack);
+        }
+
+        if(differences > 0){
+            throw new IllegalStateException(differences+" checks failed");
+        }
+        System.out.println("OK");
+    }
+
+
+    private static long run(Config config, Network net0, int sim, String mode, int time, List<String> trace) throws Exception {
+        return run(config, net0, sim, mode, time, trace, null, 0);
+    }
+
+
+    /**
+     * Run the simulation up to the time, adding the digest of every sample to the trace (if
+     * any) and the final messages sent and RMSE to the statistics (if any)
+     *
+     * @return number of events rolled back (OPTIMISTIC)
+     */
+    private static long run(Config config, Network net0, int sim, String mode, int time, List<String> trace,
+            double[][] stats, int index) throws Exception {
+
+        ComEngine ce = new ComEngine();
+        ce.setModel("Asynchronous", mode);
+        SimulationEngine engine = ce.getEngine();
+        Network net = (Network) net0.clone();
+        MessageDigest md = MessageDigest.getInstance("MD5");
+
+        engine.init(net, config, sim, 0);
+        int period = Math.max(1, time / SAMPLES);
+        int next = period;
+        for(int t=0; t < time; t=engine.getGlobalTime()){
+            while((next <= t) && (next <= time)){
+                if(trace != null){
+                    StringBuilder sb = new StringBuilder();
+                    for(Integer id : new TreeSet<Integer>(net.getNodesKeySet())){
+                        Node n = net.getNode(id);
+                        sb.append(id).append(':').append(n.getApplication().getValue())
+                            .append(',').append(n.getMsgSendCount())
+                            .append(',').append(n.getMsgRcvCount())
+                            .append(',').append(n.getMsgLossCount()).append(';');
+                    }
+                    sb.append(ce.getMsgCount());
+                    trace.add(new BigInteger(1, md.digest(sb.toString().getBytes("UTF-8"))).toString(16));
+                }
+                next += period;
+            }
+            engine.setHorizon(Math.min(time, next));
+            engine.step();
+        }
+
+        if(stats != null){
+            MathContext mc = MathContext.DECIMAL64;
+            BigDecimal total = BigDecimal.ZERO;
+            long sent = 0;
+            for(Node n : net.getNodes()){
+                total = total.add(n.getDataValue(), mc);
+                sent += n.getMsgSendCount();
+            }
+            BigDecimal trueValue = total.divide(new BigDecimal(net.getNumNodes()), mc);
+            double squares = 0;
+            for(Node n : net.getNodes()){
+                double e = n.getApplication().getValue().subtract(trueValue, mc).doubleValue();
+                squares += e * e;
+            }
+            stats[0][index] = sent;
+            stats[1][index] = Math.sqrt(squares / net.getNumNodes());
+        }
+
+        return (engine instanceof OptimisticAsynchronousEngine) ? ((OptimisticAsynchronousEngine) engine).getRolledBackEvents() : 0;
+    }
+
+
+    /**
+     * @return true if the means differ by less than 3 standard errors (or a relative 1e-9)
+     */
+    private static boolean close(double[] a, double[] b){
+        double se = Math.sqrt(variance(a) / a.length + variance(b) / b.length);
+        double diff = Math.abs(mean(a) - mean(b));
+        return (diff <= 3 * se) || (diff <= 1e-9 * Math.max(Math.abs(mean(a)), Math.abs(mean(b))));
+    }
+
+    private static double mean(double[] values){
+        double sum = 0;
+        for(double v : values){
+            sum += v;
+        }
+        return sum / values.length;
+    }
+
+    private static double variance(double[] values){
+        double m = mean(values);
+        double sum = 0;
+        for(double v : values){
+            sum += (v - m) * (v - m);
+        }
+        return (values.length > 1) ? sum / (values.length - 1) : 0;
+    }
+
+    private static double stdDev(double[] values){
+        return Math.sqrt(variance(values));
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import msm.simulator.network.Network;
+
+
+/**
+ * Time per round of the synchronous engine, SEQUENTIAL (1 thread) and PARALLEL (other
+ * numbers of threads), for the first simulation of the configuration.
+ *
+ * Usage: ParallelBench config network-size rounds threads...
+ *
+ * @author pcjesus
+ *
+ */
+public class ParallelBench {
+
+    public static void main(String[] args) throws Exception {
+
+        Config config = new Config(args[0]);
+        config.setValue(Config.PARAM_NETWORK_SIZE, args[1]);
+        int rounds = Integer.parseInt(args[2]);
+
+        Network net = ParallelCheck.createNetwork(config);
+        System.out.println("cores="+Runtime.getRuntime().availableProcessors()+" nodes="+net.getNumNodes());
+
+        for(int rep=0; rep < 2; rep++){
+            for(int i=3; i < args.length; i++){
+                String mode = args[i].equals("1") ? "SEQUENTIAL" : "PARALLEL";
+                config.setValue(args[i], 1, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_THREADS);
+                config.setValue("7", 1, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_SEED);
+
+                ComEngine ce = new ComEngine();
+                ce.setModel("Synchronous", mode);
+                SimulationEngine engine = ce.getEngine();
+                engine.init((Network) net.clone(), config, 1, 0);
+                //First round not measured (initialization)
+                engine.step();
+                long start = System.nanoTime();
+                for(int t=engine.getGlobalTime(); t < rounds; t=engine.getGlobalTime()){
+                    engine.step();
+                }
+                long time = System.nanoTime() - start;
+                System.out.printf("threads=%s %s: %.1f ms/round%n", args[i], mode, time / 1e6 / (rounds - 1));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import msm.simulator.network.Network;
+import msm.simulator.network.Node;
+import msm.simulator.network.SpatialDataDistribution;
+
+
+/**
+ * Equivalence check of the parallel synchronous engine: each simulation of the configuration
+ * is run SEQUENTIAL and PARALLEL (with the same seed), without loss and with loss at the
+ * sender and at the receiver, comparing after every round a digest of the value and message
+ * counters of every node and the global number of messages.
+ *
+ * Usage: ParallelCheck config [network size] [rounds] [threads]
+ *
+ * @author pcjesus
+ *
+ */
+public class ParallelCheck {
+
+    private static final String[][] LOSS = {{"0.0", "false"}, {"0.2", "false"}, {"0.2", "true"}};
+
+
+    public static void main(String[] args) throws Exception {
+
+        Config config = new Config(args[0]);
+        if(args.length > 1){
+            config.setValue(Config.PARAM_NETWORK_SIZE, args[1]);
+        }
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+        String threads = (args.length > 3) ? args[3] : "4";
+
+        Network net = createNetwork(config);
+
+        int differences = 0;
+        int simulations = Integer.parseInt(config.getValue(Config.PARAM_SIMULATION_NUMBER));
+        for(int sim=1; sim <= simulations; sim++){
+            for(String[] loss : LOSS){
+                config.setValue(loss[0], sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_LOSS_PROBABILITY);
+                config.setValue(loss[1], sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_LOSS_AT_SENDER);
+                config.setValue("12345", sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_SEED);
+                config.setValue(threads, sim, Config.PARAM_COMMUNICATION_ENGINE_PARAM, ComEngine.PARAM_THREADS);
+
+                List<String> sequential = new ArrayList<String>();
+                List<String> parallel = new ArrayList<String>();
+                String error = run(config, net, sim, "SEQUENTIAL", rounds, sequential);
+                String parallelError = run(config, net, sim, "PARALLEL", rounds, parallel);
+                boolean same = sequential.equals(parallel) && String.valueOf(error).equals(String.valueOf(parallelError));
+                if(!same){
+                    differences++;
+                }
+                System.out.println("simulation "+sim+" loss="+loss[0]+" at sender="+loss[1]+": "+sequential.size()+" rounds "
+                        +(same ? "IDENTICAL" : "DIFFERENT")+((error != null) ? " (error: "+error+")" : "")
+                        +((!same && (parallelError != null)) ? " (parallel error: "+parallelError+")" : ""));
+            }
+        }
+
+        if(differences > 0){
+            throw new IllegalStateException(differences+" simulations differ");
+        }
+        System.out.println("OK");
+    }
+
+
+    static Network createNetwork(Config config) throws Exception {
+        SpatialDataDistribution dd = new SpatialDataDistribution(false, config);
+        dd.generateData();
+        Network net = Network.createInstance(config);
+        net.generateNetwork();
+        dd.setDataDistribution(net);
+        return net;
+    }
+
+
+    /**
+     * Run the simulation, adding the digest of every round to the trace
+     *
+     * @return error of the simulation (null if none; class only, the message may be lost
+     *  when thrown by a worker)
+     */
+    private static String run(Config config, Network net0, int sim, String mode, int rounds, List<String> trace) throws Exception {
+
+        ComEngine ce = new ComEngine();
+        ce.setModel("Synchronous", mode);
+        SimulationEngine engine = ce.getEngine();
+        Network net = (Network) net0.clone();
+        MessageDigest md = MessageDigest.getInstance("MD5");
+
+        try {
+            engine.init(net, config, sim, 0);
+            for(int t=0; t < rounds; t=engine.getGlobalTime()){
+                engine.step();
+                StringBuilder sb = new StringBuilder();
+                for(Integer id : new TreeSet<Integer>(net.getNodesKeySet())){
+                    Node n = net.getNode(id);
+                    sb.append(id).append(':').append(n.getApplication().getValue())
+                        .append(',').append(n.getMsgSendCount())
+                        .append(',').append(n.getMsgRcvCount())
+                        .append(',').append(n.getMsgLossCount()).append(';');
+                }
+                sb.append(ce.getMsgCount());
+                trace.add(new BigInteger(1, md.digest(sb.toString().getBytes("UTF-8"))).toString(16));
+            }
+        } catch (RuntimeException e) {
+            return e.getClass().getName();
+        }
+
+        return null;
+    }
+
+}
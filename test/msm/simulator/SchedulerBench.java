@@ -0,0 +1,108 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import msm.simulator.Event.EventType;
+
+
+/**
+ * Time and allocation of the event schedulers (TREE and CALENDAR) in a hold model: a fixed
+ * number of pending events, each pulled event scheduling a new one after a Weibull(2,45)
+ * delay, and one in eight of them cancelled and replaced by a timer.
+ *
+ * Allocated bytes are measured per thread (only where supported by the JVM).
+ *
+ * Usage: SchedulerBench [pending] [events]
+ *
+ * @author pcjesus
+ *
+ */
+public class SchedulerBench {
+
+    public static void main(String[] args){
+
+        int pending = (args.length > 0) ? Integer.parseInt(args[0]) : 300000;
+        int events = (args.length > 1) ? Integer.parseInt(args[1]) : 10000000;
+
+        for(int i=0; i < 2; i++){
+            run("TREE", new ScheduledEvents(), pending, events);
+            run("CALENDAR", new CalendarScheduledEvents(), pending, events);
+        }
+    }
+
+
+    private static void run(String name, EventScheduler scheduler, int pending, int events){
+
+        Random random = new Random(7);
+        EventBatch batch = new EventBatch();
+
+        for(int i=0; i < pending; i++){
+            scheduler.add(1 + random.nextInt(100), random.nextInt(10000), EventType.MSG_RECEIVE, null);
+        }
+        //Warm up
+        hold(scheduler, random, batch, events / 5);
+
+        long bytes = allocatedBytes();
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+        long start = System.nanoTime();
+
+        int done = hold(scheduler, random, batch, events);
+
+        long time = System.nanoTime() - start;
+        double bytesPerEvent = (bytes < 0) ? Double.NaN : (allocatedBytes() - bytes) / (double) done;
+        System.out.printf("%-9s %8.1f ns/event %8.1f bytes/event %6d GCs %8d ms GC time%n",
+                name, time / (double) done, bytesPerEvent,
+                gcCount() - gcCount, gcTime() - gcTime);
+    }
+
+
+    private static int hold(EventScheduler scheduler, Random random, EventBatch batch, int events){
+        int done = 0;
+        while(done < events){
+            int now = scheduler.pullNext(batch);
+            for(int i=0; i < batch.size(); i++){
+                int delay = 1 + (int) (Math.sqrt(-Math.log(random.nextDouble())) * 45);
+                long handle = scheduler.add(now + delay, batch.getNode(i), EventType.MSG_RECEIVE, null);
+                if((i & 7) == 0){
+                    scheduler.cancel(handle);
+                    scheduler.add(now + 2, batch.getNode(i), EventType.TICK, null);
+                }
+            }
+            done += batch.size();
+        }
+        return done;
+    }
+
+
+    private static long allocatedBytes(){
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean){
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long gcCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long gcTime(){
+        long time = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            time += gc.getCollectionTime();
+        }
+        return time;
+    }
+
+}
@@ -0,0 +1,196 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import msm.simulator.Event.EventType;
+
+
+/**
+ * Equivalence check of the event schedulers: random sequences of add, cancel, removeEvent
+ * and pullNext applied to the reference scheduler (TREE), the calendar queue (CALENDAR,
+ * with a random number of buckets, with and without order) and the spilling scheduler
+ * (SPILL, with a small window and runs to force spilling), compared with a model.
+ *
+ * Checked at each pull: time of the next events, number of events at that time, events
+ * pulled (same set for TREE, same order as the model for CALENDAR and SPILL: by order,
+ * then insertion).
+ *
+ * Usage: SchedulerCheck [trials] [operations] [seed]
+ *
+ * @author pcjesus
+ *
+ */
+public class SchedulerCheck {
+
+    //Scheduled event of the model
+    private static class Entry {
+        int time;
+        int node;
+        EventType type;
+        int order;
+        long seq;
+        Integer data;
+        long[] handles;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+
+        int trials = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int operations = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+
+        File dir = File.createTempFile("spill", "");
+        dir.delete();
+        dir.mkdirs();
+
+        Random random = new Random(seed);
+        for(int t=0; t < trials; t++){
+            try {
+                trial(random, operations, dir);
+            } finally {
+                for(File f : dir.listFiles()){
+                    f.delete();
+                }
+            }
+        }
+        dir.delete();
+
+        System.out.println("OK: "+trials+" trials of "+operations+" operations");
+    }
+
+
+    private static void trial(Random random, int operations, File dir){
+
+        int buckets = 1 << random.nextInt(7);
+        boolean ordered = random.nextBoolean();
+        ScheduledEvents tree = new ScheduledEvents();
+        CalendarScheduledEvents calendar = new CalendarScheduledEvents(buckets);
+        SpillingScheduledEvents spill = new SpillingScheduledEvents(buckets, 1 + random.nextInt(200), 1 + random.nextInt(64), dir);
+        EventScheduler[] schedulers = new EventScheduler[]{tree, calendar, spill};
+
+        List<Entry> live = new ArrayList<Entry>();
+        EventBatch batch = new EventBatch();
+        EventType[] types = EventType.values();
+        int now = 0;
+        long seq = 0;
+
+        for(int i=0; i < operations; i++){
+            int op = random.nextInt(10);
+            if(op < 6){
+                //Mostly near future events, some far beyond the window, a few in the past
+                Entry e = new Entry();
+                e.time = now + ((random.nextInt(15) == 0) ? random.nextInt(3000) : random.nextInt(40));
+                if(random.nextInt(50) == 0){
+                    e.time = Math.max(0, e.time - random.nextInt(60));
+                }
+                e.node = random.nextInt(20);
+                e.type = types[random.nextInt(types.length)];
+                e.order = (ordered && random.nextInt(3) == 0) ? random.nextInt(4) : Integer.MAX_VALUE;
+                e.seq = seq++;
+                e.data = Integer.valueOf(i);
+                e.handles = new long[]{
+                        tree.add(e.time, e.node, e.type, e.data),
+                        calendar.add(e.time, e.node, e.type, e.data, e.order),
+                        spill.add(e.time, e.node, e.type, e.data)};
+                live.add(e);
+            } else if((op < 7) && !live.isEmpty()){
+                Entry e = live.remove(random.nextInt(live.size()));
+                for(int s=0; s < schedulers.length; s++){
+                    check(schedulers[s].cancel(e.handles[s]), s, "cancel");
+                    check(!schedulers[s].cancel(e.handles[s]), s, "cancel twice");
+                }
+            } else if((op < 8) && !live.isEmpty()){
+                Entry e = live.remove(random.nextInt(live.size()));
+                for(int s=0; s < schedulers.length; s++){
+                    check(schedulers[s].removeEvent(e.time, e.node, e.type, e.data), s, "removeEvent");
+                }
+            } else if(!live.isEmpty()){
+                now = pull(schedulers, live, batch);
+            }
+            for(int s=0; s < schedulers.length; s++){
+                check(schedulers[s].isEmpty() == live.isEmpty(), s, "isEmpty");
+            }
+        }
+
+        //Drain
+        while(!live.isEmpty()){
+            pull(schedulers, live, batch);
+        }
+        for(int s=0; s < schedulers.length; s++){
+            check(schedulers[s].isEmpty(), s, "isEmpty after drain");
+            schedulers[s].clear();
+        }
+    }
+
+
+    private static int pull(EventScheduler[] schedulers, List<Entry> live, EventBatch batch){
+
+        int min = Integer.MAX_VALUE;
+        for(Entry e : live){
+            min = Math.min(min, e.time);
+        }
+        List<Entry> next = new ArrayList<Entry>();
+        for(Entry e : live){
+            if(e.time == min){
+                next.add(e);
+            }
+        }
+        live.removeAll(next);
+
+        Set<Integer> expected = new HashSet<Integer>();
+        for(Entry e : next){
+            expected.add(e.data);
+        }
+
+        for(int s=0; s < schedulers.length; s++){
+            check(schedulers[s].getTimeOfNextEvents() == min, s, "time of next events");
+            check(schedulers[s].numberOfEventAtSameTime(min) == next.size(), s, "number of events");
+            check(schedulers[s].pullNext(batch) == min, s, "pulled time");
+            check(batch.size() == next.size(), s, "pulled events");
+
+            if(s == 0){
+                //Reference scheduler: no order inside the time slot
+                Set<Integer> pulled = new HashSet<Integer>();
+                for(int i=0; i < batch.size(); i++){
+                    pulled.add((Integer) batch.getData(i));
+                }
+                check(pulled.equals(expected), s, "pulled events");
+            } else {
+                List<Entry> ordered = new ArrayList<Entry>(next);
+                if(s == 1){
+                    //The spilling scheduler has no order (insertion order)
+                    Collections.sort(ordered, new Comparator<Entry>(){
+                        public int compare(Entry e1, Entry e2){
+                            return (e1.order != e2.order) ? (e1.order < e2.order ? -1 : 1) : (e1.seq < e2.seq ? -1 : 1);
+                        }
+                    });
+                }
+                for(int i=0; i < batch.size(); i++){
+                    Entry e = ordered.get(i);
+                    check(e.data.equals(batch.getData(i)) && (e.node == batch.getNode(i)) && (e.type == batch.getType(i)), s, "order of the pulled events");
+                }
+            }
+        }
+
+        return min;
+    }
+
+
+    private static void check(boolean condition, int scheduler, String what){
+        if(!condition){
+            throw new IllegalStateException(new String[]{"TREE", "CALENDAR", "SPILL"}[scheduler]+": "+what);
+        }
+    }
+
+}
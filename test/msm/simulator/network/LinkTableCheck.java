@@ -0,0 +1,199 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Equivalence check of the links table: random sequences of add, remove (by link and by
+ * position), removal of the links of a node, removal through the iterator, clear and copy
+ * applied to the table and to a list of links (the previous representation), with few node
+ * ids (several links per pair, self links).
+ *
+ * Checked after each operation: links in insertion order, access by position (without
+ * moving the links: positions kept), link of each pair of nodes (first of the pair in the
+ * list, any direction) and incident links of each node (in insertion order). Copies are
+ * checked against the original (same node ids, status and order, nodes of the copy).
+ *
+ * Usage: LinkTableCheck [trials] [operations] [seed]
+ *
+ * @author pcjesus
+ *
+ */
+public class LinkTableCheck {
+
+    public static void main(String[] args){
+
+        int trials = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int operations = (args.length > 1) ? Integer.parseInt(args[1]) : 5000;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+
+        Random random = new Random(seed);
+        for(int t=0; t < trials; t++){
+            trial(random, operations);
+        }
+
+        System.out.println("OK: "+trials+" trials of "+operations+" operations");
+    }
+
+
+    private static void trial(Random random, int operations){
+
+        int ids = 2 + random.nextInt(40);
+        Node[] nodes = new Node[ids];
+        for(int id=0; id < ids; id++){
+            nodes[id] = new Node(id, 0, 0);
+        }
+
+        LinkTable table = new LinkTable();
+        List<Link> model = new ArrayList<Link>();
+
+        for(int op=0; op < operations; op++){
+            int choice = random.nextInt(100);
+
+            if(choice < 45){
+                Link l = new Link(nodes[random.nextInt(ids)], nodes[random.nextInt(ids)], random.nextInt(3));
+                table.add(l);
+                model.add(l);
+
+            } else if(choice < 65){
+                //Remove a link (or one not in the table)
+                Link l = (model.isEmpty() || (random.nextInt(8) == 0))
+                        ? new Link(nodes[random.nextInt(ids)], nodes[random.nextInt(ids)], 0)
+                        : model.get(random.nextInt(model.size()));
+                check(table.remove(l) == model.remove(l), "remove(link)");
+
+            } else if(choice < 72){
+                if(!model.isEmpty()){
+                    int index = random.nextInt(model.size());
+                    check(table.remove(index) == model.remove(index), "remove(index)");
+                }
+
+            } else if(choice < 77){
+                int id = random.nextInt(ids);
+                int count = 0;
+                for(Iterator<Link> it = model.iterator(); it.hasNext(); ){
+                    Link l = it.next();
+                    if((l.getNode1().getId() == id) || (l.getNode2().getId() == id)){
+                        it.remove();
+                        count++;
+                    }
+                }
+                check(table.removeIncident(id) == count, "removeIncident");
+
+            } else if(choice < 82){
+                //Remove through the iterators (same links)
+                Iterator<Link> it = table.iterator();
+                Iterator<Link> mit = model.iterator();
+                while(mit.hasNext()){
+                    Link l = mit.next();
+                    check(it.next() == l, "iterator");
+                    if(random.nextInt(4) == 0){
+                        it.remove();
+                        mit.remove();
+                    }
+                }
+                check(!it.hasNext(), "iterator end");
+
+            } else if(choice < 97){
+                //Access by position: same links, positions of the links not changed
+                if(!model.isEmpty()){
+                    int[] positions = positions(table);
+                    for(int i=0; i < 3; i++){
+                        int index = random.nextInt(model.size());
+                        check(table.get(index) == model.get(index), "get(index)");
+                    }
+                    check(Arrays.equals(positions, positions(table)), "positions changed by get(index)");
+                }
+
+            } else if(choice < 99){
+                copy(table, nodes);
+
+            } else {
+                table.clear();
+                model.clear();
+            }
+
+            compare(table, model, ids);
+        }
+    }
+
+
+    private static void compare(LinkTable table, List<Link> model, int ids){
+
+        check(table.size() == model.size(), "size");
+        int i = 0;
+        for(Link l : table){
+            check(l == model.get(i++), "order");
+        }
+        check(i == model.size(), "iteration size");
+
+        for(int n1=0; n1 < ids; n1++){
+            for(int n2=n1; n2 < ids; n2++){
+                Link first = null;
+                for(Link l : model){
+                    if(((l.getNode1().getId() == n1) && (l.getNode2().getId() == n2))
+                            || ((l.getNode1().getId() == n2) && (l.getNode2().getId() == n1))){
+                        first = l;
+                        break;
+                    }
+                }
+                check(table.get(n1, n2) == first, "get("+n1+","+n2+")");
+                check(table.get(n2, n1) == first, "get("+n2+","+n1+")");
+            }
+
+            List<Link> incident = new ArrayList<Link>();
+            for(Link l : model){
+                if((l.getNode1().getId() == n1) || (l.getNode2().getId() == n1)){
+                    incident.add(l);
+                }
+            }
+            check(table.getIncident(n1).equals(incident), "getIncident("+n1+")");
+        }
+    }
+
+
+    private static void copy(LinkTable table, Node[] nodes){
+
+        NodeTable copyNodes = new NodeTable(new NodeState(nodes.length), nodes.length);
+        for(Node n : nodes){
+            copyNodes.put(n.getId(), new Node(n.getId(), 0, 0));
+        }
+        LinkTable copy = new LinkTable(table, copyNodes);
+
+        List<Link> expected = new ArrayList<Link>();
+        Iterator<Link> it = copy.iterator();
+        for(Link l : table){
+            Link c = it.next();
+            check((c != l) && (c.getNode1() == copyNodes.get(l.getNode1().getId())) && (c.getNode2() == copyNodes.get(l.getNode2().getId()))
+                    && (c.getStatus() == l.getStatus()) && (c.getAppStatus() == l.getAppStatus()), "copy of link");
+            expected.add(c);
+        }
+        check(!it.hasNext(), "copy size");
+        compare(copy, expected, nodes.length);
+    }
+
+
+    private static int[] positions(LinkTable table){
+        int[] result = new int[table.size()];
+        int i = 0;
+        for(Link l : table){
+            result[i++] = l.position;
+        }
+        return result;
+    }
+
+
+    private static void check(boolean condition, String what){
+        if(!condition){
+            throw new IllegalStateException("Links table differs from the list: "+what);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+
+/**
+ * Neighbor traversal of a random network: all the links through the node link sets (as
+ * HashSet<Integer>, the previous representation, and as IntSet) and through the topology
+ * snapshot (CSR rows), and breadth-first searches from a sample of nodes (over HashSet<Integer>
+ * link sets with a HashMap of distances, and Network.computeNodeEccentricity over the CSR).
+ * Also the time to build the snapshot.
+ *
+ * Usage: TopologyBench [nodes] [degree]
+ *
+ * @author pcjesus
+ *
+ */
+public class TopologyBench {
+
+    private static final int PASSES = 10;
+    private static final int SOURCES = 20;
+
+    //Sink for the traversal results (not optimized away)
+    private static long sink;
+
+
+    public static void main(String[] args){
+
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int degree = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+
+        Random random = new Random(3);
+        Network net = new NetworkErdosRenyi(size);
+        for(int id=0; id < size; id++){
+            Node n = new Node(id, random.nextDouble(), random.nextDouble());
+            n.setDataValue(BigDecimal.ONE);
+            net.addNode(id, n);
+        }
+        for(long l=(long) size * degree / 2; l > 0; l--){
+            int a = random.nextInt(size);
+            int b = random.nextInt(size);
+            if(a != b){
+                net.getNode(a).addLink(b);
+                net.getNode(b).addLink(a);
+            }
+        }
+
+        List<Set<Integer>> hashSets = new ArrayList<Set<Integer>>(size);
+        for(int id=0; id < size; id++){
+            hashSets.add(new HashSet<Integer>(net.getNode(id).getLinks()));
+        }
+
+        long start = System.nanoTime();
+        NetworkTopology topology = net.getTopology();
+        long build = System.nanoTime() - start;
+        NetworkTopology.Adjacency adj = topology.getLinks();
+        int links = adj.getNumLinks();
+        System.out.printf("%d nodes, %d directed links, snapshot built in %.1f ms%n", size, links, build / 1e6);
+
+        for(int r=0; r < 2; r++){
+            //HashSet<Integer> link sets
+            start = System.nanoTime();
+            for(int p=0; p < PASSES; p++){
+                long sum = 0;
+                for(int id=0; id < size; id++){
+                    for(Integer v : hashSets.get(id)){
+                        sum += v;
+                    }
+                }
+                sink += sum;
+            }
+            report("HashSet", System.nanoTime() - start, (long) PASSES * links);
+
+            //IntSet link sets
+            start = System.nanoTime();
+            for(int p=0; p < PASSES; p++){
+                long sum = 0;
+                for(int id=0; id < size; id++){
+                    for(Integer v : net.getNode(id).getLinks()){
+                        sum += v;
+                    }
+                }
+                sink += sum;
+            }
+            report("IntSet", System.nanoTime() - start, (long) PASSES * links);
+
+            //CSR rows
+            start = System.nanoTime();
+            int[] neighbors = adj.getNeighbors();
+            for(int p=0; p < PASSES; p++){
+                long sum = 0;
+                for(int id=0; id < size; id++){
+                    for(int i=adj.getStart(id), end=adj.getEnd(id); i < end; i++){
+                        sum += neighbors[i];
+                    }
+                }
+                sink += sum;
+            }
+            report("CSR", System.nanoTime() - start, (long) PASSES * links);
+
+            //Breadth-first searches
+            start = System.nanoTime();
+            for(int s=0; s < SOURCES; s++){
+                sink += eccentricity(hashSets, s * (size / SOURCES));
+            }
+            report("BFS HashSet", System.nanoTime() - start, (long) SOURCES * links);
+
+            start = System.nanoTime();
+            for(int s=0; s < SOURCES; s++){
+                sink += net.computeNodeEccentricity(net.getNode(s * (size / SOURCES)));
+            }
+            report("BFS CSR", System.nanoTime() - start, (long) SOURCES * links);
+        }
+
+        if(sink == 42){
+            System.out.println();
+        }
+    }
+
+
+    private static int eccentricity(List<Set<Integer>> links, int source){
+        Map<Integer, Integer> dist = new HashMap<Integer, Integer>();
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        dist.put(source, 0);
+        queue.add(source);
+        int max = 0;
+        while(!queue.isEmpty()){
+            Integer u = queue.removeFirst();
+            max = dist.get(u);
+            for(Integer v : links.get(u)){
+                if(!dist.containsKey(v)){
+                    dist.put(v, max + 1);
+                    queue.add(v);
+                }
+            }
+        }
+        return max;
+    }
+
+
+    private static void report(String name, long time, long edges){
+        System.out.printf("%-12s %8.2f ns/link%n", name, time / (double) edges);
+    }
+
+}
@@ -0,0 +1,275 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.network;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+
+/**
+ * Equivalence check of the topology snapshots (CSR): random networks (ids with gaps) changed
+ * by random sequences of link additions and removals, node arrivals and departures, and
+ * copies of the network, checking after each change:
+ * - the rows of the snapshot (physical and overlay) against the node link sets (same order);
+ * - degree statistics, eccentricities, diameter and connectivity against a naive reference
+ *   (breadth-first search over the node link sets);
+ * - copies of the network: same snapshot, and changes of a copy not seen by the original.
+ *
+ * Usage: TopologyCheck [trials] [operations] [seed]
+ *
+ * @author pcjesus
+ *
+ */
+public class TopologyCheck {
+
+    public static void main(String[] args) throws Exception {
+
+        int trials = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int operations = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+
+        Random random = new Random(seed);
+        for(int t=0; t < trials; t++){
+            trial(random, operations);
+        }
+
+        System.out.println("OK: "+trials+" trials of "+operations+" operations");
+    }
+
+
+    private static void trial(Random random, int operations){
+
+        int size = 1 + random.nextInt(150);
+        double degree = 1 + random.nextInt(8);
+        Network net = createNetwork(random, size, degree);
+        check(net);
+
+        for(int op=0; op < operations; op++){
+            List<Integer> ids = new ArrayList<Integer>(net.getNodesKeySet());
+            int choice = random.nextInt(10);
+
+            if(choice < 4){
+                //Add link (and overlay link)
+                if(ids.size() > 1){
+                    int a = ids.get(random.nextInt(ids.size()));
+                    int b = ids.get(random.nextInt(ids.size()));
+                    if(a != b){
+                        link(net, a, b, random.nextInt(4) == 0);
+                    }
+                }
+
+            } else if(choice < 7){
+                //Remove link
+                Node n = net.getNode(ids.get(random.nextInt(ids.size())));
+                if(n.numberOfLinks() > 0){
+                    int[] links = n.getLinks().toIntArray();
+                    int other = links[random.nextInt(links.length)];
+                    n.delLink(other);
+                    net.getNode(other).delLink(n.getId());
+                }
+
+            } else if(choice < 8){
+                //Node departure (not the last one)
+                if(ids.size() > 1){
+                    Integer id = ids.get(random.nextInt(ids.size()));
+                    Node n = net.getNode(id);
+                    for(int other : n.getLinks().toIntArray()){
+                        net.getNode(other).delLink(n.getId());
+                    }
+                    for(Node other : net.getNodes()){
+                        if(other.existOverlayLink(id)){
+                            other.delOverlayLink(id);
+                        }
+                    }
+                    net.getNodesMap().remove(id);
+                    net.invalidateTopology();
+                }
+
+            } else if(choice < 9){
+                //Node arrival (new id, maybe after a gap)
+                int id = Collections.max(ids) + 1 + random.nextInt(3);
+                net.addNode(id, node(random, id));
+                for(int i=random.nextInt(4); i > 0; i--){
+                    link(net, id, ids.get(random.nextInt(ids.size())), random.nextBoolean());
+                }
+
+            } else {
+                //Copy: same snapshot, then changes of the copy not seen by the original
+                Network copy = (Network) net.clone();
+                int[][] rows = rows(net.getTopology().getLinks());
+                if(copy.getTopology().getLinks() != net.getTopology().getLinks()){
+                    throw new IllegalStateException("Snapshot not shared by the copy");
+                }
+                Node n = copy.getNode(ids.get(random.nextInt(ids.size())));
+                if(n.numberOfLinks() > 0){
+                    int other = n.getLinks().toIntArray()[0];
+                    n.delLink(other);
+                    copy.getNode(other).delLink(n.getId());
+                }
+                check(copy);
+                if(!Arrays.deepEquals(rows, rows(net.getTopology().getLinks()))){
+                    throw new IllegalStateException("Change of a copy seen by the original");
+                }
+                net = copy;
+            }
+
+            check(net);
+        }
+    }
+
+
+    private static Network createNetwork(Random random, int size, double degree){
+
+        Network net = new NetworkErdosRenyi(size);
+        net.setType("ErdosRenyi");
+        net.setMaxPartitionNodes(new HashSet<Integer>());
+
+        //Ids with gaps (rows without nodes)
+        List<Integer> ids = new ArrayList<Integer>();
+        for(int id=0; ids.size() < size; id++){
+            if(random.nextInt(4) != 0){
+                ids.add(id);
+                net.addNode(id, node(random, id));
+            }
+        }
+
+        double p = (size > 1) ? degree / (size - 1) : 0;
+        for(int i=0; i < ids.size(); i++){
+            for(int j=i+1; j < ids.size(); j++){
+                if(random.nextDouble() < p){
+                    link(net, ids.get(i), ids.get(j), random.nextInt(4) == 0);
+                }
+            }
+        }
+
+        return net;
+    }
+
+
+    private static Node node(Random random, int id){
+        Node n = new Node(id, random.nextDouble(), random.nextDouble());
+        n.setDataValue(BigDecimal.ONE);
+        return n;
+    }
+
+
+    private static void link(Network net, int a, int b, boolean overlay){
+        net.getNode(a).addLink(b);
+        net.getNode(b).addLink(a);
+        if(overlay){
+            net.getNode(a).addOverlayLink(b);
+        }
+    }
+
+
+    private static void check(Network net){
+
+        NetworkTopology topology = net.getTopology();
+        if(net.getTopology() != topology){
+            throw new IllegalStateException("Snapshot built again without changes");
+        }
+
+        //Rows against the link sets (same order)
+        for(boolean overlay : new boolean[]{false, true}){
+            NetworkTopology.Adjacency adj = topology.getLinks(overlay);
+            int[] neighbors = adj.getNeighbors();
+            int total = 0;
+            for(Node n : net.getNodes()){
+                if(!adj.hasRow(n.getId())){
+                    throw new IllegalStateException("No row for node "+n.getId());
+                }
+                Iterator<Integer> it = (overlay ? n.getOverlayLinks() : n.getLinks()).iterator();
+                for(int i=adj.getStart(n.getId()), end=adj.getEnd(n.getId()); i < end; i++){
+                    if(!it.hasNext() || (it.next().intValue() != neighbors[i])){
+                        throw new IllegalStateException("Row of node "+n.getId()+" differs from its links (overlay="+overlay+")");
+                    }
+                }
+                if(it.hasNext()){
+                    throw new IllegalStateException("Row of node "+n.getId()+" shorter than its links (overlay="+overlay+")");
+                }
+                total += adj.getDegree(n.getId());
+            }
+            for(int id=0; id < adj.getNumRows(); id++){
+                if((net.getNode(id) == null) && (adj.getDegree(id) != 0)){
+                    throw new IllegalStateException("Row of missing node "+id+" not empty (overlay="+overlay+")");
+                }
+            }
+            if(total != adj.getNumLinks()){
+                throw new IllegalStateException("Number of links: "+adj.getNumLinks()+", expected "+total);
+            }
+        }
+
+        //Degree statistics
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for(Node n : net.getNodes()){
+            min = Math.min(min, n.numberOfLinks());
+            max = Math.max(max, n.numberOfLinks());
+        }
+        if((net.calculateMinDegree() != min) || (net.calculateMaxDegree() != max)){
+            throw new IllegalStateException("Degree min/max: "+net.calculateMinDegree()+"/"+net.calculateMaxDegree()+", expected "+min+"/"+max);
+        }
+
+        //Eccentricities, diameter and connectivity
+        int diameter = 0;
+        boolean connected = true;
+        for(Node n : net.getNodes()){
+            Map<Integer, Integer> dist = distances(net, n.getId());
+            int ecc = Collections.max(dist.values());
+            if(net.computeNodeEccentricity(n) != ecc){
+                throw new IllegalStateException("Eccentricity of node "+n.getId()+": "+net.computeNodeEccentricity(n)+", expected "+ecc);
+            }
+            diameter = Math.max(diameter, ecc);
+            connected = connected && (dist.size() == net.getNodes().size());
+        }
+        if(net.calculateDiameter() != diameter){
+            throw new IllegalStateException("Diameter: "+net.calculateDiameter()+", expected "+diameter);
+        }
+        if(net.isConnected() != connected){
+            throw new IllegalStateException("Connected: "+net.isConnected()+", expected "+connected);
+        }
+    }
+
+
+    /**
+     * Reference: hop distances from the node, over the node link sets
+     */
+    private static Map<Integer, Integer> distances(Network net, int source){
+        Map<Integer, Integer> dist = new HashMap<Integer, Integer>();
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        dist.put(source, 0);
+        queue.add(source);
+        while(!queue.isEmpty()){
+            Integer u = queue.removeFirst();
+            Set<Integer> links = net.getNode(u).getLinks();
+            for(Integer v : links){
+                if(!dist.containsKey(v)){
+                    dist.put(v, dist.get(u) + 1);
+                    queue.add(v);
+                }
+            }
+        }
+        return dist;
+    }
+
+
+    private static int[][] rows(NetworkTopology.Adjacency adj){
+        int[][] result = new int[adj.getNumRows()][];
+        for(int id=0; id < result.length; id++){
+            result[id] = Arrays.copyOfRange(adj.getNeighbors(), adj.getStart(id), adj.getEnd(id));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * MSM - Network Simulator
+ */
+package msm.simulator.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import msm.simulator.util.NumGenerator.GenerationFunction;
+
+import org.apache.commons.math.MathException;
+import org.apache.commons.math.random.MersenneTwister;
+import org.apache.commons.math.random.RandomDataImpl;
+
+
+/**
+ * Equivalence check of the NumGenerator samplers with the commons-math generators used before
+ * (RandomDataImpl, with the same adding and multiplication factors), for a list of
+ * configurations: values drawn by both (fixed seeds) are compared with a two-sample
+ * Kolmogorov-Smirnov test at 1%, and by mean and standard deviation. Also checked: fill draws
+ * the same values as generateInteger, no value is lower than minimumInteger, and WEIBULL is
+ * identical to commons-math for the same seed. Prints the time of both.
+ *
+ * Usage: NumGeneratorCheck [values] [configuration...]
+ *
+ * @author pcjesus
+ *
+ */
+public class NumGeneratorCheck {
+
+    private static final String[] CONFIGS = {
+        "CONSTANT;5",
+        "GAUSSIAN;100;25", "GAUSSIAN;10;2;3;1",
+        "POISSON;0.5", "POISSON;100", "POISSON;450", "POISSON;800", "POISSON;3;2;1",
+        "UNIFORM;10;50", "UNIFORM;1;5;2;1",
+        "EXPONENTIAL;20", "EXPONENTIAL;5;3;1",
+        "WEIBULL;2;45", "WEIBULL;1.5;10;2;3"};
+
+
+    public static void main(String[] args) throws Exception {
+
+        int values = (args.length > 0) ? Integer.parseInt(args[0]) : 2000000;
+        String[] configs = (args.length > 1) ? Arrays.copyOfRange(args, 1, args.length) : CONFIGS;
+
+        int failures = 0;
+        for(int c=0; c < configs.length; c++){
+            if(!check(configs[c], values, 1000 + c)){
+                failures++;
+            }
+        }
+        if(failures > 0){
+            throw new IllegalStateException(failures+" configurations differ");
+        }
+        System.out.println("OK");
+    }
+
+
+    private static boolean check(String config, int values, int seed) throws MathException {
+
+        String[] split = config.split(";");
+        GenerationFunction function = GenerationFunction.valueOf(split[0]);
+        String[] params = Arrays.copyOfRange(split, 1, split.length);
+
+        //Previous generators
+        RandomDataImpl randomData = new RandomDataImpl(new MersenneTwister(seed));
+        int[] reference = new int[values];
+        long start = System.nanoTime();
+        for(int i=0; i < values; i++){
+            reference[i] = reference(randomData, function, params);
+        }
+        long referenceTime = System.nanoTime() - start;
+
+        //Samplers (in bulk, and one at a time with the same seed)
+        NumGenerator generator = new NumGenerator(function, seed + 1, params);
+        int[] sampled = new int[values];
+        start = System.nanoTime();
+        generator.fill(sampled);
+        long sampledTime = System.nanoTime() - start;
+
+        NumGenerator single = generator.copy(seed + 1);
+        boolean sameFill = true;
+        for(int i=0; i < Math.min(values, 10000); i++){
+            sameFill &= (single.generateInteger().intValue() == sampled[i]);
+        }
+
+        int minimum = generator.minimumInteger();
+        boolean bounded = true;
+        for(int i=0; i < values; i++){
+            bounded &= (sampled[i] >= minimum);
+        }
+
+        boolean sameWeibull = true;
+        if(function == GenerationFunction.WEIBULL){
+            RandomDataImpl weibull = new RandomDataImpl(new MersenneTwister(seed));
+            NumGenerator samplerWeibull = new NumGenerator(function, seed, params);
+            for(int i=0; i < 10000; i++){
+                sameWeibull &= (reference(weibull, function, params) == samplerWeibull.generateInteger().intValue());
+            }
+        }
+
+        double ks = kolmogorovSmirnov(reference, sampled);
+        double critical = 1.63 * Math.sqrt(2.0 / values);
+        double[] r = meanDeviation(reference);
+        double[] s = meanDeviation(sampled);
+        //Means within 4 standard errors
+        double tolerance = 4 * Math.max(r[1], 1e-9) * Math.sqrt(2.0 / values);
+        boolean sameMoments = (Math.abs(r[0] - s[0]) <= tolerance) && (Math.abs(r[1] - s[1]) <= Math.max(0.01 * r[1], tolerance));
+
+        boolean ok = (ks <= critical) && sameMoments && sameFill && bounded && sameWeibull;
+        System.out.printf("%-22s %s KS %.5f (critical %.5f) mean %.4f/%.4f sd %.4f/%.4f min %d%s%s%s time %d/%d ms%n",
+                config, ok ? "OK  " : "FAIL", ks, critical, r[0], s[0], r[1], s[1], minimum,
+                sameFill ? "" : " FILL DIFFERS", bounded ? "" : " BELOW MINIMUM", sameWeibull ? "" : " WEIBULL DIFFERS",
+                referenceTime / 1000000, sampledTime / 1000000);
+        return ok;
+    }
+
+
+    /**
+     * Value generated as before the samplers (NumGenerator.generateInteger on RandomDataImpl)
+     */
+    private static int reference(RandomDataImpl randomData, GenerationFunction function, String[] params) throws MathException {
+        switch (function) {
+            case CONSTANT:
+                return Integer.parseInt(params[0]);
+            case GAUSSIAN:
+                double g = randomData.nextGaussian(Double.valueOf(params[0]), Double.valueOf(params[1]));
+                g = (g + factor(params, 3, 0)) * factor(params, 2, 1);
+                return (int) Math.round(g);
+            case POISSON:
+                long p = randomData.nextPoisson(Double.valueOf(params[0]));
+                p = (p + ((params.length > 2) ? Long.parseLong(params[2]) : 0)) * ((params.length > 1) ? Long.parseLong(params[1]) : 1);
+                return (int) p;
+            case UNIFORM:
+                double u = randomData.nextUniform(Double.valueOf(params[0]), Double.valueOf(params[1]));
+                u = (u + factor(params, 3, 0)) * factor(params, 2, 1);
+                return (int) Math.round(u);
+            case EXPONENTIAL:
+                double e = randomData.nextExponential(Double.valueOf(params[0]));
+                e = (e + factor(params, 2, 0)) * factor(params, 1, 1);
+                return (int) Math.round(e);
+            case WEIBULL:
+                double w = randomData.nextWeibull(Double.valueOf(params[0]), Double.valueOf(params[1]));
+                w = w * factor(params, 2, 1) + factor(params, 3, 0);
+                return (int) Math.round(w);
+            default:
+                throw new IllegalArgumentException("Unknown generation function: "+function);
+        }
+    }
+
+
+    private static double factor(String[] params, int index, double defaultValue){
+        return (params.length > index) ? Double.valueOf(params[index]) : defaultValue;
+    }
+
+
+    /**
+     * Largest difference of the empirical distributions of the two samples (same size)
+     */
+    private static double kolmogorovSmirnov(int[] a, int[] b){
+        TreeMap<Integer, long[]> counts = new TreeMap<Integer, long[]>();
+        for(int v : a){
+            count(counts, v)[0]++;
+        }
+        for(int v : b){
+            count(counts, v)[1]++;
+        }
+        double d = 0;
+        long ca = 0;
+        long cb = 0;
+        for(Map.Entry<Integer, long[]> e : counts.entrySet()){
+            ca += e.getValue()[0];
+            cb += e.getValue()[1];
+            d = Math.max(d, Math.abs(ca - cb) / (double) a.length);
+        }
+        return d;
+    }
+
+    private static long[] count(TreeMap<Integer, long[]> counts, int value){
+        long[] c = counts.get(value);
+        if(c == null){
+            c = new long[2];
+            counts.put(value, c);
+        }
+        return c;
+    }
+
+
+    private static double[] meanDeviation(int[] values){
+        double sum = 0;
+        for(int v : values){
+            sum += v;
+        }
+        double mean = sum / values.length;
+        double squares = 0;
+        for(int v : values){
+            squares += (v - mean) * (v - mean);
+        }
+        return new double[]{mean, Math.sqrt(squares / values.length)};
+    }
+
+}